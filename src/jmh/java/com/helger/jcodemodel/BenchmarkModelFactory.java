@@ -0,0 +1,124 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * Creates synthetic code models that are used by all benchmarks.
+ *
+ * @author Philip Helger
+ */
+final class BenchmarkModelFactory
+{
+  private BenchmarkModelFactory ()
+  {}
+
+  /**
+   * Create a new synthetic code model.
+   *
+   * @param nPackages
+   *        Number of packages to create
+   * @param nClasses
+   *        Number of classes per package
+   * @param nMethods
+   *        Number of methods per class
+   * @param nStatements
+   *        Number of statements per method
+   * @return The new code model
+   */
+  @Nonnull
+  static JCodeModel createModel (@Nonnegative final int nPackages,
+                                 @Nonnegative final int nClasses,
+                                 @Nonnegative final int nMethods,
+                                 @Nonnegative final int nStatements)
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final AbstractJClass aMapType = cm.ref (Map.class).narrow (cm.ref (String.class),
+                                                              cm.ref (List.class).narrow (Integer.class));
+    try
+    {
+      for (int p = 0; p < nPackages; ++p)
+      {
+        final JPackage aPkg = cm._package ("com.helger.benchmark.p" + p);
+        JDefinedClass aPrevClass = null;
+        for (int c = 0; c < nClasses; ++c)
+        {
+          final JDefinedClass aClass = aPkg._class (JMod.PUBLIC, "Generated" + c);
+          aClass.javadoc ().add ("Generated class " + c + " \u00e4\u00f6\u00fc\u00df \u20ac");
+          final JFieldVar aField = aClass.field (JMod.PRIVATE | JMod.FINAL,
+                                                 aMapType,
+                                                 "m_aMap",
+                                                 JExpr._new (cm.ref (HashMap.class).narrowEmpty ()));
+          if (aPrevClass != null)
+            aClass.field (JMod.PRIVATE, aPrevClass, "m_aPrev");
+
+          for (int m = 0; m < nMethods; ++m)
+          {
+            final JMethod aMethod = aClass.method (JMod.PUBLIC, cm.INT, "compute" + m);
+            final JVar aParam = aMethod.param (JMod.FINAL, String.class, "sKey");
+            final JBlock aBody = aMethod.body ();
+            final JVar aSum = aBody.decl (cm.INT, "nSum", JExpr.lit (m));
+            for (int s = 0; s < nStatements; ++s)
+            {
+              if ((s % 2) == 0)
+                aBody.assignPlus (aSum, aField.invoke ("size").plus (JExpr.lit (s)));
+              else
+                aBody._if (aParam.invoke ("startsWith").arg ("prefix\u00e4" + s))._then ()._return (aSum);
+            }
+            aBody._return (aSum);
+          }
+          aPrevClass = aClass;
+        }
+      }
+    }
+    catch (final JClassAlreadyExistsException ex)
+    {
+      throw new IllegalStateException (ex);
+    }
+    return cm;
+  }
+}
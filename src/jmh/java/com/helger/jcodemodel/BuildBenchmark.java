@@ -0,0 +1,141 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.jcodemodel.writer.FileCodeWriter;
+import com.helger.jcodemodel.writer.PathCodeWriter;
+import com.helger.jcodemodel.writer.ZipCodeWriter;
+
+/**
+ * Measures the end-to-end build time of a synthetic code model using
+ * {@link FileCodeWriter}, {@link PathCodeWriter} and {@link ZipCodeWriter}.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+@Fork (1)
+@State (Scope.Benchmark)
+public class BuildBenchmark
+{
+  /** An output stream that discards everything */
+  private static final class NullOutputStream extends OutputStream
+  {
+    @Override
+    public void write (final int b)
+    {}
+
+    @Override
+    public void write (final byte [] aBuf, final int nOfs, final int nLen)
+    {}
+  }
+
+  @Param ({ "1", "4" })
+  public int m_nThreads;
+
+  private JCodeModel m_aCM;
+  private Path m_aTargetDir;
+
+  @Setup
+  public void setup () throws IOException
+  {
+    m_aCM = BenchmarkModelFactory.createModel (10, 50, 10, 20);
+    m_aCM.setBuildingThreadCount (m_nThreads);
+    m_aTargetDir = Files.createTempDirectory ("jcm-benchmark");
+  }
+
+  @TearDown
+  public void tearDown () throws IOException
+  {
+    try (final Stream <Path> aPaths = Files.walk (m_aTargetDir))
+    {
+      aPaths.sorted (Comparator.reverseOrder ()).map (Path::toFile).forEach (File::delete);
+    }
+  }
+
+  @Benchmark
+  public void fileCodeWriter () throws IOException
+  {
+    m_aCM.build (new FileCodeWriter (m_aTargetDir.toFile (), m_aCM.getBuildingCharset (), "\n"));
+  }
+
+  @Benchmark
+  public void pathCodeWriter () throws IOException
+  {
+    m_aCM.build (new PathCodeWriter (m_aTargetDir, false, m_aCM.getBuildingCharset (), "\n"));
+  }
+
+  @Benchmark
+  public void zipCodeWriter () throws IOException
+  {
+    m_aCM.build (new ZipCodeWriter (new NullOutputStream (), "\n"));
+  }
+
+  @Benchmark
+  public void zipCodeWriterParallel () throws IOException
+  {
+    m_aCM.build (new ZipCodeWriter (new NullOutputStream (), "\n").setParallel (true));
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.helger.jcodemodel.util.NullWriter;
+
+/**
+ * Measures the throughput of {@link JFormatter} per class, for the collecting
+ * and printing passes as well as for the single pass strategy. The output is
+ * discarded.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class JFormatterBenchmark
+{
+  /** Number of statements per method - determines the class size */
+  @Param ({ "10", "200" })
+  public int m_nStatements;
+
+  @Param ({ "false", "true" })
+  public boolean m_bSinglePass;
+
+  @Param ({ "false", "true" })
+  public boolean m_bFragmentCache;
+
+  private List <JDefinedClass> m_aClasses;
+  private Iterator <JDefinedClass> m_aIt;
+
+  @Setup
+  public void setup ()
+  {
+    final JCodeModel cm = BenchmarkModelFactory.createModel (2, 50, 10, m_nStatements);
+    m_aClasses = new ArrayList <> ();
+    for (final Iterator <JPackage> it = cm.packages (); it.hasNext ();)
+      m_aClasses.addAll (it.next ().classes ());
+    m_aIt = m_aClasses.iterator ();
+  }
+
+  private JDefinedClass _nextClass ()
+  {
+    if (!m_aIt.hasNext ())
+      m_aIt = m_aClasses.iterator ();
+    return m_aIt.next ();
+  }
+
+  /**
+   * Collect and print a single class.
+   */
+  @Benchmark
+  public void writeClass ()
+  {
+    final JFormatter f = new JFormatter (new SourcePrintWriter (NullWriter.getInstance (), "\n"));
+    f.setSinglePass (m_bSinglePass).setFragmentCache (m_bFragmentCache);
+    f.write (_nextClass ());
+  }
+
+  /**
+   * Print a single class without collecting the imports before. The single
+   * pass and fragment cache parameters have no effect here.
+   *
+   * @param aBH
+   *        Black hole
+   */
+  @Benchmark
+  public void printDeclarationOnly (final Blackhole aBH)
+  {
+    final JFormatter f = new JFormatter (new SourcePrintWriter (NullWriter.getInstance (), "\n"));
+    aBH.consume (f.declaration (_nextClass ()));
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.jcodemodel.util.NullWriter;
+import com.helger.jcodemodel.util.UnicodeEscapeWriter;
+
+/**
+ * Measures the throughput of {@link UnicodeEscapeWriter}, both standalone and
+ * as part of the writer chain created by
+ * {@link AbstractCodeWriter#openSource(JPackage, String)}.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class UnicodeEscapeWriterBenchmark
+{
+  /** An output stream that discards everything */
+  private static final class NullOutputStream extends OutputStream
+  {
+    @Override
+    public void write (final int b)
+    {}
+
+    @Override
+    public void write (final byte [] aBuf, final int nOfs, final int nLen)
+    {}
+  }
+
+  /** A code writer that discards everything */
+  private static final class NullCodeWriter extends AbstractCodeWriter
+  {
+    NullCodeWriter (final Charset aEncoding)
+    {
+      super (aEncoding, "\n");
+    }
+
+    @Override
+    public OutputStream openBinary (final JPackage aPackage, final String sFilename)
+    {
+      return new NullOutputStream ();
+    }
+
+    @Override
+    public void close ()
+    {}
+  }
+
+  @Param ({ "ascii", "latin1", "cjk" })
+  public String m_sContent;
+
+  @Param ({ "UTF-8", "US-ASCII" })
+  public String m_sCharset;
+
+  private String m_sText;
+  private AbstractCodeWriter m_aCodeWriter;
+  private JPackage m_aPackage;
+
+  @Setup
+  public void setup ()
+  {
+    final String sLine;
+    switch (m_sContent)
+    {
+      case "latin1":
+        sLine = "    private String m_sValue = \"Gr\u00fc\u00dfe aus M\u00fcnchen, \u00e4\u00f6\u00fc\";\n";
+        break;
+      case "cjk":
+        sLine = "    private String m_sValue = \"\u65e5\u672c\u8a9e\u306e\u30c6\u30ad\u30b9\u30c8 \ud83d\ude00\";\n";
+        break;
+      default:
+        sLine = "    public static final int compute (final String sKey) { return sKey.length (); }\n";
+        break;
+    }
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < 1000; ++i)
+      aSB.append (sLine);
+    m_sText = aSB.toString ();
+    m_aCodeWriter = new NullCodeWriter (Charset.forName (m_sCharset));
+    m_aPackage = new JCodeModel ()._package ("com.helger.benchmark");
+  }
+
+  @Benchmark
+  public void plainWriter () throws IOException
+  {
+    try (final UnicodeEscapeWriter aWriter = new UnicodeEscapeWriter (NullWriter.getInstance ()))
+    {
+      aWriter.write (m_sText);
+    }
+  }
+
+  @Benchmark
+  public void sourceWriterChain () throws IOException
+  {
+    try (final SourcePrintWriter aWriter = m_aCodeWriter.openSource (m_aPackage, "Benchmark.java"))
+    {
+      aWriter.print (m_sText);
+    }
+  }
+}
@@ -40,15 +40,19 @@
  */
 package com.helger.jcodemodel;
 
-import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.BitSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -77,11 +81,17 @@ public abstract class AbstractCodeWriter implements Closeable
     // can't change this signature to Encoder because
     // we can't have Encoder in method signature
     private final CharsetEncoder m_aEncoder;
+    // true if the charset can encode every Unicode code point (e.g. UTF-8)
+    private final boolean m_bEncodesAll;
+    // cache of the encodability of BMP chars
+    private final BitSet m_aCheckedChars = new BitSet ();
+    private final BitSet m_aUnencodableChars = new BitSet ();
 
-    private JavaUnicodeEscapeWriter (@Nonnull final OutputStreamWriter bw)
+    private JavaUnicodeEscapeWriter (@Nonnull final Writer aWriter, @Nonnull final Charset aCharset)
     {
-      super (bw);
-      m_aEncoder = Charset.forName (bw.getEncoding ()).newEncoder ();
+      super (aWriter);
+      m_aEncoder = aCharset.newEncoder ();
+      m_bEncodesAll = aCharset.contains (StandardCharsets.UTF_8);
     }
 
     @Override
@@ -92,10 +102,248 @@ public abstract class AbstractCodeWriter implements Closeable
         return true;
 
       // check ASCII chars, for better performance
-      if (ch < 0x80)
+      if (ch < 0x80 || m_bEncodesAll)
         return false;
 
-      return !m_aEncoder.canEncode ((char) ch);
+      if (Character.isSupplementaryCodePoint (ch))
+        return !m_aEncoder.canEncode (new String (Character.toChars (ch)));
+
+      if (!m_aCheckedChars.get (ch))
+      {
+        m_aCheckedChars.set (ch);
+        if (!m_aEncoder.canEncode ((char) ch))
+          m_aUnencodableChars.set (ch);
+      }
+      return m_aUnencodableChars.get (ch);
+    }
+  }
+
+  /**
+   * The writer chain for a single source file, that is reused for all source
+   * files written by this code writer. Chars are escaped as needed, buffered
+   * and encoded into the stream returned by
+   * {@link AbstractCodeWriter#openBinary(JPackage, String)}. When closed, the
+   * stream is closed and the chain is returned to the pool.
+   */
+  private static final class PooledSourceWriter extends Writer
+  {
+    /**
+     * The writer for a single file on top of the chain. Once closed, all
+     * further calls fail, even if the chain was already reused for another
+     * file.
+     */
+    private final class Handle extends Writer
+    {
+      private boolean m_bClosed = false;
+
+      private void _ensureOpen () throws IOException
+      {
+        if (m_bClosed)
+          throw new IOException ("Stream closed");
+      }
+
+      @Override
+      public void write (final int c) throws IOException
+      {
+        _ensureOpen ();
+        m_aEscapeWriter.write (c);
+      }
+
+      @Override
+      public void write (@Nonnull final char [] aBuf, final int nOfs, final int nLen) throws IOException
+      {
+        _ensureOpen ();
+        m_aEscapeWriter.write (aBuf, nOfs, nLen);
+      }
+
+      @Override
+      public void write (@Nonnull final String sStr, final int nOfs, final int nLen) throws IOException
+      {
+        _ensureOpen ();
+        m_aEscapeWriter.write (sStr, nOfs, nLen);
+      }
+
+      @Override
+      public void flush () throws IOException
+      {
+        _ensureOpen ();
+        m_aEscapeWriter.flush ();
+      }
+
+      @Override
+      public void close () throws IOException
+      {
+        if (!m_bClosed)
+        {
+          m_bClosed = true;
+          // Returns the chain to the pool
+          m_aEscapeWriter.close ();
+        }
+      }
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Queue <PooledSourceWriter> m_aPool;
+    private final CharsetEncoder m_aEncoder;
+    private final CharBuffer m_aCharBuf = CharBuffer.allocate (BUFFER_SIZE);
+    private final ByteBuffer m_aByteBuf = ByteBuffer.allocate (BUFFER_SIZE);
+    private final UnicodeEscapeWriter m_aEscapeWriter;
+    private OutputStream m_aOS;
+    private SourcePrintWriter m_aPW;
+    private long m_nEscapedCharCountAtOpen;
+
+    private PooledSourceWriter (@Nonnull final Queue <PooledSourceWriter> aPool, @Nonnull final Charset aCharset)
+    {
+      m_aPool = aPool;
+      // Same behaviour as OutputStreamWriter
+      m_aEncoder = aCharset.newEncoder ()
+                           .onMalformedInput (CodingErrorAction.REPLACE)
+                           .onUnmappableCharacter (CodingErrorAction.REPLACE);
+
+      UnicodeEscapeWriter aEscapeWriter;
+      try
+      {
+        aEscapeWriter = new JavaUnicodeEscapeWriter (this, aCharset);
+      }
+      catch (final Throwable t)
+      {
+        aEscapeWriter = new UnicodeEscapeWriter (this);
+      }
+      m_aEscapeWriter = aEscapeWriter;
+    }
+
+    @Nonnull
+    SourcePrintWriter open (@Nonnull final OutputStream aOS, @Nonnull final String sNewLine)
+    {
+      m_aOS = aOS;
+      m_aPW = new SourcePrintWriter (new Handle (), sNewLine);
+      m_nEscapedCharCountAtOpen = m_aEscapeWriter.getEscapedCharCount ();
+      return m_aPW;
+    }
+
+    private void _ensureOpen () throws IOException
+    {
+      if (m_aOS == null)
+        throw new IOException ("Stream closed");
+    }
+
+    private void _writeBytes () throws IOException
+    {
+      m_aByteBuf.flip ();
+      final int nCount = m_aByteBuf.remaining ();
+      if (nCount > 0)
+      {
+        final JBuildMetrics aMetrics = m_aPW.getMetrics ();
+        final long nStart = aMetrics == null ? 0 : System.nanoTime ();
+        m_aOS.write (m_aByteBuf.array (), m_aByteBuf.arrayOffset () + m_aByteBuf.position (), nCount);
+        if (aMetrics != null)
+        {
+          aMetrics.addIONanos (System.nanoTime () - nStart);
+          aMetrics.addBytesWritten (nCount);
+        }
+      }
+      m_aByteBuf.clear ();
+    }
+
+    private void _encode (final boolean bEndOfInput) throws IOException
+    {
+      m_aCharBuf.flip ();
+      while (m_aEncoder.encode (m_aCharBuf, m_aByteBuf, bEndOfInput).isOverflow ())
+        _writeBytes ();
+      if (bEndOfInput)
+        while (m_aEncoder.flush (m_aByteBuf).isOverflow ())
+          _writeBytes ();
+      _writeBytes ();
+      // Keep an incomplete surrogate pair
+      m_aCharBuf.compact ();
+    }
+
+    @Override
+    public void write (final int c) throws IOException
+    {
+      _ensureOpen ();
+      if (!m_aCharBuf.hasRemaining ())
+        _encode (false);
+      m_aCharBuf.put ((char) c);
+    }
+
+    @Override
+    public void write (@Nonnull final char [] aBuf, final int nOfs, final int nLen) throws IOException
+    {
+      _ensureOpen ();
+      int nPos = nOfs;
+      final int nEnd = nOfs + nLen;
+      while (nPos < nEnd)
+      {
+        if (!m_aCharBuf.hasRemaining ())
+          _encode (false);
+        final int nCount = Math.min (m_aCharBuf.remaining (), nEnd - nPos);
+        m_aCharBuf.put (aBuf, nPos, nCount);
+        nPos += nCount;
+      }
+    }
+
+    @Override
+    public void write (@Nonnull final String sStr, final int nOfs, final int nLen) throws IOException
+    {
+      _ensureOpen ();
+      int nPos = nOfs;
+      final int nEnd = nOfs + nLen;
+      while (nPos < nEnd)
+      {
+        if (!m_aCharBuf.hasRemaining ())
+          _encode (false);
+        final int nCount = Math.min (m_aCharBuf.remaining (), nEnd - nPos);
+        m_aCharBuf.put (sStr, nPos, nPos + nCount);
+        nPos += nCount;
+      }
+    }
+
+    @Override
+    public void flush () throws IOException
+    {
+      if (m_aOS != null)
+      {
+        _encode (false);
+        m_aOS.flush ();
+      }
+    }
+
+    @Override
+    public void close () throws IOException
+    {
+      final OutputStream aOS = m_aOS;
+      if (aOS == null)
+      {
+        // Already closed
+        return;
+      }
+
+      try
+      {
+        _encode (true);
+        final JBuildMetrics aMetrics = m_aPW.getMetrics ();
+        if (aMetrics == null)
+          aOS.close ();
+        else
+        {
+          final long nStart = System.nanoTime ();
+          aOS.close ();
+          aMetrics.addIONanos (System.nanoTime () - nStart);
+          aMetrics.addEscapedCharCount (m_aEscapeWriter.getEscapedCharCount () - m_nEscapedCharCountAtOpen);
+        }
+      }
+      finally
+      {
+        // Reset and return to the pool
+        m_aOS = null;
+        m_aPW = null;
+        m_aEncoder.reset ();
+        m_aCharBuf.clear ();
+        m_aByteBuf.clear ();
+        m_aPool.offer (this);
+      }
     }
   }
 
@@ -105,6 +353,9 @@ public abstract class AbstractCodeWriter implements Closeable
   private final Charset m_aEncoding;
   private final String m_sNewLine;
 
+  /** The writer chains that are currently not in use by openSource */
+  private final Queue <PooledSourceWriter> m_aSourceWriterPool = new ConcurrentLinkedQueue <> ();
+
   private static String s_sDefaultNewLine = null;
 
   @Nonnull
@@ -160,7 +411,8 @@ public abstract class AbstractCodeWriter implements Closeable
    * Called by CodeModel to store the specified file. The callee must allocate a
    * storage to store the specified file. <br>
    * The returned stream will be closed before the next file is stored. So the
-   * callee can assume that only one OutputStream is active at any given time.
+   * callee can assume that only one OutputStream is active at any given time,
+   * unless {@link #isThreadSafe()} returns <code>true</code>.
    *
    * @param aPackage
    *        The package of the file to be written.
@@ -178,7 +430,10 @@ public abstract class AbstractCodeWriter implements Closeable
    * Called by CodeModel to store the specified file. The callee must allocate a
    * storage to store the specified file. <br>
    * The returned stream will be closed before the next file is stored. So the
-   * callee can assume that only one OutputStream is active at any given time.
+   * callee can assume that only one OutputStream is active at any given time,
+   * unless {@link #isThreadSafe()} returns <code>true</code>. <br>
+   * The writer chain including the buffers and the charset encoder is reused
+   * for all source files, once the returned writer was closed.
    *
    * @param aPackage
    *        The package of the file to be written.
@@ -194,22 +449,32 @@ public abstract class AbstractCodeWriter implements Closeable
                                        @Nonnull final String sFilename) throws IOException
   {
     final OutputStream aOS = openBinary (aPackage, sFilename);
-    final OutputStreamWriter aOSW = m_aEncoding != null ? new OutputStreamWriter (aOS, m_aEncoding)
-                                                        : new OutputStreamWriter (aOS);
 
-    // create writer
-    Writer aWriter;
-    try
-    {
-      aWriter = new JavaUnicodeEscapeWriter (aOSW);
-    }
-    catch (final Throwable t)
-    {
-      aWriter = new UnicodeEscapeWriter (aOSW);
-    }
+    PooledSourceWriter aPooled = m_aSourceWriterPool.poll ();
+    if (aPooled == null)
+      aPooled = new PooledSourceWriter (m_aSourceWriterPool,
+                                        m_aEncoding != null ? m_aEncoding : Charset.defaultCharset ());
 
-    // Ensure result is buffered
-    return new SourcePrintWriter (new BufferedWriter (aWriter), m_sNewLine);
+    // The result is buffered
+    return aPooled.open (aOS, m_sNewLine);
+  }
+
+  /**
+   * Determine whether this writer can be used from multiple threads at once.
+   * If this method returns <code>true</code>, {@link #openBinary(JPackage, String)}
+   * and {@link #openSource(JPackage, String)} may be invoked concurrently,
+   * whereas each returned stream is still only used by a single thread. This
+   * is used by the parallel build of {@link JCodeModel}. If this method returns
+   * <code>false</code> all files are passed to this writer sequentially in a
+   * deterministic order.
+   *
+   * @return <code>true</code> if concurrent calls are supported. The default
+   *         is <code>false</code>.
+   * @since 3.0.4
+   */
+  public boolean isThreadSafe ()
+  {
+    return false;
   }
 
   /**
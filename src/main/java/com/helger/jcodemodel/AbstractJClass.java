@@ -68,6 +68,8 @@ public abstract class AbstractJClass extends AbstractJType
 
   private final JCodeModel m_aOwner;
   private JArrayClass m_aArrayClass;
+  /** Lazily determined by {@link #topLevelClass()} */
+  private AbstractJClass m_aTopLevelClass;
 
   protected AbstractJClass (@Nonnull final JCodeModel aOwner)
   {
@@ -103,6 +105,25 @@ public abstract class AbstractJClass extends AbstractJType
     return null;
   }
 
+  /**
+   * @return The outermost class of the chain of {@link #outer()} classes or
+   *         this, if this is a top-level class. The result is cached, as the
+   *         nesting of a class never changes.
+   */
+  @Nonnull
+  final AbstractJClass topLevelClass ()
+  {
+    AbstractJClass ret = m_aTopLevelClass;
+    if (ret == null)
+    {
+      ret = this;
+      for (AbstractJClass aOuter = outer (); aOuter != null; aOuter = aOuter.outer ())
+        ret = aOuter;
+      m_aTopLevelClass = ret;
+    }
+    return ret;
+  }
+
   @Nonnull
   public final JCodeModel owner ()
   {
@@ -244,7 +265,7 @@ public abstract class AbstractJClass extends AbstractJType
   public JArrayClass array ()
   {
     if (m_aArrayClass == null)
-      m_aArrayClass = new JArrayClass (owner (), this);
+      m_aArrayClass = owner ().internClass (new JArrayClass (owner (), this));
     return m_aArrayClass;
   }
 
@@ -286,7 +307,7 @@ public abstract class AbstractJClass extends AbstractJType
   @Nonnull
   public JNarrowedClass narrow (@Nonnull final AbstractJClass aClazz)
   {
-    return new JNarrowedClass (this, aClazz);
+    return owner ().internClass (new JNarrowedClass (this, aClazz));
   }
 
   @Nonnull
@@ -298,13 +319,13 @@ public abstract class AbstractJClass extends AbstractJType
   @Nonnull
   public AbstractJClass narrow (@Nonnull final AbstractJClass... aClazz)
   {
-    return new JNarrowedClass (this, Arrays.asList (aClazz.clone ()));
+    return owner ().internClass (new JNarrowedClass (this, Arrays.asList (aClazz.clone ())));
   }
 
   @Nonnull
   public AbstractJClass narrow (@Nonnull final List <? extends AbstractJClass> aClazz)
   {
-    return new JNarrowedClass (this, new ArrayList <> (aClazz));
+    return owner ().internClass (new JNarrowedClass (this, new ArrayList <> (aClazz)));
   }
 
   /**
@@ -314,7 +335,7 @@ public abstract class AbstractJClass extends AbstractJType
   @Nonnull
   public AbstractJClass narrowEmpty ()
   {
-    return new JNarrowedClass (this, new ArrayList <> ());
+    return owner ().internClass (new JNarrowedClass (this, new ArrayList <> ()));
   }
 
   /**
@@ -406,7 +427,7 @@ public abstract class AbstractJClass extends AbstractJType
   @Nonnull
   public final JTypeWildcard wildcard (@Nonnull final EWildcardBoundMode eMode)
   {
-    return new JTypeWildcard (this, eMode);
+    return owner ().internClass (new JTypeWildcard (this, eMode));
   }
 
   /**
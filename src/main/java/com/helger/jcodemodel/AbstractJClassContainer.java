@@ -77,6 +77,9 @@ public abstract class AbstractJClassContainer <CLASSTYPE extends AbstractJClassC
    */
   private final String m_sName;
 
+  /** Lazily built by {@link #fullName()} */
+  private String m_sFullName;
+
   /**
    * Nested classes as a map from name to JDefinedClass. The name is all
    * capitalized in a case sensitive file system (
@@ -165,6 +168,16 @@ public abstract class AbstractJClassContainer <CLASSTYPE extends AbstractJClassC
   @Override
   @Nullable
   public String fullName ()
+  {
+    // Name and outer container never change
+    String ret = m_sFullName;
+    if (ret == null)
+      ret = m_sFullName = _buildFullName ();
+    return ret;
+  }
+
+  @Nullable
+  private String _buildFullName ()
   {
     if (getOuter () instanceof AbstractJClassContainer <?>)
       return ((AbstractJClassContainer <?>) getOuter ()).fullName () + '.' + name ();
@@ -81,6 +81,19 @@ public abstract class AbstractJResourceFile
     return true;
   }
 
+  /**
+   * @return <code>true</code> if the stream passed to
+   *         {@link #build(OutputStream)} should be buffered, because this file
+   *         is written in small chunks. <code>false</code> if this file is
+   *         written in large chunks only, so that it can use the stream of the
+   *         code writer directly. Default is <code>true</code>.
+   * @since 3.0.4
+   */
+  protected boolean isBufferedOutput ()
+  {
+    return true;
+  }
+
   /**
    * called by {@link JPackage} to produce the file image.
    *
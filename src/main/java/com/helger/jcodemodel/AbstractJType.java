@@ -64,29 +64,55 @@ public abstract class AbstractJType implements IJGenerable, IJOwned
    * @return Never <code>null</code>
    * @throws IllegalArgumentException
    *         If the passed type name is not a primitive type name
+   * @see #parseOrNull(JCodeModel, String)
    */
   @Nonnull
   public static JPrimitiveType parse (@Nonnull final JCodeModel aCodeModel, @Nonnull final String sTypeName)
   {
-    if (sTypeName.equals ("void"))
-      return aCodeModel.VOID;
-    if (sTypeName.equals ("boolean"))
-      return aCodeModel.BOOLEAN;
-    if (sTypeName.equals ("byte"))
-      return aCodeModel.BYTE;
-    if (sTypeName.equals ("short"))
-      return aCodeModel.SHORT;
-    if (sTypeName.equals ("char"))
-      return aCodeModel.CHAR;
-    if (sTypeName.equals ("int"))
-      return aCodeModel.INT;
-    if (sTypeName.equals ("float"))
-      return aCodeModel.FLOAT;
-    if (sTypeName.equals ("long"))
-      return aCodeModel.LONG;
-    if (sTypeName.equals ("double"))
-      return aCodeModel.DOUBLE;
-    throw new IllegalArgumentException ("Not a primitive type: " + sTypeName);
+    final JPrimitiveType ret = parseOrNull (aCodeModel, sTypeName);
+    if (ret == null)
+      throw new IllegalArgumentException ("Not a primitive type: " + sTypeName);
+    return ret;
+  }
+
+  /**
+   * Obtains a reference to the primitive type object from a type name, without
+   * throwing an exception for other names.
+   *
+   * @param aCodeModel
+   *        Base code model
+   * @param sTypeName
+   *        primitive type to be parsed (e.g. "int" or "void")
+   * @return <code>null</code> if the passed type name is not a primitive type
+   *         name
+   * @since 3.0.4
+   */
+  @Nullable
+  public static JPrimitiveType parseOrNull (@Nonnull final JCodeModel aCodeModel, @Nonnull final String sTypeName)
+  {
+    switch (sTypeName)
+    {
+      case "void":
+        return aCodeModel.VOID;
+      case "boolean":
+        return aCodeModel.BOOLEAN;
+      case "byte":
+        return aCodeModel.BYTE;
+      case "short":
+        return aCodeModel.SHORT;
+      case "char":
+        return aCodeModel.CHAR;
+      case "int":
+        return aCodeModel.INT;
+      case "float":
+        return aCodeModel.FLOAT;
+      case "long":
+        return aCodeModel.LONG;
+      case "double":
+        return aCodeModel.DOUBLE;
+      default:
+        return null;
+    }
   }
 
   /**
@@ -0,0 +1,84 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Listener that is informed about the metrics of a build of a
+ * {@link JCodeModel}. All methods are invoked from the thread that invoked
+ * <code>build</code>, also if the build is performed in parallel. Files are
+ * reported in the same order in which they are written by a sequential build.
+ *
+ * @author Philip Helger
+ * @see JCodeModel#setBuildListener(IJBuildListener)
+ * @since 3.0.4
+ */
+public interface IJBuildListener
+{
+  /**
+   * Called after a single source or resource file was written.
+   *
+   * @param aMetrics
+   *        The metrics of the file. Never <code>null</code>.
+   */
+  default void onFileBuilt (@Nonnull final JBuildMetrics aMetrics)
+  {}
+
+  /**
+   * Called after all files of a package were written.
+   *
+   * @param aMetrics
+   *        The summed up metrics of all files of the package. Never
+   *        <code>null</code>.
+   */
+  default void onPackageBuilt (@Nonnull final JBuildMetrics aMetrics)
+  {}
+
+  /**
+   * Called after the complete build finished successfully.
+   *
+   * @param aMetrics
+   *        The summed up metrics of all packages. Never <code>null</code>.
+   */
+  default void onBuildFinished (@Nonnull final JBuildMetrics aMetrics)
+  {}
+}
@@ -0,0 +1,82 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nullable;
+
+/**
+ * Implemented by output streams opened via
+ * {@link AbstractCodeWriter#openBinary(JPackage, String)} that write into a
+ * channel. Resource files may write directly into this channel, e.g. via
+ * {@link java.nio.channels.FileChannel#transferTo(long, long, WritableByteChannel)}.
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+public interface IJChannelOutputStream
+{
+  /**
+   * Get the channel this stream writes to. All data written to the stream so
+   * far is flushed to the channel before. The returned channel must not be
+   * closed - it is closed together with the stream.
+   *
+   * @return The target channel or <code>null</code> if this stream does not
+   *         write to a channel.
+   * @throws IOException
+   *         if flushing the stream failed
+   */
+  @Nullable
+  WritableByteChannel getChannel () throws IOException;
+
+  /**
+   * Called after bytes were written directly into the channel returned by
+   * {@link #getChannel()}.
+   *
+   * @param nBytes
+   *        The number of bytes written. Always &ge; 0.
+   */
+  default void onChannelWritten (@Nonnegative final long nBytes)
+  {}
+}
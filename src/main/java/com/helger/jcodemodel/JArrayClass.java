@@ -58,6 +58,8 @@ public class JArrayClass extends AbstractJClass
 {
   // array component type
   private final AbstractJType m_aComponentType;
+  private String m_sName;
+  private String m_sFullName;
 
   protected JArrayClass (@Nonnull final JCodeModel aOwner, @Nonnull final AbstractJType aComponentType)
   {
@@ -75,14 +77,20 @@ public class JArrayClass extends AbstractJClass
   @Nonnull
   public String name ()
   {
-    return m_aComponentType.name () + "[]";
+    String ret = m_sName;
+    if (ret == null)
+      ret = m_sName = m_aComponentType.name () + "[]";
+    return ret;
   }
 
   @Override
   @Nonnull
   public String fullName ()
   {
-    return m_aComponentType.fullName () + "[]";
+    String ret = m_sFullName;
+    if (ret == null)
+      ret = m_sFullName = m_aComponentType.fullName () + "[]";
+    return ret;
   }
 
   @Override
@@ -153,7 +161,7 @@ public class JArrayClass extends AbstractJClass
     if (c == m_aComponentType)
       return this;
 
-    return new JArrayClass (owner (), c);
+    return c.array ();
   }
 
   //
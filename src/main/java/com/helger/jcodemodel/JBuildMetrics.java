@@ -0,0 +1,260 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Metrics of a single generated file, of a whole package or of a complete
+ * build, as passed to an {@link IJBuildListener}. All times are in
+ * nanoseconds. The metrics of a package are the sum of the metrics of its
+ * files, and the metrics of a build are the sum of all packages.
+ * <p>
+ * The collect pass is the traversal that determines the imports and the print
+ * pass is the traversal that creates the source code (in single pass mode the
+ * recording counts as collect pass). I/O is the time spent in the code writer
+ * for opening, writing and closing the output. Bytes written and escaped chars
+ * are only available if the code writer uses the default implementation of
+ * {@link AbstractCodeWriter#openSource(JPackage, String)}.
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+public final class JBuildMetrics
+{
+  private final JPackage m_aPackage;
+  private final String m_sFilename;
+  private int m_nFileCount;
+  private long m_nCollectNanos;
+  private long m_nPrintNanos;
+  private long m_nIONanos;
+  private long m_nBytesWritten;
+  private int m_nImportCount;
+  private int m_nCollisionCount;
+  private long m_nEscapedCharCount;
+
+  JBuildMetrics (@Nullable final JPackage aPackage, @Nullable final String sFilename)
+  {
+    m_aPackage = aPackage;
+    m_sFilename = sFilename;
+    m_nFileCount = sFilename == null ? 0 : 1;
+  }
+
+  /**
+   * @return The package the metrics belong to. <code>null</code> for the
+   *         metrics of a complete build.
+   */
+  @Nullable
+  public JPackage getPackage ()
+  {
+    return m_aPackage;
+  }
+
+  /**
+   * @return The name of the file (without the path) the metrics belong to.
+   *         <code>null</code> for the metrics of a package or a complete build.
+   */
+  @Nullable
+  public String getFilename ()
+  {
+    return m_sFilename;
+  }
+
+  /**
+   * @return The number of files contained in these metrics. Always 1 for the
+   *         metrics of a single file.
+   */
+  @Nonnegative
+  public int getFileCount ()
+  {
+    return m_nFileCount;
+  }
+
+  /**
+   * @return The nanoseconds spent in the collect pass.
+   */
+  @Nonnegative
+  public long getCollectNanos ()
+  {
+    return m_nCollectNanos;
+  }
+
+  /**
+   * @return The nanoseconds spent in the print pass, excluding I/O.
+   */
+  @Nonnegative
+  public long getPrintNanos ()
+  {
+    return m_nPrintNanos;
+  }
+
+  /**
+   * @return The nanoseconds spent in the code writer.
+   */
+  @Nonnegative
+  public long getIONanos ()
+  {
+    return m_nIONanos;
+  }
+
+  /**
+   * @return The sum of collect, print and I/O nanoseconds.
+   */
+  @Nonnegative
+  public long getTotalNanos ()
+  {
+    return m_nCollectNanos + m_nPrintNanos + m_nIONanos;
+  }
+
+  /**
+   * @return The number of bytes passed to the code writer.
+   */
+  @Nonnegative
+  public long getBytesWritten ()
+  {
+    return m_nBytesWritten;
+  }
+
+  /**
+   * @return The number of import statements emitted.
+   */
+  @Nonnegative
+  public int getImportCount ()
+  {
+    return m_nImportCount;
+  }
+
+  /**
+   * @return The number of short type names that are ambiguous and can
+   *         therefore not be imported.
+   */
+  @Nonnegative
+  public int getCollisionCount ()
+  {
+    return m_nCollisionCount;
+  }
+
+  /**
+   * @return The number of chars written as Java Unicode escapes.
+   */
+  @Nonnegative
+  public long getEscapedCharCount ()
+  {
+    return m_nEscapedCharCount;
+  }
+
+  void addCollectNanos (final long nNanos)
+  {
+    m_nCollectNanos += nNanos;
+  }
+
+  void addPrintNanos (final long nNanos)
+  {
+    m_nPrintNanos += nNanos;
+  }
+
+  void addIONanos (final long nNanos)
+  {
+    m_nIONanos += nNanos;
+  }
+
+  void addBytesWritten (final long nBytes)
+  {
+    m_nBytesWritten += nBytes;
+  }
+
+  void setImportCount (final int nImportCount)
+  {
+    m_nImportCount = nImportCount;
+  }
+
+  void setCollisionCount (final int nCollisionCount)
+  {
+    m_nCollisionCount = nCollisionCount;
+  }
+
+  void addEscapedCharCount (final long nCount)
+  {
+    m_nEscapedCharCount += nCount;
+  }
+
+  void add (@Nonnull final JBuildMetrics aOther)
+  {
+    m_nFileCount += aOther.m_nFileCount;
+    m_nCollectNanos += aOther.m_nCollectNanos;
+    m_nPrintNanos += aOther.m_nPrintNanos;
+    m_nIONanos += aOther.m_nIONanos;
+    m_nBytesWritten += aOther.m_nBytesWritten;
+    m_nImportCount += aOther.m_nImportCount;
+    m_nCollisionCount += aOther.m_nCollisionCount;
+    m_nEscapedCharCount += aOther.m_nEscapedCharCount;
+  }
+
+  @Override
+  public String toString ()
+  {
+    final StringBuilder aSB = new StringBuilder ("JBuildMetrics[");
+    if (m_aPackage != null)
+      aSB.append ("package=").append (m_aPackage.name ()).append (", ");
+    if (m_sFilename != null)
+      aSB.append ("file=").append (m_sFilename).append (", ");
+    return aSB.append ("files=")
+              .append (m_nFileCount)
+              .append (", collectNanos=")
+              .append (m_nCollectNanos)
+              .append (", printNanos=")
+              .append (m_nPrintNanos)
+              .append (", ioNanos=")
+              .append (m_nIONanos)
+              .append (", bytes=")
+              .append (m_nBytesWritten)
+              .append (", imports=")
+              .append (m_nImportCount)
+              .append (", collisions=")
+              .append (m_nCollisionCount)
+              .append (", escapedChars=")
+              .append (m_nEscapedCharCount)
+              .append (']')
+              .toString ();
+  }
+}
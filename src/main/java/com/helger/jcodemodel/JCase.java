@@ -134,4 +134,13 @@ public class JCase implements IJStatement
       f.statement (m_aBody);
     f.outdent ();
   }
+
+  /**
+   * @return The body or <code>null</code> if none was created.
+   */
+  @Nullable
+  JBlock internalGetBody ()
+  {
+    return m_aBody;
+  }
 }
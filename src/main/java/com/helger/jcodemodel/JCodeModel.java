@@ -50,12 +50,21 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
 import javax.annotation.concurrent.NotThreadSafe;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
@@ -63,6 +72,7 @@ import javax.lang.model.util.Elements;
 import com.helger.jcodemodel.meta.CodeModelBuildingException;
 import com.helger.jcodemodel.meta.ErrorTypeFound;
 import com.helger.jcodemodel.meta.JCodeModelJavaxLangModelAdapter;
+import com.helger.jcodemodel.meta.JavaxLangModelCache;
 import com.helger.jcodemodel.util.JCSecureLoader;
 import com.helger.jcodemodel.util.JCValueEnforcer;
 import com.helger.jcodemodel.writer.FileCodeWriter;
@@ -174,12 +184,55 @@ public final class JCodeModel
     primitiveToBox = Collections.unmodifiableMap (m2);
   }
 
-  /** The packages that this JCodeWriter contains. */
+  /**
+   * The default number of threads used for building. 1 means the build is
+   * performed sequentially in the calling thread.
+   *
+   * @since 3.0.4
+   */
+  public static final int DEFAULT_BUILDING_THREAD_COUNT = 1;
+
+  /**
+   * By default the model may only be constructed from a single thread.
+   *
+   * @since 3.0.4
+   */
+  public static final boolean DEFAULT_CONCURRENT_CONSTRUCTION = false;
+
+  /**
+   * The packages that this JCodeWriter contains. Access is synchronized,
+   * because packages may be created lazily during a parallel build.
+   */
   private final Map <String, JPackage> m_aPackages = new HashMap <> ();
 
-  /** All JReferencedClasses are pooled here. */
+  /**
+   * All JReferencedClasses are pooled here. Access is synchronized, because
+   * classes may be referenced lazily during a parallel build.
+   */
   private final Map <Class <?>, JReferencedClass> m_aRefClasses = new HashMap <> ();
 
+  /**
+   * The results of {@link #ref(String)} keyed by the fully qualified class
+   * name. Contains both the classes that could be loaded and the
+   * {@link JDirectClass} objects of the classes that could not be loaded, so
+   * that each name is looked up only once.
+   */
+  private final Map <String, AbstractJClass> m_aRefClassesByName = new ConcurrentHashMap <> ();
+
+  /**
+   * The results of {@link #parseType(String)} keyed by the type name. As all
+   * parsed types are canonical (referenced classes, narrowed classes,
+   * wildcards and arrays are all interned), the same object is returned for
+   * each name.
+   */
+  private final Map <String, AbstractJType> m_aParsedTypes = new ConcurrentHashMap <> ();
+
+  /**
+   * Lock held while a lazy member initializer of any class of this model runs.
+   * The initializers share the state of the javax.lang.model adapters.
+   */
+  private final Object m_aLazyMembersLock = new Object ();
+
   /** Obtains a reference to the special "null" type. */
   public final JNullType NULL = new JNullType (this);
   // primitive types
@@ -204,11 +257,87 @@ public final class JCodeModel
   /** The newline string to be used. Defaults to system default */
   private String m_sBuildingNewLine = AbstractCodeWriter.getDefaultNewLine ();
 
-  private final Set <AbstractJClass> m_aDontImportClasses = new HashSet <> ();
+  /** The number of threads used for building */
+  private int m_nBuildingThreadCount = DEFAULT_BUILDING_THREAD_COUNT;
+
+  /** Use the single pass formatting strategy for building */
+  private boolean m_bBuildingSinglePass = JFormatter.DEFAULT_SINGLE_PASS;
+
+  /** Cache the rendering of expressions for building */
+  private boolean m_bBuildingFragmentCache = JFormatter.DEFAULT_FRAGMENT_CACHE;
+
+  /** Use concurrent maps for the classes of all packages */
+  private boolean m_bConcurrentConstruction = DEFAULT_CONCURRENT_CONSTRUCTION;
+
+  /** The listener to be informed about the build metrics */
+  private IJBuildListener m_aBuildListener;
+
+  private final Set <AbstractJClass> m_aDontImportClasses = ConcurrentHashMap.newKeySet ();
+
+  /**
+   * Formatters that are reused for all files written by a build or a flush.
+   * Cleared at the end of each build.
+   */
+  private final Queue <JFormatter> m_aFormatterPool = new ConcurrentLinkedQueue <> ();
+
+  /**
+   * Conversion results of {@link #ref(TypeElement, Elements)} and
+   * {@link #refWithErrorTypes(TypeElement, Elements)}, kept across annotation
+   * processing rounds.
+   */
+  private final JavaxLangModelCache m_aJavaxLangModelCache = new JavaxLangModelCache ();
+
+  /**
+   * Canonical instances of narrowed classes, wildcards and arrays. Equal types
+   * created via the factory methods are represented by the same object.
+   */
+  private final Map <AbstractJClass, AbstractJClass> m_aInternedClasses = new ConcurrentHashMap <> ();
 
   public JCodeModel ()
   {}
 
+  /**
+   * @return <code>true</code> if the concurrent construction mode is enabled.
+   *         Defaults to {@link #DEFAULT_CONCURRENT_CONSTRUCTION}.
+   * @see #setConcurrentConstruction(boolean)
+   * @since 3.0.4
+   */
+  public boolean isConcurrentConstruction ()
+  {
+    return m_bConcurrentConstruction;
+  }
+
+  /**
+   * Enable or disable the concurrent construction mode. If enabled, multiple
+   * threads may concurrently create packages, create top-level classes (via
+   * {@link #_class(String)} or {@link JPackage#_class(int, String, EClassType)}),
+   * reference classes via {@link #ref(Class)} or {@link #ref(String)} and add
+   * classes that should not be imported. Creating the same class from multiple threads
+   * results in exactly one class, all other threads receive a
+   * {@link JClassAlreadyExistsException}. Each single {@link JDefinedClass}
+   * including its inner classes must still be modified by one thread at a time
+   * only.
+   * <p>
+   * This method must not be called while other threads are constructing the
+   * model. Already existing packages and classes are retained.
+   *
+   * @param bConcurrent
+   *        <code>true</code> to enable concurrent construction
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public JCodeModel setConcurrentConstruction (final boolean bConcurrent)
+  {
+    synchronized (m_aPackages)
+    {
+      m_bConcurrentConstruction = bConcurrent;
+      for (final JPackage aPkg : m_aPackages.values ())
+        aPkg.setConcurrentConstruction (bConcurrent);
+    }
+    return this;
+  }
+
   /**
    * Add a package to the list of packages to be generated
    *
@@ -219,7 +348,10 @@ public final class JCodeModel
   @Nonnull
   public JPackage _package (@Nonnull final String sName)
   {
-    return m_aPackages.computeIfAbsent (sName, k -> new JPackage (k, this));
+    synchronized (m_aPackages)
+    {
+      return m_aPackages.computeIfAbsent (sName, k -> new JPackage (k, this));
+    }
   }
 
   @Nonnull
@@ -234,7 +366,17 @@ public final class JCodeModel
   @Nonnull
   public Iterator <JPackage> packages ()
   {
-    return m_aPackages.values ().iterator ();
+    return _getAllPackages ().iterator ();
+  }
+
+  @Nonnull
+  private List <JPackage> _getAllPackages ()
+  {
+    synchronized (m_aPackages)
+    {
+      // Copy to avoid concurrent modification exception
+      return new ArrayList <> (m_aPackages.values ());
+    }
   }
 
   /**
@@ -429,9 +571,8 @@ public final class JCodeModel
    */
   public boolean buildsErrorTypeRefs ()
   {
-    final JPackage [] pkgs = m_aPackages.values ().toArray (new JPackage [m_aPackages.size ()]);
     // avoid concurrent modification exception
-    for (final JPackage pkg : pkgs)
+    for (final JPackage pkg : _getAllPackages ())
     {
       if (pkg.buildsErrorTypeRefs ())
         return true;
@@ -532,6 +673,125 @@ public final class JCodeModel
     return this;
   }
 
+  /**
+   * @return The number of threads used for building. 1 means sequential
+   *         building in the calling thread. Defaults to
+   *         {@link #DEFAULT_BUILDING_THREAD_COUNT}.
+   * @since 3.0.4
+   */
+  @Nonnegative
+  public int getBuildingThreadCount ()
+  {
+    return m_nBuildingThreadCount;
+  }
+
+  /**
+   * Set the number of threads to be used for building. If more than one thread
+   * is used, all top-level classes are formatted in parallel. The created
+   * output is identical to the sequential build.
+   *
+   * @param nThreadCount
+   *        The number of threads to use. Must be &gt; 0.
+   * @return this for chaining
+   * @see #build(AbstractCodeWriter, AbstractCodeWriter, Executor)
+   * @since 3.0.4
+   */
+  @Nonnull
+  public JCodeModel setBuildingThreadCount (@Nonnegative final int nThreadCount)
+  {
+    JCValueEnforcer.isGT0 (nThreadCount, "ThreadCount");
+    m_nBuildingThreadCount = nThreadCount;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if each class is traversed only once when
+   *         building. Defaults to {@link JFormatter#DEFAULT_SINGLE_PASS}.
+   * @see JFormatter#isSinglePass()
+   * @since 3.0.4
+   */
+  public boolean isBuildingSinglePass ()
+  {
+    return m_bBuildingSinglePass;
+  }
+
+  /**
+   * Set whether each class should be traversed only once when building,
+   * instead of once for collecting the imports and once for printing. The
+   * created output is identical.
+   *
+   * @param bSinglePass
+   *        <code>true</code> to use the single pass strategy
+   * @return this for chaining
+   * @see JFormatter#setSinglePass(boolean)
+   * @since 3.0.4
+   */
+  @Nonnull
+  public JCodeModel setBuildingSinglePass (final boolean bSinglePass)
+  {
+    m_bBuildingSinglePass = bSinglePass;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the rendering of expressions is cached when
+   *         building. Defaults to {@link JFormatter#DEFAULT_FRAGMENT_CACHE}.
+   * @see JFormatter#isFragmentCache()
+   * @since 3.0.4
+   */
+  public boolean isBuildingFragmentCache ()
+  {
+    return m_bBuildingFragmentCache;
+  }
+
+  /**
+   * Set whether expressions that are used multiple times (like shared
+   * constants, field references or invocations) should be rendered only once
+   * per build. The created output is identical. The cache lives only for a
+   * single build or flush, so the model may be modified in between.
+   *
+   * @param bFragmentCache
+   *        <code>true</code> to cache the rendering of expressions
+   * @return this for chaining
+   * @see JFormatter#setFragmentCache(boolean)
+   * @since 3.0.4
+   */
+  @Nonnull
+  public JCodeModel setBuildingFragmentCache (final boolean bFragmentCache)
+  {
+    m_bBuildingFragmentCache = bFragmentCache;
+    return this;
+  }
+
+  /**
+   * @return The listener that is informed about the metrics of each file and
+   *         package written by a build. May be <code>null</code>.
+   * @since 3.0.4
+   */
+  @Nullable
+  public IJBuildListener getBuildListener ()
+  {
+    return m_aBuildListener;
+  }
+
+  /**
+   * Set the listener that is informed about the metrics of each file and
+   * package written by {@link #build(AbstractCodeWriter, AbstractCodeWriter)}
+   * and {@link #flush(JDefinedClass, AbstractCodeWriter)}. If no listener is
+   * set, no metrics are collected.
+   *
+   * @param aBuildListener
+   *        The listener to use. May be <code>null</code>.
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public JCodeModel setBuildListener (@Nullable final IJBuildListener aBuildListener)
+  {
+    m_aBuildListener = aBuildListener;
+    return this;
+  }
+
   /**
    * Generates Java source code. A convenience method for
    * <code>build(destDir,destDir,status)</code>.
@@ -619,7 +879,8 @@ public final class JCodeModel
   }
 
   /**
-   * Generates Java source code.
+   * Generates Java source code. If a building thread count &gt; 1 is set, the
+   * build is performed in parallel.
    *
    * @param aSource
    *        Source code writer
@@ -627,24 +888,236 @@ public final class JCodeModel
    *        Resource writer
    * @throws IOException
    *         on IO error
+   * @see #setBuildingThreadCount(int)
    */
   public void build (@Nonnull final AbstractCodeWriter aSource,
                      @Nonnull final AbstractCodeWriter aResource) throws IOException
   {
+    if (m_nBuildingThreadCount > 1)
+    {
+      final ExecutorService aExecutor = Executors.newFixedThreadPool (m_nBuildingThreadCount);
+      try
+      {
+        build (aSource, aResource, aExecutor);
+      }
+      finally
+      {
+        aExecutor.shutdownNow ();
+      }
+      return;
+    }
+
     try
     {
-      // Copy to avoid concurrent modification exception
-      final List <JPackage> pkgs = new ArrayList <> (m_aPackages.values ());
+      final IJBuildListener aListener = m_aBuildListener;
+      final JBuildMetrics aBuildMetrics = aListener == null ? null : new JBuildMetrics (null, null);
+      for (final JPackage pkg : _getAllPackages ())
+      {
+        final JBuildMetrics aPackageMetrics = pkg.build (aSource, aResource, aListener);
+        if (aBuildMetrics != null)
+          aBuildMetrics.add (aPackageMetrics);
+      }
+      if (aListener != null)
+        aListener.onBuildFinished (aBuildMetrics);
+    }
+    finally
+    {
+      m_aFormatterPool.clear ();
+      aSource.close ();
+      aResource.close ();
+    }
+  }
+
+  /**
+   * Generates Java source code using the provided executor to format all
+   * top-level classes in parallel. Each class is formatted independently.
+   * <p>
+   * If the source writer is thread-safe (see
+   * {@link AbstractCodeWriter#isThreadSafe()}) the classes are also written
+   * from the executor threads. Otherwise the formatted sources are passed to
+   * the writer in the calling thread, in the same order as in the sequential
+   * build. Package infos and resources are always written from the calling
+   * thread. In all cases the content of the created files is identical to the
+   * sequential build.
+   *
+   * @param aSource
+   *        Source code writer
+   * @param aResource
+   *        Resource writer
+   * @param aExecutor
+   *        The executor to be used. May not be <code>null</code>. It is not
+   *        shut down by this method.
+   * @throws IOException
+   *         on IO error
+   * @since 3.0.4
+   */
+  public void build (@Nonnull final AbstractCodeWriter aSource,
+                     @Nonnull final AbstractCodeWriter aResource,
+                     @Nonnull final Executor aExecutor) throws IOException
+  {
+    JCValueEnforcer.notNull (aExecutor, "Executor");
+
+    final List <Future <String>> aAllScheduled = new ArrayList <> ();
+    try
+    {
+      final List <JPackage> pkgs = _getAllPackages ();
+
+      // Used by every formatter or lazily created - create them upfront, as
+      // the classes are rendered on the executor threads
+      _package ("java.lang");
+      wildcard ();
+      _initLazyMembers (pkgs);
+
+      final IJBuildListener aListener = m_aBuildListener;
+      final Map <JDefinedClass, JBuildMetrics> aMetricsMap = aListener == null ? null : new HashMap <> ();
+
+      // Schedule all classes of all packages before waiting for any of them
+      final List <List <Future <String>>> aScheduledPerPackage = new ArrayList <> (pkgs.size ());
       for (final JPackage pkg : pkgs)
-        pkg.build (aSource, aResource);
+      {
+        final List <Future <String>> aScheduled = pkg.scheduleClasses (aSource, aExecutor, aMetricsMap);
+        aScheduledPerPackage.add (aScheduled);
+        aAllScheduled.addAll (aScheduled);
+      }
+
+      final JBuildMetrics aBuildMetrics = aListener == null ? null : new JBuildMetrics (null, null);
+      for (int i = 0; i < pkgs.size (); ++i)
+      {
+        final JBuildMetrics aPackageMetrics = pkgs.get (i)
+                                                  .buildScheduled (aSource,
+                                                                   aResource,
+                                                                   aScheduledPerPackage.get (i),
+                                                                   aListener,
+                                                                   aMetricsMap);
+        if (aBuildMetrics != null)
+          aBuildMetrics.add (aPackageMetrics);
+      }
+      if (aListener != null)
+        aListener.onBuildFinished (aBuildMetrics);
     }
     finally
     {
+      // In case of an error: don't start any more work and wait until no
+      // executor thread is writing anymore
+      for (final Future <String> aFuture : aAllScheduled)
+        if (!aFuture.cancel (false))
+          try
+          {
+            aFuture.get ();
+          }
+          catch (final InterruptedException ex)
+          {
+            Thread.currentThread ().interrupt ();
+          }
+          catch (final ExecutionException ex)
+          {
+            // Already handled
+          }
+
+      m_aFormatterPool.clear ();
       aSource.close ();
       aResource.close ();
     }
   }
 
+  /**
+   * Write a single top-level class immediately and release its body
+   * afterwards. This reduces the memory footprint of very large models, as
+   * methods, fields, blocks and expressions of the class can be garbage
+   * collected once it is written. Only a lightweight stub remains, so that the
+   * class can still be referenced (and imported) by classes written later on.
+   * A flushed class cannot be modified anymore and is skipped by all
+   * subsequent builds. Hidden classes are not written but released as well.
+   * <p>
+   * The writer is not closed by this method, so that the same writer can be
+   * used for multiple flushes and for the final {@link #build} call which
+   * writes all remaining classes, package infos and resources.
+   *
+   * @param aClass
+   *        The top-level class to be written. May not be <code>null</code>.
+   * @param aSource
+   *        Source code writer. May not be <code>null</code>.
+   * @throws IOException
+   *         on IO error
+   * @see JDefinedClass#isFlushed()
+   * @since 3.0.4
+   */
+  public void flush (@Nonnull final JDefinedClass aClass,
+                     @Nonnull @WillNotClose final AbstractCodeWriter aSource) throws IOException
+  {
+    JCValueEnforcer.notNull (aClass, "Class");
+    JCValueEnforcer.notNull (aSource, "Source");
+    JCValueEnforcer.isTrue (aClass.owner () == this, "The class is not part of this code model");
+    JCValueEnforcer.isTrue (aClass.parentContainer ().isPackage (), "Only top-level classes can be flushed");
+    JCValueEnforcer.isFalse (aClass.isFlushed (), "The class was already flushed");
+
+    // Don't let the initializers run while the body is written and released
+    aClass.initLazyMembersRecursive ();
+    aClass._package ().flushClass (aSource, aClass);
+
+    // The model may be modified before the next flush
+    for (final JFormatter aFormatter : m_aFormatterPool)
+      aFormatter.clearFragmentCache ();
+  }
+
+  /**
+   * Run all pending lazy member initializers of the classes to be written in
+   * the calling thread, so that the executor threads never run them.
+   *
+   * @param aPackages
+   *        The packages to be written
+   * @see JDefinedClass#setLazyMemberInitializer(Runnable)
+   */
+  private static void _initLazyMembers (@Nonnull final List <JPackage> aPackages)
+  {
+    for (final JPackage aPackage : aPackages)
+      for (final JDefinedClass aClass : aPackage.classes ())
+        if (!aClass.isHidden () && !aClass.isFlushed ())
+          aClass.initLazyMembersRecursive ();
+  }
+
+  @Nonnull
+  Object getLazyMembersLock ()
+  {
+    return m_aLazyMembersLock;
+  }
+
+  /**
+   * Get a formatter for writing a single file. The formatter is taken from the
+   * pool if possible and must be returned via
+   * {@link #releaseFormatter(JFormatter)} after it was closed.
+   *
+   * @param aPW
+   *        The writer for the file
+   * @return The formatter configured with the building settings of this model.
+   */
+  @Nonnull
+  JFormatter acquireFormatter (@Nonnull final SourcePrintWriter aPW)
+  {
+    final JFormatter aPooled = m_aFormatterPool.poll ();
+    final JFormatter ret;
+    if (aPooled != null)
+    {
+      // Already contains all classes to not be imported, as the pool is
+      // cleared when a class is added
+      ret = aPooled.reset (aPW);
+    }
+    else
+    {
+      ret = new JFormatter (aPW);
+      // Add all classes to not be imported (may be empty)
+      ret.addDontImportClasses (m_aDontImportClasses);
+    }
+    ret.setSinglePass (m_bBuildingSinglePass);
+    ret.setFragmentCache (m_bBuildingFragmentCache);
+    return ret;
+  }
+
+  void releaseFormatter (@Nonnull final JFormatter aFormatter)
+  {
+    m_aFormatterPool.offer (aFormatter);
+  }
+
   /**
    * @return the number of files to be generated if {@link #build} is invoked
    *         now.
@@ -653,9 +1126,8 @@ public final class JCodeModel
   public int countArtifacts ()
   {
     int r = 0;
-    final JPackage [] pkgs = m_aPackages.values ().toArray (new JPackage [m_aPackages.size ()]);
     // avoid concurrent modification exception
-    for (final JPackage pkg : pkgs)
+    for (final JPackage pkg : _getAllPackages ())
       r += pkg.countArtifacts ();
     return r;
   }
@@ -674,26 +1146,56 @@ public final class JCodeModel
   @Nonnull
   public AbstractJClass ref (@Nonnull final Class <?> aClazz)
   {
-    JReferencedClass aRefClass = m_aRefClasses.get (aClazz);
-    if (aRefClass == null)
+    if (aClazz.isPrimitive ())
     {
-      if (aClazz.isPrimitive ())
-      {
-        // Cannot return BYTE etc. because the return type does not match
-        throw new IllegalArgumentException (aClazz + " is a primitive");
-      }
+      // Cannot return BYTE etc. because the return type does not match
+      throw new IllegalArgumentException (aClazz + " is a primitive");
+    }
 
-      if (aClazz.isArray ())
-      {
-        final Class <?> aComponentType = aClazz.getComponentType ();
-        // Component type may be a primitive!
-        return new JArrayClass (this, _ref (aComponentType));
-      }
+    if (aClazz.isArray ())
+    {
+      final Class <?> aComponentType = aClazz.getComponentType ();
+      // Component type may be a primitive!
+      return new JArrayClass (this, _ref (aComponentType));
+    }
 
-      aRefClass = new JReferencedClass (this, aClazz);
-      m_aRefClasses.put (aClazz, aRefClass);
+    synchronized (m_aRefClasses)
+    {
+      return m_aRefClasses.computeIfAbsent (aClazz, k -> new JReferencedClass (this, k));
     }
-    return aRefClass;
+  }
+
+  /**
+   * Get the canonical instance of a type with value based equality.
+   *
+   * @param aClass
+   *        The newly created type. May not be <code>null</code>.
+   * @return The first equal type passed to this method, which may be the
+   *         passed object itself. Never <code>null</code>.
+   * @param <T>
+   *        the class type
+   */
+  @Nonnull
+  @SuppressWarnings ("unchecked")
+  <T extends AbstractJClass> T internClass (@Nonnull final T aClass)
+  {
+    // Equality of narrowed classes, wildcards and arrays includes the
+    // implementation class, so the cast is safe
+    final AbstractJClass aExisting = m_aInternedClasses.putIfAbsent (aClass, aClass);
+    return aExisting != null ? (T) aExisting : aClass;
+  }
+
+  /**
+   * @return The cache used to convert <code>javax.lang.model</code> elements
+   *         and types with {@link #ref(TypeElement, Elements)} and
+   *         {@link #refWithErrorTypes(TypeElement, Elements)}. Never
+   *         <code>null</code>.
+   * @since 3.0.4
+   */
+  @Nonnull
+  public JavaxLangModelCache getJavaxLangModelCache ()
+  {
+    return m_aJavaxLangModelCache;
   }
 
   /**
@@ -792,7 +1294,11 @@ public final class JCodeModel
    * name. <br>
    * First, this method attempts to load the class of the given name. If that
    * fails, we assume that the class is derived straight from {@link Object},
-   * and return a {@link AbstractJClass}.
+   * and return a {@link AbstractJClass}.<br>
+   * The result is cached per name - subsequent calls with the same name return
+   * the same object without trying to load the class again, no matter whether
+   * the class could be loaded or not. This method may be called from multiple
+   * threads concurrently.
    *
    * @param sFullyQualifiedClassName
    *        FQCN
@@ -802,6 +1308,18 @@ public final class JCodeModel
    */
   @Nonnull
   public AbstractJClass ref (@Nonnull final String sFullyQualifiedClassName)
+  {
+    JCValueEnforcer.notNull (sFullyQualifiedClassName, "FullyQualifiedClassName");
+
+    // Fast path without locking
+    final AbstractJClass ret = m_aRefClassesByName.get (sFullyQualifiedClassName);
+    if (ret != null)
+      return ret;
+    return m_aRefClassesByName.computeIfAbsent (sFullyQualifiedClassName, this::_loadRef);
+  }
+
+  @Nonnull
+  private AbstractJClass _loadRef (@Nonnull final String sFullyQualifiedClassName)
   {
     try
     {
@@ -846,6 +1364,9 @@ public final class JCodeModel
    * Obtains a type object from a type name.
    * <p>
    * This method handles primitive types, arrays, and existing {@link Class}es.
+   * The result is cached per name, so that parsing the same name again is a
+   * single lookup. This method may be called from multiple threads
+   * concurrently.
    *
    * @param sName
    *        Type name to parse
@@ -855,6 +1376,21 @@ public final class JCodeModel
    */
   @Nonnull
   public AbstractJType parseType (@Nonnull final String sName)
+  {
+    JCValueEnforcer.notNull (sName, "Name");
+
+    final AbstractJType ret = m_aParsedTypes.get (sName);
+    if (ret != null)
+      return ret;
+
+    // Not using computeIfAbsent, because parsing is recursive
+    final AbstractJType aParsed = _parseType (sName);
+    final AbstractJType aOld = m_aParsedTypes.putIfAbsent (sName, aParsed);
+    return aOld != null ? aOld : aParsed;
+  }
+
+  @Nonnull
+  private AbstractJType _parseType (@Nonnull final String sName)
   {
     // array
     if (sName.endsWith ("[]"))
@@ -864,14 +1400,9 @@ public final class JCodeModel
     }
 
     // try primitive type
-    try
-    {
-      return AbstractJType.parse (this, sName);
-    }
-    catch (final IllegalArgumentException e)
-    {
-      // Not a primitive type
-    }
+    final JPrimitiveType aPrimitive = AbstractJType.parseOrNull (this, sName);
+    if (aPrimitive != null)
+      return aPrimitive;
 
     // existing class
     return new TypeNameParser (sName).parseTypeName ();
@@ -1035,7 +1566,11 @@ public final class JCodeModel
   public boolean addDontImportClass (@Nonnull final AbstractJClass aClass)
   {
     JCValueEnforcer.notNull (aClass, "Class");
-    return m_aDontImportClasses.add (aClass);
+    if (!m_aDontImportClasses.add (aClass))
+      return false;
+    // Pooled formatters don't know the new class
+    m_aFormatterPool.clear ();
+    return true;
   }
 
   /**
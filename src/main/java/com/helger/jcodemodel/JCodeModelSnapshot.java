@@ -0,0 +1,220 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+
+/**
+ * Compact binary snapshot of a complete {@link JCodeModel}. A snapshot
+ * contains all packages with their Javadoc, annotations and resources, all
+ * defined classes including inner and anonymous classes, fields, methods,
+ * statements, expressions, annotations and Javadoc comments. Generators can
+ * persist the model after an expensive construction phase and read it back
+ * for incremental builds or to build it with several code writers.
+ * <p>
+ * The format starts with a header and a table of all strings, followed by
+ * the model itself. Strings are referenced by index and all numbers are
+ * written as variable length integers. Types and objects like variables and
+ * methods are written once and later referenced by index. Reading uses the
+ * regular model API and no reflection.
+ * <p>
+ * Restrictions:
+ * <ul>
+ * <li>Building settings (charset, new line, threads etc.) and the build
+ * listener are not part of the snapshot.</li>
+ * <li>Lazy member initializers are run before writing. Classes that were
+ * already flushed cannot be written.</li>
+ * <li>Referenced classes are stored by name and resolved again when reading.
+ * Resource files other than {@link com.helger.jcodemodel.fmt.JTextFile} and
+ * {@link com.helger.jcodemodel.fmt.JBinaryFile} are stored with their current
+ * content.</li>
+ * <li>Annotation values that were set as Java enum constants or {@link Class}
+ * objects are read back as expressions that generate the same code.</li>
+ * <li>Custom implementations of {@link IJExpression} or {@link IJStatement}
+ * cannot be written and result in an
+ * {@link UnsupportedOperationException}.</li>
+ * </ul>
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+public final class JCodeModelSnapshot
+{
+  /** The first bytes of each snapshot */
+  static final byte [] MAGIC = { 'J', 'C', 'M', 'S' };
+  /** The current format version */
+  static final int VERSION = 1;
+
+  // Type kinds
+  static final int TYPE_PRIMITIVE = 0;
+  static final int TYPE_NULL = 1;
+  static final int TYPE_REFERENCED = 2;
+  static final int TYPE_DIRECT = 3;
+  static final int TYPE_ERROR = 4;
+  static final int TYPE_NARROWED = 5;
+  static final int TYPE_ARRAY = 6;
+  static final int TYPE_WILDCARD = 7;
+  static final int TYPE_TYPEVAR = 8;
+  static final int TYPE_TYPEVAR_CLASS = 9;
+  static final int TYPE_ANONYMOUS = 10;
+
+  // Expression and statement nodes
+  static final int NODE_NULL = 0;
+  static final int NODE_ATOM = 1;
+  static final int NODE_INT = 2;
+  static final int NODE_LONG = 3;
+  static final int NODE_FLOAT = 4;
+  static final int NODE_DOUBLE = 5;
+  static final int NODE_STRING = 6;
+  static final int NODE_BINARY = 7;
+  static final int NODE_UNARY = 8;
+  static final int NODE_UNARY_TIGHT = 9;
+  static final int NODE_TERNARY = 10;
+  static final int NODE_ASSIGNMENT = 11;
+  static final int NODE_CAST = 12;
+  static final int NODE_INVOCATION = 13;
+  static final int NODE_FIELD_REF = 14;
+  static final int NODE_ARRAY = 15;
+  static final int NODE_ARRAY_COMP_REF = 16;
+  static final int NODE_ENUM_CONSTANT_REF = 17;
+  static final int NODE_ENUM_CONSTANT = 18;
+  static final int NODE_VAR = 19;
+  static final int NODE_LAMBDA_PARAM = 20;
+  static final int NODE_LAMBDA = 21;
+  static final int NODE_LAMBDA_METHOD_REF = 22;
+  static final int NODE_DOT_CLASS = 23;
+  static final int NODE_DIRECT_EXPR = 24;
+  static final int NODE_TYPE = 25;
+  static final int NODE_BLOCK = 26;
+  static final int NODE_DECL = 27;
+  static final int NODE_CONDITIONAL = 28;
+  static final int NODE_FOR = 29;
+  static final int NODE_FOR_EACH = 30;
+  static final int NODE_WHILE = 31;
+  static final int NODE_DO = 32;
+  static final int NODE_SYNCHRONIZED = 33;
+  static final int NODE_SWITCH = 34;
+  static final int NODE_TRY = 35;
+  static final int NODE_THROW = 36;
+  static final int NODE_RETURN = 37;
+  static final int NODE_BREAK = 38;
+  static final int NODE_CONTINUE = 39;
+  static final int NODE_LABEL = 40;
+  static final int NODE_DIRECT_STATEMENT = 41;
+  static final int NODE_COMMENT = 42;
+
+  // Kinds of invocations and method references
+  static final int INVOKE_CONSTRUCTOR = 0;
+  static final int INVOKE_NAME = 1;
+  static final int INVOKE_METHOD = 2;
+  static final int METHOD_REF_STATIC = 0;
+  static final int METHOD_REF_TYPE = 1;
+  static final int METHOD_REF_VAR = 2;
+  static final int METHOD_REF_INVOCATION = 3;
+
+  // Annotation values
+  static final int ANNOTATION_VALUE_BOOLEAN = 0;
+  static final int ANNOTATION_VALUE_BYTE = 1;
+  static final int ANNOTATION_VALUE_CHAR = 2;
+  static final int ANNOTATION_VALUE_DOUBLE = 3;
+  static final int ANNOTATION_VALUE_FLOAT = 4;
+  static final int ANNOTATION_VALUE_INT = 5;
+  static final int ANNOTATION_VALUE_LONG = 6;
+  static final int ANNOTATION_VALUE_SHORT = 7;
+  static final int ANNOTATION_VALUE_STRING = 8;
+  static final int ANNOTATION_VALUE_ENUM = 9;
+  static final int ANNOTATION_VALUE_CLASS = 10;
+  static final int ANNOTATION_VALUE_TYPE = 11;
+  static final int ANNOTATION_VALUE_EXPRESSION = 12;
+  static final int ANNOTATION_VALUE_ANNOTATION = 13;
+  static final int ANNOTATION_VALUE_ARRAY = 14;
+
+  // Resource files
+  static final int RESOURCE_TEXT = 0;
+  static final int RESOURCE_BINARY = 1;
+  static final int RESOURCE_OTHER = 2;
+
+  private JCodeModelSnapshot ()
+  {}
+
+  /**
+   * Write a snapshot of the passed code model.
+   *
+   * @param aCodeModel
+   *        The code model to write. May not be <code>null</code>.
+   * @param aOS
+   *        The stream to write to. May not be <code>null</code>. The stream is
+   *        not closed.
+   * @throws IOException
+   *         In case writing fails
+   * @throws IllegalStateException
+   *         If a class of the model was already flushed or the model references
+   *         classes of another code model
+   * @throws UnsupportedOperationException
+   *         If the model contains custom expressions or statements
+   */
+  public static void write (@Nonnull final JCodeModel aCodeModel,
+                            @Nonnull @WillNotClose final OutputStream aOS) throws IOException
+  {
+    new JCodeModelSnapshotWriter (aCodeModel).write (aOS);
+  }
+
+  /**
+   * Read a snapshot into a new code model.
+   *
+   * @param aIS
+   *        The stream to read from. May not be <code>null</code>. It should be
+   *        buffered, as it is read byte by byte. The stream is not closed.
+   * @return The new code model. Never <code>null</code>.
+   * @throws IOException
+   *         In case reading fails or the snapshot is malformed
+   */
+  @Nonnull
+  public static JCodeModel read (@Nonnull @WillNotClose final InputStream aIS) throws IOException
+  {
+    return new JCodeModelSnapshotReader (aIS).read ();
+  }
+}
@@ -0,0 +1,1290 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import static com.helger.jcodemodel.JCodeModelSnapshot.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
+
+import com.helger.jcodemodel.fmt.JBinaryFile;
+import com.helger.jcodemodel.fmt.JTextFile;
+import com.helger.jcodemodel.util.JCValueEnforcer;
+
+/**
+ * Reads the snapshot format of {@link JCodeModelSnapshot} into a new
+ * {@link JCodeModel}. All objects are created with the regular model API in
+ * the same order they were written in.
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+final class JCodeModelSnapshotReader
+{
+  /**
+   * A resource file of an unknown type that only keeps its content.
+   */
+  private static final class JSnapshotResourceFile extends AbstractJResourceFile
+  {
+    private final boolean m_bIsResource;
+    private final byte [] m_aContent;
+
+    JSnapshotResourceFile (@Nonnull final String sName, final boolean bIsResource, @Nonnull final byte [] aContent)
+    {
+      super (sName);
+      m_bIsResource = bIsResource;
+      m_aContent = aContent;
+    }
+
+    @Override
+    protected boolean isResource ()
+    {
+      return m_bIsResource;
+    }
+
+    @Override
+    protected void build (@Nonnull @WillNotClose final OutputStream aOS) throws IOException
+    {
+      aOS.write (m_aContent);
+    }
+  }
+
+  private final InputStream m_aIS;
+  private final JCodeModel m_aCodeModel = new JCodeModel ();
+  private String [] m_aStrings;
+  // Types and objects in the order they were written
+  private final List <Object> m_aObjects = new ArrayList <> ();
+
+  JCodeModelSnapshotReader (@Nonnull final InputStream aIS)
+  {
+    m_aIS = JCValueEnforcer.notNull (aIS, "InputStream");
+  }
+
+  private int _readByte () throws IOException
+  {
+    final int ret = m_aIS.read ();
+    if (ret < 0)
+      throw new EOFException ("Unexpected end of code model snapshot");
+    return ret;
+  }
+
+  private int _readVarInt () throws IOException
+  {
+    int ret = 0;
+    for (int nShift = 0; nShift < 32; nShift += 7)
+    {
+      final int b = _readByte ();
+      ret |= (b & 0x7f) << nShift;
+      if ((b & 0x80) == 0)
+        return ret;
+    }
+    throw new IOException ("Malformed variable length integer");
+  }
+
+  private long _readVarLong () throws IOException
+  {
+    long ret = 0;
+    for (int nShift = 0; nShift < 64; nShift += 7)
+    {
+      final int b = _readByte ();
+      ret |= (long) (b & 0x7f) << nShift;
+      if ((b & 0x80) == 0)
+        return ret;
+    }
+    throw new IOException ("Malformed variable length integer");
+  }
+
+  private int _readSignedInt () throws IOException
+  {
+    final int n = _readVarInt ();
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  private long _readSignedLong () throws IOException
+  {
+    final long n = _readVarLong ();
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  private boolean _readBoolean () throws IOException
+  {
+    final int b = _readByte ();
+    if (b > 1)
+      throw new IOException ("Malformed boolean value " + b);
+    return b == 1;
+  }
+
+  @Nullable
+  private String _readString () throws IOException
+  {
+    final int nIndex = _readVarInt ();
+    if (nIndex == 0)
+      return null;
+    if (nIndex < 0 || nIndex > m_aStrings.length)
+      throw new IOException ("Invalid string index " + nIndex);
+    return m_aStrings[nIndex - 1];
+  }
+
+  @Nonnull
+  private byte [] _readBytes () throws IOException
+  {
+    final int nLen = _readVarInt ();
+    if (nLen < 0)
+      throw new IOException ("Invalid length " + nLen);
+    final byte [] ret = new byte [nLen];
+    int nOfs = 0;
+    while (nOfs < nLen)
+    {
+      final int nRead = m_aIS.read (ret, nOfs, nLen - nOfs);
+      if (nRead < 0)
+        throw new EOFException ("Unexpected end of code model snapshot");
+      nOfs += nRead;
+    }
+    return ret;
+  }
+
+  private void _register (@Nonnull final Object aObject)
+  {
+    m_aObjects.add (aObject);
+  }
+
+  @Nonnull
+  private <T> T _getObject (final int nID, @Nonnull final Class <T> aClass) throws IOException
+  {
+    if (nID < 0 || nID >= m_aObjects.size ())
+      throw new IOException ("Invalid object reference " + nID);
+    final Object ret = m_aObjects.get (nID);
+    if (!aClass.isInstance (ret))
+      throw new IOException ("Object reference " + nID + " is not a " + aClass.getSimpleName ());
+    return aClass.cast (ret);
+  }
+
+  @Nullable
+  private static <T> T _cast (@Nullable final Object aObject, @Nonnull final Class <T> aClass) throws IOException
+  {
+    if (aObject != null && !aClass.isInstance (aObject))
+      throw new IOException ("Expected a " + aClass.getSimpleName () + " but found " + aObject.getClass ().getName ());
+    return aClass.cast (aObject);
+  }
+
+  @Nonnull
+  private static <T> T _castNonNull (@Nullable final Object aObject, @Nonnull final Class <T> aClass) throws IOException
+  {
+    if (aObject == null)
+      throw new IOException ("Expected a " + aClass.getSimpleName () + " but found nothing");
+    return _cast (aObject, aClass);
+  }
+
+  /**
+   * Read the snapshot.
+   *
+   * @return The new code model. Never <code>null</code>.
+   * @throws IOException
+   *         In case reading fails or the snapshot is malformed
+   */
+  @Nonnull
+  JCodeModel read () throws IOException
+  {
+    try
+    {
+      return _read ();
+    }
+    catch (final RuntimeException ex)
+    {
+      // E.g. from the model API on inconsistent data
+      throw new IOException ("Malformed code model snapshot", ex);
+    }
+  }
+
+  @Nonnull
+  private JCodeModel _read () throws IOException
+  {
+    for (final byte b : MAGIC)
+      if (_readByte () != b)
+        throw new IOException ("Not a code model snapshot");
+    final int nVersion = _readVarInt ();
+    if (nVersion != VERSION)
+      throw new IOException ("Unsupported code model snapshot version " + nVersion);
+
+    final int nStrings = _readVarInt ();
+    if (nStrings < 0)
+      throw new IOException ("Invalid string count " + nStrings);
+    m_aStrings = new String [nStrings];
+    for (int i = 0; i < nStrings; ++i)
+    {
+      final int nLen = _readVarInt ();
+      if (nLen < 0)
+        throw new IOException ("Invalid string length " + nLen);
+      final char [] aChars = new char [nLen];
+      for (int j = 0; j < nLen; ++j)
+        aChars[j] = (char) _readVarInt ();
+      m_aStrings[i] = new String (aChars);
+    }
+
+    final int nPackages = _readVarInt ();
+    final List <JPackage> aPackages = new ArrayList <> ();
+    final List <List <JDefinedClass>> aClassesPerPackage = new ArrayList <> ();
+    for (int i = 0; i < nPackages; ++i)
+    {
+      final JPackage aPackage = m_aCodeModel._package (_readString ());
+      final int nClasses = _readVarInt ();
+      final List <JDefinedClass> aClasses = new ArrayList <> ();
+      for (int j = 0; j < nClasses; ++j)
+      {
+        final EClassType eClassType = EClassType.values ()[_readVarInt ()];
+        final String sName = _readString ();
+        final JDefinedClass aClass;
+        try
+        {
+          aClass = aPackage._class (0, sName, eClassType);
+        }
+        catch (final JClassAlreadyExistsException ex)
+        {
+          throw new IOException ("Duplicate class " + ex.getExistingClass ().fullName (), ex);
+        }
+        _register (aClass);
+        _readSkeleton (aClass);
+        aClasses.add (aClass);
+      }
+      aPackages.add (aPackage);
+      aClassesPerPackage.add (aClasses);
+    }
+
+    for (final List <JDefinedClass> aClasses : aClassesPerPackage)
+      for (final JDefinedClass aClass : aClasses)
+        _readSignatures (aClass);
+
+    for (int i = 0; i < nPackages; ++i)
+    {
+      final JPackage aPackage = aPackages.get (i);
+      _readDoc (aPackage);
+      _readAnnotations (aPackage);
+      for (final JDefinedClass aClass : aClassesPerPackage.get (i))
+        _readBodies (aClass);
+      _readResources (aPackage);
+    }
+
+    final int nDontImport = _readVarInt ();
+    for (int i = 0; i < nDontImport; ++i)
+      m_aCodeModel.addDontImportClass (_castNonNull (_readType (), AbstractJClass.class));
+
+    if (m_aIS.read () >= 0)
+      throw new IOException ("Unexpected data after the end of the code model snapshot");
+    return m_aCodeModel;
+  }
+
+  private void _readSkeleton (@Nonnull final JDefinedClass aClass) throws IOException
+  {
+    aClass.mods ().internalSetValue (_readVarInt ());
+    if (_readBoolean ())
+      aClass.hide ();
+    final int nTypeParams = _readVarInt ();
+    for (int i = 0; i < nTypeParams; ++i)
+      _register (aClass.generify (_readString ()));
+    final int nInnerClasses = _readVarInt ();
+    for (int i = 0; i < nInnerClasses; ++i)
+    {
+      final EClassType eClassType = EClassType.values ()[_readVarInt ()];
+      final String sName = _readString ();
+      final JDefinedClass aInnerClass;
+      try
+      {
+        aInnerClass = aClass._class (0, sName, eClassType);
+      }
+      catch (final JClassAlreadyExistsException ex)
+      {
+        throw new IOException ("Duplicate class " + ex.getExistingClass ().fullName (), ex);
+      }
+      _register (aInnerClass);
+      _readSkeleton (aInnerClass);
+    }
+  }
+
+  private void _readSignatures (@Nonnull final JDefinedClass aClass) throws IOException
+  {
+    for (final JTypeVar aTypeParam : aClass.typeParams ())
+      _readBounds (aTypeParam);
+    final AbstractJClass aSuperClass = _cast (_readType (), AbstractJClass.class);
+    if (aSuperClass != null)
+      aClass._extends (aSuperClass);
+    final int nInterfaces = _readVarInt ();
+    for (int i = 0; i < nInterfaces; ++i)
+      aClass._implements (_castNonNull (_readType (), AbstractJClass.class));
+
+    final int nEnumConstants = _readVarInt ();
+    for (int i = 0; i < nEnumConstants; ++i)
+      _register (aClass.enumConstant (_readString ()));
+
+    final int nFields = _readVarInt ();
+    for (int i = 0; i < nFields; ++i)
+    {
+      final int nMods = _readVarInt ();
+      final AbstractJType aType = _readType ();
+      final JFieldVar aField = aClass.field (0, aType, _readString ());
+      aField.mods ().internalSetValue (nMods);
+      _register (aField);
+    }
+
+    final int nConstructors = _readVarInt ();
+    for (int i = 0; i < nConstructors; ++i)
+    {
+      final int nMods = _readVarInt ();
+      final JMethod aConstructor = aClass.constructor (0);
+      final String sName = _readString ();
+      if (!aConstructor.name ().equals (sName))
+        aConstructor.name (sName);
+      _readMethodSignature (aConstructor, nMods);
+    }
+
+    final int nMethods = _readVarInt ();
+    for (int i = 0; i < nMethods; ++i)
+    {
+      final int nMods = _readVarInt ();
+      // The real return type is set afterwards
+      final JMethod aMethod = aClass.method (0, m_aCodeModel.VOID, _readString ());
+      _readMethodSignature (aMethod, nMods);
+    }
+
+    for (final JDefinedClass aInnerClass : aClass.classes ())
+      _readSignatures (aInnerClass);
+  }
+
+  private void _readBounds (@Nonnull final JTypeVar aTypeVar) throws IOException
+  {
+    final int nBounds = _readVarInt ();
+    for (int i = 0; i < nBounds; ++i)
+      aTypeVar.bound (_castNonNull (_readType (), AbstractJClass.class));
+  }
+
+  private void _readMethodSignature (@Nonnull final JMethod aMethod, final int nMods) throws IOException
+  {
+    aMethod.mods ().internalSetValue (nMods);
+    _register (aMethod);
+
+    final int nTypeParams = _readVarInt ();
+    for (int i = 0; i < nTypeParams; ++i)
+      _register (aMethod.generify (_readString ()));
+    aMethod.type (_readType ());
+    for (final JTypeVar aTypeParam : aMethod.typeParams ())
+      _readBounds (aTypeParam);
+
+    final int nParams = _readVarInt ();
+    for (int i = 0; i < nParams; ++i)
+    {
+      final int nParamMods = _readVarInt ();
+      final AbstractJType aType = _readType ();
+      final JVar aParam = aMethod.param (0, aType, _readString ());
+      aParam.mods ().internalSetValue (nParamMods);
+      _register (aParam);
+    }
+
+    if (_readBoolean ())
+    {
+      final int nParamMods = _readVarInt ();
+      final AbstractJType aType = _readType ();
+      final JVar aVarParam = aMethod.varParam (0, aType.elementType (), _readString ());
+      // Keep the identical array type
+      aVarParam.type (aType);
+      aVarParam.mods ().internalSetValue (nParamMods);
+      _register (aVarParam);
+    }
+
+    final int nThrows = _readVarInt ();
+    for (int i = 0; i < nThrows; ++i)
+      aMethod._throws (_castNonNull (_readType (), AbstractJClass.class));
+  }
+
+  private void _readBodies (@Nonnull final JDefinedClass aClass) throws IOException
+  {
+    if (_readBoolean ())
+      _readDocContent (aClass.headerComment ());
+    _readDoc (aClass);
+    _readAnnotations (aClass);
+
+    for (final JEnumConstant aEnumConstant : aClass.internalGetEnumConstants ())
+    {
+      final int nArgs = _readVarInt ();
+      if (nArgs > 0)
+      {
+        aEnumConstant.argsMutable ();
+        for (int i = 0; i < nArgs - 1; ++i)
+          aEnumConstant.arg (_readExpression ());
+      }
+      _readDoc (aEnumConstant);
+      _readAnnotations (aEnumConstant);
+    }
+
+    for (final JFieldVar aField : aClass.fields ().values ())
+    {
+      aField.init (_readExpression ());
+      _readDoc (aField);
+      _readAnnotations (aField);
+    }
+
+    if (_readBoolean ())
+      _readBlock (aClass.init ());
+    if (_readBoolean ())
+      _readBlock (aClass.instanceInit ());
+
+    final List <JMethod> aConstructors = new ArrayList <> ();
+    aClass.constructors ().forEachRemaining (aConstructors::add);
+    for (final JMethod aConstructor : aConstructors)
+      _readMethodBody (aConstructor);
+    for (final JMethod aMethod : aClass.methods ())
+      _readMethodBody (aMethod);
+
+    final String sDirect = _readString ();
+    if (sDirect != null)
+      aClass.direct (sDirect);
+
+    for (final JDefinedClass aInnerClass : aClass.classes ())
+      _readBodies (aInnerClass);
+  }
+
+  private void _readMethodBody (@Nonnull final JMethod aMethod) throws IOException
+  {
+    for (final JVar aParam : aMethod.params ())
+      _readAnnotations (aParam);
+    final JVar aVarParam = aMethod.varParam ();
+    if (aVarParam != null)
+      _readAnnotations (aVarParam);
+    _readDoc (aMethod);
+    _readAnnotations (aMethod);
+    final IJExpression aDefaultValue = _readExpression ();
+    if (aDefaultValue != null)
+      aMethod.declareDefaultValue (aDefaultValue);
+    if (_readBoolean ())
+      _readBlock (aMethod.body ());
+  }
+
+  private void _readResources (@Nonnull final JPackage aPackage) throws IOException
+  {
+    final int nResources = _readVarInt ();
+    for (int i = 0; i < nResources; ++i)
+    {
+      final int nKind = _readVarInt ();
+      final String sName = _readString ();
+      switch (nKind)
+      {
+        case RESOURCE_TEXT:
+        {
+          final JTextFile aTextFile = new JTextFile (sName, Charset.forName (_readString ()));
+          aTextFile.setContents (_readString ());
+          aPackage.addResourceFile (aTextFile);
+          break;
+        }
+        case RESOURCE_BINARY:
+        {
+          final JBinaryFile aBinaryFile = new JBinaryFile (sName);
+          aBinaryFile.getDataStore ().write (_readBytes ());
+          aPackage.addResourceFile (aBinaryFile);
+          break;
+        }
+        case RESOURCE_OTHER:
+        {
+          final boolean bIsResource = _readBoolean ();
+          aPackage.addResourceFile (new JSnapshotResourceFile (sName, bIsResource, _readBytes ()));
+          break;
+        }
+        default:
+          throw new IOException ("Unknown resource kind " + nKind);
+      }
+    }
+  }
+
+  @Nullable
+  private AbstractJType _readType () throws IOException
+  {
+    final int nRef = _readVarInt ();
+    if (nRef == 0)
+      return null;
+    if (nRef != 1)
+      return _getObject (nRef - 2, AbstractJType.class);
+
+    final int nKind = _readVarInt ();
+    final AbstractJType ret;
+    switch (nKind)
+    {
+      case TYPE_PRIMITIVE:
+      {
+        final String sName = _readString ();
+        ret = AbstractJType.parseOrNull (m_aCodeModel, sName);
+        if (ret == null)
+          throw new IOException ("Unknown primitive type '" + sName + "'");
+        _register (ret);
+        break;
+      }
+      case TYPE_NULL:
+        ret = m_aCodeModel.NULL;
+        _register (ret);
+        break;
+      case TYPE_REFERENCED:
+        ret = m_aCodeModel.ref (_readString ());
+        _register (ret);
+        break;
+      case TYPE_DIRECT:
+      {
+        final JDirectClass aOuter = _cast (_readType (), JDirectClass.class);
+        final String sName = _readString ();
+        final EClassType eClassType = EClassType.values ()[_readVarInt ()];
+        if (aOuter == null)
+          ret = m_aCodeModel.directClass (eClassType, sName);
+        else
+          ret = new JDirectClass (m_aCodeModel, aOuter, eClassType, sName);
+        _register (ret);
+        break;
+      }
+      case TYPE_ERROR:
+      {
+        final String sMessage = _readString ();
+        ret = m_aCodeModel.errorClass (sMessage, _readString ());
+        _register (ret);
+        break;
+      }
+      case TYPE_NARROWED:
+      {
+        final AbstractJClass aBasis = _castNonNull (_readType (), AbstractJClass.class);
+        final int nArgs = _readVarInt ();
+        final List <AbstractJClass> aArgs = new ArrayList <> ();
+        for (int i = 0; i < nArgs; ++i)
+          aArgs.add (_castNonNull (_readType (), AbstractJClass.class));
+        ret = aBasis.narrow (aArgs);
+        _register (ret);
+        break;
+      }
+      case TYPE_ARRAY:
+        ret = _castNonNull (_readType (), AbstractJType.class).array ();
+        _register (ret);
+        break;
+      case TYPE_WILDCARD:
+      {
+        final AbstractJClass aBound = _castNonNull (_readType (), AbstractJClass.class);
+        ret = new JTypeWildcard (aBound, EWildcardBoundMode.values ()[_readVarInt ()]);
+        _register (ret);
+        break;
+      }
+      case TYPE_TYPEVAR:
+      {
+        final JTypeVar aTypeVar = new JTypeVar (m_aCodeModel, _readString ());
+        // Register first, as the bounds may refer to the type variable
+        _register (aTypeVar);
+        _readBounds (aTypeVar);
+        ret = aTypeVar;
+        break;
+      }
+      case TYPE_TYPEVAR_CLASS:
+        ret = new JTypeVarClass (_castNonNull (_readType (), AbstractJClass.class));
+        _register (ret);
+        break;
+      case TYPE_ANONYMOUS:
+      {
+        final JAnonymousClass aClass = m_aCodeModel.anonymousClass (_castNonNull (_readType (),
+                                                                                AbstractJClass.class));
+        _register (aClass);
+        _readSkeleton (aClass);
+        _readSignatures (aClass);
+        _readBodies (aClass);
+        ret = aClass;
+        break;
+      }
+      default:
+        throw new IOException ("Unknown type kind " + nKind);
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private List <AbstractJType> _readTypes () throws IOException
+  {
+    final int nCount = _readVarInt ();
+    final List <AbstractJType> ret = new ArrayList <> ();
+    for (int i = 0; i < nCount; ++i)
+      ret.add (_readType ());
+    return ret;
+  }
+
+  @Nonnull
+  private JVar _readVar () throws IOException
+  {
+    final int nRef = _readVarInt ();
+    if (nRef > 0)
+      return _getObject (nRef - 1, JVar.class);
+
+    // First occurrence of a local variable
+    final AbstractJType aType = _readType ();
+    final JVar aVar = new JVar (JMods.forVar (0), aType, _readString (), null);
+    _readVarDefinition (aVar);
+    return aVar;
+  }
+
+  private void _readVarDefinition (@Nonnull final JVar aVar) throws IOException
+  {
+    _register (aVar);
+    aVar.mods ().internalSetValue (_readVarInt ());
+    _readAnnotations (aVar);
+    aVar.init (_readExpression ());
+  }
+
+  private void _readAnnotations (@Nonnull final IJAnnotatable aTarget) throws IOException
+  {
+    final int nCount = _readVarInt ();
+    if (nCount == 0)
+      return;
+    // Creates the empty list if necessary
+    aTarget.annotations ();
+    for (int i = 0; i < nCount - 1; ++i)
+    {
+      final JAnnotationUse aAnnotation = aTarget.annotate (_castNonNull (_readType (), AbstractJClass.class));
+      _readAnnotationMembers (aAnnotation);
+    }
+  }
+
+  private void _readAnnotationMembers (@Nonnull final JAnnotationUse aAnnotation) throws IOException
+  {
+    final int nMembers = _readVarInt ();
+    for (int i = 0; i < nMembers; ++i)
+    {
+      final String sName = _readString ();
+      final int nKind = _readVarInt ();
+      switch (nKind)
+      {
+        case ANNOTATION_VALUE_BOOLEAN:
+          aAnnotation.param (sName, _readBoolean ());
+          break;
+        case ANNOTATION_VALUE_BYTE:
+          aAnnotation.param (sName, (byte) _readSignedInt ());
+          break;
+        case ANNOTATION_VALUE_CHAR:
+          aAnnotation.param (sName, (char) _readVarInt ());
+          break;
+        case ANNOTATION_VALUE_DOUBLE:
+          aAnnotation.param (sName, Double.longBitsToDouble (_readVarLong ()));
+          break;
+        case ANNOTATION_VALUE_FLOAT:
+          aAnnotation.param (sName, Float.intBitsToFloat (_readVarInt ()));
+          break;
+        case ANNOTATION_VALUE_INT:
+          aAnnotation.param (sName, _readSignedInt ());
+          break;
+        case ANNOTATION_VALUE_LONG:
+          aAnnotation.param (sName, _readSignedLong ());
+          break;
+        case ANNOTATION_VALUE_SHORT:
+          aAnnotation.param (sName, (short) _readSignedInt ());
+          break;
+        case ANNOTATION_VALUE_STRING:
+          aAnnotation.param (sName, _readString ());
+          break;
+        case ANNOTATION_VALUE_TYPE:
+          aAnnotation.param (sName, _castNonNull (_readType (), AbstractJType.class));
+          break;
+        case ANNOTATION_VALUE_ANNOTATION:
+          _readAnnotationMembers (aAnnotation.annotationParam (sName,
+                                                               _castNonNull (_readType (), AbstractJClass.class)));
+          break;
+        case ANNOTATION_VALUE_ARRAY:
+        {
+          final JAnnotationArrayMember aArray = aAnnotation.paramArray (sName);
+          final int nElements = _readVarInt ();
+          for (int j = 0; j < nElements; ++j)
+            _readArrayElement (aArray);
+          break;
+        }
+        default:
+          aAnnotation.param (sName, _readOtherAnnotationValue (nKind));
+          break;
+      }
+    }
+  }
+
+  private void _readArrayElement (@Nonnull final JAnnotationArrayMember aArray) throws IOException
+  {
+    final int nKind = _readVarInt ();
+    switch (nKind)
+    {
+      case ANNOTATION_VALUE_BOOLEAN:
+        aArray.param (_readBoolean ());
+        break;
+      case ANNOTATION_VALUE_BYTE:
+        aArray.param ((byte) _readSignedInt ());
+        break;
+      case ANNOTATION_VALUE_CHAR:
+        aArray.param ((char) _readVarInt ());
+        break;
+      case ANNOTATION_VALUE_DOUBLE:
+        aArray.param (Double.longBitsToDouble (_readVarLong ()));
+        break;
+      case ANNOTATION_VALUE_FLOAT:
+        aArray.param (Float.intBitsToFloat (_readVarInt ()));
+        break;
+      case ANNOTATION_VALUE_INT:
+        aArray.param (_readSignedInt ());
+        break;
+      case ANNOTATION_VALUE_LONG:
+        aArray.param (_readSignedLong ());
+        break;
+      case ANNOTATION_VALUE_SHORT:
+        aArray.param ((short) _readSignedInt ());
+        break;
+      case ANNOTATION_VALUE_STRING:
+        aArray.param (_readString ());
+        break;
+      case ANNOTATION_VALUE_TYPE:
+        aArray.param (_castNonNull (_readType (), AbstractJType.class));
+        break;
+      case ANNOTATION_VALUE_ANNOTATION:
+        _readAnnotationMembers (aArray.annotate (_castNonNull (_readType (), AbstractJClass.class)));
+        break;
+      case ANNOTATION_VALUE_ARRAY:
+        throw new IOException ("Nested annotation arrays are not supported");
+      default:
+        aArray.param (_readOtherAnnotationValue (nKind));
+        break;
+    }
+  }
+
+  /**
+   * Read the annotation values that are represented by an expression.
+   */
+  @Nonnull
+  private IJExpression _readOtherAnnotationValue (final int nKind) throws IOException
+  {
+    switch (nKind)
+    {
+      case ANNOTATION_VALUE_ENUM:
+      {
+        final AbstractJClass aType = _castNonNull (_readType (), AbstractJClass.class);
+        return new JEnumConstantRef (aType, _readString ());
+      }
+      case ANNOTATION_VALUE_CLASS:
+        return new JAtom (_readString () + ".class");
+      case ANNOTATION_VALUE_EXPRESSION:
+        return _castNonNull (_readNode (), IJExpression.class);
+      default:
+        throw new IOException ("Unknown annotation value kind " + nKind);
+    }
+  }
+
+  private void _readDoc (@Nonnull final IJDocCommentable aTarget) throws IOException
+  {
+    if (_readBoolean ())
+      _readDocContent (aTarget.javadoc ());
+  }
+
+  private void _readDocContent (@Nonnull final JDocComment aDoc) throws IOException
+  {
+    aDoc.setSingleLineMode (_readBoolean ());
+    _readCommentPart (aDoc);
+
+    final int nParams = _readVarInt ();
+    for (int i = 0; i < nParams; ++i)
+      _readCommentPart (aDoc.addParam (_readString ()));
+
+    if (_readBoolean ())
+      _readCommentPart (aDoc.addReturn ());
+
+    final int nThrows = _readVarInt ();
+    for (int i = 0; i < nThrows; ++i)
+      _readCommentPart (aDoc.addThrows (_castNonNull (_readType (), AbstractJClass.class)));
+
+    final int nTags = _readVarInt ();
+    for (int i = 0; i < nTags; ++i)
+      _readCommentPart (aDoc.addTag (_readString ()));
+
+    final int nXdoclets = _readVarInt ();
+    for (int i = 0; i < nXdoclets; ++i)
+    {
+      final Map <String, String> aAttrs = aDoc.addXdoclet (_readString ());
+      final int nAttrs = _readVarInt ();
+      for (int j = 0; j < nAttrs; ++j)
+      {
+        final String sKey = _readString ();
+        aAttrs.put (sKey, _readString ());
+      }
+    }
+  }
+
+  private void _readCommentPart (@Nonnull final JCommentPart aPart) throws IOException
+  {
+    final int nItems = _readVarInt ();
+    for (int i = 0; i < nItems; ++i)
+    {
+      if (_readBoolean ())
+        aPart.add (_readType ());
+      else
+        aPart.add (_readString ());
+    }
+  }
+
+  private void _readBlock (@Nonnull final JBlock aBlock) throws IOException
+  {
+    final int nContents = _readVarInt ();
+    for (int i = 0; i < nContents; ++i)
+    {
+      final int nTag = _readVarInt ();
+      if (nTag == NODE_DECL)
+        aBlock.internalInsert (_readVar ());
+      else
+        aBlock.internalInsert (_castNonNull (_readNode (nTag), IJObject.class));
+    }
+    // Set the flags last, as inserting variables changes them
+    aBlock.pos (_readVarInt ());
+    aBlock.virtual (_readBoolean ());
+    aBlock.bracesRequired (_readBoolean ());
+    aBlock.indentRequired (_readBoolean ());
+  }
+
+  private void _readOptionalBlock (@Nonnull final IJBlockProvider aProvider) throws IOException
+  {
+    if (_readBoolean ())
+      _readBlock (aProvider.get ());
+  }
+
+  @Nullable
+  private JLabel _readLabel () throws IOException
+  {
+    final String sLabel = _readString ();
+    return sLabel == null ? null : new JLabel (sLabel);
+  }
+
+  @Nullable
+  private IJExpression _readExpression () throws IOException
+  {
+    return _cast (_readNode (), IJExpression.class);
+  }
+
+  @Nonnull
+  private IJExpression _readNonNullExpression () throws IOException
+  {
+    return _castNonNull (_readNode (), IJExpression.class);
+  }
+
+  @Nullable
+  private Object _readNode () throws IOException
+  {
+    return _readNode (_readVarInt ());
+  }
+
+  @Nullable
+  private Object _readNode (final int nTag) throws IOException
+  {
+    switch (nTag)
+    {
+      case NODE_NULL:
+        return null;
+      case NODE_ATOM:
+      {
+        final String sWhat = _readString ();
+        switch (sWhat)
+        {
+          case "true":
+            return JExpr.TRUE;
+          case "false":
+            return JExpr.FALSE;
+          case "this":
+            return JExpr._this ();
+          case "super":
+            return JExpr._super ();
+          case "null":
+            return JExpr._null ();
+          default:
+            return new JAtom (sWhat);
+        }
+      }
+      case NODE_INT:
+        return new JAtomInt (_readSignedInt ());
+      case NODE_LONG:
+        return new JAtomLong (_readSignedLong ());
+      case NODE_FLOAT:
+        return new JAtomFloat (Float.intBitsToFloat (_readVarInt ()));
+      case NODE_DOUBLE:
+        return new JAtomDouble (Double.longBitsToDouble (_readVarLong ()));
+      case NODE_STRING:
+        return new JStringLiteral (_readString ());
+      case NODE_BINARY:
+      {
+        final IJExpression aLeft = _readNonNullExpression ();
+        final String sOp = _readString ();
+        return new JOpBinary (aLeft, sOp, _castNonNull (_readNode (), IJGenerable.class));
+      }
+      case NODE_UNARY:
+      case NODE_UNARY_TIGHT:
+      {
+        final String sOp = _readString ();
+        final IJExpression aExpr = _readNonNullExpression ();
+        final boolean bOpFirst = _readBoolean ();
+        if (nTag == NODE_UNARY_TIGHT)
+          return bOpFirst ? new JOpUnaryTight (sOp, aExpr) : new JOpUnaryTight (aExpr, sOp);
+        return bOpFirst ? new JOpUnary (sOp, aExpr) : new JOpUnary (aExpr, sOp);
+      }
+      case NODE_TERNARY:
+      {
+        final IJExpression aExpr1 = _readNonNullExpression ();
+        final String sOp1 = _readString ();
+        final IJExpression aExpr2 = _readNonNullExpression ();
+        final String sOp2 = _readString ();
+        return new JOpTernary (aExpr1, sOp1, aExpr2, sOp2, _readNonNullExpression ());
+      }
+      case NODE_ASSIGNMENT:
+      {
+        final IJAssignmentTarget aLhs = _castNonNull (_readNode (), IJAssignmentTarget.class);
+        final String sOp = _readString ();
+        return new JAssignment (aLhs, _readNonNullExpression (), sOp);
+      }
+      case NODE_CAST:
+      {
+        final AbstractJType aType = _readType ();
+        return new JCast (aType, _readNonNullExpression ());
+      }
+      case NODE_INVOCATION:
+        return _readInvocation ();
+      case NODE_FIELD_REF:
+        return _readFieldRef ();
+      case NODE_ARRAY:
+      {
+        final AbstractJType aType = _readType ();
+        final JArray aArray = new JArray (aType, _readExpression ());
+        final int nExprs = _readVarInt ();
+        for (int i = 0; i < nExprs - 1; ++i)
+          aArray.add (_readNonNullExpression ());
+        return aArray;
+      }
+      case NODE_ARRAY_COMP_REF:
+      {
+        final IJExpression aArray = _readNonNullExpression ();
+        return new JArrayCompRef (aArray, _readNonNullExpression ());
+      }
+      case NODE_ENUM_CONSTANT_REF:
+      {
+        final AbstractJClass aType = _castNonNull (_readType (), AbstractJClass.class);
+        return new JEnumConstantRef (aType, _readString ());
+      }
+      case NODE_ENUM_CONSTANT:
+      {
+        final int nRef = _readVarInt ();
+        if (nRef > 0)
+          return _getObject (nRef - 1, JEnumConstant.class);
+        final AbstractJClass aType = _castNonNull (_readType (), AbstractJClass.class);
+        return new JEnumConstant (aType, _readString ());
+      }
+      case NODE_VAR:
+        return _readVar ();
+      case NODE_LAMBDA_PARAM:
+        return _getObject (_readVarInt (), JLambdaParam.class);
+      case NODE_LAMBDA:
+      {
+        final JLambda aLambda = new JLambda ();
+        final int nParams = _readVarInt ();
+        for (int i = 0; i < nParams; ++i)
+        {
+          final AbstractJType aType = _readType ();
+          _register (aLambda.addParam (aType, _readString ()));
+        }
+        _readBlock (aLambda.body ());
+        return aLambda;
+      }
+      case NODE_LAMBDA_METHOD_REF:
+        return _readLambdaMethodRef ();
+      case NODE_DOT_CLASS:
+        return new JExpr.JDotClassExpr (_castNonNull (_readType (), AbstractJClass.class));
+      case NODE_DIRECT_EXPR:
+        return new JExpr.JDirectExpr (_readString ());
+      case NODE_TYPE:
+        return _readType ();
+      default:
+        return _readStatement (nTag);
+    }
+  }
+
+  @Nonnull
+  private JInvocation _readInvocation () throws IOException
+  {
+    final int nKind = _readVarInt ();
+    final JInvocation ret;
+    if (nKind == INVOKE_CONSTRUCTOR)
+      ret = new JInvocation (_castNonNull (_readType (), AbstractJType.class));
+    else
+    {
+      final Object aObject = _readNode ();
+      if (nKind == INVOKE_METHOD)
+      {
+        final JMethod aMethod = _getObject (_readVarInt (), JMethod.class);
+        if (aObject instanceof AbstractJClass)
+          ret = new JInvocation ((AbstractJClass) aObject, aMethod);
+        else
+          ret = new JInvocation (_cast (aObject, IJExpression.class), aMethod);
+      }
+      else
+        if (nKind == INVOKE_NAME)
+        {
+          final String sName = _readString ();
+          if (aObject instanceof AbstractJClass)
+            ret = new JInvocation ((AbstractJClass) aObject, sName);
+          else
+            ret = new JInvocation (_cast (aObject, IJExpression.class), sName);
+        }
+        else
+          throw new IOException ("Unknown invocation kind " + nKind);
+    }
+
+    final int nArgs = _readVarInt ();
+    for (int i = 0; i < nArgs; ++i)
+      ret.arg (_readNonNullExpression ());
+
+    final int nTypeParams = _readVarInt ();
+    for (int i = 0; i < nTypeParams; ++i)
+    {
+      if (_readBoolean ())
+        ret.narrow (_castNonNull (_readType (), AbstractJClass.class));
+      else
+        ret.narrow (_readString ());
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private JFieldRef _readFieldRef () throws IOException
+  {
+    final Object aObject = _readNode ();
+    final JVar aVar = _readBoolean () ? _readVar () : null;
+    final String sName = aVar == null ? _readString () : null;
+    final boolean bExplicitThis = _readBoolean ();
+    if (aObject instanceof AbstractJType)
+    {
+      final AbstractJType aType = (AbstractJType) aObject;
+      final JFieldRef ret = aVar != null ? new JFieldRef (aType, aVar) : new JFieldRef (aType, sName);
+      return ret.explicitThis (bExplicitThis);
+    }
+    final IJGenerable aGenerable = _cast (aObject, IJGenerable.class);
+    if (aVar != null)
+      return new JFieldRef (aGenerable, aVar, bExplicitThis);
+    return new JFieldRef (aGenerable, sName, bExplicitThis);
+  }
+
+  @Nonnull
+  private JLambdaMethodRef _readLambdaMethodRef () throws IOException
+  {
+    final int nKind = _readVarInt ();
+    switch (nKind)
+    {
+      case METHOD_REF_STATIC:
+        return new JLambdaMethodRef (_getObject (_readVarInt (), JMethod.class));
+      case METHOD_REF_TYPE:
+      {
+        final AbstractJType aType = _castNonNull (_readType (), AbstractJType.class);
+        return new JLambdaMethodRef (aType, _readString ());
+      }
+      case METHOD_REF_VAR:
+      {
+        final JVar aVar = _readVar ();
+        if (_readBoolean ())
+          return new JLambdaMethodRef (aVar, _getObject (_readVarInt (), JMethod.class));
+        return new JLambdaMethodRef (aVar, _readString ());
+      }
+      case METHOD_REF_INVOCATION:
+      {
+        final JInvocation aInvocation = _castNonNull (_readNode (), JInvocation.class);
+        if (_readBoolean ())
+          return new JLambdaMethodRef (aInvocation, _getObject (_readVarInt (), JMethod.class));
+        return new JLambdaMethodRef (aInvocation, _readString ());
+      }
+      default:
+        throw new IOException ("Unknown method reference kind " + nKind);
+    }
+  }
+
+  @Nonnull
+  private Object _readStatement (final int nTag) throws IOException
+  {
+    switch (nTag)
+    {
+      case NODE_BLOCK:
+      {
+        final JBlock aBlock = new JBlock ();
+        _readBlock (aBlock);
+        return aBlock;
+      }
+      case NODE_CONDITIONAL:
+      {
+        final JConditional aCond = new JConditional (_readNonNullExpression ());
+        _readBlock (aCond._then ());
+        _readOptionalBlock (aCond::_else);
+        return aCond;
+      }
+      case NODE_FOR:
+      {
+        final JForLoop aLoop = new JForLoop ();
+        final int nInits = _readVarInt ();
+        for (int i = 0; i < nInits; ++i)
+        {
+          if (_readBoolean ())
+          {
+            final AbstractJType aType = _readType ();
+            _readVarDefinition (aLoop.init (0, aType, _readString (), null));
+          }
+          else
+          {
+            final JVar aVar = _castNonNull (_readNode (), JVar.class);
+            aLoop.init (aVar, _readNonNullExpression ());
+          }
+        }
+        aLoop.test (_readExpression ());
+        final int nUpdates = _readVarInt ();
+        for (int i = 0; i < nUpdates - 1; ++i)
+          aLoop.update (_readNonNullExpression ());
+        _readOptionalBlock (aLoop::body);
+        return aLoop;
+      }
+      case NODE_FOR_EACH:
+      {
+        final AbstractJType aType = _readType ();
+        final String sName = _readString ();
+        final JForEach aLoop = new JForEach (aType, sName, _readNonNullExpression ());
+        final JVar aLoopVar = aLoop.var ();
+        _register (aLoopVar);
+        aLoopVar.mods ().internalSetValue (_readVarInt ());
+        _readAnnotations (aLoopVar);
+        _readOptionalBlock (aLoop::body);
+        return aLoop;
+      }
+      case NODE_WHILE:
+      {
+        final JWhileLoop aLoop = new JWhileLoop (_readNonNullExpression ());
+        _readOptionalBlock (aLoop::body);
+        return aLoop;
+      }
+      case NODE_DO:
+      {
+        final JDoLoop aLoop = new JDoLoop (_readNonNullExpression ());
+        _readOptionalBlock (aLoop::body);
+        return aLoop;
+      }
+      case NODE_SYNCHRONIZED:
+      {
+        final JSynchronizedBlock aSync = new JSynchronizedBlock (_readNonNullExpression ());
+        _readOptionalBlock (aSync::body);
+        return aSync;
+      }
+      case NODE_SWITCH:
+      {
+        final JSwitch aSwitch = new JSwitch (_readNonNullExpression ());
+        final int nCases = _readVarInt ();
+        for (int i = 0; i < nCases; ++i)
+        {
+          final JCase aCase = aSwitch._case (_readNonNullExpression ());
+          _readOptionalBlock (aCase::body);
+        }
+        if (_readBoolean ())
+        {
+          final JCase aDefault = aSwitch._default ();
+          _readOptionalBlock (aDefault::body);
+        }
+        return aSwitch;
+      }
+      default:
+        return _readOtherStatement (nTag);
+    }
+  }
+
+  @Nonnull
+  private Object _readOtherStatement (final int nTag) throws IOException
+  {
+    switch (nTag)
+    {
+      case NODE_TRY:
+      {
+        final JTryBlock aTry = new JTryBlock ();
+        _readBlock (aTry.body ());
+        final int nCatches = _readVarInt ();
+        for (int i = 0; i < nCatches; ++i)
+        {
+          final JCatchBlock aCatch = aTry._catch (_castNonNull (_readType (), AbstractJClass.class));
+          if (_readBoolean ())
+          {
+            final JVar aParam = aCatch.param (_readString ());
+            _register (aParam);
+            aParam.mods ().internalSetValue (_readVarInt ());
+            _readAnnotations (aParam);
+          }
+          _readBlock (aCatch.body ());
+        }
+        _readOptionalBlock (aTry::_finally);
+        return aTry;
+      }
+      case NODE_THROW:
+        return new JThrow (_readNonNullExpression ());
+      case NODE_RETURN:
+        return new JReturn (_readExpression ());
+      case NODE_BREAK:
+        return new JBreak (_readLabel ());
+      case NODE_CONTINUE:
+        return new JContinue (_readLabel ());
+      case NODE_LABEL:
+        return _castNonNull (_readLabel (), JLabel.class);
+      case NODE_DIRECT_STATEMENT:
+        return new JDirectStatement (_readString ());
+      case NODE_COMMENT:
+        return new JSingleLineCommentStatement (_readString ());
+      default:
+        throw new IOException ("Unknown node kind " + nTag);
+    }
+  }
+
+  /**
+   * Provides a block that is only created when it is needed.
+   */
+  @FunctionalInterface
+  private interface IJBlockProvider
+  {
+    @Nonnull
+    JBlock get ();
+  }
+}
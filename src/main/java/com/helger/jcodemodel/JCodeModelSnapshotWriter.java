@@ -0,0 +1,1331 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import static com.helger.jcodemodel.JCodeModelSnapshot.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
+
+import com.helger.jcodemodel.fmt.JBinaryFile;
+import com.helger.jcodemodel.fmt.JTextFile;
+import com.helger.jcodemodel.util.JCNameUtilities;
+import com.helger.jcodemodel.util.JCValueEnforcer;
+
+/**
+ * Writes the snapshot format of {@link JCodeModelSnapshot}. The model is first
+ * written to a buffer while all strings are collected, so that the string
+ * table can be written in front of the model.
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+final class JCodeModelSnapshotWriter
+{
+  private final JCodeModel m_aCodeModel;
+  private final ByteArrayOutputStream m_aBody = new ByteArrayOutputStream (16 * 1024);
+  private final Map <String, Integer> m_aStringIndex = new HashMap <> ();
+  private final List <String> m_aStrings = new ArrayList <> ();
+  // Types and objects already written, with their index
+  private final Map <Object, Integer> m_aIDs = new IdentityHashMap <> ();
+
+  JCodeModelSnapshotWriter (@Nonnull final JCodeModel aCodeModel)
+  {
+    m_aCodeModel = JCValueEnforcer.notNull (aCodeModel, "CodeModel");
+  }
+
+  private static void _writeVarInt (@Nonnull final OutputStream aOS, final int nValue) throws IOException
+  {
+    int n = nValue;
+    while ((n & ~0x7f) != 0)
+    {
+      aOS.write ((n & 0x7f) | 0x80);
+      n >>>= 7;
+    }
+    aOS.write (n);
+  }
+
+  private void _writeVarInt (final int nValue)
+  {
+    int n = nValue;
+    while ((n & ~0x7f) != 0)
+    {
+      m_aBody.write ((n & 0x7f) | 0x80);
+      n >>>= 7;
+    }
+    m_aBody.write (n);
+  }
+
+  private void _writeVarLong (final long nValue)
+  {
+    long n = nValue;
+    while ((n & ~0x7fL) != 0)
+    {
+      m_aBody.write ((int) (n & 0x7f) | 0x80);
+      n >>>= 7;
+    }
+    m_aBody.write ((int) n);
+  }
+
+  private void _writeSignedInt (final int n)
+  {
+    // Zig-zag encoding keeps small negative numbers small
+    _writeVarInt ((n << 1) ^ (n >> 31));
+  }
+
+  private void _writeSignedLong (final long n)
+  {
+    _writeVarLong ((n << 1) ^ (n >> 63));
+  }
+
+  private void _writeBoolean (final boolean b)
+  {
+    m_aBody.write (b ? 1 : 0);
+  }
+
+  private void _writeString (@Nullable final String s)
+  {
+    if (s == null)
+      _writeVarInt (0);
+    else
+    {
+      Integer aIndex = m_aStringIndex.get (s);
+      if (aIndex == null)
+      {
+        aIndex = Integer.valueOf (m_aStrings.size ());
+        m_aStrings.add (s);
+        m_aStringIndex.put (s, aIndex);
+      }
+      _writeVarInt (aIndex.intValue () + 1);
+    }
+  }
+
+  private void _writeBytes (@Nonnull final byte [] aBytes)
+  {
+    _writeVarInt (aBytes.length);
+    m_aBody.write (aBytes, 0, aBytes.length);
+  }
+
+  private void _register (@Nonnull final Object aObject)
+  {
+    if (m_aIDs.put (aObject, Integer.valueOf (m_aIDs.size ())) != null)
+      throw new IllegalStateException ("Object was already written: " + aObject);
+  }
+
+  @Nonnull
+  private static <T> List <T> _toList (@Nonnull final Iterator <T> aIt)
+  {
+    final List <T> ret = new ArrayList <> ();
+    while (aIt.hasNext ())
+      ret.add (aIt.next ());
+    return ret;
+  }
+
+  /**
+   * Write the snapshot.
+   *
+   * @param aOS
+   *        The stream to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case writing fails
+   */
+  void write (@Nonnull @WillNotClose final OutputStream aOS) throws IOException
+  {
+    JCValueEnforcer.notNull (aOS, "OutputStream");
+
+    final List <JPackage> aPackages = _toList (m_aCodeModel.packages ());
+    Collections.sort (aPackages);
+    final List <List <JDefinedClass>> aClassesPerPackage = new ArrayList <> (aPackages.size ());
+    for (final JPackage aPackage : aPackages)
+    {
+      final List <JDefinedClass> aClasses = new ArrayList <> (aPackage.classes ());
+      for (final JDefinedClass aClass : aClasses)
+      {
+        if (aClass.isFlushed ())
+          throw new IllegalStateException ("The class '" +
+                                           aClass.fullName () +
+                                           "' was already flushed and cannot be written to a snapshot");
+        aClass.initLazyMembersRecursive ();
+      }
+      aClassesPerPackage.add (aClasses);
+    }
+
+    // Packages and all defined classes, so that they can be referenced
+    _writeVarInt (aPackages.size ());
+    for (int i = 0; i < aPackages.size (); ++i)
+    {
+      _writeString (aPackages.get (i).name ());
+      final List <JDefinedClass> aClasses = aClassesPerPackage.get (i);
+      _writeVarInt (aClasses.size ());
+      for (final JDefinedClass aClass : aClasses)
+      {
+        _writeVarInt (aClass.getClassType ().ordinal ());
+        _writeString (aClass.name ());
+        _register (aClass);
+        _writeSkeleton (aClass);
+      }
+    }
+
+    // Super types, fields and method signatures, so that they can be
+    // referenced
+    for (final List <JDefinedClass> aClasses : aClassesPerPackage)
+      for (final JDefinedClass aClass : aClasses)
+        _writeSignatures (aClass);
+
+    // Everything else
+    for (int i = 0; i < aPackages.size (); ++i)
+    {
+      final JPackage aPackage = aPackages.get (i);
+      _writeDoc (aPackage.internalGetJavadoc ());
+      _writeAnnotations (aPackage.internalGetAnnotations ());
+      for (final JDefinedClass aClass : aClassesPerPackage.get (i))
+        _writeBodies (aClass);
+      _writeResources (_toList (aPackage.propertyFiles ()));
+    }
+
+    _writeTypes (m_aCodeModel.getAllDontImportClasses ());
+
+    // Header and string table
+    final ByteArrayOutputStream aHeader = new ByteArrayOutputStream (16 * 1024);
+    aHeader.write (MAGIC);
+    _writeVarInt (aHeader, VERSION);
+    _writeVarInt (aHeader, m_aStrings.size ());
+    for (final String s : m_aStrings)
+    {
+      // Write chars and not UTF-8 to keep unpaired surrogates
+      final int nLen = s.length ();
+      _writeVarInt (aHeader, nLen);
+      for (int i = 0; i < nLen; ++i)
+        _writeVarInt (aHeader, s.charAt (i));
+    }
+    aHeader.writeTo (aOS);
+    m_aBody.writeTo (aOS);
+    aOS.flush ();
+  }
+
+  private void _writeSkeleton (@Nonnull final JDefinedClass aClass)
+  {
+    _writeVarInt (aClass.mods ().getValue ());
+    _writeBoolean (aClass.isHidden ());
+    final JTypeVar [] aTypeParams = aClass.typeParams ();
+    _writeVarInt (aTypeParams.length);
+    for (final JTypeVar aTypeParam : aTypeParams)
+    {
+      _writeString (aTypeParam.name ());
+      _register (aTypeParam);
+    }
+    final Collection <JDefinedClass> aInnerClasses = aClass.classes ();
+    _writeVarInt (aInnerClasses.size ());
+    for (final JDefinedClass aInnerClass : aInnerClasses)
+    {
+      _writeVarInt (aInnerClass.getClassType ().ordinal ());
+      _writeString (aInnerClass.name ());
+      _register (aInnerClass);
+      _writeSkeleton (aInnerClass);
+    }
+  }
+
+  private void _writeSignatures (@Nonnull final JDefinedClass aClass)
+  {
+    for (final JTypeVar aTypeParam : aClass.typeParams ())
+      _writeTypes (aTypeParam.bounds ());
+    _writeType (aClass.internalGetSuperClass ());
+    _writeTypes (_toList (aClass._implements ()));
+
+    final Collection <JEnumConstant> aEnumConstants = aClass.internalGetEnumConstants ();
+    _writeVarInt (aEnumConstants.size ());
+    for (final JEnumConstant aEnumConstant : aEnumConstants)
+    {
+      _writeString (aEnumConstant.name ());
+      _register (aEnumConstant);
+    }
+
+    final Collection <JFieldVar> aFields = aClass.fields ().values ();
+    _writeVarInt (aFields.size ());
+    for (final JFieldVar aField : aFields)
+    {
+      _writeVarInt (aField.mods ().getValue ());
+      _writeType (aField.type ());
+      _writeString (aField.name ());
+      _register (aField);
+    }
+
+    final List <JMethod> aConstructors = _toList (aClass.constructors ());
+    _writeVarInt (aConstructors.size ());
+    for (final JMethod aConstructor : aConstructors)
+      _writeMethodSignature (aConstructor);
+
+    final Collection <JMethod> aMethods = aClass.methods ();
+    _writeVarInt (aMethods.size ());
+    for (final JMethod aMethod : aMethods)
+      _writeMethodSignature (aMethod);
+
+    for (final JDefinedClass aInnerClass : aClass.classes ())
+      _writeSignatures (aInnerClass);
+  }
+
+  private void _writeMethodSignature (@Nonnull final JMethod aMethod)
+  {
+    _writeVarInt (aMethod.mods ().getValue ());
+    _writeString (aMethod.name ());
+    _register (aMethod);
+
+    // Type parameters first, as they may be used in the return type
+    final JTypeVar [] aTypeParams = aMethod.typeParams ();
+    _writeVarInt (aTypeParams.length);
+    for (final JTypeVar aTypeParam : aTypeParams)
+    {
+      _writeString (aTypeParam.name ());
+      _register (aTypeParam);
+    }
+    _writeType (aMethod.type ());
+    for (final JTypeVar aTypeParam : aTypeParams)
+      _writeTypes (aTypeParam.bounds ());
+
+    final List <JVar> aParams = aMethod.params ();
+    _writeVarInt (aParams.size ());
+    for (final JVar aParam : aParams)
+      _writeParamSignature (aParam);
+
+    final JVar aVarParam = aMethod.varParam ();
+    _writeBoolean (aVarParam != null);
+    if (aVarParam != null)
+      _writeParamSignature (aVarParam);
+
+    _writeTypes (aMethod.getThrows ());
+  }
+
+  private void _writeParamSignature (@Nonnull final JVar aParam)
+  {
+    _writeVarInt (aParam.mods ().getValue ());
+    _writeType (aParam.type ());
+    _writeString (aParam.name ());
+    _register (aParam);
+  }
+
+  private void _writeBodies (@Nonnull final JDefinedClass aClass)
+  {
+    _writeDoc (aClass.internalGetHeaderComment ());
+    _writeDoc (aClass.internalGetJavadoc ());
+    _writeAnnotations (aClass.internalGetAnnotations ());
+
+    for (final JEnumConstant aEnumConstant : aClass.internalGetEnumConstants ())
+    {
+      _writeNodes (aEnumConstant.internalGetArgs ());
+      _writeDoc (aEnumConstant.internalGetJavadoc ());
+      _writeAnnotations (aEnumConstant.internalGetAnnotations ());
+    }
+
+    for (final JFieldVar aField : aClass.fields ().values ())
+    {
+      _writeNode (aField.init ());
+      _writeDoc (aField.internalGetJavadoc ());
+      _writeVarAnnotations (aField);
+    }
+
+    _writeOptionalBlock (aClass.internalGetStaticInit ());
+    _writeOptionalBlock (aClass.internalGetInstanceInit ());
+
+    for (final JMethod aConstructor : _toList (aClass.constructors ()))
+      _writeMethodBody (aConstructor);
+    for (final JMethod aMethod : aClass.methods ())
+      _writeMethodBody (aMethod);
+
+    _writeString (aClass.internalGetDirectBlock ());
+
+    for (final JDefinedClass aInnerClass : aClass.classes ())
+      _writeBodies (aInnerClass);
+  }
+
+  private void _writeMethodBody (@Nonnull final JMethod aMethod)
+  {
+    for (final JVar aParam : aMethod.params ())
+      _writeVarAnnotations (aParam);
+    final JVar aVarParam = aMethod.varParam ();
+    if (aVarParam != null)
+      _writeVarAnnotations (aVarParam);
+    _writeDoc (aMethod.internalGetJavadoc ());
+    _writeAnnotations (aMethod.annotations ());
+    _writeNode (aMethod.internalGetDefaultValue ());
+    _writeOptionalBlock (aMethod.internalGetBody ());
+  }
+
+  private void _writeResources (@Nonnull final List <AbstractJResourceFile> aResources) throws IOException
+  {
+    _writeVarInt (aResources.size ());
+    for (final AbstractJResourceFile aResource : aResources)
+    {
+      if (aResource instanceof JTextFile)
+      {
+        final JTextFile aTextFile = (JTextFile) aResource;
+        _writeVarInt (RESOURCE_TEXT);
+        _writeString (aTextFile.name ());
+        _writeString (aTextFile.encoding ().name ());
+        _writeString (aTextFile.contents ());
+      }
+      else
+      {
+        // Keep the current content of all other files
+        final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+        aResource.build (aBAOS);
+        if (aResource instanceof JBinaryFile)
+          _writeVarInt (RESOURCE_BINARY);
+        else
+          _writeVarInt (RESOURCE_OTHER);
+        _writeString (aResource.name ());
+        if (!(aResource instanceof JBinaryFile))
+          _writeBoolean (aResource.isResource ());
+        _writeBytes (aBAOS.toByteArray ());
+      }
+    }
+  }
+
+  private void _writeType (@Nullable final AbstractJType aType)
+  {
+    if (aType == null)
+    {
+      _writeVarInt (0);
+      return;
+    }
+    final Integer aID = m_aIDs.get (aType);
+    if (aID != null)
+    {
+      _writeVarInt (aID.intValue () + 2);
+      return;
+    }
+
+    _writeVarInt (1);
+    if (aType instanceof JPrimitiveType)
+    {
+      _writeVarInt (TYPE_PRIMITIVE);
+      _writeString (aType.name ());
+      _register (aType);
+    }
+    else
+      if (aType instanceof JNullType)
+      {
+        _writeVarInt (TYPE_NULL);
+        _register (aType);
+      }
+      else
+        if (aType instanceof JDefinedClass)
+        {
+          final JDefinedClass aClass = (JDefinedClass) aType;
+          if (!(aClass instanceof JAnonymousClass) || aClass.owner () != m_aCodeModel)
+            throw new IllegalStateException ("The class '" + aClass.fullName () + "' is not part of the code model");
+          // Anonymous classes are written where they are used first
+          _writeVarInt (TYPE_ANONYMOUS);
+          _writeType (((JAnonymousClass) aClass).base ());
+          _register (aClass);
+          _writeSkeleton (aClass);
+          _writeSignatures (aClass);
+          _writeBodies (aClass);
+        }
+        else
+          if (aType instanceof JTypeVarClass)
+          {
+            _writeVarInt (TYPE_TYPEVAR_CLASS);
+            _writeType (((JTypeVarClass) aType).internalGetClass ());
+            _register (aType);
+          }
+          else
+            if (aType instanceof JTypeVar)
+            {
+              // A type variable that is not declared in the model
+              final JTypeVar aTypeVar = (JTypeVar) aType;
+              _writeVarInt (TYPE_TYPEVAR);
+              _writeString (aTypeVar.name ());
+              _register (aTypeVar);
+              _writeTypes (aTypeVar.bounds ());
+            }
+            else
+              if (aType instanceof JNarrowedClass)
+              {
+                final JNarrowedClass aNarrowed = (JNarrowedClass) aType;
+                _writeVarInt (TYPE_NARROWED);
+                _writeType (aNarrowed.basis ());
+                _writeTypes (aNarrowed.getTypeParameters ());
+                _register (aType);
+              }
+              else
+                if (aType instanceof JArrayClass)
+                {
+                  _writeVarInt (TYPE_ARRAY);
+                  _writeType (aType.elementType ());
+                  _register (aType);
+                }
+                else
+                  if (aType instanceof JTypeWildcard)
+                  {
+                    final JTypeWildcard aWildcard = (JTypeWildcard) aType;
+                    _writeVarInt (TYPE_WILDCARD);
+                    _writeType (aWildcard.bound ());
+                    _writeVarInt (aWildcard.boundMode ().ordinal ());
+                    _register (aType);
+                  }
+                  else
+                    if (aType instanceof JDirectClass)
+                    {
+                      final JDirectClass aDirect = (JDirectClass) aType;
+                      final IJClassContainer <?> aOuter = aDirect.getOuter ();
+                      _writeVarInt (TYPE_DIRECT);
+                      if (aOuter instanceof JDirectClass)
+                      {
+                        _writeType ((JDirectClass) aOuter);
+                        _writeString (aDirect.name ());
+                      }
+                      else
+                      {
+                        _writeType (null);
+                        _writeString (aDirect.fullName ());
+                      }
+                      _writeVarInt (aDirect.getClassType ().ordinal ());
+                      _register (aType);
+                    }
+                    else
+                      if (aType instanceof JErrorClass)
+                      {
+                        final JErrorClass aError = (JErrorClass) aType;
+                        _writeVarInt (TYPE_ERROR);
+                        _writeString (aError.getMessage ());
+                        _writeString (aError.name ());
+                        _register (aType);
+                      }
+                      else
+                        if (aType instanceof JReferencedClass)
+                        {
+                          _writeVarInt (TYPE_REFERENCED);
+                          _writeString (aType.binaryName ());
+                          _register (aType);
+                        }
+                        else
+                          throw new UnsupportedOperationException ("The type " +
+                                                                   aType.getClass ().getName () +
+                                                                   " cannot be written to a snapshot");
+  }
+
+  private void _writeTypes (@Nonnull final Collection <? extends AbstractJType> aTypes)
+  {
+    _writeVarInt (aTypes.size ());
+    for (final AbstractJType aType : aTypes)
+      _writeType (aType);
+  }
+
+  private void _writeMethodRef (@Nonnull final JMethod aMethod)
+  {
+    final Integer aID = m_aIDs.get (aMethod);
+    if (aID == null)
+      throw new IllegalStateException ("The method '" + aMethod.name () + "' is not part of the code model");
+    _writeVarInt (aID.intValue ());
+  }
+
+  private void _writeVar (@Nonnull final JVar aVar)
+  {
+    final Integer aID = m_aIDs.get (aVar);
+    if (aID != null)
+    {
+      _writeVarInt (aID.intValue () + 1);
+      return;
+    }
+    if (aVar instanceof JFieldVar)
+      throw new IllegalStateException ("The field '" + aVar.name () + "' is not part of the code model");
+    // First occurrence of a local variable
+    _writeVarInt (0);
+    _writeVarDefinition (aVar);
+  }
+
+  private void _writeVarDefinition (@Nonnull final JVar aVar)
+  {
+    _writeType (aVar.type ());
+    _writeString (aVar.name ());
+    _register (aVar);
+    _writeVarInt (aVar.mods ().getValue ());
+    _writeVarAnnotations (aVar);
+    _writeNode (aVar.init ());
+  }
+
+  private void _writeVarAnnotations (@Nonnull final JVar aVar)
+  {
+    _writeAnnotations (aVar.isAnnotated () ? aVar.annotations () : null);
+  }
+
+  private void _writeAnnotations (@Nullable final Collection <JAnnotationUse> aAnnotations)
+  {
+    if (aAnnotations == null)
+      _writeVarInt (0);
+    else
+    {
+      _writeVarInt (aAnnotations.size () + 1);
+      for (final JAnnotationUse aAnnotation : aAnnotations)
+        _writeAnnotation (aAnnotation);
+    }
+  }
+
+  private void _writeAnnotation (@Nonnull final JAnnotationUse aAnnotation)
+  {
+    _writeType (aAnnotation.getAnnotationClass ());
+    final Map <String, AbstractJAnnotationValue> aMembers = aAnnotation.getAnnotationMembers ();
+    _writeVarInt (aMembers.size ());
+    for (final Map.Entry <String, AbstractJAnnotationValue> aEntry : aMembers.entrySet ())
+    {
+      _writeString (aEntry.getKey ());
+      _writeAnnotationValue (aEntry.getValue ());
+    }
+  }
+
+  private void _writeAnnotationValue (@Nonnull final AbstractJAnnotationValue aValue)
+  {
+    if (aValue instanceof JAnnotationUse)
+    {
+      _writeVarInt (ANNOTATION_VALUE_ANNOTATION);
+      _writeAnnotation ((JAnnotationUse) aValue);
+    }
+    else
+      if (aValue instanceof JAnnotationArrayMember)
+      {
+        final Collection <AbstractJAnnotationValue> aValues = ((JAnnotationArrayMember) aValue).getAllAnnotations ();
+        _writeVarInt (ANNOTATION_VALUE_ARRAY);
+        _writeVarInt (aValues.size ());
+        for (final AbstractJAnnotationValue aElement : aValues)
+          _writeAnnotationValue (aElement);
+      }
+      else
+        if (aValue instanceof JAnnotationStringValue)
+        {
+          final JAnnotationStringValue aStringValue = (JAnnotationStringValue) aValue;
+          final Object aNative = aStringValue.nativeValue ();
+          if (aNative instanceof Boolean)
+          {
+            _writeVarInt (ANNOTATION_VALUE_BOOLEAN);
+            _writeBoolean (((Boolean) aNative).booleanValue ());
+          }
+          else
+            if (aNative instanceof Byte)
+            {
+              _writeVarInt (ANNOTATION_VALUE_BYTE);
+              _writeSignedInt (((Byte) aNative).byteValue ());
+            }
+            else
+              if (aNative instanceof Character)
+              {
+                _writeVarInt (ANNOTATION_VALUE_CHAR);
+                _writeVarInt (((Character) aNative).charValue ());
+              }
+              else
+                if (aNative instanceof Double)
+                {
+                  _writeVarInt (ANNOTATION_VALUE_DOUBLE);
+                  _writeVarLong (Double.doubleToRawLongBits (((Double) aNative).doubleValue ()));
+                }
+                else
+                  if (aNative instanceof Float)
+                  {
+                    _writeVarInt (ANNOTATION_VALUE_FLOAT);
+                    _writeVarInt (Float.floatToRawIntBits (((Float) aNative).floatValue ()));
+                  }
+                  else
+                    if (aNative instanceof Integer)
+                    {
+                      _writeVarInt (ANNOTATION_VALUE_INT);
+                      _writeSignedInt (((Integer) aNative).intValue ());
+                    }
+                    else
+                      if (aNative instanceof Long)
+                      {
+                        _writeVarInt (ANNOTATION_VALUE_LONG);
+                        _writeSignedLong (((Long) aNative).longValue ());
+                      }
+                      else
+                        if (aNative instanceof Short)
+                        {
+                          _writeVarInt (ANNOTATION_VALUE_SHORT);
+                          _writeSignedInt (((Short) aNative).shortValue ());
+                        }
+                        else
+                          if (aNative instanceof String)
+                          {
+                            _writeVarInt (ANNOTATION_VALUE_STRING);
+                            _writeString ((String) aNative);
+                          }
+                          else
+                            if (aNative instanceof Enum <?>)
+                            {
+                              final Enum <?> aEnum = (Enum <?>) aNative;
+                              _writeVarInt (ANNOTATION_VALUE_ENUM);
+                              // Stored as type and name so no class loading is
+                              // needed for reading
+                              _writeType (m_aCodeModel.ref (aEnum.getDeclaringClass ()));
+                              _writeString (aEnum.name ());
+                            }
+                            else
+                              if (aNative instanceof Class <?>)
+                              {
+                                _writeVarInt (ANNOTATION_VALUE_CLASS);
+                                _writeString (JCNameUtilities.getFullName ((Class <?>) aNative));
+                              }
+                              else
+                                if (aNative instanceof AbstractJType)
+                                {
+                                  _writeVarInt (ANNOTATION_VALUE_TYPE);
+                                  _writeType ((AbstractJType) aNative);
+                                }
+                                else
+                                {
+                                  _writeVarInt (ANNOTATION_VALUE_EXPRESSION);
+                                  _writeNode (aStringValue.value ());
+                                }
+        }
+        else
+          throw new UnsupportedOperationException ("The annotation value " +
+                                                   aValue.getClass ().getName () +
+                                                   " cannot be written to a snapshot");
+  }
+
+  private void _writeDoc (@Nullable final JDocComment aDoc)
+  {
+    _writeBoolean (aDoc != null);
+    if (aDoc == null)
+      return;
+
+    _writeBoolean (aDoc.isSingleLineMode ());
+    _writeCommentPart (aDoc);
+
+    final Map <String, JCommentPart> aParams = aDoc.internalGetParams ();
+    _writeVarInt (aParams.size ());
+    for (final Map.Entry <String, JCommentPart> aEntry : aParams.entrySet ())
+    {
+      _writeString (aEntry.getKey ());
+      _writeCommentPart (aEntry.getValue ());
+    }
+
+    final JCommentPart aReturn = aDoc.getReturn ();
+    _writeBoolean (aReturn != null);
+    if (aReturn != null)
+      _writeCommentPart (aReturn);
+
+    final Map <AbstractJClass, JCommentPart> aThrows = aDoc.internalGetThrows ();
+    _writeVarInt (aThrows.size ());
+    for (final Map.Entry <AbstractJClass, JCommentPart> aEntry : aThrows.entrySet ())
+    {
+      _writeType (aEntry.getKey ());
+      _writeCommentPart (aEntry.getValue ());
+    }
+
+    final Map <String, JCommentPart> aTags = aDoc.internalGetTags ();
+    _writeVarInt (aTags.size ());
+    for (final Map.Entry <String, JCommentPart> aEntry : aTags.entrySet ())
+    {
+      _writeString (aEntry.getKey ());
+      _writeCommentPart (aEntry.getValue ());
+    }
+
+    final Map <String, Map <String, String>> aXdoclets = aDoc.internalGetXdoclets ();
+    _writeVarInt (aXdoclets.size ());
+    for (final Map.Entry <String, Map <String, String>> aEntry : aXdoclets.entrySet ())
+    {
+      _writeString (aEntry.getKey ());
+      _writeVarInt (aEntry.getValue ().size ());
+      for (final Map.Entry <String, String> aAttr : aEntry.getValue ().entrySet ())
+      {
+        _writeString (aAttr.getKey ());
+        _writeString (aAttr.getValue ());
+      }
+    }
+  }
+
+  private void _writeCommentPart (@Nonnull final JCommentPart aPart)
+  {
+    _writeVarInt (aPart.size ());
+    for (final Object aItem : aPart)
+    {
+      // Only strings and types can be contained
+      if (aItem instanceof AbstractJType)
+      {
+        _writeBoolean (true);
+        _writeType ((AbstractJType) aItem);
+      }
+      else
+      {
+        _writeBoolean (false);
+        _writeString ((String) aItem);
+      }
+    }
+  }
+
+  private void _writeOptionalBlock (@Nullable final JBlock aBlock)
+  {
+    _writeBoolean (aBlock != null);
+    if (aBlock != null)
+      _writeBlock (aBlock);
+  }
+
+  private void _writeBlock (@Nonnull final JBlock aBlock)
+  {
+    final List <IJObject> aContents = aBlock.getContents ();
+    _writeVarInt (aContents.size ());
+    for (final IJObject aContent : aContents)
+    {
+      if (aContent instanceof JVar)
+      {
+        _writeVarInt (NODE_DECL);
+        _writeVar ((JVar) aContent);
+      }
+      else
+        _writeNode (aContent);
+    }
+    _writeVarInt (aBlock.pos ());
+    _writeBoolean (aBlock.virtual ());
+    _writeBoolean (aBlock.bracesRequired ());
+    _writeBoolean (aBlock.indentRequired ());
+  }
+
+  private void _writeNodes (@Nullable final List <? extends Object> aNodes)
+  {
+    if (aNodes == null)
+      _writeVarInt (0);
+    else
+    {
+      _writeVarInt (aNodes.size () + 1);
+      for (final Object aNode : aNodes)
+        _writeNode (aNode);
+    }
+  }
+
+  private void _writeLabel (@Nullable final JLabel aLabel)
+  {
+    _writeString (aLabel == null ? null : aLabel.label ());
+  }
+
+  private void _writeNode (@Nullable final Object aNode)
+  {
+    if (aNode == null)
+      _writeVarInt (NODE_NULL);
+    else
+      if (aNode instanceof AbstractJType)
+      {
+        _writeVarInt (NODE_TYPE);
+        _writeType ((AbstractJType) aNode);
+      }
+      else
+        if (aNode instanceof IJExpression)
+          _writeExpression ((IJExpression) aNode);
+        else
+          _writeStatement (aNode);
+  }
+
+  private void _writeExpression (@Nonnull final IJExpression aExpr)
+  {
+    if (aExpr instanceof JAtom)
+    {
+      _writeVarInt (NODE_ATOM);
+      _writeString (((JAtom) aExpr).what ());
+    }
+    else
+      if (aExpr instanceof JAtomInt)
+      {
+        _writeVarInt (NODE_INT);
+        _writeSignedInt (((JAtomInt) aExpr).what ());
+      }
+      else
+        if (aExpr instanceof JAtomLong)
+        {
+          _writeVarInt (NODE_LONG);
+          _writeSignedLong (((JAtomLong) aExpr).what ());
+        }
+        else
+          if (aExpr instanceof JAtomFloat)
+          {
+            _writeVarInt (NODE_FLOAT);
+            _writeVarInt (Float.floatToRawIntBits (((JAtomFloat) aExpr).what ()));
+          }
+          else
+            if (aExpr instanceof JAtomDouble)
+            {
+              _writeVarInt (NODE_DOUBLE);
+              _writeVarLong (Double.doubleToRawLongBits (((JAtomDouble) aExpr).what ()));
+            }
+            else
+              if (aExpr instanceof JStringLiteral)
+              {
+                _writeVarInt (NODE_STRING);
+                _writeString (((JStringLiteral) aExpr).what ());
+              }
+              else
+                if (aExpr instanceof JOpBinary)
+                {
+                  final JOpBinary aOp = (JOpBinary) aExpr;
+                  _writeVarInt (NODE_BINARY);
+                  _writeNode (aOp.left ());
+                  _writeString (aOp.op ());
+                  _writeNode (aOp.right ());
+                }
+                else
+                  if (aExpr instanceof JOpUnary)
+                  {
+                    final JOpUnary aOp = (JOpUnary) aExpr;
+                    _writeVarInt (aExpr instanceof JOpUnaryTight ? NODE_UNARY_TIGHT : NODE_UNARY);
+                    _writeString (aOp.op ());
+                    _writeNode (aOp.expr ());
+                    _writeBoolean (aOp.opFirst ());
+                  }
+                  else
+                    if (aExpr instanceof JOpTernary)
+                    {
+                      final JOpTernary aOp = (JOpTernary) aExpr;
+                      _writeVarInt (NODE_TERNARY);
+                      _writeNode (aOp.expr1 ());
+                      _writeString (aOp.op1 ());
+                      _writeNode (aOp.expr2 ());
+                      _writeString (aOp.op2 ());
+                      _writeNode (aOp.expr3 ());
+                    }
+                    else
+                      if (aExpr instanceof JAssignment)
+                      {
+                        final JAssignment aAssignment = (JAssignment) aExpr;
+                        _writeVarInt (NODE_ASSIGNMENT);
+                        _writeNode (aAssignment.lhs ());
+                        _writeString (aAssignment.op ());
+                        _writeNode (aAssignment.rhs ());
+                      }
+                      else
+                        if (aExpr instanceof JCast)
+                        {
+                          final JCast aCast = (JCast) aExpr;
+                          _writeVarInt (NODE_CAST);
+                          _writeType (aCast.type ());
+                          _writeNode (aCast.object ());
+                        }
+                        else
+                          if (aExpr instanceof JInvocation)
+                            _writeInvocation ((JInvocation) aExpr);
+                          else
+                            if (aExpr instanceof JFieldRef)
+                            {
+                              final JFieldRef aFieldRef = (JFieldRef) aExpr;
+                              _writeVarInt (NODE_FIELD_REF);
+                              _writeNode (aFieldRef.object ());
+                              final JVar aVar = aFieldRef.var ();
+                              _writeBoolean (aVar != null);
+                              if (aVar != null)
+                                _writeVar (aVar);
+                              else
+                                _writeString (aFieldRef.name ());
+                              _writeBoolean (aFieldRef.explicitThis ());
+                            }
+                            else
+                              _writeOtherExpression (aExpr);
+  }
+
+  private void _writeOtherExpression (@Nonnull final IJExpression aExpr)
+  {
+    if (aExpr instanceof JArray)
+    {
+      final JArray aArray = (JArray) aExpr;
+      _writeVarInt (NODE_ARRAY);
+      _writeType (aArray.type ());
+      _writeNode (aArray.size ());
+      _writeNodes (aArray.hasExprs () ? aArray.exprs () : null);
+    }
+    else
+      if (aExpr instanceof JArrayCompRef)
+      {
+        final JArrayCompRef aRef = (JArrayCompRef) aExpr;
+        _writeVarInt (NODE_ARRAY_COMP_REF);
+        _writeNode (aRef.array ());
+        _writeNode (aRef.index ());
+      }
+      else
+        if (aExpr instanceof JEnumConstantRef)
+        {
+          final JEnumConstantRef aRef = (JEnumConstantRef) aExpr;
+          _writeVarInt (NODE_ENUM_CONSTANT_REF);
+          _writeType (aRef.type ());
+          _writeString (aRef.name ());
+        }
+        else
+          if (aExpr instanceof JEnumConstant)
+          {
+            final JEnumConstant aEnumConstant = (JEnumConstant) aExpr;
+            _writeVarInt (NODE_ENUM_CONSTANT);
+            final Integer aID = m_aIDs.get (aEnumConstant);
+            if (aID != null)
+              _writeVarInt (aID.intValue () + 1);
+            else
+            {
+              // Enum constant that is only used as a reference
+              _writeVarInt (0);
+              _writeType (aEnumConstant.type ());
+              _writeString (aEnumConstant.name ());
+            }
+          }
+          else
+            if (aExpr instanceof JVar)
+            {
+              _writeVarInt (NODE_VAR);
+              _writeVar ((JVar) aExpr);
+            }
+            else
+              if (aExpr instanceof JLambdaParam)
+              {
+                final Integer aID = m_aIDs.get (aExpr);
+                if (aID == null)
+                  throw new IllegalStateException ("The lambda parameter '" +
+                                                   ((JLambdaParam) aExpr).name () +
+                                                   "' is used outside of its lambda");
+                _writeVarInt (NODE_LAMBDA_PARAM);
+                _writeVarInt (aID.intValue ());
+              }
+              else
+                if (aExpr instanceof JLambda)
+                {
+                  final JLambda aLambda = (JLambda) aExpr;
+                  _writeVarInt (NODE_LAMBDA);
+                  final List <JLambdaParam> aParams = aLambda.params ();
+                  _writeVarInt (aParams.size ());
+                  for (final JLambdaParam aParam : aParams)
+                  {
+                    _writeType (aParam.type ());
+                    _writeString (aParam.name ());
+                    _register (aParam);
+                  }
+                  _writeBlock (aLambda.body ());
+                }
+                else
+                  if (aExpr instanceof JLambdaMethodRef)
+                    _writeLambdaMethodRef ((JLambdaMethodRef) aExpr);
+                  else
+                    if (aExpr instanceof JExpr.JDotClassExpr)
+                    {
+                      _writeVarInt (NODE_DOT_CLASS);
+                      _writeType (((JExpr.JDotClassExpr) aExpr).type ());
+                    }
+                    else
+                      if (aExpr instanceof JExpr.JDirectExpr)
+                      {
+                        _writeVarInt (NODE_DIRECT_EXPR);
+                        _writeString (((JExpr.JDirectExpr) aExpr).source ());
+                      }
+                      else
+                        throw new UnsupportedOperationException ("The expression " +
+                                                                 aExpr.getClass ().getName () +
+                                                                 " cannot be written to a snapshot");
+  }
+
+  private void _writeInvocation (@Nonnull final JInvocation aInvocation)
+  {
+    _writeVarInt (NODE_INVOCATION);
+    final AbstractJType aConstructorType = aInvocation.internalGetConstructorType ();
+    final JMethod aMethod = aInvocation.internalGetMethod ();
+    if (aConstructorType != null)
+    {
+      _writeVarInt (INVOKE_CONSTRUCTOR);
+      _writeType (aConstructorType);
+    }
+    else
+      if (aMethod != null)
+      {
+        _writeVarInt (INVOKE_METHOD);
+        _writeNode (aInvocation.internalGetObject ());
+        _writeMethodRef (aMethod);
+      }
+      else
+      {
+        _writeVarInt (INVOKE_NAME);
+        _writeNode (aInvocation.internalGetObject ());
+        _writeString (aInvocation.internalGetMethodName ());
+      }
+
+    final List <IJExpression> aArgs = aInvocation.args ();
+    _writeVarInt (aArgs.size ());
+    for (final IJExpression aArg : aArgs)
+      _writeNode (aArg);
+
+    final List <JTypeVar> aTypeParams = aInvocation.typeParamList ();
+    _writeVarInt (aTypeParams.size ());
+    for (final JTypeVar aTypeParam : aTypeParams)
+    {
+      if (aTypeParam instanceof JTypeVarClass)
+      {
+        _writeBoolean (true);
+        _writeType (((JTypeVarClass) aTypeParam).internalGetClass ());
+      }
+      else
+      {
+        _writeBoolean (false);
+        _writeString (aTypeParam.name ());
+      }
+    }
+  }
+
+  private void _writeLambdaMethodRef (@Nonnull final JLambdaMethodRef aRef)
+  {
+    _writeVarInt (NODE_LAMBDA_METHOD_REF);
+    final JMethod aMethod = aRef.method ();
+    if (aRef.var () != null)
+    {
+      _writeVarInt (METHOD_REF_VAR);
+      _writeVar (aRef.var ());
+    }
+    else
+      if (aRef.invocation () != null)
+      {
+        _writeVarInt (METHOD_REF_INVOCATION);
+        _writeNode (aRef.invocation ());
+      }
+      else
+        if (aMethod != null)
+        {
+          // Static method, nothing else is needed
+          _writeVarInt (METHOD_REF_STATIC);
+          _writeMethodRef (aMethod);
+          return;
+        }
+        else
+          _writeVarInt (METHOD_REF_TYPE);
+
+    if (aRef.var () == null && aRef.invocation () == null)
+    {
+      _writeType (aRef.type ());
+      _writeString (aRef.methodName ());
+    }
+    else
+    {
+      _writeBoolean (aMethod != null);
+      if (aMethod != null)
+        _writeMethodRef (aMethod);
+      else
+        _writeString (aRef.methodName ());
+    }
+  }
+
+  private void _writeStatement (@Nonnull final Object aNode)
+  {
+    if (aNode instanceof JBlock)
+    {
+      _writeVarInt (NODE_BLOCK);
+      _writeBlock ((JBlock) aNode);
+    }
+    else
+      if (aNode instanceof JConditional)
+      {
+        final JConditional aCond = (JConditional) aNode;
+        _writeVarInt (NODE_CONDITIONAL);
+        _writeNode (aCond.test ());
+        _writeBlock (aCond._then ());
+        _writeOptionalBlock (aCond.internalGetElse ());
+      }
+      else
+        if (aNode instanceof JForLoop)
+        {
+          final JForLoop aLoop = (JForLoop) aNode;
+          _writeVarInt (NODE_FOR);
+          final List <Object> aInits = aLoop.inits ();
+          _writeVarInt (aInits.size ());
+          for (final Object aInit : aInits)
+          {
+            if (aInit instanceof JVar)
+            {
+              if (m_aIDs.containsKey (aInit))
+                throw new IllegalStateException ("The loop variable '" +
+                                                 ((JVar) aInit).name () +
+                                                 "' was already declared");
+              _writeBoolean (true);
+              _writeVarDefinition ((JVar) aInit);
+            }
+            else
+            {
+              final JAssignment aAssignment = (JAssignment) aInit;
+              _writeBoolean (false);
+              _writeNode (aAssignment.lhs ());
+              _writeNode (aAssignment.rhs ());
+            }
+          }
+          _writeNode (aLoop.test ());
+          _writeNodes (aLoop.updates ());
+          _writeOptionalBlock (aLoop.internalGetBody ());
+        }
+        else
+          if (aNode instanceof JForEach)
+          {
+            final JForEach aLoop = (JForEach) aNode;
+            final JVar aLoopVar = aLoop.var ();
+            _writeVarInt (NODE_FOR_EACH);
+            _writeType (aLoop.type ());
+            _writeString (aLoopVar.name ());
+            _writeNode (aLoop.collection ());
+            _register (aLoopVar);
+            _writeVarInt (aLoopVar.mods ().getValue ());
+            _writeVarAnnotations (aLoopVar);
+            _writeOptionalBlock (aLoop.internalGetBody ());
+          }
+          else
+            if (aNode instanceof JWhileLoop)
+            {
+              final JWhileLoop aLoop = (JWhileLoop) aNode;
+              _writeVarInt (NODE_WHILE);
+              _writeNode (aLoop.test ());
+              _writeOptionalBlock (aLoop.internalGetBody ());
+            }
+            else
+              if (aNode instanceof JDoLoop)
+              {
+                final JDoLoop aLoop = (JDoLoop) aNode;
+                _writeVarInt (NODE_DO);
+                _writeNode (aLoop.test ());
+                _writeOptionalBlock (aLoop.internalGetBody ());
+              }
+              else
+                if (aNode instanceof JSynchronizedBlock)
+                {
+                  final JSynchronizedBlock aSync = (JSynchronizedBlock) aNode;
+                  _writeVarInt (NODE_SYNCHRONIZED);
+                  _writeNode (aSync.expr ());
+                  _writeOptionalBlock (aSync.internalGetBody ());
+                }
+                else
+                  if (aNode instanceof JSwitch)
+                  {
+                    final JSwitch aSwitch = (JSwitch) aNode;
+                    _writeVarInt (NODE_SWITCH);
+                    _writeNode (aSwitch.test ());
+                    final List <JCase> aCases = _toList (aSwitch.cases ());
+                    _writeVarInt (aCases.size ());
+                    for (final JCase aCase : aCases)
+                    {
+                      _writeNode (aCase.label ());
+                      _writeOptionalBlock (aCase.internalGetBody ());
+                    }
+                    final JCase aDefault = aSwitch.internalGetDefault ();
+                    _writeBoolean (aDefault != null);
+                    if (aDefault != null)
+                      _writeOptionalBlock (aDefault.internalGetBody ());
+                  }
+                  else
+                    _writeOtherStatement (aNode);
+  }
+
+  private void _writeOtherStatement (@Nonnull final Object aNode)
+  {
+    if (aNode instanceof JTryBlock)
+    {
+      final JTryBlock aTry = (JTryBlock) aNode;
+      _writeVarInt (NODE_TRY);
+      _writeBlock (aTry.body ());
+      final List <JCatchBlock> aCatches = aTry.catches ();
+      _writeVarInt (aCatches.size ());
+      for (final JCatchBlock aCatch : aCatches)
+      {
+        _writeType (aCatch.exception ());
+        final JVar aParam = aCatch.param ();
+        _writeBoolean (aParam != null);
+        if (aParam != null)
+        {
+          _writeString (aParam.name ());
+          _register (aParam);
+          _writeVarInt (aParam.mods ().getValue ());
+          _writeVarAnnotations (aParam);
+        }
+        _writeBlock (aCatch.body ());
+      }
+      _writeOptionalBlock (aTry.internalGetFinally ());
+    }
+    else
+      if (aNode instanceof JThrow)
+      {
+        _writeVarInt (NODE_THROW);
+        _writeNode (((JThrow) aNode).expr ());
+      }
+      else
+        if (aNode instanceof JReturn)
+        {
+          _writeVarInt (NODE_RETURN);
+          _writeNode (((JReturn) aNode).expr ());
+        }
+        else
+          if (aNode instanceof JBreak)
+          {
+            _writeVarInt (NODE_BREAK);
+            _writeLabel (((JBreak) aNode).label ());
+          }
+          else
+            if (aNode instanceof JContinue)
+            {
+              _writeVarInt (NODE_CONTINUE);
+              _writeLabel (((JContinue) aNode).label ());
+            }
+            else
+              if (aNode instanceof JLabel)
+              {
+                _writeVarInt (NODE_LABEL);
+                _writeLabel ((JLabel) aNode);
+              }
+              else
+                if (aNode instanceof JDirectStatement)
+                {
+                  _writeVarInt (NODE_DIRECT_STATEMENT);
+                  _writeString (((JDirectStatement) aNode).source ());
+                }
+                else
+                  if (aNode instanceof JSingleLineCommentStatement)
+                  {
+                    _writeVarInt (NODE_COMMENT);
+                    _writeString (((JSingleLineCommentStatement) aNode).comment ());
+                  }
+                  else
+                    throw new UnsupportedOperationException ("The statement " +
+                                                             aNode.getClass ().getName () +
+                                                             " cannot be written to a snapshot");
+  }
+}
@@ -41,6 +41,7 @@
 package com.helger.jcodemodel;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.helger.jcodemodel.util.JCValueEnforcer;
 
@@ -145,4 +146,13 @@ public class JConditional implements IJStatement
       f.print ("else").generable (m_aElseBlock);
     f.newline ();
   }
+
+  /**
+   * @return The else block or <code>null</code> if none was created.
+   */
+  @Nullable
+  JBlock internalGetElse ()
+  {
+    return m_aElseBlock;
+  }
 }
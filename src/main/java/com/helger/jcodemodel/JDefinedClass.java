@@ -131,11 +131,31 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
    */
   private boolean m_bHideFile = false;
 
+  /**
+   * Flag that indicates that this class was already written by
+   * {@link JCodeModel#flush(JDefinedClass, AbstractCodeWriter)} and that
+   * everything except the information required for referencing it was
+   * released.
+   */
+  private boolean m_bFlushed = false;
+
+  /**
+   * Callback that adds the members and annotations of this class on first
+   * access. Cleared after it ran.
+   */
+  private volatile Runnable m_aLazyMemberInitializer;
+
+  /** Avoid recursion while the lazy member initializer runs */
+  private boolean m_bLazyMembersInitializing = false;
+
   /**
    * String that will be put directly inside the generated code. Can be null.
    */
   private String m_sDirectBlock;
 
+  /** Lazily determined by {@link #_package()} */
+  private JPackage m_aPackage;
+
   /**
    * Set of enum constants that are keyed by names. In Java, enum constant order
    * is actually significant, because of order ID they get. So let's preserve
@@ -238,7 +258,8 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
 
   /**
    * @return the current modifiers of this class. Always return non-null valid
-   *         object.
+   *         object. If this class was already flushed, the returned modifiers
+   *         are read-only.
    */
   @Nonnull
   public JMods mods ()
@@ -257,6 +278,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   public JDefinedClass _extends (@Nonnull final AbstractJClass aSuperClass)
   {
     JCValueEnforcer.notNull (aSuperClass, "SuperClass");
+    _checkNotFlushed ();
     if (isInterface ())
     {
       if (aSuperClass.isInterface ())
@@ -308,6 +330,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public JDefinedClass _implements (@Nonnull final AbstractJClass aInterface)
   {
+    _checkNotFlushed ();
     m_aInterfaces.add (aInterface);
     return this;
   }
@@ -331,7 +354,8 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   /**
    * If the named enum already exists, the reference to it is returned.
    * Otherwise this method generates a new enum reference with the given name
-   * and returns it.
+   * and returns it. If this class was already flushed, a new constant is
+   * returned that can only be used as a reference.
    *
    * @param sName
    *        The name of the constant.
@@ -340,6 +364,11 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public JEnumConstant enumConstant (@Nonnull final String sName)
   {
+    if (m_bFlushed)
+    {
+      // Only usable as a reference
+      return new JEnumConstant (this, sName);
+    }
     return m_aEnumConstantsByName.computeIfAbsent (sName, k -> new JEnumConstant (this, k));
   }
 
@@ -399,6 +428,8 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
                           @Nonnull final String sName,
                           @Nullable final IJExpression aInit)
   {
+    _checkNotFlushed ();
+    _initLazyMembers ();
     JCValueEnforcer.isFalse (m_aFields.containsKey (sName), () -> "trying to create the same field twice: " + sName);
 
     final JFieldVar f = new JFieldVar (this, JMods.forField (nMods), aType, sName, aInit);
@@ -421,6 +452,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public Map <String, JFieldVar> fields ()
   {
+    _initLazyMembers ();
     return Collections.unmodifiableMap (m_aFields);
   }
 
@@ -434,6 +466,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
    */
   public void removeField (@Nonnull final JFieldVar aField)
   {
+    _initLazyMembers ();
     if (m_aFields.remove (aField.name ()) != aField)
       throw new IllegalArgumentException ("Failed to remove field " + aField);
   }
@@ -446,6 +479,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
    */
   public boolean containsField (@Nullable final String sName)
   {
+    _initLazyMembers ();
     return sName != null && m_aFields.containsKey (sName);
   }
 
@@ -470,6 +504,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public JBlock init ()
   {
+    _checkNotFlushed ();
     if (m_aStaticInit == null)
       m_aStaticInit = new JBlock ();
     return m_aStaticInit;
@@ -483,6 +518,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public JBlock instanceInit ()
   {
+    _checkNotFlushed ();
     if (m_aInstanceInit == null)
       m_aInstanceInit = new JBlock ();
     return m_aInstanceInit;
@@ -498,6 +534,8 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public JMethod constructor (final int nMods)
   {
+    _checkNotFlushed ();
+    _initLazyMembers ();
     final JMethod c = new JMethod (nMods, this);
     m_aConstructors.add (c);
     return c;
@@ -509,6 +547,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public Iterator <JMethod> constructors ()
   {
+    _initLazyMembers ();
     return m_aConstructors.iterator ();
   }
 
@@ -522,6 +561,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nullable
   public JMethod getConstructor (@Nonnull final AbstractJType [] aArgTypes)
   {
+    _initLazyMembers ();
     for (final JMethod m : m_aConstructors)
       if (m.hasSignature (aArgTypes))
         return m;
@@ -542,6 +582,8 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public JMethod method (final int nMods, @Nonnull final AbstractJType aType, @Nonnull final String sName)
   {
+    _checkNotFlushed ();
+    _initLazyMembers ();
     // XXX problems caught in M constructor
     final JMethod m = new JMethod (this, nMods, aType, sName);
     m_aMethods.add (m);
@@ -560,6 +602,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public Collection <JMethod> methods ()
   {
+    _initLazyMembers ();
     return m_aMethods;
   }
 
@@ -575,6 +618,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nullable
   public JMethod getMethod (final String sName, final AbstractJType [] aArgTypes)
   {
+    _initLazyMembers ();
     for (final JMethod m : m_aMethods)
       if (m.name ().equals (sName))
         if (m.hasSignature (aArgTypes))
@@ -598,6 +642,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public JDocComment headerComment ()
   {
+    _checkNotFlushed ();
     if (m_aHeaderComment == null)
       m_aHeaderComment = new JDocComment (owner ());
     return m_aHeaderComment;
@@ -606,6 +651,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public JDocComment javadoc ()
   {
+    _checkNotFlushed ();
     if (m_aJDoc == null)
       m_aJDoc = new JDocComment (owner ());
     return m_aJDoc;
@@ -626,8 +672,216 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
     return m_bHideFile;
   }
 
+  /**
+   * @return <code>true</code> if this class was already written and its body
+   *         was released, <code>false</code> otherwise. A flushed class can
+   *         still be referenced but no longer be modified.
+   * @see JCodeModel#flush(JDefinedClass, AbstractCodeWriter)
+   * @since 3.0.4
+   */
+  public boolean isFlushed ()
+  {
+    return m_bFlushed;
+  }
+
+  private void _checkNotFlushed ()
+  {
+    if (m_bFlushed)
+      throw new IllegalStateException ("The class '" + fullName () + "' was already flushed and cannot be modified!");
+  }
+
+  /**
+   * Set a callback that adds the members (fields, constructors and methods)
+   * and annotations of this class when they are accessed for the first time.
+   * This is used to mirror classes from <code>javax.lang.model</code> elements
+   * without converting members that are never read. The initializers of all
+   * classes of a code model are run one at a time. If the initializer throws
+   * an exception, all members and annotations added by it are removed again
+   * and it is invoked again on the next access. Before a parallel build or a
+   * flush, the initializers of the classes to be written are run in the
+   * calling thread.
+   *
+   * @param aInitializer
+   *        The initializer to be invoked once. May be <code>null</code> to
+   *        remove a pending initializer.
+   * @since 3.0.4
+   */
+  public void setLazyMemberInitializer (@Nullable final Runnable aInitializer)
+  {
+    m_aLazyMemberInitializer = aInitializer;
+  }
+
+  /**
+   * @return <code>true</code> if a lazy member initializer was set and did not
+   *         run successfully yet, <code>false</code> otherwise.
+   * @see #setLazyMemberInitializer(Runnable)
+   * @since 3.0.4
+   */
+  public boolean hasLazyMemberInitializer ()
+  {
+    return m_aLazyMemberInitializer != null;
+  }
+
+  private void _initLazyMembers ()
+  {
+    if (m_aLazyMemberInitializer != null)
+      synchronized (owner ().getLazyMembersLock ())
+      {
+        final Runnable aInitializer = m_aLazyMemberInitializer;
+        // The initializer itself adds the members
+        if (aInitializer != null && !m_bLazyMembersInitializing)
+        {
+          final int nFields = m_aFields.size ();
+          final int nConstructors = m_aConstructors.size ();
+          final int nMethods = m_aMethods.size ();
+          final int nAnnotations = m_aAnnotations == null ? 0 : m_aAnnotations.size ();
+          boolean bSuccess = false;
+          m_bLazyMembersInitializing = true;
+          try
+          {
+            aInitializer.run ();
+            bSuccess = true;
+          }
+          finally
+          {
+            m_bLazyMembersInitializing = false;
+            if (bSuccess)
+              m_aLazyMemberInitializer = null;
+            else
+            {
+              // Don't keep a partially initialized class - retry on next access
+              final Iterator <String> aFieldNames = m_aFields.keySet ().iterator ();
+              for (int i = 0; aFieldNames.hasNext (); ++i)
+              {
+                aFieldNames.next ();
+                if (i >= nFields)
+                  aFieldNames.remove ();
+              }
+              m_aConstructors.subList (nConstructors, m_aConstructors.size ()).clear ();
+              m_aMethods.subList (nMethods, m_aMethods.size ()).clear ();
+              if (m_aAnnotations != null)
+                m_aAnnotations.subList (nAnnotations, m_aAnnotations.size ()).clear ();
+            }
+          }
+        }
+      }
+  }
+
+  /**
+   * Run the pending lazy member initializers of this class and all inner
+   * classes in the calling thread.
+   */
+  void initLazyMembersRecursive ()
+  {
+    _initLazyMembers ();
+    if (m_aClasses != null)
+      for (final JDefinedClass aInnerClass : m_aClasses.values ())
+        aInnerClass.initLazyMembersRecursive ();
+  }
+
+  /**
+   * @return The explicitly set super class or <code>null</code>. Other than
+   *         {@link #_extends()} this never falls back to Object.
+   */
+  @Nullable
+  AbstractJClass internalGetSuperClass ()
+  {
+    return m_aSuperClass;
+  }
+
+  /**
+   * @return The header comment or <code>null</code> if none was created.
+   */
+  @Nullable
+  JDocComment internalGetHeaderComment ()
+  {
+    return m_aHeaderComment;
+  }
+
+  /**
+   * @return The class Javadoc or <code>null</code> if none was created.
+   */
+  @Nullable
+  JDocComment internalGetJavadoc ()
+  {
+    return m_aJDoc;
+  }
+
+  /**
+   * @return The annotations or <code>null</code> if none were added.
+   */
+  @Nullable
+  List <JAnnotationUse> internalGetAnnotations ()
+  {
+    return m_aAnnotations;
+  }
+
+  /**
+   * @return The static initializer or <code>null</code> if none was created.
+   */
+  @Nullable
+  JBlock internalGetStaticInit ()
+  {
+    return m_aStaticInit;
+  }
+
+  /**
+   * @return The instance initializer or <code>null</code> if none was created.
+   */
+  @Nullable
+  JBlock internalGetInstanceInit ()
+  {
+    return m_aInstanceInit;
+  }
+
+  /**
+   * @return The direct source block or <code>null</code>.
+   */
+  @Nullable
+  String internalGetDirectBlock ()
+  {
+    return m_sDirectBlock;
+  }
+
+  /**
+   * @return All enum constants in declaration order. Never <code>null</code>.
+   */
+  @Nonnull
+  Collection <JEnumConstant> internalGetEnumConstants ()
+  {
+    return Collections.unmodifiableCollection (m_aEnumConstantsByName.values ());
+  }
+
+  /**
+   * Release all members, blocks, comments and annotations of this class and
+   * all inner classes. Only the information required to reference this class
+   * (name, modifiers, type parameters, super types and inner classes) is
+   * kept.
+   */
+  void releaseBody ()
+  {
+    m_bFlushed = true;
+    m_aMods.internalSetReadOnly ();
+    m_aLazyMemberInitializer = null;
+    m_aHeaderComment = null;
+    m_aJDoc = null;
+    m_aAnnotations = null;
+    m_aEnumConstantsByName.clear ();
+    m_aFields.clear ();
+    m_aStaticInit = null;
+    m_aInstanceInit = null;
+    m_aConstructors.clear ();
+    m_aMethods.clear ();
+    m_sDirectBlock = null;
+    if (m_aClasses != null)
+      for (final JDefinedClass aInnerClass : m_aClasses.values ())
+        aInnerClass.releaseBody ();
+  }
+
   public void declare (@Nonnull final JFormatter f)
   {
+    _initLazyMembers ();
+
     // Java docs
     if (m_aJDoc != null)
       f.newline ().generable (m_aJDoc);
@@ -730,6 +984,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
    */
   public void direct (@Nullable final String string)
   {
+    _checkNotFlushed ();
     if (m_sDirectBlock == null)
       m_sDirectBlock = string;
     else
@@ -741,27 +996,36 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public final JPackage _package ()
   {
-    IJClassContainer <?> p = getOuter ();
-    while (!(p instanceof JPackage))
-      p = p.parentContainer ();
-    return (JPackage) p;
+    // The outer container never changes
+    JPackage ret = m_aPackage;
+    if (ret == null)
+    {
+      IJClassContainer <?> p = getOuter ();
+      while (!(p instanceof JPackage))
+        p = p.parentContainer ();
+      ret = m_aPackage = (JPackage) p;
+    }
+    return ret;
   }
 
   @Nonnull
   public JTypeVar generify (@Nonnull final String sName)
   {
+    _checkNotFlushed ();
     return m_aGenerifiable.generify (sName);
   }
 
   @Nonnull
   public JTypeVar generify (@Nonnull final String sName, @Nonnull final Class <?> aBoundClass)
   {
+    _checkNotFlushed ();
     return m_aGenerifiable.generify (sName, aBoundClass);
   }
 
   @Nonnull
   public JTypeVar generify (@Nonnull final String sName, @Nonnull final AbstractJClass aBoundClass)
   {
+    _checkNotFlushed ();
     return m_aGenerifiable.generify (sName, aBoundClass);
   }
 
@@ -788,6 +1052,8 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public JAnnotationUse annotate (@Nonnull final AbstractJClass aClazz)
   {
+    _checkNotFlushed ();
+    _initLazyMembers ();
     if (m_aAnnotations == null)
       m_aAnnotations = new ArrayList <> ();
     final JAnnotationUse a = new JAnnotationUse (aClazz);
@@ -798,6 +1064,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   public Collection <JAnnotationUse> annotations ()
   {
+    _initLazyMembers ();
     if (m_aAnnotations == null)
       m_aAnnotations = new ArrayList <> ();
     return Collections.unmodifiableCollection (m_aAnnotations);
@@ -806,6 +1073,9 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nullable
   public JAnnotationUse getAnnotation (final Class <?> aAnnotationClass)
   {
+    _initLazyMembers ();
+    if (m_aAnnotations == null)
+      return null;
     for (final JAnnotationUse jannotation : m_aAnnotations)
     {
       final AbstractJClass jannotationClass = jannotation.getAnnotationClass ();
@@ -825,6 +1095,7 @@ public class JDefinedClass extends AbstractJClassContainer <JDefinedClass> imple
   @Nonnull
   protected JDefinedClass createInnerClass (final int nMods, final EClassType eClassType, final String sName)
   {
+    _checkNotFlushed ();
     return new JDefinedClass (this, nMods, sName, eClassType);
   }
 
@@ -59,6 +59,8 @@ import com.helger.jcodemodel.util.JCHashCodeGenerator;
 public class JDirectClass extends AbstractJClassContainer <JDirectClass>
 {
   private final String m_sFullName;
+  private String m_sCachedFullName;
+  private JPackage m_aPackage;
 
   @Deprecated
   protected JDirectClass (@Nonnull final JCodeModel aOwner, @Nonnull final String sFullName)
@@ -99,7 +101,12 @@ public class JDirectClass extends AbstractJClassContainer <JDirectClass>
   public String fullName ()
   {
     if (getOuter () instanceof AbstractJClassContainer <?>)
-      return ((AbstractJClassContainer <?>) getOuter ()).fullName () + '.' + m_sFullName;
+    {
+      String ret = m_sCachedFullName;
+      if (ret == null)
+        ret = m_sCachedFullName = ((AbstractJClassContainer <?>) getOuter ()).fullName () + '.' + m_sFullName;
+      return ret;
+    }
 
     // The fully qualified name was already provided in the ctor
     return m_sFullName;
@@ -108,6 +115,15 @@ public class JDirectClass extends AbstractJClassContainer <JDirectClass>
   @Override
   @Nonnull
   public JPackage _package ()
+  {
+    JPackage ret = m_aPackage;
+    if (ret == null)
+      ret = m_aPackage = _resolvePackage ();
+    return ret;
+  }
+
+  @Nonnull
+  private JPackage _resolvePackage ()
   {
     final IJClassContainer <?> aOuter = getOuter ();
     if (aOuter instanceof AbstractJClassContainer <?>)
@@ -40,6 +40,7 @@
  */
 package com.helger.jcodemodel;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -458,4 +459,43 @@ public class JDocComment extends JCommentPart implements IJGenerable, IJOwned
         f.print (" */").newline ();
     }
   }
+
+  /**
+   * @return All <code>@param</code> parts in declaration order. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  Map <String, JCommentPart> internalGetParams ()
+  {
+    return Collections.unmodifiableMap (m_aAtParams);
+  }
+
+  /**
+   * @return All <code>@throws</code> parts in declaration order. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  Map <AbstractJClass, JCommentPart> internalGetThrows ()
+  {
+    return Collections.unmodifiableMap (m_aAtThrows);
+  }
+
+  /**
+   * @return All other tags in declaration order. Never <code>null</code>.
+   */
+  @Nonnull
+  Map <String, JCommentPart> internalGetTags ()
+  {
+    return Collections.unmodifiableMap (m_aAtTags);
+  }
+
+  /**
+   * @return All xdoclets with their attributes in declaration order. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  Map <String, Map <String, String>> internalGetXdoclets ()
+  {
+    return Collections.unmodifiableMap (m_aAtXdoclets);
+  }
 }
@@ -50,6 +50,7 @@ import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.helger.jcodemodel.util.JCValueEnforcer;
 
@@ -238,4 +239,31 @@ public class JEnumConstant implements IJExpression, IJDeclaration, IJAnnotatable
   {
     return getHashCode (this, m_aType.fullName (), m_sName);
   }
+
+  /**
+   * @return The Javadoc or <code>null</code> if none was created.
+   */
+  @Nullable
+  JDocComment internalGetJavadoc ()
+  {
+    return m_aJavaDoc;
+  }
+
+  /**
+   * @return The annotations or <code>null</code> if none were added.
+   */
+  @Nullable
+  List <JAnnotationUse> internalGetAnnotations ()
+  {
+    return m_aAnnotations;
+  }
+
+  /**
+   * @return The arguments or <code>null</code> if no argument list was created.
+   */
+  @Nullable
+  List <IJExpression> internalGetArgs ()
+  {
+    return m_aArgs;
+  }
 }
@@ -44,6 +44,8 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.helger.jcodemodel.util.JCValueEnforcer;
+
 /**
  * Factory methods that generate various {@link IJExpression}s.
  */
@@ -63,6 +65,20 @@ public final class JExpr
 
   private static final String CHAR_ESCAPE = "\b\t\n\f\r\"\'\\";
   private static final String CHAR_MACRO = "btnfr\"'\\";
+
+  /**
+   * The escape macro for each ASCII char (e.g. 'n' for a newline) or 0 if the
+   * char has no macro.
+   */
+  private static final char [] ESCAPE_MACROS = new char [0x80];
+  private static final char [] HEX_DIGITS = "0123456789abcdef".toCharArray ();
+
+  static
+  {
+    for (int i = 0; i < CHAR_ESCAPE.length (); i++)
+      ESCAPE_MACROS[CHAR_ESCAPE.charAt (i)] = CHAR_MACRO.charAt (i);
+  }
+
   private static final JAtom THIS = new JAtom ("this");
   private static final JAtom SUPER = new JAtom ("super");
   private static final JAtom NULL = new JAtom ("null");
@@ -73,6 +89,55 @@ public final class JExpr
   private JExpr ()
   {}
 
+  /**
+   * The expression created by {@link JExpr#dotclass(AbstractJClass)}.
+   */
+  static final class JDotClassExpr implements IJExpression
+  {
+    private final AbstractJClass m_aClass;
+
+    JDotClassExpr (@Nonnull final AbstractJClass aClass)
+    {
+      m_aClass = JCValueEnforcer.notNull (aClass, "Class");
+    }
+
+    @Nonnull
+    AbstractJClass type ()
+    {
+      return m_aClass;
+    }
+
+    public void generate (@Nonnull final JFormatter f)
+    {
+      final AbstractJClass c = m_aClass instanceof JNarrowedClass ? ((JNarrowedClass) m_aClass).basis () : m_aClass;
+      f.generable (c).print (".class");
+    }
+  }
+
+  /**
+   * The expression created by {@link JExpr#direct(String)}.
+   */
+  static final class JDirectExpr implements IJExpression
+  {
+    private final String m_sSource;
+
+    JDirectExpr (@Nonnull final String sSource)
+    {
+      m_sSource = sSource;
+    }
+
+    @Nonnull
+    String source ()
+    {
+      return m_sSource;
+    }
+
+    public void generate (@Nonnull final JFormatter f)
+    {
+      f.print ('(').print (m_sSource).print (')');
+    }
+  }
+
   @Nonnull
   public static JAssignment assign (@Nonnull final IJAssignmentTarget aLhs, @Nonnull final IJExpression aRhs)
   {
@@ -266,10 +331,7 @@ public final class JExpr
   @Nonnull
   public static IJExpression dotclass (@Nonnull final AbstractJClass aClass)
   {
-    return (@Nonnull final JFormatter f) -> {
-      final AbstractJClass c = aClass instanceof JNarrowedClass ? ((JNarrowedClass) aClass).basis () : aClass;
-      f.generable (c).print (".class");
-    };
+    return new JDotClassExpr (aClass);
   }
 
   @Nonnull
@@ -391,51 +453,77 @@ public final class JExpr
   public static String quotify (final char cQuote, @Nonnull final String sStr)
   {
     final int n = sStr.length ();
-    final StringBuilder sb = new StringBuilder (n + 2);
-    sb.append (cQuote);
+    int nEscapedLen = 0;
+    for (int i = 0; i < n; i++)
+      nEscapedLen += _getEscapedLength (cQuote, sStr.charAt (i));
+
+    if (nEscapedLen == n)
+    {
+      // Nothing to escape
+      return cQuote + sStr + cQuote;
+    }
+
+    final char [] aChars = new char [nEscapedLen + 2];
+    int nPos = 0;
+    aChars[nPos++] = cQuote;
     for (int i = 0; i < n; i++)
     {
       final char c = sStr.charAt (i);
-      final int j = CHAR_ESCAPE.indexOf (c);
-      if (j >= 0)
+      switch (_getEscapedLength (cQuote, c))
       {
-        if ((cQuote == '"' && c == '\'') || (cQuote == '\'' && c == '"'))
-        {
-          sb.append (c);
-        }
-        else
-        {
-          sb.append ('\\');
-          sb.append (CHAR_MACRO.charAt (j));
-        }
+        case 1:
+          aChars[nPos++] = c;
+          break;
+        case 2:
+          aChars[nPos++] = '\\';
+          aChars[nPos++] = ESCAPE_MACROS[c];
+          break;
+        default:
+          // technically Unicode escape shouldn't be done here,
+          // for it's a lexical level handling.
+          //
+          // However, various tools are so broken around this area,
+          // so just to be on the safe side, it's better to do
+          // the escaping here (regardless of the actual file encoding)
+          //
+          // see bug
+          aChars[nPos++] = '\\';
+          aChars[nPos++] = 'u';
+          aChars[nPos++] = HEX_DIGITS[(c >> 12) & 0xf];
+          aChars[nPos++] = HEX_DIGITS[(c >> 8) & 0xf];
+          aChars[nPos++] = HEX_DIGITS[(c >> 4) & 0xf];
+          aChars[nPos++] = HEX_DIGITS[c & 0xf];
+          break;
       }
-      else
+    }
+    aChars[nPos] = cQuote;
+    return new String (aChars);
+  }
+
+  /**
+   * @param cQuote
+   *        Quote char
+   * @param c
+   *        The char to be escaped
+   * @return 1 if the char is used as is, 2 if it is escaped with a macro (like
+   *         "\\n") and 6 if it is Unicode escaped.
+   */
+  private static int _getEscapedLength (final char cQuote, final char c)
+  {
+    if (c < 0x80)
+    {
+      if (ESCAPE_MACROS[c] != 0)
       {
-        // technically Unicode escape shouldn't be done here,
-        // for it's a lexical level handling.
-        //
-        // However, various tools are so broken around this area,
-        // so just to be on the safe side, it's better to do
-        // the escaping here (regardless of the actual file encoding)
-        //
-        // see bug
-        if (c < 0x20 || c > 0x7E)
-        {
-          // not printable. use Unicode escape
-          sb.append ("\\u");
-          final String hex = Integer.toHexString (c & 0xFFFF);
-          for (int k = hex.length (); k < 4; k++)
-            sb.append ('0');
-          sb.append (hex);
-        }
-        else
-        {
-          sb.append (c);
-        }
+        // The other quote char needs no escaping
+        if ((cQuote == '"' && c == '\'') || (cQuote == '\'' && c == '"'))
+          return 1;
+        return 2;
       }
+      if (c >= 0x20 && c <= 0x7e)
+        return 1;
     }
-    sb.append (cQuote);
-    return sb.toString ();
+    // not printable. use Unicode escape
+    return 6;
   }
 
   @Nonnull
@@ -467,7 +555,7 @@ public final class JExpr
   @Nonnull
   public static IJExpression direct (@Nonnull final String sSourceCode)
   {
-    return f -> f.print ('(').print (sSourceCode).print (')');
+    return new JDirectExpr (sSourceCode);
   }
 
   /**
@@ -135,4 +135,13 @@ public class JFieldVar extends JVar implements IJDocCommentable
     // Usage
     super.generate (f);
   }
+
+  /**
+   * @return The field Javadoc or <code>null</code> if none was created.
+   */
+  @Nullable
+  JDocComment internalGetJavadoc ()
+  {
+    return m_aJavaDoc;
+  }
 }
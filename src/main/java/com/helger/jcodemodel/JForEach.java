@@ -41,6 +41,7 @@
 package com.helger.jcodemodel;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.helger.jcodemodel.util.JCValueEnforcer;
 
@@ -112,4 +113,13 @@ public class JForEach implements IJStatement
       f.print (';');
     f.newline ();
   }
+
+  /**
+   * @return The body or <code>null</code> if none was created.
+   */
+  @Nullable
+  JBlock internalGetBody ()
+  {
+    return m_aBody;
+  }
 }
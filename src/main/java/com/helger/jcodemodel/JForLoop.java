@@ -147,4 +147,13 @@ public class JForLoop implements IJStatement
     else
       f.print (';').newline ();
   }
+
+  /**
+   * @return The body or <code>null</code> if none was created.
+   */
+  @Nullable
+  JBlock internalGetBody ()
+  {
+    return m_aBody;
+  }
 }
@@ -48,6 +48,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -117,17 +118,13 @@ public class JFormatter implements Closeable
       if (aSingleRef._package () == JFormatter.this.m_aPckJavaLang)
       {
         // make sure that there's no other class with this name within the
-        // same package
-        for (final JDefinedClass aClass : aEnclosingClass._package ().classes ())
+        // same package - even if this is the only "String" class we use, if
+        // the class called "String" is in the same package, we still need to
+        // import it.
+        if (aEnclosingClass._package ().isDefined (aSingleRef.name ()))
         {
-          // even if this is the only "String" class we use,
-          // if the class called "String" is in the same package,
-          // we still need to import it.
-          if (aClass.name ().equals (aSingleRef.name ()))
-          {
-            // collision -> ambiguous
-            return true;
-          }
+          // collision -> ambiguous
+          return true;
         }
       }
 
@@ -214,6 +211,14 @@ public class JFormatter implements Closeable
      */
     PRINTING,
 
+    /**
+     * Collect all the type names and identifiers and at the same time print the
+     * source code into a buffer. Type names are not printed but left as holes,
+     * that are filled after the imports were resolved. Only used if
+     * {@link JFormatter#isSinglePass()} is <code>true</code>.
+     */
+    RECORDING,
+
     /**
      * Find any error types in output code. In this mode we don't actually
      * generate anything. <br/>
@@ -223,6 +228,76 @@ public class JFormatter implements Closeable
     FIND_ERROR_TYPES
   }
 
+  /**
+   * A position in the recorded source code, where something must be inserted
+   * after the imports were resolved.
+   */
+  private abstract static class AbstractHole
+  {
+    /** Offset in the recorded buffer */
+    private final int m_nOffset;
+
+    protected AbstractHole (final int nOffset)
+    {
+      m_nOffset = nOffset;
+    }
+
+    public final int getOffset ()
+    {
+      return m_nOffset;
+    }
+  }
+
+  /**
+   * A type name that is printed after the imports were resolved.
+   */
+  private static final class TypeHole extends AbstractHole
+  {
+    private final AbstractJClass m_aType;
+    /**
+     * Last printed char before the type, or <code>null</code> if the type
+     * directly follows another hole.
+     */
+    private final Character m_aLastChar;
+
+    public TypeHole (final int nOffset, @Nonnull final AbstractJClass aType, @Nullable final Character aLastChar)
+    {
+      super (nOffset);
+      m_aType = aType;
+      m_aLastChar = aLastChar;
+    }
+  }
+
+  /**
+   * A potential space after a type name, because it depends on the last
+   * character of the type name.
+   */
+  private static final class SpaceHole extends AbstractHole
+  {
+    /** The first char printed after the type name */
+    private final char m_cNext;
+
+    public SpaceHole (final int nOffset, final char cNext)
+    {
+      super (nOffset);
+      m_cNext = cNext;
+    }
+  }
+
+  /**
+   * An identifier in a cached fragment. Plain strings in a fragment are printed
+   * text.
+   */
+  private static final class IdToken
+  {
+    private final String m_sID;
+
+    public IdToken (@Nonnull final String sID)
+    {
+      m_sID = sID;
+    }
+  }
+
   private final class ImportedClasses
   {
     private final Set <AbstractJClass> m_aDontImportClasses = new HashSet <> ();
@@ -311,6 +386,33 @@ public class JFormatter implements Closeable
 
   public static final String DEFAULT_INDENT_SPACE = "    ";
 
+  /**
+   * By default the two pass strategy is used.
+   *
+   * @since 3.0.4
+   */
+  public static final boolean DEFAULT_SINGLE_PASS = false;
+
+  /**
+   * By default the fragment cache is disabled.
+   *
+   * @since 3.0.4
+   */
+  public static final boolean DEFAULT_FRAGMENT_CACHE = false;
+
+  /**
+   * Expressions that produce more tokens than this are not cached, to limit
+   * the memory consumption of deeply nested expressions.
+   */
+  private static final int MAX_FRAGMENT_TOKENS = 256;
+
+  /**
+   * The output buffer of {@link #write(JDefinedClass)} is passed to the writer
+   * once per file, or earlier at the end of a line if it exceeds this number of
+   * chars.
+   */
+  private static final int OUTPUT_FLUSH_THRESHOLD = 64 * 1024;
+
   /**
    * Special character token we use to differentiate '&gt;' as an operator and
    * '&gt;' as the end of the type arguments. The former uses '&gt;' and it
@@ -348,10 +450,28 @@ public class JFormatter implements Closeable
    */
   private final String m_sIndentSpace;
 
+  /** Writer associated with this {@link JFormatter}. */
+  private SourcePrintWriter m_aPW;
+
   /**
-   * Writer associated with this {@link JFormatter}
+   * The buffer all output is appended to. If <code>null</code> the output is
+   * passed directly to {@link #m_aPW}. Set to {@link #m_aOutputBuffer} while
+   * printing in {@link #write(JDefinedClass)} and to {@link #m_aRecordBuffer}
+   * while recording.
    */
-  private final SourcePrintWriter m_aPW;
+  private StringBuilder m_aBuffer;
+
+  /**
+   * The buffer for a file written by {@link #write(JDefinedClass)}. Reused for
+   * all files written by this formatter.
+   */
+  private StringBuilder m_aOutputBuffer;
+
+  /** The chars used to pass {@link #m_aOutputBuffer} to the writer */
+  private char [] m_aFlushChars;
+
+  /** The indentation strings per level, created on demand */
+  private String [] m_aIndents = new String [0];
 
   private char m_cLastChar = 0;
   private boolean m_bAtBeginningOfLine = true;
@@ -365,6 +485,53 @@ public class JFormatter implements Closeable
 
   private boolean m_bDebugImport = false;
 
+  /** Use a single traversal in {@link #write(JDefinedClass)} */
+  private boolean m_bSinglePass = DEFAULT_SINGLE_PASS;
+
+  /**
+   * The buffer for the recorded source - only used while recording. Reused for
+   * all classes written by this formatter.
+   */
+  private StringBuilder m_aRecordBuffer;
+
+  /** All holes in the recorded source - only used while recording */
+  private final List <AbstractHole> m_aHoles = new ArrayList <> ();
+
+  /**
+   * <code>true</code> if the last printed thing is a type hole, so that
+   * {@link #m_cLastChar} is unknown - only used while recording
+   */
+  private boolean m_bLastCharIsHole;
+
+  /** The formatting state at the end of the recording */
+  private char m_cRecordedLastChar;
+  private boolean m_bRecordedAtBeginningOfLine;
+  private boolean m_bRecordedLastCharIsHole;
+
+  /**
+   * The rendered tokens per expression. <code>null</code> if the fragment
+   * cache is disabled.
+   */
+  private Map <IJExpression, Object []> m_aFragmentCache;
+
+  /** The tokens of all expressions that are currently rendered */
+  private final List <Object> m_aFragmentTokens = new ArrayList <> ();
+
+  /** The number of nested expressions that are currently rendered */
+  private int m_nFragmentDepth;
+
+  /**
+   * All rendered expressions with a nesting depth up to this value cannot be
+   * cached, because they used something that is not a token.
+   */
+  private int m_nFragmentUncacheableDepth;
+
+  /**
+   * <code>false</code> while replaying a fragment or while rendering a single
+   * token, so that nothing is added twice.
+   */
+  private boolean m_bFragmentRecordTokens = true;
+
   /**
    * Creates a formatter with default incremental indentations of four spaces.
    *
@@ -449,6 +616,122 @@ public class JFormatter implements Closeable
     return m_bDebugImport;
   }
 
+  /**
+   * @return <code>true</code> if {@link #write(JDefinedClass)} traverses the
+   *         class only once, <code>false</code> if the class is traversed
+   *         twice (once for collecting the imports and once for printing).
+   * @since 3.0.4
+   */
+  public boolean isSinglePass ()
+  {
+    return m_bSinglePass;
+  }
+
+  /**
+   * Choose the strategy used to write a class. In single pass mode the class is
+   * printed into a buffer while collecting the imports. Type names are left as
+   * holes in the buffer, that are filled after the imports were resolved. The
+   * created output is identical to the two pass strategy.
+   *
+   * @param bSinglePass
+   *        <code>true</code> to use a single pass, <code>false</code> to use
+   *        two passes.
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public JFormatter setSinglePass (final boolean bSinglePass)
+  {
+    m_bSinglePass = bSinglePass;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the rendering of expressions is cached. The
+   *         default is {@link #DEFAULT_FRAGMENT_CACHE}.
+   * @since 3.0.4
+   */
+  public boolean isFragmentCache ()
+  {
+    return m_aFragmentCache != null;
+  }
+
+  /**
+   * Enable or disable the caching of rendered expressions. If enabled, each
+   * expression is rendered only once into a list of tokens (text, identifiers
+   * and type references). Every later occurrence of the same expression
+   * object - in the second pass or in later classes written by this formatter
+   * - replays these tokens. Type references are still resolved for each
+   * occurrence, so the imports and the created output are identical.
+   * Expressions spanning multiple lines (like anonymous classes or lambda
+   * blocks) are never cached.
+   * <p>
+   * The cached tokens are never invalidated automatically. Expressions must
+   * therefore not be modified while the cache is in use - otherwise
+   * {@link #clearFragmentCache()} must be called.
+   *
+   * @param bFragmentCache
+   *        <code>true</code> to enable the cache, <code>false</code> to
+   *        disable and clear it.
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public JFormatter setFragmentCache (final boolean bFragmentCache)
+  {
+    if (!bFragmentCache)
+      m_aFragmentCache = null;
+    else
+      if (m_aFragmentCache == null)
+        m_aFragmentCache = new IdentityHashMap <> ();
+    return this;
+  }
+
+  /**
+   * Remove all cached expressions. Must be called if expressions were modified
+   * after they were written by this formatter with the fragment cache enabled.
+   *
+   * @since 3.0.4
+   */
+  public void clearFragmentCache ()
+  {
+    if (m_aFragmentCache != null)
+      m_aFragmentCache.clear ();
+  }
+
+  /**
+   * Reset this formatter so that it can be reused for writing another class
+   * to the provided writer. All settings (indentation, single pass strategy,
+   * classes that should not be imported and debug flag) are retained. All
+   * internal buffers are reused.
+   *
+   * @param aPW
+   *        The new writer to use. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public JFormatter reset (@Nonnull final SourcePrintWriter aPW)
+  {
+    JCValueEnforcer.notNull (aPW, "PrintWriter");
+
+    m_aPW = aPW;
+    m_aBuffer = null;
+    m_eMode = EMode.PRINTING;
+    m_nIndentLevel = 0;
+    m_cLastChar = 0;
+    m_bAtBeginningOfLine = true;
+    m_bLastCharIsHole = false;
+    m_aCollectedReferences.clear ();
+    m_aImportedClasses.clear ();
+    m_aHoles.clear ();
+    m_aFragmentTokens.clear ();
+    m_nFragmentDepth = 0;
+    m_nFragmentUncacheableDepth = 0;
+    m_bFragmentRecordTokens = true;
+    return this;
+  }
+
   /**
    * Closes this formatter.
    */
@@ -463,7 +746,14 @@ public class JFormatter implements Closeable
    */
   public boolean isPrinting ()
   {
-    return m_eMode == EMode.PRINTING;
+    // The result depends on the pass
+    _fragmentUncacheable ();
+    return _isPrinting ();
+  }
+
+  private boolean _isPrinting ()
+  {
+    return m_eMode == EMode.PRINTING || m_eMode == EMode.RECORDING;
   }
 
   /**
@@ -474,6 +764,7 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter outdent ()
   {
+    _fragmentUncacheable ();
     m_nIndentLevel--;
     return this;
   }
@@ -486,6 +777,7 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter indent ()
   {
+    _fragmentUncacheable ();
     m_nIndentLevel++;
     return this;
   }
@@ -555,17 +847,74 @@ public class JFormatter implements Closeable
     return false;
   }
 
-  private void _spaceIfNeeded (final char c)
+  private void _out (final char c)
+  {
+    if (m_aBuffer != null)
+      m_aBuffer.append (c);
+    else
+      m_aPW.print (c);
+  }
+
+  private void _out (@Nonnull final String sStr)
+  {
+    if (m_aBuffer != null)
+      m_aBuffer.append (sStr);
+    else
+      m_aPW.print (sStr);
+  }
+
+  private void _out (@Nonnull final CharSequence aCS, final int nStart, final int nEnd)
+  {
+    if (m_aBuffer != null)
+      m_aBuffer.append (aCS, nStart, nEnd);
+    else
+      m_aPW.print (aCS.subSequence (nStart, nEnd).toString ());
+  }
+
+  @Nonnull
+  private String _getIndent (final int nLevel)
+  {
+    if (nLevel >= m_aIndents.length)
+    {
+      final String [] aIndents = new String [Math.max (nLevel + 1, m_aIndents.length * 2)];
+      System.arraycopy (m_aIndents, 0, aIndents, 0, m_aIndents.length);
+      m_aIndents = aIndents;
+    }
+    String ret = m_aIndents[nLevel];
+    if (ret == null)
+    {
+      final StringBuilder aSB = new StringBuilder (nLevel * m_sIndentSpace.length ());
+      for (int i = 0; i < nLevel; i++)
+        aSB.append (m_sIndentSpace);
+      ret = aSB.toString ();
+      m_aIndents[nLevel] = ret;
+    }
+    return ret;
+  }
+
+  private void _indentIfNeeded ()
   {
     if (m_bAtBeginningOfLine)
     {
-      for (int i = 0; i < m_nIndentLevel; i++)
-        m_aPW.print (m_sIndentSpace);
+      if (m_nIndentLevel > 0)
+        _out (_getIndent (m_nIndentLevel));
       m_bAtBeginningOfLine = false;
     }
+  }
+
+  private void _spaceIfNeeded (final char c)
+  {
+    if (m_bAtBeginningOfLine)
+      _indentIfNeeded ();
     else
-      if (m_cLastChar != 0 && _needSpace (m_cLastChar, c))
-        m_aPW.print (' ');
+      if (m_bLastCharIsHole)
+      {
+        // Decide later
+        m_aHoles.add (new SpaceHole (_getRecordedLength (), c));
+      }
+      else
+        if (m_cLastChar != 0 && _needSpace (m_cLastChar, c))
+          _out (' ');
   }
 
   /**
@@ -578,18 +927,22 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter print (final char c)
   {
-    if (m_eMode == EMode.PRINTING)
+    if (m_nFragmentDepth > 0 && m_bFragmentRecordTokens)
+      m_aFragmentTokens.add (Character.valueOf (c));
+
+    if (_isPrinting ())
     {
       if (c == CLOSE_TYPE_ARGS)
       {
-        m_aPW.print ('>');
+        _out ('>');
       }
       else
       {
         _spaceIfNeeded (c);
-        m_aPW.print (c);
+        _out (c);
       }
       m_cLastChar = c;
+      m_bLastCharIsHole = false;
     }
     return this;
   }
@@ -604,11 +957,15 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter print (@Nonnull final String sStr)
   {
-    if (m_eMode == EMode.PRINTING && sStr.length () > 0)
+    if (m_nFragmentDepth > 0 && m_bFragmentRecordTokens)
+      m_aFragmentTokens.add (sStr);
+
+    if (_isPrinting () && sStr.length () > 0)
     {
       _spaceIfNeeded (sStr.charAt (0));
-      m_aPW.print (sStr);
+      _out (sStr);
       m_cLastChar = sStr.charAt (sStr.length () - 1);
+      m_bLastCharIsHole = false;
     }
     return this;
   }
@@ -633,55 +990,97 @@ public class JFormatter implements Closeable
    */
   @Nonnull
   public JFormatter type (@Nonnull final AbstractJClass aType)
+  {
+    final boolean bRecordTokens = m_bFragmentRecordTokens;
+    if (m_nFragmentDepth > 0 && bRecordTokens)
+    {
+      m_aFragmentTokens.add (aType);
+      m_bFragmentRecordTokens = false;
+    }
+    try
+    {
+      _type (aType);
+    }
+    finally
+    {
+      m_bFragmentRecordTokens = bRecordTokens;
+    }
+    return this;
+  }
+
+  private void _type (@Nonnull final AbstractJClass aType)
   {
     switch (m_eMode)
     {
       case COLLECTING:
-        if (!aType.isError ())
-        {
-          final String sShortName = aType.name ();
-          NameUsage aUsages = m_aCollectedReferences.get (sShortName);
-          if (aUsages == null)
-          {
-            aUsages = new NameUsage (sShortName);
-            m_aCollectedReferences.put (sShortName, aUsages);
-          }
-          aUsages.addReferencedType (aType);
-        }
+        _collectType (aType);
         break;
       case PRINTING:
+        _printType (aType);
+        break;
+      case RECORDING:
+        _collectType (aType);
         if (aType.isError ())
-        {
           print ("Object");
-        }
         else
-          // many of the JTypes in this list are either primitive or belong to
-          // package java so we don't need a FQCN
-          if (m_aImportedClasses.contains (aType) || aType._package () == m_aPckJavaLang)
-          {
-            // FQCN imported or not necessary, so generate short name
-            print (aType.name ());
-          }
-          else
-          {
-            final AbstractJClass aOuter = aType.outer ();
-            if (aOuter != null)
-            {
-              type (aOuter).print ('.').print (aType.name ());
-            }
-            else
-            {
-              // collision was detected, so generate FQCN
-              print (aType.fullName ());
-            }
-          }
+        {
+          // The name to print depends on the imports
+          _indentIfNeeded ();
+          m_aHoles.add (new TypeHole (_getRecordedLength (),
+                                      aType,
+                                      m_bLastCharIsHole ? null : Character.valueOf (m_cLastChar)));
+          m_bLastCharIsHole = true;
+        }
         break;
       case FIND_ERROR_TYPES:
         if (aType.isError ())
           m_bContainsErrorTypes = true;
         break;
     }
-    return this;
+  }
+
+  private void _collectType (@Nonnull final AbstractJClass aType)
+  {
+    if (!aType.isError ())
+    {
+      final String sShortName = aType.name ();
+      NameUsage aUsages = m_aCollectedReferences.get (sShortName);
+      if (aUsages == null)
+      {
+        aUsages = new NameUsage (sShortName);
+        m_aCollectedReferences.put (sShortName, aUsages);
+      }
+      aUsages.addReferencedType (aType);
+    }
+  }
+
+  private void _printType (@Nonnull final AbstractJClass aType)
+  {
+    if (aType.isError ())
+    {
+      print ("Object");
+    }
+    else
+      // many of the JTypes in this list are either primitive or belong to
+      // package java so we don't need a FQCN
+      if (m_aImportedClasses.contains (aType) || aType._package () == m_aPckJavaLang)
+      {
+        // FQCN imported or not necessary, so generate short name
+        print (aType.name ());
+      }
+      else
+      {
+        final AbstractJClass aOuter = aType.outer ();
+        if (aOuter != null)
+        {
+          type (aOuter).print ('.').print (aType.name ());
+        }
+        else
+        {
+          // collision was detected, so generate FQCN
+          print (aType.fullName ());
+        }
+      }
   }
 
   /**
@@ -694,27 +1093,49 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter id (@Nonnull final String sID)
   {
-    switch (m_eMode)
+    final boolean bRecordTokens = m_bFragmentRecordTokens;
+    if (m_nFragmentDepth > 0 && bRecordTokens)
     {
-      case COLLECTING:
-        // see if there is a type name that collides with this id
-        NameUsage aUsages = m_aCollectedReferences.get (sID);
-        if (aUsages == null)
-        {
-          // not a type, but we need to create a place holder to
-          // see if there might be a collision with a type
-          aUsages = new NameUsage (sID);
-          m_aCollectedReferences.put (sID, aUsages);
-        }
-        aUsages.setVariableName ();
-        break;
-      case PRINTING:
-        print (sID);
-        break;
+      m_aFragmentTokens.add (new IdToken (sID));
+      m_bFragmentRecordTokens = false;
+    }
+    try
+    {
+      switch (m_eMode)
+      {
+        case COLLECTING:
+          _collectID (sID);
+          break;
+        case PRINTING:
+          print (sID);
+          break;
+        case RECORDING:
+          _collectID (sID);
+          print (sID);
+          break;
+      }
+    }
+    finally
+    {
+      m_bFragmentRecordTokens = bRecordTokens;
     }
     return this;
   }
 
+  private void _collectID (@Nonnull final String sID)
+  {
+    // see if there is a type name that collides with this id
+    NameUsage aUsages = m_aCollectedReferences.get (sID);
+    if (aUsages == null)
+    {
+      // not a type, but we need to create a place holder to
+      // see if there might be a collision with a type
+      aUsages = new NameUsage (sID);
+      m_aCollectedReferences.put (sID, aUsages);
+    }
+    aUsages.setVariableName ();
+  }
+
   /**
    * Print a new line into the stream
    *
@@ -723,11 +1144,15 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter newline ()
   {
-    if (m_eMode == EMode.PRINTING)
+    _fragmentUncacheable ();
+    if (_isPrinting ())
     {
-      m_aPW.println ();
+      _out (m_aPW.getNewLine ());
       m_cLastChar = 0;
       m_bAtBeginningOfLine = true;
+      m_bLastCharIsHole = false;
+      if (m_aBuffer != null && m_aBuffer == m_aOutputBuffer && m_aBuffer.length () >= OUTPUT_FLUSH_THRESHOLD)
+        _flushOutput ();
     }
     return this;
   }
@@ -742,10 +1167,90 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter generable (@Nonnull final IJGenerable g)
   {
-    g.generate (this);
+    if (m_aFragmentCache != null && m_bFragmentRecordTokens && g instanceof IJExpression)
+      _generateFragment ((IJExpression) g);
+    else
+      g.generate (this);
     return this;
   }
 
+  /**
+   * Render an expression using the fragment cache. If the expression was
+   * already rendered, the cached tokens are replayed. Otherwise the expression
+   * is rendered and its tokens are cached.
+   *
+   * @param aExpr
+   *        The expression to render
+   */
+  private void _generateFragment (@Nonnull final IJExpression aExpr)
+  {
+    final Object [] aCached = m_aFragmentCache.get (aExpr);
+    if (aCached != null)
+    {
+      _replayFragment (aCached);
+      return;
+    }
+
+    final int nStart = m_aFragmentTokens.size ();
+    final int nDepth = ++m_nFragmentDepth;
+    try
+    {
+      aExpr.generate (this);
+
+      if (m_nFragmentUncacheableDepth < nDepth)
+      {
+        final int nEnd = m_aFragmentTokens.size ();
+        if (nEnd - nStart <= MAX_FRAGMENT_TOKENS)
+          m_aFragmentCache.put (aExpr, m_aFragmentTokens.subList (nStart, nEnd).toArray ());
+      }
+    }
+    finally
+    {
+      m_nFragmentDepth = nDepth - 1;
+      if (m_nFragmentUncacheableDepth >= nDepth)
+        m_nFragmentUncacheableDepth = nDepth - 1;
+      if (nDepth == 1)
+        m_aFragmentTokens.clear ();
+    }
+  }
+
+  private void _replayFragment (@Nonnull final Object [] aTokens)
+  {
+    if (m_nFragmentDepth > 0)
+      Collections.addAll (m_aFragmentTokens, aTokens);
+
+    m_bFragmentRecordTokens = false;
+    try
+    {
+      for (final Object aToken : aTokens)
+      {
+        if (aToken instanceof String)
+          print ((String) aToken);
+        else
+          if (aToken instanceof Character)
+            print (((Character) aToken).charValue ());
+          else
+            if (aToken instanceof IdToken)
+              id (((IdToken) aToken).m_sID);
+            else
+              _type ((AbstractJClass) aToken);
+      }
+    }
+    finally
+    {
+      m_bFragmentRecordTokens = true;
+    }
+  }
+
+  /**
+   * Called for everything that cannot be represented as a token. All
+   * expressions that are currently rendered cannot be cached.
+   */
+  private void _fragmentUncacheable ()
+  {
+    m_nFragmentUncacheableDepth = m_nFragmentDepth;
+  }
+
   /**
    * Produces {@link IJGenerable}s separated by ','
    *
@@ -781,6 +1286,7 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter declaration (@Nonnull final IJDeclaration d)
   {
+    _fragmentUncacheable ();
     d.declare (this);
     return this;
   }
@@ -795,6 +1301,7 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter statement (@Nonnull final IJStatement aStmt)
   {
+    _fragmentUncacheable ();
     aStmt.state (this);
     return this;
   }
@@ -810,6 +1317,7 @@ public class JFormatter implements Closeable
   @Nonnull
   public JFormatter var (@Nonnull final JVar aVar)
   {
+    _fragmentUncacheable ();
     aVar.bind (this);
     return this;
   }
@@ -975,27 +1483,18 @@ public class JFormatter implements Closeable
     // import stmt for ref, except for inner classes
     if (aPackage == aClassToBeWrittem._package ())
     {
-      AbstractJClass aOuter = aRealReference.outer ();
+      final AbstractJClass aOuter = aRealReference.outer ();
       if (aOuter == null) // top-level class
       {
         // top-level package-local class needs no explicit import
         return true;
       }
 
-      // inner-class
-      AbstractJClass aTopLevelClass = aOuter;
-      aOuter = aTopLevelClass.outer ();
-      while (aOuter != null)
-      {
-        aTopLevelClass = aOuter;
-        aOuter = aTopLevelClass.outer ();
-      }
-
       // if reference is inner-class and
       // reference's top-level class is generated clazz,
       // i. e. reference is enclosed in generated clazz,
       // then it needs no explicit import statement.
-      return aTopLevelClass == aClassToBeWrittem;
+      return aOuter.topLevelClass () == aClassToBeWrittem;
     }
     return false;
   }
@@ -1008,13 +1507,21 @@ public class JFormatter implements Closeable
    */
   void write (@Nonnull final JDefinedClass aClassToBeWritten)
   {
+    final JBuildMetrics aMetrics = m_aPW.getMetrics ();
+    final long nStart = aMetrics == null ? 0 : System.nanoTime ();
+
     m_aPckJavaLang = aClassToBeWritten.owner ()._package ("java.lang");
 
     // first collect all the types and identifiers
-    m_eMode = EMode.COLLECTING;
     m_aCollectedReferences.clear ();
     m_aImportedClasses.clear ();
-    declaration (aClassToBeWritten);
+    if (m_bSinglePass)
+      _record (aClassToBeWritten);
+    else
+    {
+      m_eMode = EMode.COLLECTING;
+      declaration (aClassToBeWritten);
+    }
 
     if (m_bDebugImport)
       System.out.println ("***Start collecting***");
@@ -1025,9 +1532,13 @@ public class JFormatter implements Closeable
 
     // collate type names and identifiers to determine which types can be
     // imported
+    int nCollisions = 0;
     for (final NameUsage aUsage : m_aCollectedReferences.values ())
     {
-      if (!aUsage.isAmbiguousIn (aClassToBeWritten) && !aUsage.isVariableName ())
+      final boolean bAmbiguous = aUsage.isAmbiguousIn (aClassToBeWritten);
+      if (bAmbiguous && aUsage.isTypeName ())
+        nCollisions++;
+      if (!bAmbiguous && !aUsage.isVariableName ())
       {
         final AbstractJClass aReferencedClass = aUsage.getSingleReferencedType ();
 
@@ -1055,6 +1566,21 @@ public class JFormatter implements Closeable
 
     // then print the declaration
     m_eMode = EMode.PRINTING;
+    if (m_aOutputBuffer == null)
+      m_aOutputBuffer = new StringBuilder (OUTPUT_FLUSH_THRESHOLD);
+    else
+      m_aOutputBuffer.setLength (0);
+    m_aBuffer = m_aOutputBuffer;
+
+    long nPrintStart = 0;
+    long nIONanosAtPrintStart = 0;
+    if (aMetrics != null)
+    {
+      nPrintStart = System.nanoTime ();
+      nIONanosAtPrintStart = aMetrics.getIONanos ();
+      aMetrics.addCollectNanos (nPrintStart - nStart);
+      aMetrics.setCollisionCount (nCollisions);
+    }
 
     assert aClassToBeWritten.parentContainer ().isPackage () : "this method is only for a pacakge-level class";
 
@@ -1070,7 +1596,7 @@ public class JFormatter implements Closeable
     }
 
     // generate import statements
-    boolean bAnyImport = false;
+    int nImports = 0;
     for (final AbstractJClass aImportClass : m_aImportedClasses.getAllSorted ())
     {
       // suppress import statements for primitive types, built-in types,
@@ -1079,17 +1605,148 @@ public class JFormatter implements Closeable
       if (!_printIsImplicitlyImported (aImportClass, aClassToBeWritten))
       {
         print ("import").print (aImportClass.fullName ()).print (';').newline ();
-        bAnyImport = true;
+        nImports++;
 
         if (m_bDebugImport)
           System.out.println ("  import " + aImportClass.fullName ());
       }
     }
 
-    if (bAnyImport)
+    if (nImports > 0)
       newline ();
 
-    declaration (aClassToBeWritten);
+    if (m_bSinglePass)
+      _printRecorded (aClassToBeWritten);
+    else
+      declaration (aClassToBeWritten);
+
+    // Pass the complete file to the writer
+    _flushOutput ();
+    m_aBuffer = null;
+
+    if (aMetrics != null)
+    {
+      // Writing full buffers while printing is accounted as I/O
+      final long nIONanos = aMetrics.getIONanos () - nIONanosAtPrintStart;
+      aMetrics.addPrintNanos (System.nanoTime () - nPrintStart - nIONanos);
+      aMetrics.setImportCount (nImports);
+    }
+  }
+
+  /**
+   * Pass the content of the output buffer to the writer and clear it.
+   */
+  private void _flushOutput ()
+  {
+    final StringBuilder aBuffer = m_aOutputBuffer;
+    final int nLen = aBuffer.length ();
+    if (nLen > 0)
+    {
+      if (m_aFlushChars == null)
+        m_aFlushChars = new char [8192];
+      final char [] aChars = m_aFlushChars;
+      int nPos = 0;
+      while (nPos < nLen)
+      {
+        final int nChunk = Math.min (aChars.length, nLen - nPos);
+        aBuffer.getChars (nPos, nPos + nChunk, aChars, 0);
+        m_aPW.print (aChars, 0, nChunk);
+        nPos += nChunk;
+      }
+      aBuffer.setLength (0);
+    }
+  }
+
+  private int _getRecordedLength ()
+  {
+    return m_aRecordBuffer.length ();
+  }
+
+  private void _record (@Nonnull final JDefinedClass aClassToBeWritten)
+  {
+    final StringBuilder aRealBuffer = m_aBuffer;
+    m_eMode = EMode.RECORDING;
+    if (m_aRecordBuffer == null)
+      m_aRecordBuffer = new StringBuilder (OUTPUT_FLUSH_THRESHOLD);
+    else
+      m_aRecordBuffer.setLength (0);
+    m_aHoles.clear ();
+    m_aBuffer = m_aRecordBuffer;
+
+    // The recording starts in the state after the imports
+    m_cLastChar = 0;
+    m_bAtBeginningOfLine = true;
+    m_bLastCharIsHole = false;
+    try
+    {
+      declaration (aClassToBeWritten);
+    }
+    finally
+    {
+      m_aBuffer = aRealBuffer;
+    }
+
+    // Remember the state at the end of the recording
+    m_cRecordedLastChar = m_cLastChar;
+    m_bRecordedAtBeginningOfLine = m_bAtBeginningOfLine;
+    m_bRecordedLastCharIsHole = m_bLastCharIsHole;
+    m_bLastCharIsHole = false;
+  }
+
+  /**
+   * Print the recorded source code and fill all holes.
+   *
+   * @param aClassToBeWritten
+   *        The recorded class
+   */
+  private void _printRecorded (@Nonnull final JDefinedClass aClassToBeWritten)
+  {
+    final StringBuilder aRecorded = m_aRecordBuffer;
+
+    if (m_cLastChar != 0 || !m_bAtBeginningOfLine)
+    {
+      // The recording assumed a different state (e.g. because the header
+      // comment didn't end with a newline) - print it again
+      m_aHoles.clear ();
+      declaration (aClassToBeWritten);
+      return;
+    }
+
+    int nPos = 0;
+    for (final AbstractHole aHole : m_aHoles)
+    {
+      final int nOffset = aHole.getOffset ();
+      if (nOffset > nPos)
+      {
+        _out (aRecorded, nPos, nOffset);
+        nPos = nOffset;
+      }
+
+      if (aHole instanceof TypeHole)
+      {
+        final TypeHole aTypeHole = (TypeHole) aHole;
+        m_bAtBeginningOfLine = false;
+        if (aTypeHole.m_aLastChar != null)
+          m_cLastChar = aTypeHole.m_aLastChar.charValue ();
+        _printType (aTypeHole.m_aType);
+      }
+      else
+      {
+        final SpaceHole aSpaceHole = (SpaceHole) aHole;
+        if (m_cLastChar != 0 && _needSpace (m_cLastChar, aSpaceHole.m_cNext))
+          _out (' ');
+      }
+    }
+    if (nPos < aRecorded.length ())
+      _out (aRecorded, nPos, aRecorded.length ());
+    m_aHoles.clear ();
+
+    // State at the end of the recorded source
+    if (!m_bRecordedLastCharIsHole)
+    {
+      m_cLastChar = m_cRecordedLastChar;
+      m_bAtBeginningOfLine = m_bRecordedAtBeginningOfLine;
+    }
   }
 
   /**
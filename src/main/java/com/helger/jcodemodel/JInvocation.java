@@ -542,4 +542,43 @@ public class JInvocation implements IJExpressionStatement, IJOwnedMaybe
   {
     return new JInvocation (null, null, JExpr._super ().what ());
   }
+
+  /**
+   * @return The object or type the method is invoked on. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  IJGenerable internalGetObject ()
+  {
+    return m_aObject;
+  }
+
+  /**
+   * @return The invoked method or <code>null</code> if the invocation is by
+   *         name or a constructor invocation.
+   */
+  @Nullable
+  JMethod internalGetMethod ()
+  {
+    return m_aMethod;
+  }
+
+  /**
+   * @return The invoked method name or <code>null</code> if the invocation
+   *         references a {@link JMethod} or is a constructor invocation.
+   */
+  @Nullable
+  String internalGetMethodName ()
+  {
+    return m_sMethodName;
+  }
+
+  /**
+   * @return The created type of a constructor invocation or <code>null</code>.
+   */
+  @Nullable
+  AbstractJType internalGetConstructorType ()
+  {
+    return m_aConstructorType;
+  }
 }
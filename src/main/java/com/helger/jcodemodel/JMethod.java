@@ -602,6 +602,33 @@ public class JMethod extends AbstractJGenerifiableImpl implements IJAnnotatable,
     }
   }
 
+  /**
+   * @return The method body or <code>null</code> if none was created.
+   */
+  @Nullable
+  JBlock internalGetBody ()
+  {
+    return m_aBody;
+  }
+
+  /**
+   * @return The method Javadoc or <code>null</code> if none was created.
+   */
+  @Nullable
+  JDocComment internalGetJavadoc ()
+  {
+    return m_aJDoc;
+  }
+
+  /**
+   * @return The default value of an annotation member or <code>null</code>.
+   */
+  @Nullable
+  IJExpression internalGetDefaultValue ()
+  {
+    return m_aDefaultValue;
+  }
+
   /**
    * @return the current modifiers of this method. Always return non-null valid
    *         object.
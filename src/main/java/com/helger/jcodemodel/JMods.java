@@ -81,6 +81,8 @@ public class JMods implements IJGenerable
 
   /** bit-packed representation of modifiers. */
   private int m_nMods;
+  /** <code>true</code> if the modifiers may no longer be changed. */
+  private boolean m_bReadOnly = false;
 
   protected JMods (final int nMods)
   {
@@ -223,8 +225,15 @@ public class JMods implements IJGenerable
     _setFlag (JMod.FINAL, bNewValue);
   }
 
+  private void _checkNotReadOnly ()
+  {
+    if (m_bReadOnly)
+      throw new IllegalStateException ("The modifiers '" + toString () + "' are read-only and cannot be modified!");
+  }
+
   private void _setFlag (final int bit, final boolean bNewValue)
   {
+    _checkNotReadOnly ();
     m_nMods = (m_nMods & ~bit) | (bNewValue ? bit : 0);
   }
 
@@ -265,4 +274,25 @@ public class JMods implements IJGenerable
     this.generate (f);
     return aWriter.toString ();
   }
+
+  /**
+   * Set all modifiers at once without checking them.
+   *
+   * @param nMods
+   *        The modifiers as a combination of the {@link JMod} constants.
+   */
+  void internalSetValue (final int nMods)
+  {
+    _checkNotReadOnly ();
+    m_nMods = nMods;
+  }
+
+  /**
+   * Disallow all further modifications of these modifiers, e.g. because the
+   * owning class was already flushed. Reading the modifiers is still possible.
+   */
+  void internalSetReadOnly ()
+  {
+    m_bReadOnly = true;
+  }
 }
@@ -66,6 +66,10 @@ public class JNarrowedClass extends AbstractJClass
    * Arguments to those parameters.
    */
   private final List <? extends AbstractJClass> m_aArgs;
+  /** Lazily built by {@link #name()} */
+  private String m_sName;
+  /** Lazily built by {@link #fullName()} */
+  private String m_sFullName;
 
   public JNarrowedClass (@Nonnull final AbstractJClass aBasis, @Nonnull final AbstractJClass aArg)
   {
@@ -110,7 +114,7 @@ public class JNarrowedClass extends AbstractJClass
 
     final List <AbstractJClass> newArgs = new ArrayList <> (m_aArgs);
     newArgs.add (aClazz);
-    return new JNarrowedClass (m_aBasis, newArgs);
+    return owner ().internClass (new JNarrowedClass (m_aBasis, newArgs));
   }
 
   @Override
@@ -121,11 +125,21 @@ public class JNarrowedClass extends AbstractJClass
     final List <AbstractJClass> newArgs = new ArrayList <> (m_aArgs);
     for (final AbstractJClass aClass : aClazz)
       newArgs.add (aClass);
-    return new JNarrowedClass (m_aBasis, newArgs);
+    return owner ().internClass (new JNarrowedClass (m_aBasis, newArgs));
   }
 
   @Override
   public String name ()
+  {
+    // All parts are immutable
+    String ret = m_sName;
+    if (ret == null)
+      ret = m_sName = _buildName ();
+    return ret;
+  }
+
+  @Nonnull
+  private String _buildName ()
   {
     final StringBuilder buf = new StringBuilder ();
     buf.append (m_aBasis.name ()).append ('<');
@@ -145,6 +159,15 @@ public class JNarrowedClass extends AbstractJClass
   @Override
   @Nonnull
   public String fullName ()
+  {
+    String ret = m_sFullName;
+    if (ret == null)
+      ret = m_sFullName = _buildFullName ();
+    return ret;
+  }
+
+  @Nonnull
+  private String _buildFullName ()
   {
     final StringBuilder buf = new StringBuilder ();
     buf.append (m_aBasis.fullName ());
@@ -306,7 +329,7 @@ public class JNarrowedClass extends AbstractJClass
     }
 
     if (bDifferent)
-      return new JNarrowedClass (b, clazz);
+      return owner ().internClass (new JNarrowedClass (b, clazz));
     return this;
   }
 
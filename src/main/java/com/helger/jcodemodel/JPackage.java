@@ -42,9 +42,13 @@ package com.helger.jcodemodel;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.StringWriter;
 import java.lang.annotation.Annotation;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -55,6 +59,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -81,9 +91,10 @@ public class JPackage implements
   private final JCodeModel m_aOwner;
 
   /**
-   * List of classes contained within this package keyed by their name.
+   * List of classes contained within this package keyed by their name. A
+   * concurrent map if the owning code model uses concurrent construction.
    */
-  private final Map <String, JDefinedClass> m_aClasses = new TreeMap <> ();
+  private Map <String, JDefinedClass> m_aClasses;
 
   /**
    * List of resources files inside this package.
@@ -95,7 +106,7 @@ public class JPackage implements
    * name. This field is non-null only on Windows, to detect "Foo" and "foo" as
    * a collision.
    */
-  private final Map <String, JDefinedClass> m_aUpperCaseClassMap;
+  private Map <String, JDefinedClass> m_aUpperCaseClassMap;
 
   /**
    * Lazily created list of package annotations.
@@ -125,10 +136,34 @@ public class JPackage implements
 
     m_aOwner = aOwner;
     m_sName = sName;
+    setConcurrentConstruction (aOwner.isConcurrentConstruction ());
+  }
+
+  /**
+   * Switch the class maps to the implementations matching the construction
+   * mode of the owning code model. All contained classes are retained.
+   *
+   * @param bConcurrent
+   *        <code>true</code> to use concurrent maps
+   * @see JCodeModel#setConcurrentConstruction(boolean)
+   */
+  void setConcurrentConstruction (final boolean bConcurrent)
+  {
+    final Map <String, JDefinedClass> aClasses = bConcurrent ? new ConcurrentSkipListMap <> () : new TreeMap <> ();
+    if (m_aClasses != null)
+      aClasses.putAll (m_aClasses);
+    m_aClasses = aClasses;
+
     if (JCodeModel.isFileSystemCaseSensitive ())
       m_aUpperCaseClassMap = null;
     else
-      m_aUpperCaseClassMap = new HashMap <> ();
+    {
+      final Map <String, JDefinedClass> aUpperCaseClasses = bConcurrent ? new ConcurrentHashMap <> ()
+                                                                          : new HashMap <> ();
+      if (m_aUpperCaseClassMap != null)
+        aUpperCaseClasses.putAll (m_aUpperCaseClassMap);
+      m_aUpperCaseClassMap = aUpperCaseClasses;
+    }
   }
 
   @Nullable
@@ -174,21 +209,28 @@ public class JPackage implements
                                @Nonnull final String sName,
                                @Nonnull final EClassType eClassType) throws JClassAlreadyExistsException
   {
-    if (m_aClasses.containsKey (sName))
-      throw new JClassAlreadyExistsException (m_aClasses.get (sName));
+    final JDefinedClass aExisting = m_aClasses.get (sName);
+    if (aExisting != null)
+      throw new JClassAlreadyExistsException (aExisting);
 
     // XXX problems caught in the NC constructor
     final JDefinedClass c = new JDefinedClass (this, nMods, sName, eClassType);
 
+    // Atomic for concurrent maps - another thread may have added the same
+    // class in the meantime
+    final JDefinedClass aOther = m_aClasses.putIfAbsent (sName, c);
+    if (aOther != null)
+      throw new JClassAlreadyExistsException (aOther);
+
     if (m_aUpperCaseClassMap != null)
     {
-      final String sUpperName = sName.toUpperCase ();
-      final JDefinedClass dc = m_aUpperCaseClassMap.get (sUpperName);
+      final JDefinedClass dc = m_aUpperCaseClassMap.putIfAbsent (sName.toUpperCase (), c);
       if (dc != null)
+      {
+        m_aClasses.remove (sName, c);
         throw new JClassAlreadyExistsException (dc);
-      m_aUpperCaseClassMap.put (sUpperName, c);
+      }
     }
-    m_aClasses.put (sName, c);
     return c;
   }
 
@@ -344,10 +386,8 @@ public class JPackage implements
    */
   public boolean isDefined (@Nullable final String sClassLocalName)
   {
-    for (final JDefinedClass clazz : m_aClasses.values ())
-      if (clazz.name ().equals (sClassLocalName))
-        return true;
-    return false;
+    // The classes are keyed by their local name
+    return sClassLocalName != null && m_aClasses.containsKey (sClassLocalName);
   }
 
   /**
@@ -431,39 +471,167 @@ public class JPackage implements
     f.print (m_sName);
   }
 
+  /**
+   * Stream that counts the written bytes of a resource file.
+   */
+  private static final class CountingOutputStream extends FilterOutputStream implements IJChannelOutputStream
+  {
+    private final JBuildMetrics m_aMetrics;
+
+    CountingOutputStream (@Nonnull final OutputStream aOS, @Nonnull final JBuildMetrics aMetrics)
+    {
+      super (aOS);
+      m_aMetrics = aMetrics;
+    }
+
+    @Override
+    public void write (final int b) throws IOException
+    {
+      out.write (b);
+      m_aMetrics.addBytesWritten (1);
+    }
+
+    @Override
+    public void write (@Nonnull final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+    {
+      out.write (aBuf, nOfs, nLen);
+      m_aMetrics.addBytesWritten (nLen);
+    }
+
+    @Override
+    @Nullable
+    public WritableByteChannel getChannel () throws IOException
+    {
+      return out instanceof IJChannelOutputStream ? ((IJChannelOutputStream) out).getChannel () : null;
+    }
+
+    @Override
+    public void onChannelWritten (final long nBytes)
+    {
+      ((IJChannelOutputStream) out).onChannelWritten (nBytes);
+      m_aMetrics.addBytesWritten (nBytes);
+    }
+  }
+
   @Nonnull
   private JFormatter _createJavaSourceFileWriter (@Nonnull final AbstractCodeWriter aSrc,
-                                                  @Nonnull final String sClassName) throws IOException
+                                                  @Nonnull final String sFilename,
+                                                  @Nullable final JBuildMetrics aMetrics) throws IOException
   {
-    final SourcePrintWriter aWriter = aSrc.openSource (this, sClassName + ".java");
-    final JFormatter ret = new JFormatter (aWriter);
-    // Add all classes to not be imported (may be empty)
-    ret.addDontImportClasses (m_aOwner.getAllDontImportClasses ());
-    return ret;
+    final long nStart = aMetrics == null ? 0 : System.nanoTime ();
+    final SourcePrintWriter aPW = aSrc.openSource (this, sFilename);
+    if (aMetrics != null)
+    {
+      aMetrics.addIONanos (System.nanoTime () - nStart);
+      aPW.setMetrics (aMetrics);
+    }
+    return m_aOwner.acquireFormatter (aPW);
   }
 
-  void build (@Nonnull @WillNotClose final AbstractCodeWriter aSrcWriter,
-              @Nonnull @WillNotClose final AbstractCodeWriter aResWriter) throws IOException
+  @Nullable
+  private JBuildMetrics _createMetrics (@Nullable final IJBuildListener aListener, @Nonnull final String sFilename)
   {
-    // write classes
-    for (final JDefinedClass c : m_aClasses.values ())
+    return aListener == null ? null : new JBuildMetrics (this, sFilename);
+  }
+
+  private static void _onFileBuilt (@Nullable final IJBuildListener aListener,
+                                    @Nullable final JBuildMetrics aPackageMetrics,
+                                    @Nullable final JBuildMetrics aMetrics)
+  {
+    if (aListener != null && aMetrics != null)
     {
-      if (c.isHidden ())
-      {
-        // don't generate this file
-        continue;
-      }
+      if (aPackageMetrics != null)
+        aPackageMetrics.add (aMetrics);
+      aListener.onFileBuilt (aMetrics);
+    }
+  }
 
-      try (final JFormatter f = _createJavaSourceFileWriter (aSrcWriter, c.name ()))
-      {
-        f.write (c);
-      }
+  private void _buildClass (@Nonnull @WillNotClose final AbstractCodeWriter aSrcWriter,
+                            @Nonnull final JDefinedClass aClass,
+                            @Nullable final JBuildMetrics aMetrics) throws IOException
+  {
+    final JFormatter f = _createJavaSourceFileWriter (aSrcWriter, aClass.name () + ".java", aMetrics);
+    try
+    {
+      f.write (aClass);
+    }
+    finally
+    {
+      f.close ();
+      m_aOwner.releaseFormatter (f);
+    }
+  }
+
+  /**
+   * Format a single class into a String, without touching any writer.
+   *
+   * @param aClass
+   *        The class to be formatted
+   * @param sNewLine
+   *        The new line string to use
+   * @param aMetrics
+   *        The metrics to be filled. May be <code>null</code>.
+   * @return The complete source code of the class
+   */
+  @Nonnull
+  private String _renderClass (@Nonnull final JDefinedClass aClass,
+                               @Nonnull final String sNewLine,
+                               @Nullable final JBuildMetrics aMetrics)
+  {
+    final StringWriter aSW = new StringWriter ();
+    final SourcePrintWriter aPW = new SourcePrintWriter (aSW, sNewLine);
+    aPW.setMetrics (aMetrics);
+    final JFormatter f = m_aOwner.acquireFormatter (aPW);
+    try
+    {
+      f.write (aClass);
+    }
+    finally
+    {
+      f.close ();
+      m_aOwner.releaseFormatter (f);
+    }
+    return aSW.toString ();
+  }
+
+  /**
+   * Write a single class of this package immediately and release its body
+   * afterwards.
+   *
+   * @param aSrcWriter
+   *        Source writer
+   * @param aClass
+   *        The top-level class of this package to be written
+   * @throws IOException
+   *         on IO error
+   * @see JCodeModel#flush(JDefinedClass, AbstractCodeWriter)
+   */
+  void flushClass (@Nonnull @WillNotClose final AbstractCodeWriter aSrcWriter,
+                   @Nonnull final JDefinedClass aClass) throws IOException
+  {
+    if (!aClass.isHidden ())
+    {
+      final IJBuildListener aListener = m_aOwner.getBuildListener ();
+      final JBuildMetrics aMetrics = _createMetrics (aListener, aClass.name () + ".java");
+      _buildClass (aSrcWriter, aClass, aMetrics);
+      _onFileBuilt (aListener, null, aMetrics);
     }
+    aClass.releaseBody ();
+  }
 
+  private void _buildPackageInfoAndResources (@Nonnull @WillNotClose final AbstractCodeWriter aSrcWriter,
+                                              @Nonnull @WillNotClose final AbstractCodeWriter aResWriter,
+                                              @Nullable final IJBuildListener aListener,
+                                              @Nullable final JBuildMetrics aPackageMetrics) throws IOException
+  {
     // write package annotations
     if (m_aAnnotations != null || m_aJavaDoc != null)
     {
-      try (final JFormatter f = _createJavaSourceFileWriter (aSrcWriter, "package-info"))
+      final JBuildMetrics aMetrics = _createMetrics (aListener, "package-info.java");
+      final JFormatter f = _createJavaSourceFileWriter (aSrcWriter, "package-info.java", aMetrics);
+      final long nStart = aMetrics == null ? 0 : System.nanoTime ();
+      final long nIONanosAtStart = aMetrics == null ? 0 : aMetrics.getIONanos ();
+      try
       {
         if (m_aJavaDoc != null)
           f.generable (m_aJavaDoc);
@@ -475,17 +643,221 @@ public class JPackage implements
             f.generable (a).newline ();
         }
         f.declaration (this);
+        if (aMetrics != null)
+          aMetrics.addPrintNanos (System.nanoTime () - nStart - (aMetrics.getIONanos () - nIONanosAtStart));
+      }
+      finally
+      {
+        f.close ();
+        m_aOwner.releaseFormatter (f);
       }
+      _onFileBuilt (aListener, aPackageMetrics, aMetrics);
     }
 
     // write resources
     for (final AbstractJResourceFile rsrc : m_aResources)
     {
+      final JBuildMetrics aMetrics = _createMetrics (aListener, rsrc.name ());
+      final long nStart = aMetrics == null ? 0 : System.nanoTime ();
       final AbstractCodeWriter cw = rsrc.isResource () ? aResWriter : aSrcWriter;
-      try (final OutputStream os = new BufferedOutputStream (cw.openBinary (this, rsrc.name ())))
+      OutputStream aRawOS = cw.openBinary (this, rsrc.name ());
+      if (aMetrics != null)
+        aRawOS = new CountingOutputStream (aRawOS, aMetrics);
+      try (final OutputStream os = rsrc.isBufferedOutput () ? new BufferedOutputStream (aRawOS) : aRawOS)
       {
         rsrc.build (os);
       }
+      if (aMetrics != null)
+      {
+        // Resources are copied and not formatted
+        aMetrics.addIONanos (System.nanoTime () - nStart);
+      }
+      _onFileBuilt (aListener, aPackageMetrics, aMetrics);
+    }
+  }
+
+  /**
+   * Write all classes, the package info and all resources of this package.
+   *
+   * @param aSrcWriter
+   *        Source writer
+   * @param aResWriter
+   *        Resource writer
+   * @param aListener
+   *        The build listener to inform. May be <code>null</code>.
+   * @return The metrics of this package or <code>null</code> if no listener is
+   *         present.
+   * @throws IOException
+   *         on IO error
+   */
+  @Nullable
+  JBuildMetrics build (@Nonnull @WillNotClose final AbstractCodeWriter aSrcWriter,
+                       @Nonnull @WillNotClose final AbstractCodeWriter aResWriter,
+                       @Nullable final IJBuildListener aListener) throws IOException
+  {
+    final JBuildMetrics aPackageMetrics = aListener == null ? null : new JBuildMetrics (this, null);
+
+    // write classes
+    for (final JDefinedClass c : m_aClasses.values ())
+    {
+      if (c.isHidden () || c.isFlushed ())
+      {
+        // don't generate this file or already generated
+        continue;
+      }
+
+      final JBuildMetrics aMetrics = _createMetrics (aListener, c.name () + ".java");
+      _buildClass (aSrcWriter, c, aMetrics);
+      _onFileBuilt (aListener, aPackageMetrics, aMetrics);
+    }
+
+    _buildPackageInfoAndResources (aSrcWriter, aResWriter, aListener, aPackageMetrics);
+
+    if (aListener != null)
+      aListener.onPackageBuilt (aPackageMetrics);
+    return aPackageMetrics;
+  }
+
+  /**
+   * First step of the parallel build: schedule all classes of this package on
+   * the provided executor. If the source writer is thread-safe, the classes are
+   * written directly by the executor. Otherwise the source code is only
+   * formatted by the executor and written in
+   * {@link #buildScheduled(AbstractCodeWriter, AbstractCodeWriter, List, IJBuildListener, Map)}.
+   *
+   * @param aSrcWriter
+   *        Source writer
+   * @param aExecutor
+   *        Executor to use
+   * @param aMetricsMap
+   *        If not <code>null</code>, the metrics of each scheduled class are
+   *        put into this map. They are filled by the executor.
+   * @return One future per non-hidden class, in the same order as in the
+   *         sequential build. The result of each future is the formatted source
+   *         or <code>null</code> if the class was already written.
+   */
+  @Nonnull
+  List <Future <String>> scheduleClasses (@Nonnull final AbstractCodeWriter aSrcWriter,
+                                         @Nonnull final Executor aExecutor,
+                                         @Nullable final Map <JDefinedClass, JBuildMetrics> aMetricsMap)
+  {
+    final boolean bWriteDirectly = aSrcWriter.isThreadSafe ();
+    final String sNewLine = aSrcWriter.getNewLine ();
+    final List <Future <String>> ret = new ArrayList <> ();
+    for (final JDefinedClass c : m_aClasses.values ())
+    {
+      if (c.isHidden () || c.isFlushed ())
+      {
+        // don't generate this file or already generated
+        continue;
+      }
+
+      final JBuildMetrics aMetrics = aMetricsMap == null ? null : new JBuildMetrics (this, c.name () + ".java");
+      if (aMetrics != null)
+        aMetricsMap.put (c, aMetrics);
+
+      final FutureTask <String> aTask = new FutureTask <> ( () -> {
+        if (!bWriteDirectly)
+          return _renderClass (c, sNewLine, aMetrics);
+
+        _buildClass (aSrcWriter, c, aMetrics);
+        return null;
+      });
+      aExecutor.execute (aTask);
+      ret.add (aTask);
+    }
+    return ret;
+  }
+
+  /**
+   * Second step of the parallel build: wait for the classes scheduled in
+   * {@link #scheduleClasses(AbstractCodeWriter, Executor, Map)}, write the
+   * formatted sources in the original order and afterwards write the package
+   * info and the resources.
+   *
+   * @param aSrcWriter
+   *        Source writer
+   * @param aResWriter
+   *        Resource writer
+   * @param aScheduled
+   *        The futures returned by scheduleClasses
+   * @param aListener
+   *        The build listener to inform. May be <code>null</code>.
+   * @param aMetricsMap
+   *        The metrics map that was passed to scheduleClasses. Must be present
+   *        if a listener is present.
+   * @return The metrics of this package or <code>null</code> if no listener is
+   *         present.
+   * @throws IOException
+   *         On IO error, either in this thread or in the executor
+   */
+  @Nullable
+  JBuildMetrics buildScheduled (@Nonnull @WillNotClose final AbstractCodeWriter aSrcWriter,
+                                @Nonnull @WillNotClose final AbstractCodeWriter aResWriter,
+                                @Nonnull final List <Future <String>> aScheduled,
+                                @Nullable final IJBuildListener aListener,
+                                @Nullable final Map <JDefinedClass, JBuildMetrics> aMetricsMap) throws IOException
+  {
+    final JBuildMetrics aPackageMetrics = aListener == null ? null : new JBuildMetrics (this, null);
+
+    final Iterator <Future <String>> it = aScheduled.iterator ();
+    for (final JDefinedClass c : m_aClasses.values ())
+    {
+      if (c.isHidden () || c.isFlushed ())
+      {
+        // don't generate this file or already generated
+        continue;
+      }
+
+      final String sSource = _waitFor (it.next ());
+      final JBuildMetrics aMetrics = aListener == null ? null : aMetricsMap.get (c);
+      if (sSource != null)
+      {
+        final long nStart = aMetrics == null ? 0 : System.nanoTime ();
+        try (final SourcePrintWriter aPW = aSrcWriter.openSource (this, c.name () + ".java"))
+        {
+          aPW.setMetrics (aMetrics);
+          aPW.print (sSource);
+        }
+        if (aMetrics != null)
+        {
+          // The source was already formatted, so the whole time is I/O. The
+          // rendering didn't add any I/O, only the writes measured above.
+          aMetrics.addIONanos (System.nanoTime () - nStart - aMetrics.getIONanos ());
+        }
+      }
+      _onFileBuilt (aListener, aPackageMetrics, aMetrics);
+    }
+
+    _buildPackageInfoAndResources (aSrcWriter, aResWriter, aListener, aPackageMetrics);
+
+    if (aListener != null)
+      aListener.onPackageBuilt (aPackageMetrics);
+    return aPackageMetrics;
+  }
+
+  @Nullable
+  private static String _waitFor (@Nonnull final Future <String> aFuture) throws IOException
+  {
+    try
+    {
+      return aFuture.get ();
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new InterruptedIOException ("Interrupted while waiting for the parallel build");
+    }
+    catch (final ExecutionException ex)
+    {
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof IOException)
+        throw (IOException) aCause;
+      if (aCause instanceof RuntimeException)
+        throw (RuntimeException) aCause;
+      if (aCause instanceof Error)
+        throw (Error) aCause;
+      throw new IOException ("Failed to build class", aCause);
     }
   }
 
@@ -494,7 +866,7 @@ public class JPackage implements
     // check classes
     for (final JDefinedClass c : m_aClasses.values ())
     {
-      if (c.isHidden ())
+      if (c.isHidden () || c.isFlushed ())
       {
         // don't check this file
         continue;
@@ -511,9 +883,9 @@ public class JPackage implements
     int ret = 0;
     for (final JDefinedClass c : m_aClasses.values ())
     {
-      if (c.isHidden ())
+      if (c.isHidden () || c.isFlushed ())
       {
-        // don't generate this file
+        // don't generate this file or already generated
         continue;
       }
       ret++;
@@ -529,4 +901,22 @@ public class JPackage implements
 
     return ret;
   }
+
+  /**
+   * @return The package Javadoc or <code>null</code> if none was created.
+   */
+  @Nullable
+  JDocComment internalGetJavadoc ()
+  {
+    return m_aJavaDoc;
+  }
+
+  /**
+   * @return The package annotations or <code>null</code> if none were added.
+   */
+  @Nullable
+  List <JAnnotationUse> internalGetAnnotations ()
+  {
+    return m_aAnnotations;
+  }
 }
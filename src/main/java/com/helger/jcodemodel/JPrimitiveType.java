@@ -105,7 +105,7 @@ public class JPrimitiveType extends AbstractJType
   public JArrayClass array ()
   {
     if (m_aArrayClass == null)
-      m_aArrayClass = new JArrayClass (m_aOwner, this);
+      m_aArrayClass = m_aOwner.internClass (new JArrayClass (m_aOwner, this));
     return m_aArrayClass;
   }
 
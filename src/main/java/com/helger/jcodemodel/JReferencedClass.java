@@ -66,6 +66,9 @@ class JReferencedClass extends AbstractJClass implements IJDeclaration
   // Cached status vars
   private transient boolean m_bResolvedPrimitive = false;
   private transient JPrimitiveType m_aPrimitiveType;
+  private transient String m_sName;
+  private transient String m_sFullName;
+  private transient JPackage m_aPackage;
 
   JReferencedClass (@Nonnull final JCodeModel aOwner, @Nonnull final Class <?> aClass)
   {
@@ -77,14 +80,20 @@ class JReferencedClass extends AbstractJClass implements IJDeclaration
   @Override
   public String name ()
   {
-    return m_aClass.getSimpleName ();
+    String ret = m_sName;
+    if (ret == null)
+      ret = m_sName = m_aClass.getSimpleName ();
+    return ret;
   }
 
   @Override
   @Nonnull
   public String fullName ()
   {
-    return JCNameUtilities.getFullName (m_aClass);
+    String ret = m_sFullName;
+    if (ret == null)
+      ret = m_sFullName = JCNameUtilities.getFullName (m_aClass);
+    return ret;
   }
 
   @Override
@@ -105,6 +114,15 @@ class JReferencedClass extends AbstractJClass implements IJDeclaration
   @Override
   @Nonnull
   public JPackage _package ()
+  {
+    JPackage ret = m_aPackage;
+    if (ret == null)
+      ret = m_aPackage = _resolvePackage ();
+    return ret;
+  }
+
+  @Nonnull
+  private JPackage _resolvePackage ()
   {
     final String name = fullName ();
 
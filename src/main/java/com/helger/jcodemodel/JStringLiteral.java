@@ -55,6 +55,8 @@ import com.helger.jcodemodel.util.JCValueEnforcer;
 public class JStringLiteral implements IJExpression
 {
   private String m_sWhat;
+  /** The quoted and escaped form of {@link #m_sWhat}, created on demand */
+  private String m_sQuoted;
 
   protected JStringLiteral (@Nonnull final String sWhat)
   {
@@ -71,11 +73,18 @@ public class JStringLiteral implements IJExpression
   {
     JCValueEnforcer.notNull (sWhat, "What");
     m_sWhat = sWhat;
+    m_sQuoted = null;
   }
 
   public void generate (@Nonnull final JFormatter f)
   {
-    f.print (JExpr.quotify ('"', m_sWhat));
+    String sQuoted = m_sQuoted;
+    if (sQuoted == null)
+    {
+      sQuoted = JExpr.quotify ('"', m_sWhat);
+      m_sQuoted = sQuoted;
+    }
+    f.print (sQuoted);
   }
 
   @Override
@@ -45,6 +45,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Switch statement
@@ -124,4 +125,13 @@ public class JSwitch implements IJStatement
       f.statement (m_aDefaultCase);
     f.print ('}').newline ();
   }
+
+  /**
+   * @return The default case or <code>null</code> if none was created.
+   */
+  @Nullable
+  JCase internalGetDefault ()
+  {
+    return m_aDefaultCase;
+  }
 }
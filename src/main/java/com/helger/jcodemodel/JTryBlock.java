@@ -45,6 +45,7 @@ import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Try statement with Catch and/or Finally clause
@@ -95,4 +96,13 @@ public class JTryBlock implements IJStatement
       f.print ("finally").generable (m_aFinally);
     f.newline ();
   }
+
+  /**
+   * @return The finally block or <code>null</code> if none was created.
+   */
+  @Nullable
+  JBlock internalGetFinally ()
+  {
+    return m_aFinally;
+  }
 }
@@ -95,4 +95,13 @@ public class JTypeVarClass extends JTypeVar
   {
     return m_aClass._package ();
   }
+
+  /**
+   * @return The class this type variable refers to. Never <code>null</code>.
+   */
+  @Nonnull
+  AbstractJClass internalGetClass ()
+  {
+    return m_aClass;
+  }
 }
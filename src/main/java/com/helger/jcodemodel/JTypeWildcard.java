@@ -166,7 +166,7 @@ public class JTypeWildcard extends AbstractJClass
     final AbstractJClass nb = m_aBoundClass.substituteParams (aVariables, aBindings);
     if (nb == m_aBoundClass)
       return this;
-    return new JTypeWildcard (nb, EWildcardBoundMode.EXTENDS);
+    return owner ().internClass (new JTypeWildcard (nb, EWildcardBoundMode.EXTENDS));
   }
 
   @Override
@@ -180,4 +180,26 @@ public class JTypeWildcard extends AbstractJClass
     else
       f.print (m_eBoundMode.declarationTokens ()).generable (m_aBoundClass);
   }
+
+  //
+  // Equality is based on value
+  //
+
+  @Override
+  public boolean equals (final Object obj)
+  {
+    if (obj == this)
+      return true;
+    if (obj == null || !getClass ().equals (obj.getClass ()))
+      return false;
+
+    final JTypeWildcard rhs = (JTypeWildcard) obj;
+    return m_aBoundClass.equals (rhs.m_aBoundClass) && m_eBoundMode == rhs.m_eBoundMode;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return m_aBoundClass.hashCode () * 37 + m_eBoundMode.hashCode ();
+  }
 }
@@ -45,6 +45,7 @@ import java.io.IOException;
 import java.io.Writer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * A special version of {@link java.io.PrintWriter} that has a customizable new
@@ -55,6 +56,7 @@ import javax.annotation.Nonnull;
 public final class SourcePrintWriter extends FilterWriter
 {
   private final String m_sNewLine;
+  private JBuildMetrics m_aMetrics;
 
   public SourcePrintWriter (@Nonnull final Writer aWrappedWriter, @Nonnull final String sNewLine)
   {
@@ -62,6 +64,30 @@ public final class SourcePrintWriter extends FilterWriter
     m_sNewLine = sNewLine;
   }
 
+  /**
+   * @return The new line string used by {@link #println()}.
+   * @since 3.0.4
+   */
+  @Nonnull
+  public String getNewLine ()
+  {
+    return m_sNewLine;
+  }
+
+  /**
+   * @return The metrics to be updated while writing. May be <code>null</code>.
+   */
+  @Nullable
+  JBuildMetrics getMetrics ()
+  {
+    return m_aMetrics;
+  }
+
+  void setMetrics (@Nullable final JBuildMetrics aMetrics)
+  {
+    m_aMetrics = aMetrics;
+  }
+
   private void _handleException (@Nonnull final IOException ex, @Nonnull final String sSource)
   {
     System.err.println ("Error on Writer: " + sSource);
@@ -92,6 +118,30 @@ public final class SourcePrintWriter extends FilterWriter
     }
   }
 
+  private void _write (@Nonnull final String sStr, final int nOfs, final int nLen)
+  {
+    try
+    {
+      super.write (sStr, nOfs, nLen);
+    }
+    catch (final IOException ex)
+    {
+      _handleException (ex, "write String part");
+    }
+  }
+
+  private void _write (@Nonnull final char [] aChars, final int nOfs, final int nLen)
+  {
+    try
+    {
+      super.write (aChars, nOfs, nLen);
+    }
+    catch (final IOException ex)
+    {
+      _handleException (ex, "write char[]");
+    }
+  }
+
   public void print (final char c)
   {
     _write (c);
@@ -102,6 +152,27 @@ public final class SourcePrintWriter extends FilterWriter
     _write (sStr);
   }
 
+  public void print (@Nonnull final String sStr, final int nOfs, final int nLen)
+  {
+    _write (sStr, nOfs, nLen);
+  }
+
+  /**
+   * Print a part of a char array.
+   *
+   * @param aChars
+   *        The chars to print. May not be <code>null</code>.
+   * @param nOfs
+   *        Offset into the array
+   * @param nLen
+   *        Number of chars to print
+   * @since 3.0.4
+   */
+  public void print (@Nonnull final char [] aChars, final int nOfs, final int nLen)
+  {
+    _write (aChars, nOfs, nLen);
+  }
+
   public void println ()
   {
     _write (m_sNewLine);
@@ -0,0 +1,137 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.fmt;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+
+import com.helger.jcodemodel.IJChannelOutputStream;
+
+/**
+ * A resource file that is copied from an existing file while the code model is
+ * built. If the target is a file or any other {@link IJChannelOutputStream},
+ * the data is copied directly via
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+public class JPathFile extends JStreamFile
+{
+  private final Path m_aPath;
+
+  /**
+   * @param aPath
+   *        The file to copy. The file name is used as the name of this file.
+   *        May not be <code>null</code>.
+   */
+  public JPathFile (@Nonnull final Path aPath)
+  {
+    this (aPath.getFileName ().toString (), aPath, true);
+  }
+
+  /**
+   * @param sName
+   *        File name. May not be <code>null</code>.
+   * @param aPath
+   *        The file to copy. May not be <code>null</code>.
+   * @param bIsResource
+   *        <code>false</code> if this is a Java source file. <code>true</code>
+   *        if this is other resource files.
+   */
+  public JPathFile (@Nonnull final String sName, @Nonnull final Path aPath, final boolean bIsResource)
+  {
+    super (sName, () -> Files.newInputStream (aPath), bIsResource);
+    m_aPath = aPath;
+  }
+
+  /**
+   * @return The file to copy. Never <code>null</code>.
+   */
+  @Nonnull
+  public Path getPath ()
+  {
+    return m_aPath;
+  }
+
+  private long _transferTo (@Nonnull final WritableByteChannel aTarget) throws IOException
+  {
+    try (final FileChannel aSource = FileChannel.open (m_aPath, StandardOpenOption.READ))
+    {
+      final long nSize = aSource.size ();
+      long nPos = 0;
+      while (nPos < nSize)
+        nPos += aSource.transferTo (nPos, nSize - nPos, aTarget);
+      return nSize;
+    }
+  }
+
+  @Override
+  protected void build (@Nonnull @WillNotClose final OutputStream aOS) throws IOException
+  {
+    // The target channels belong to the stream and are closed with it
+    if (aOS instanceof FileOutputStream)
+    {
+      _transferTo (((FileOutputStream) aOS).getChannel ());
+      return;
+    }
+    if (aOS instanceof IJChannelOutputStream)
+    {
+      final IJChannelOutputStream aChannelOS = (IJChannelOutputStream) aOS;
+      final WritableByteChannel aTarget = aChannelOS.getChannel ();
+      if (aTarget != null)
+      {
+        aChannelOS.onChannelWritten (_transferTo (aTarget));
+        return;
+      }
+    }
+    super.build (aOS);
+  }
+}
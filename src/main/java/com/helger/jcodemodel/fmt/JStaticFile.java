@@ -40,9 +40,13 @@
  */
 package com.helger.jcodemodel.fmt;
 
-import java.io.DataInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.WillNotClose;
@@ -52,11 +56,20 @@ import com.helger.jcodemodel.util.JCSecureLoader;
 
 /**
  * Allows an application to copy a resource file to the output.
+ * <p>
+ * Resources of up to {@link #MAX_CACHED_SIZE} bytes are read only once per JVM
+ * and class loader.
  *
  * @author Kohsuke Kawaguchi (kohsuke.kawaguchi@sun.com)
  */
 public class JStaticFile extends AbstractJResourceFile
 {
+  /** The maximum size of resources that are cached */
+  public static final int MAX_CACHED_SIZE = 256 * 1024;
+
+  /** The resource contents per class loader and resource name */
+  private static final Map <ClassLoader, Map <String, byte []>> s_aCache = new WeakHashMap <> ();
+
   private final ClassLoader m_aClassLoader;
   private final String m_sResourceName;
   private final boolean m_bIsResource;
@@ -96,15 +109,76 @@ public class JStaticFile extends AbstractJResourceFile
     return m_bIsResource;
   }
 
+  /**
+   * Remove all cached resources, so that they are read again on the next
+   * build.
+   *
+   * @since 3.0.4
+   */
+  public static void clearCache ()
+  {
+    synchronized (s_aCache)
+    {
+      s_aCache.clear ();
+    }
+  }
+
+  @Override
+  protected boolean isBufferedOutput ()
+  {
+    // Written in large chunks
+    return false;
+  }
+
   @Override
   protected void build (@Nonnull @WillNotClose final OutputStream aOS) throws IOException
   {
-    try (final DataInputStream dis = new DataInputStream (m_aClassLoader.getResourceAsStream (m_sResourceName)))
+    final byte [] aCached;
+    synchronized (s_aCache)
+    {
+      final Map <String, byte []> aMap = s_aCache.get (m_aClassLoader);
+      aCached = aMap == null ? null : aMap.get (m_sResourceName);
+    }
+    if (aCached != null)
     {
-      final byte [] buf = new byte [256];
-      int sz;
-      while ((sz = dis.read (buf)) > 0)
-        aOS.write (buf, 0, sz);
+      aOS.write (aCached);
+      return;
+    }
+
+    try (final InputStream aIS = m_aClassLoader.getResourceAsStream (m_sResourceName))
+    {
+      if (aIS == null)
+        throw new IOException ("Failed to open resource '" + m_sResourceName + "'");
+
+      // Collect the data while it may be cached
+      ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+      final byte [] aBuf = new byte [16 * 1024];
+      int nRead;
+      while ((nRead = aIS.read (aBuf)) >= 0)
+      {
+        if (aBAOS != null)
+        {
+          if (aBAOS.size () + nRead <= MAX_CACHED_SIZE)
+          {
+            aBAOS.write (aBuf, 0, nRead);
+            continue;
+          }
+          // Too large to be cached
+          aBAOS.writeTo (aOS);
+          aBAOS = null;
+        }
+        aOS.write (aBuf, 0, nRead);
+      }
+
+      if (aBAOS != null)
+      {
+        final byte [] aData = aBAOS.toByteArray ();
+        synchronized (s_aCache)
+        {
+          s_aCache.computeIfAbsent (m_aClassLoader, k -> new HashMap <> ()).put (m_sResourceName, aData);
+        }
+        aOS.write (aData);
+      }
     }
   }
 }
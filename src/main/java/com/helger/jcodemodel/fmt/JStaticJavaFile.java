@@ -49,8 +49,12 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import javax.annotation.Nonnull;
@@ -81,11 +85,55 @@ import com.helger.jcodemodel.util.JCValueEnforcer;
  * Note that because we don't parse the static Java source code, the returned
  * {@link AbstractJClass} object doesn't respond to methods like "isInterface"
  * or "_extends",
+ * <p>
+ * The source is read and decoded only once per JVM. If no filter is set, the
+ * encoded source is cached as well, so that building only writes the cached
+ * bytes around the package declaration.
  *
  * @author Kohsuke Kawaguchi (kohsuke.kawaguchi@sun.com)
  */
 public class JStaticJavaFile extends AbstractJResourceFile
 {
+  /**
+   * A decoded source file.
+   */
+  private static final class Template
+  {
+    private final List <String> m_aLines;
+    // The encoded lines between the package declarations - lazily created
+    private volatile List <byte []> m_aSegments;
+
+    Template (@Nonnull final List <String> aLines)
+    {
+      m_aLines = aLines;
+    }
+
+    @Nonnull
+    List <byte []> getSegments ()
+    {
+      List <byte []> ret = m_aSegments;
+      if (ret == null)
+      {
+        ret = new ArrayList <> ();
+        final StringBuilder aSB = new StringBuilder ();
+        for (final String sLine : m_aLines)
+          if (sLine.startsWith ("package "))
+          {
+            ret.add (aSB.toString ().getBytes (Charset.defaultCharset ()));
+            aSB.setLength (0);
+          }
+          else
+            aSB.append (sLine).append (System.lineSeparator ());
+        ret.add (aSB.toString ().getBytes (Charset.defaultCharset ()));
+        m_aSegments = ret;
+      }
+      return ret;
+    }
+  }
+
+  /** The templates keyed by the external form of the source URL */
+  private static final Map <String, Template> s_aTemplates = new ConcurrentHashMap <> ();
+
   private final JPackage m_aPkg;
   private final String m_sClassName;
   private final URL m_aSource;
@@ -130,18 +178,81 @@ public class JStaticJavaFile extends AbstractJResourceFile
     return false;
   }
 
+  /**
+   * Remove all cached source files, so that they are read again on the next
+   * build.
+   *
+   * @since 3.0.4
+   */
+  public static void clearTemplateCache ()
+  {
+    s_aTemplates.clear ();
+  }
+
+  @Nonnull
+  private Template _getTemplate () throws IOException
+  {
+    final String sKey = m_aSource.toExternalForm ();
+    Template ret = s_aTemplates.get (sKey);
+    if (ret == null)
+    {
+      final List <String> aLines = new ArrayList <> ();
+      try (final InputStream is = m_aSource.openStream ();
+           final BufferedReader r = new BufferedReader (new InputStreamReader (is)))
+      {
+        String sLine;
+        while ((sLine = r.readLine ()) != null)
+          aLines.add (sLine);
+      }
+      catch (final IOException ex)
+      {
+        throw new IOException ("unable to process " + m_aSource + "\n" + ex.getMessage ());
+      }
+      ret = new Template (aLines);
+      final Template aOld = s_aTemplates.putIfAbsent (sKey, ret);
+      if (aOld != null)
+        ret = aOld;
+    }
+    return ret;
+  }
+
+  @Override
+  protected boolean isBufferedOutput ()
+  {
+    // Written in large chunks
+    return false;
+  }
+
   @Override
   protected void build (@Nonnull @WillNotClose final OutputStream aOS) throws IOException
   {
+    final Template aTemplate = _getTemplate ();
+
+    if (m_aFilter == null)
+    {
+      // Fast path: only the package declaration needs to be created
+      byte [] aPackageLine = null;
+      if (!m_aPkg.isUnnamed ())
+        aPackageLine = ("package " + m_aPkg.name () + ";" + System.lineSeparator ()).getBytes (Charset.defaultCharset ());
+      boolean bFirst = true;
+      for (final byte [] aSegment : aTemplate.getSegments ())
+      {
+        if (bFirst)
+          bFirst = false;
+        else
+          if (aPackageLine != null)
+            aOS.write (aPackageLine);
+        aOS.write (aSegment);
+      }
+      return;
+    }
+
     final Function <String, String> aFilter = _createLineFilter ();
     int nLineNumber = 1;
 
-    try (final InputStream is = m_aSource.openStream ();
-         final BufferedReader r = new BufferedReader (new InputStreamReader (is));
-         final PrintWriter w = new PrintWriter (new BufferedWriter (new OutputStreamWriter (aOS))))
+    try (final PrintWriter w = new PrintWriter (new BufferedWriter (new OutputStreamWriter (aOS))))
     {
-      String sLine;
-      while ((sLine = r.readLine ()) != null)
+      for (String sLine : aTemplate.m_aLines)
       {
         sLine = aFilter.apply (sLine);
         if (sLine != null)
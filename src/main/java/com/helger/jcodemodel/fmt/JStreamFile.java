@@ -0,0 +1,123 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.fmt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+
+import com.helger.jcodemodel.AbstractJResourceFile;
+import com.helger.jcodemodel.util.JCValueEnforcer;
+
+/**
+ * A resource file whose contents are read from an input stream while the code
+ * model is built. Contrary to {@link JBinaryFile} nothing is kept in memory.
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+public class JStreamFile extends AbstractJResourceFile
+{
+  /** The size of the copy buffer */
+  public static final int BUFFER_SIZE = 16 * 1024;
+
+  private final IJInputStreamProvider m_aProvider;
+  private final boolean m_bIsResource;
+
+  /**
+   * @param sName
+   *        File name. May not be <code>null</code>.
+   * @param aProvider
+   *        Provider for the contents, invoked once per build. May not be
+   *        <code>null</code>.
+   */
+  public JStreamFile (@Nonnull final String sName, @Nonnull final IJInputStreamProvider aProvider)
+  {
+    this (sName, aProvider, true);
+  }
+
+  /**
+   * @param sName
+   *        File name. May not be <code>null</code>.
+   * @param aProvider
+   *        Provider for the contents, invoked once per build. May not be
+   *        <code>null</code>.
+   * @param bIsResource
+   *        <code>false</code> if this is a Java source file. <code>true</code>
+   *        if this is other resource files.
+   */
+  public JStreamFile (@Nonnull final String sName,
+                      @Nonnull final IJInputStreamProvider aProvider,
+                      final boolean bIsResource)
+  {
+    super (sName);
+    m_aProvider = JCValueEnforcer.notNull (aProvider, "Provider");
+    m_bIsResource = bIsResource;
+  }
+
+  @Override
+  protected boolean isResource ()
+  {
+    return m_bIsResource;
+  }
+
+  @Override
+  protected boolean isBufferedOutput ()
+  {
+    // Copied in large chunks
+    return false;
+  }
+
+  @Override
+  protected void build (@Nonnull @WillNotClose final OutputStream aOS) throws IOException
+  {
+    try (final InputStream aIS = m_aProvider.openInputStream ())
+    {
+      final byte [] aBuf = new byte [BUFFER_SIZE];
+      int nRead;
+      while ((nRead = aIS.read (aBuf)) >= 0)
+        aOS.write (aBuf, 0, nRead);
+    }
+  }
+}
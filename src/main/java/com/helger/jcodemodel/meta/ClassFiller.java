@@ -82,8 +82,6 @@ class ClassFiller
                   @Nonnull final TypeEnvironment environment) throws CodeModelBuildingException, ErrorTypeFound
   {
     m_aNewClass.hide ();
-    final Annotator classAnnotator = new Annotator (m_aModelsAdapter, m_aNewClass, environment);
-    classAnnotator.annotate (element.getAnnotationMirrors ());
     for (final TypeParameterElement parameter : element.getTypeParameters ())
     {
       final JTypeVar typeVariable = m_aNewClass.generify (parameter.getSimpleName ().toString ());
@@ -110,56 +108,78 @@ class ClassFiller
         final TypeElement innerClassElement = (TypeElement) enclosedElement;
         m_aModelsAdapter.defineInnerClass (m_aNewClass, innerClassElement, environment.enclosed ());
       }
-      else
-        if (enclosedElement.getKind ().equals (ElementKind.METHOD))
+    }
+    if (m_aModelsAdapter.isLazyMembers ())
+    {
+      // Don't keep the element, as it belongs to the current processing round
+      final String sQualifiedName = element.getQualifiedName ().toString ();
+      m_aNewClass.setLazyMemberInitializer ( () -> m_aModelsAdapter.fillMembersLazily (m_aNewClass,
+                                                                                       sQualifiedName,
+                                                                                       environment));
+    }
+    else
+      fillMembers (element, environment);
+  }
+
+  /**
+   * Add the annotations and methods of the element to the class.
+   */
+  void fillMembers (@Nonnull final TypeElement element,
+                    @Nonnull final TypeEnvironment environment) throws CodeModelBuildingException, ErrorTypeFound
+  {
+    final Annotator classAnnotator = new Annotator (m_aModelsAdapter, m_aNewClass, environment);
+    classAnnotator.annotate (element.getAnnotationMirrors ());
+    for (final Element enclosedElement : element.getEnclosedElements ())
+    {
+      if (enclosedElement.getKind ().equals (ElementKind.METHOD))
+      {
+        final ExecutableElement executable = (ExecutableElement) enclosedElement;
+        final JMethod method = m_aNewClass.method (DecidedErrorTypesModelsAdapter.toJMod (executable.getModifiers ()),
+                                                   m_aCodeModel.VOID,
+                                                   executable.getSimpleName ().toString ());
+        final TypeEnvironment methodEnvironment = environment.enclosed ();
+        final Annotator methodAnnotator = new Annotator (m_aModelsAdapter, method, environment);
+        methodAnnotator.annotate (executable.getAnnotationMirrors ());
+        for (final TypeParameterElement parameter : executable.getTypeParameters ())
         {
-          final ExecutableElement executable = (ExecutableElement) enclosedElement;
-          final JMethod method = m_aNewClass.method (DecidedErrorTypesModelsAdapter.toJMod (executable.getModifiers ()),
-                                                     m_aCodeModel.VOID,
-                                                     executable.getSimpleName ().toString ());
-          final TypeEnvironment methodEnvironment = environment.enclosed ();
-          final Annotator methodAnnotator = new Annotator (m_aModelsAdapter, method, environment);
-          methodAnnotator.annotate (executable.getAnnotationMirrors ());
-          for (final TypeParameterElement parameter : executable.getTypeParameters ())
+          final JTypeVar typeVariable = method.generify (parameter.getSimpleName ().toString ());
+          methodEnvironment.put (typeVariable.name (), typeVariable);
+          for (final TypeMirror type : parameter.getBounds ())
           {
-            final JTypeVar typeVariable = method.generify (parameter.getSimpleName ().toString ());
-            methodEnvironment.put (typeVariable.name (), typeVariable);
-            for (final TypeMirror type : parameter.getBounds ())
-            {
-              typeVariable.bound ((AbstractJClass) m_aModelsAdapter.toJType (type, methodEnvironment));
-            }
+            typeVariable.bound ((AbstractJClass) m_aModelsAdapter.toJType (type, methodEnvironment));
           }
-          method.type (m_aModelsAdapter.toJType (executable.getReturnType (), methodEnvironment));
-          for (final TypeMirror type : executable.getThrownTypes ())
+        }
+        method.type (m_aModelsAdapter.toJType (executable.getReturnType (), methodEnvironment));
+        for (final TypeMirror type : executable.getThrownTypes ())
+        {
+          final AbstractJClass throwable = (AbstractJClass) m_aModelsAdapter.toJType (type, methodEnvironment);
+          method._throws (throwable);
+        }
+        final List <? extends VariableElement> parameters = executable.getParameters ();
+        int n = 0;
+        for (final VariableElement variable : parameters)
+        {
+          final String parameterName = variable.getSimpleName ().toString ();
+          final TypeMirror parameterTypeMirror = variable.asType ();
+          final AbstractJType parameterType = m_aModelsAdapter.toJType (parameterTypeMirror, methodEnvironment);
+          JVar param;
+          if (executable.isVarArgs () && n == parameters.size () - 1)
           {
-            final AbstractJClass throwable = (AbstractJClass) m_aModelsAdapter.toJType (type, methodEnvironment);
-            method._throws (throwable);
+            param = method.varParam (DecidedErrorTypesModelsAdapter.toJMod (variable.getModifiers ()),
+                                     parameterType.elementType (),
+                                     parameterName);
           }
-          final List <? extends VariableElement> parameters = executable.getParameters ();
-          int n = 0;
-          for (final VariableElement variable : parameters)
+          else
           {
-            final String parameterName = variable.getSimpleName ().toString ();
-            final TypeMirror parameterTypeMirror = variable.asType ();
-            final AbstractJType parameterType = m_aModelsAdapter.toJType (parameterTypeMirror, methodEnvironment);
-            JVar param;
-            if (executable.isVarArgs () && n == parameters.size () - 1)
-            {
-              param = method.varParam (DecidedErrorTypesModelsAdapter.toJMod (variable.getModifiers ()),
-                                       parameterType.elementType (),
-                                       parameterName);
-            }
-            else
-            {
-              param = method.param (DecidedErrorTypesModelsAdapter.toJMod (variable.getModifiers ()),
-                                    parameterType,
-                                    parameterName);
-            }
-            final Annotator parametorAnnotator = new Annotator (m_aModelsAdapter, param, methodEnvironment);
-            parametorAnnotator.annotate (variable.getAnnotationMirrors ());
-            n++;
+            param = method.param (DecidedErrorTypesModelsAdapter.toJMod (variable.getModifiers ()),
+                                  parameterType,
+                                  parameterName);
           }
+          final Annotator parametorAnnotator = new Annotator (m_aModelsAdapter, param, methodEnvironment);
+          parametorAnnotator.annotate (variable.getAnnotationMirrors ());
+          n++;
         }
+      }
     }
   }
 
@@ -40,12 +40,15 @@
  */
 package com.helger.jcodemodel.meta;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
@@ -140,14 +143,45 @@ class DecidedErrorTypesModelsAdapter
   private final Elements m_aElementUtils;
   private final ErrorTypePolicy m_aErrorTypePolicy;
   private final JCodeModel m_aCodeModel;
+  private final JavaxLangModelCache m_aCache;
+  // Names of all error-types found so far
+  private final List <String> m_aErrorTypeNames = new ArrayList <> ();
+  private int m_nErrorTypes = 0;
+  // Incremented whenever a conversion result must not be cached
+  private int m_nUncacheable = 0;
 
   DecidedErrorTypesModelsAdapter (final JCodeModel codeModel,
                                   final Elements elementUtils,
-                                  final ErrorTypePolicy errorTypePolicy)
+                                  final ErrorTypePolicy errorTypePolicy,
+                                  final JavaxLangModelCache cache)
   {
     m_aElementUtils = elementUtils;
     m_aErrorTypePolicy = errorTypePolicy;
     m_aCodeModel = codeModel;
+    m_aCache = cache;
+    // Pending lazy member initializers switch to the latest element utilities
+    cache.setCurrentElementUtils (elementUtils);
+  }
+
+  /**
+   * Called whenever an error-type is found, independent of the error type
+   * policy.
+   *
+   * @param sFullTypeName
+   *        The fully qualified name the error-type may be resolved with later
+   *        on. May be <code>null</code> if it can never be resolved.
+   */
+  void onErrorType (@Nullable final String sFullTypeName)
+  {
+    m_nErrorTypes++;
+    m_nUncacheable++;
+    if (sFullTypeName != null)
+      m_aErrorTypeNames.add (sFullTypeName);
+  }
+
+  private boolean _isResolvable (@Nonnull final String sFullTypeName)
+  {
+    return m_aCodeModel._getClass (sFullTypeName) != null || m_aElementUtils.getTypeElement (sFullTypeName) != null;
   }
 
   public JDefinedClass getClass (final TypeElement element) throws CodeModelBuildingException, ErrorTypeFound
@@ -159,7 +193,18 @@ class DecidedErrorTypesModelsAdapter
       final JPackage jpackage = m_aCodeModel._package (packageElement.getQualifiedName ().toString ());
       final JDefinedClass result = jpackage._getClass (element.getSimpleName ().toString ());
       if (result != null)
-        return result;
+      {
+        final String sQualifiedName = element.getQualifiedName ().toString ();
+        if (!m_aCache.isUnresolved (sQualifiedName))
+          return result;
+        if (!m_aCache.isResolvable (sQualifiedName, this::_isResolvable))
+        {
+          m_nUncacheable++;
+          return result;
+        }
+        // At least one of the error-types can now be resolved
+        jpackage.remove (result);
+      }
 
       final JDefinedClass jclass = _defineClass (element);
       jclass.hide ();
@@ -228,9 +273,26 @@ class DecidedErrorTypesModelsAdapter
     {
       throw new CodeModelBuildingException (ex);
     }
-    _declareInnerClasses (newClass, element, environment);
-    final ClassFiller filler = new ClassFiller (m_aCodeModel, this, newClass);
-    filler.fillClass (element, environment);
+    final int nErrorTypes = m_nErrorTypes;
+    final int nErrorTypeNames = m_aErrorTypeNames.size ();
+    try
+    {
+      _declareInnerClasses (newClass, element, environment);
+      final ClassFiller filler = new ClassFiller (m_aCodeModel, this, newClass);
+      filler.fillClass (element, environment);
+    }
+    catch (final CodeModelBuildingException | ErrorTypeFound ex)
+    {
+      // Don't keep a partially filled class, so that it is defined again on the
+      // next request
+      _package.remove (newClass);
+      throw ex;
+    }
+    final String sQualifiedName = element.getQualifiedName ().toString ();
+    if (m_nErrorTypes != nErrorTypes)
+      m_aCache.setUnresolved (sQualifiedName, m_aErrorTypeNames.subList (nErrorTypeNames, m_aErrorTypeNames.size ()));
+    else
+      m_aCache.setResolved (sQualifiedName);
     return newClass;
   }
 
@@ -301,26 +363,102 @@ class DecidedErrorTypesModelsAdapter
                                      enclosingClass);
   }
 
+  boolean isLazyMembers ()
+  {
+    return m_aCache.isLazyMembers ();
+  }
+
+  /**
+   * Invoked on the first access to the members of a class filled in lazy
+   * members mode. The element is looked up again with the element utilities
+   * of the most recently created adapter, as the class may have been cached
+   * across processing rounds. The caller holds the lazy members lock of the
+   * code model.
+   */
+  void fillMembersLazily (@Nonnull final JDefinedClass aClass,
+                          @Nonnull final String sQualifiedName,
+                          @Nonnull final TypeEnvironment environment)
+  {
+    final Elements aElementUtils = m_aCache.getCurrentElementUtils ();
+    if (aElementUtils != null && aElementUtils != m_aElementUtils)
+    {
+      // Bind to the new round, but keep the error type policy
+      new DecidedErrorTypesModelsAdapter (m_aCodeModel,
+                                          aElementUtils,
+                                          m_aErrorTypePolicy,
+                                          m_aCache).fillMembersLazily (aClass, sQualifiedName, environment);
+      return;
+    }
+
+    final TypeElement element = m_aElementUtils.getTypeElement (sQualifiedName);
+    if (element == null)
+      throw new IllegalStateException ("Failed to convert the members of " +
+                                       sQualifiedName +
+                                       ": the element is no longer available");
+    final int nErrorTypes = m_nErrorTypes;
+    final int nErrorTypeNames = m_aErrorTypeNames.size ();
+    try
+    {
+      new ClassFiller (m_aCodeModel, this, aClass).fillMembers (element, environment);
+    }
+    catch (final CodeModelBuildingException | ErrorTypeFound ex)
+    {
+      throw new IllegalStateException ("Failed to convert the members of " + sQualifiedName, ex);
+    }
+    if (m_nErrorTypes != nErrorTypes)
+    {
+      Element topLevelElement = element;
+      while (!(topLevelElement.getEnclosingElement () instanceof PackageElement))
+        topLevelElement = topLevelElement.getEnclosingElement ();
+      m_aCache.addUnresolved (((TypeElement) topLevelElement).getQualifiedName ().toString (),
+                              m_aErrorTypeNames.subList (nErrorTypeNames, m_aErrorTypeNames.size ()));
+    }
+  }
+
   AbstractJClass ref (final TypeElement element) throws CodeModelBuildingException, ErrorTypeFound
   {
+    final String sQualifiedName = element.getQualifiedName ().toString ();
+    final AbstractJClass aCached = m_aCache.getClass (sQualifiedName);
+    if (aCached != null)
+      return aCached;
+
+    final int nUncacheable = m_nUncacheable;
+    AbstractJClass ret;
     try
     {
-      final Class <?> klass = Class.forName (element.getQualifiedName ().toString ());
-      final AbstractJType declaredClass = m_aCodeModel.ref (klass);
-      return (AbstractJClass) declaredClass;
+      final Class <?> klass = Class.forName (sQualifiedName);
+      ret = m_aCodeModel.ref (klass);
     }
     catch (final ClassNotFoundException ex)
     {
-      return getClass (element);
+      ret = getClass (element);
     }
+    if (m_nUncacheable == nUncacheable)
+      m_aCache.putClass (sQualifiedName, ret);
+    return ret;
   }
 
   AbstractJType toJType (final TypeMirror type, final TypeEnvironment environment) throws CodeModelBuildingException,
                                                                                    ErrorTypeFound
   {
+    final String sTypeKey = JavaxLangModelCache.getTypeKey (type);
+    if (sTypeKey != null)
+    {
+      final AbstractJType aCached = m_aCache.getType (sTypeKey);
+      if (aCached != null)
+        return aCached;
+    }
     try
     {
-      return type.accept (new TypeMirrorToJTypeVisitor (m_aCodeModel, this, m_aErrorTypePolicy, environment), null);
+      final int nUncacheable = m_nUncacheable;
+      final AbstractJType ret = type.accept (new TypeMirrorToJTypeVisitor (m_aCodeModel,
+                                                                           this,
+                                                                           m_aErrorTypePolicy,
+                                                                           environment),
+                                             null);
+      if (sTypeKey != null && m_nUncacheable == nUncacheable)
+        m_aCache.putType (sTypeKey, ret);
+      return ret;
     }
     catch (final RuntimeErrorTypeFound ex)
     {
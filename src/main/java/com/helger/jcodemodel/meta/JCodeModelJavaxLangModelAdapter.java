@@ -51,19 +51,41 @@ public class JCodeModelJavaxLangModelAdapter
 {
   private final JCodeModel m_aCodeModel;
   private final Elements m_aElementUtils;
+  private final JavaxLangModelCache m_aCache;
 
   /**
-   * Creates new instance of JCodeModelJavaxLangModelAdapter.
+   * Creates new instance of JCodeModelJavaxLangModelAdapter. Conversion
+   * results are cached in the cache of the code model.
    *
    * @param codeModel
    *        Base code model. May not be <code>null</code>.
    * @param elementUtils
    *        Program element utility. May not be <code>null</code>.
+   * @see JCodeModel#getJavaxLangModelCache()
    */
   public JCodeModelJavaxLangModelAdapter (@Nonnull final JCodeModel codeModel, @Nonnull final Elements elementUtils)
+  {
+    this (codeModel, elementUtils, codeModel.getJavaxLangModelCache ());
+  }
+
+  /**
+   * Creates new instance of JCodeModelJavaxLangModelAdapter.
+   *
+   * @param codeModel
+   *        Base code model. May not be <code>null</code>.
+   * @param elementUtils
+   *        Program element utility. May not be <code>null</code>.
+   * @param cache
+   *        The cache for conversion results. May not be <code>null</code>.
+   * @since 3.0.4
+   */
+  public JCodeModelJavaxLangModelAdapter (@Nonnull final JCodeModel codeModel,
+                                          @Nonnull final Elements elementUtils,
+                                          @Nonnull final JavaxLangModelCache cache)
   {
     this.m_aCodeModel = codeModel;
     this.m_aElementUtils = elementUtils;
+    this.m_aCache = cache;
   }
 
   /**
@@ -141,7 +163,8 @@ public class JCodeModelJavaxLangModelAdapter
   {
     final DecidedErrorTypesModelsAdapter errorTypeDecision = new DecidedErrorTypesModelsAdapter (m_aCodeModel,
                                                                                                  m_aElementUtils,
-                                                                                                 policy);
+                                                                                                 policy,
+                                                                                                 m_aCache);
     return errorTypeDecision.getClass (element);
   }
 }
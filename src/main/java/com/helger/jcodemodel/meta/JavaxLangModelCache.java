@@ -0,0 +1,294 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.meta;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+
+import com.helger.jcodemodel.AbstractJClass;
+import com.helger.jcodemodel.AbstractJType;
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.JDefinedClass;
+import com.helger.jcodemodel.JNarrowedClass;
+import com.helger.jcodemodel.JTypeWildcard;
+
+/**
+ * Long-lived cache for the conversion of <code>javax.lang.model</code>
+ * elements and type mirrors into jcodemodel types. Each {@link JCodeModel} has
+ * one instance, that is shared by all {@link JCodeModelJavaxLangModelAdapter}
+ * objects working on it, so that types referenced by many elements are only
+ * converted once - also across annotation processing rounds.
+ * <p>
+ * Elements are keyed by their qualified name and type mirrors by their string
+ * representation, because javac may create new element and type objects in
+ * each round. Only type mirrors that don't depend on type variables are
+ * cached. Conversions that encountered error-types are never cached. A class
+ * that was defined containing error-types is converted again as soon as one of
+ * the missing types can be resolved.
+ * <p>
+ * Additionally the conversion settings shared by all adapters are stored
+ * here, see {@link #setLazyMembers(boolean)}.
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+public final class JavaxLangModelCache
+{
+  public static final boolean DEFAULT_LAZY_MEMBERS = false;
+
+  private final Map <String, AbstractJClass> m_aClasses = new ConcurrentHashMap <> ();
+  private final Map <String, AbstractJType> m_aTypes = new ConcurrentHashMap <> ();
+  // Qualified class name to the names of the contained error-types
+  private final Map <String, Set <String>> m_aUnresolvedClasses = new ConcurrentHashMap <> ();
+  private boolean m_bLazyMembers = DEFAULT_LAZY_MEMBERS;
+  // The element utilities of the most recently created adapter
+  private volatile Elements m_aCurrentElementUtils;
+
+  public JavaxLangModelCache ()
+  {}
+
+  /**
+   * @return <code>true</code> if the members of converted classes are only
+   *         converted on first access, <code>false</code> if they are converted
+   *         immediately. Default is {@link #DEFAULT_LAZY_MEMBERS}.
+   */
+  public boolean isLazyMembers ()
+  {
+    return m_bLazyMembers;
+  }
+
+  /**
+   * Enable or disable the lazy conversion of members. In lazy mode, the type
+   * parameters, super types and inner class declarations of a class are
+   * converted immediately. The annotations, methods and the members of inner
+   * classes are only converted when they are accessed for the first time via
+   * {@link com.helger.jcodemodel.JDefinedClass}, so the members must be
+   * accessed within the same compilation. Pending conversions always use the
+   * element utilities of the most recently created adapter, so that the
+   * elements of a previous processing round are not used anymore. Error-types
+   * found in lazily converted members are reported as
+   * {@link IllegalStateException} if the error type policy demands an
+   * exception.
+   *
+   * @param bLazyMembers
+   *        <code>true</code> to convert members on first access.
+   * @return this for chaining
+   */
+  @Nonnull
+  public JavaxLangModelCache setLazyMembers (final boolean bLazyMembers)
+  {
+    m_bLazyMembers = bLazyMembers;
+    return this;
+  }
+
+  /**
+   * Get the cache key of the provided type mirror.
+   *
+   * @param aType
+   *        The type mirror to check. May not be <code>null</code>.
+   * @return <code>null</code> if the type mirror cannot be cached, because it
+   *         contains type variables, error-types or other types whose
+   *         conversion depends on the context.
+   */
+  @Nullable
+  static String getTypeKey (@Nonnull final TypeMirror aType)
+  {
+    return _isContextFree (aType) ? aType.toString () : null;
+  }
+
+  private static boolean _isContextFree (@Nullable final TypeMirror aType)
+  {
+    if (aType == null)
+      return true;
+    if (aType.getKind ().isPrimitive ())
+      return true;
+    switch (aType.getKind ())
+    {
+      case DECLARED:
+        for (final TypeMirror aTypeArg : ((DeclaredType) aType).getTypeArguments ())
+          if (!_isContextFree (aTypeArg))
+            return false;
+        return true;
+      case ARRAY:
+        return _isContextFree (((ArrayType) aType).getComponentType ());
+      case WILDCARD:
+        final WildcardType aWildcard = (WildcardType) aType;
+        return _isContextFree (aWildcard.getExtendsBound ()) && _isContextFree (aWildcard.getSuperBound ());
+      default:
+        // Type variables, error types, void etc.
+        return false;
+    }
+  }
+
+  @Nullable
+  Elements getCurrentElementUtils ()
+  {
+    return m_aCurrentElementUtils;
+  }
+
+  void setCurrentElementUtils (@Nonnull final Elements aElementUtils)
+  {
+    m_aCurrentElementUtils = aElementUtils;
+  }
+
+  @Nullable
+  AbstractJClass getClass (@Nonnull final String sQualifiedName)
+  {
+    return m_aClasses.get (sQualifiedName);
+  }
+
+  void putClass (@Nonnull final String sQualifiedName, @Nonnull final AbstractJClass aClass)
+  {
+    m_aClasses.put (sQualifiedName, aClass);
+  }
+
+  @Nullable
+  AbstractJType getType (@Nonnull final String sTypeKey)
+  {
+    return m_aTypes.get (sTypeKey);
+  }
+
+  void putType (@Nonnull final String sTypeKey, @Nonnull final AbstractJType aType)
+  {
+    m_aTypes.put (sTypeKey, aType);
+  }
+
+  boolean isUnresolved (@Nonnull final String sQualifiedName)
+  {
+    return m_aUnresolvedClasses.containsKey (sQualifiedName);
+  }
+
+  /**
+   * Check if a class that was defined containing error-types should be
+   * converted again.
+   *
+   * @param sQualifiedName
+   *        Qualified name of the class. May not be <code>null</code>.
+   * @param aIsResolvable
+   *        Predicate to check if an error-type name can now be resolved. May
+   *        not be <code>null</code>.
+   * @return <code>true</code> if at least one of the error-types of the class
+   *         can now be resolved.
+   */
+  boolean isResolvable (@Nonnull final String sQualifiedName, @Nonnull final Predicate <String> aIsResolvable)
+  {
+    final Set <String> aErrorTypeNames = m_aUnresolvedClasses.get (sQualifiedName);
+    if (aErrorTypeNames != null)
+      for (final String sErrorTypeName : aErrorTypeNames)
+        if (aIsResolvable.test (sErrorTypeName))
+          return true;
+    return false;
+  }
+
+  void setUnresolved (@Nonnull final String sQualifiedName, @Nonnull final Collection <String> aErrorTypeNames)
+  {
+    final Set <String> aSet = ConcurrentHashMap.newKeySet ();
+    aSet.addAll (aErrorTypeNames);
+    m_aUnresolvedClasses.put (sQualifiedName, aSet);
+  }
+
+  private static boolean _references (@Nonnull final AbstractJType aType,
+                                      @Nonnull final String sQualifiedName,
+                                      @Nonnull final String sInnerPrefix)
+  {
+    if (aType.isArray ())
+      return _references (aType.elementType (), sQualifiedName, sInnerPrefix);
+    if (aType instanceof JTypeWildcard)
+      return _references (((JTypeWildcard) aType).bound (), sQualifiedName, sInnerPrefix);
+    if (aType instanceof JNarrowedClass)
+    {
+      final JNarrowedClass aNarrowed = (JNarrowedClass) aType;
+      if (_references (aNarrowed.basis (), sQualifiedName, sInnerPrefix))
+        return true;
+      for (final AbstractJClass aTypeParam : aNarrowed.getTypeParameters ())
+        if (_references (aTypeParam, sQualifiedName, sInnerPrefix))
+          return true;
+      return false;
+    }
+    if (aType instanceof JDefinedClass)
+    {
+      final String sFullName = aType.fullName ();
+      return sFullName.equals (sQualifiedName) || sFullName.startsWith (sInnerPrefix);
+    }
+    return false;
+  }
+
+  /**
+   * Remember additional error-types of an already converted class, e.g. from
+   * lazily converted members. The class and its inner classes are no longer
+   * returned from the cache, and neither are the cached types using them.
+   */
+  void addUnresolved (@Nonnull final String sQualifiedName, @Nonnull final Collection <String> aErrorTypeNames)
+  {
+    m_aUnresolvedClasses.computeIfAbsent (sQualifiedName, k -> ConcurrentHashMap.newKeySet ())
+                        .addAll (aErrorTypeNames);
+    final String sInnerPrefix = sQualifiedName + ".";
+    m_aClasses.keySet ().removeIf (x -> x.equals (sQualifiedName) || x.startsWith (sInnerPrefix));
+    m_aTypes.values ().removeIf (x -> _references (x, sQualifiedName, sInnerPrefix));
+  }
+
+  void setResolved (@Nonnull final String sQualifiedName)
+  {
+    m_aUnresolvedClasses.remove (sQualifiedName);
+  }
+
+  /**
+   * Remove all cached conversions. Afterwards all elements and type mirrors
+   * are converted again.
+   */
+  public void clear ()
+  {
+    m_aClasses.clear ();
+    m_aTypes.clear ();
+    m_aUnresolvedClasses.clear ();
+  }
+}
@@ -140,12 +140,17 @@ class TypeMirrorToJTypeVisitor extends AbstractTypeVisitor6 <AbstractJType, Void
     try
     {
       final TypeElement element = (TypeElement) t.asElement ();
-      AbstractJClass _class = m_aModelsAdapter.ref (element);
-      for (final TypeMirror typeArgument : t.getTypeArguments ())
+      final AbstractJClass _class = m_aModelsAdapter.ref (element);
+      final List <? extends TypeMirror> typeArguments = t.getTypeArguments ();
+      if (typeArguments.isEmpty ())
+        return _class;
+      // Narrow only once to avoid intermediate narrowed classes
+      final List <AbstractJClass> jArguments = new ArrayList <> (typeArguments.size ());
+      for (final TypeMirror typeArgument : typeArguments)
       {
-        _class = _class.narrow (m_aModelsAdapter.toJType (typeArgument, m_aEnvironment));
+        jArguments.add (m_aModelsAdapter.toJType (typeArgument, m_aEnvironment).boxify ());
       }
-      return _class;
+      return _class.narrow (jArguments);
     }
     catch (final CodeModelBuildingException ex)
     {
@@ -186,6 +191,7 @@ class TypeMirrorToJTypeVisitor extends AbstractTypeVisitor6 <AbstractJType, Void
       }
       return jCodeModelClass.narrow (jArguments);
     }
+    m_aModelsAdapter.onErrorType (fullTypeName);
     if (m_aErrorTypePolicy.action () == ErrorTypePolicy.EAction.CREATE_ERROR_TYPE)
       return m_aCodeModel.errorClass (typeName +
                                     " in annotated source code",
@@ -207,6 +213,7 @@ class TypeMirrorToJTypeVisitor extends AbstractTypeVisitor6 <AbstractJType, Void
     final AbstractJType result = m_aEnvironment.get (typeName);
     if (result != null)
       return result;
+    m_aModelsAdapter.onErrorType (null);
     if (m_aErrorTypePolicy.action () == ErrorTypePolicy.EAction.CREATE_ERROR_TYPE)
       return m_aCodeModel.errorClass ("Missing type-variable " + typeName + " in annotated source code");
     try
@@ -257,6 +264,7 @@ class TypeMirrorToJTypeVisitor extends AbstractTypeVisitor6 <AbstractJType, Void
   @Override
   public AbstractJType visitNoType (final NoType t, final Void p)
   {
+    m_aModelsAdapter.onErrorType (null);
     if (m_aErrorTypePolicy.action () == ErrorTypePolicy.EAction.CREATE_ERROR_TYPE)
       return m_aCodeModel.errorClass ("'no type' in annotated source code");
 
@@ -273,6 +281,7 @@ class TypeMirrorToJTypeVisitor extends AbstractTypeVisitor6 <AbstractJType, Void
   @Override
   public AbstractJType visitUnknown (final TypeMirror t, final Void p)
   {
+    m_aModelsAdapter.onErrorType (null);
     if (m_aErrorTypePolicy.action () == ErrorTypePolicy.EAction.CREATE_ERROR_TYPE)
       return m_aCodeModel.errorClass ("'unknown type' in annotated source code");
 
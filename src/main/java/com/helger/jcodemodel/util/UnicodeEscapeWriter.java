@@ -66,32 +66,142 @@ public class UnicodeEscapeWriter extends FilterWriter
         ESCAPE.set (i, true);
   }
 
+  private static final char [] HEX_DIGITS = "0123456789abcdef".toCharArray ();
+
+  /** Reused buffer for writing a single escape sequence */
+  private final char [] m_aEscapeBuf = { '\\', 'u', '0', '0', '0', '0' };
+
+  /**
+   * A high surrogate at the end of the last write call, whose low surrogate was
+   * not yet written. 0 if there is none.
+   */
+  private char m_cPendingHighSurrogate = 0;
+
+  /** The number of chars written as escape sequence */
+  private long m_nEscapedCharCount = 0;
+
   public UnicodeEscapeWriter (@Nonnull final Writer aNext)
   {
     super (aNext);
   }
 
-  @Override
-  public final void write (final int ch) throws IOException
+  private void _writeEscaped (final char c) throws IOException
+  {
+    m_aEscapeBuf[2] = HEX_DIGITS[(c >> 12) & 0xf];
+    m_aEscapeBuf[3] = HEX_DIGITS[(c >> 8) & 0xf];
+    m_aEscapeBuf[4] = HEX_DIGITS[(c >> 4) & 0xf];
+    m_aEscapeBuf[5] = HEX_DIGITS[c & 0xf];
+    out.write (m_aEscapeBuf, 0, m_aEscapeBuf.length);
+    m_nEscapedCharCount++;
+  }
+
+  /**
+   * @return The number of chars that were written as escape sequence since
+   *         this writer was created.
+   * @since 3.0.4
+   */
+  @Nonnegative
+  public long getEscapedCharCount ()
+  {
+    return m_nEscapedCharCount;
+  }
+
+  private void _writeSurrogatePair (final char cHigh, final char cLow) throws IOException
+  {
+    if (requireEscaping (Character.toCodePoint (cHigh, cLow)))
+    {
+      _writeEscaped (cHigh);
+      _writeEscaped (cLow);
+    }
+    else
+    {
+      out.write (cHigh);
+      out.write (cLow);
+    }
+  }
+
+  /**
+   * Write a surrogate char.
+   *
+   * @param c
+   *        The surrogate char at the current position.
+   * @param bHasNext
+   *        <code>true</code> if there is a next char in the current write call
+   * @param cNext
+   *        The next char. Only valid if bHasNext is <code>true</code>.
+   * @return The number of consumed chars - 1 or 2.
+   */
+  private int _writeSurrogate (final char c, final boolean bHasNext, final char cNext) throws IOException
+  {
+    if (Character.isHighSurrogate (c))
+    {
+      if (!bHasNext)
+      {
+        // Wait for the next write call
+        m_cPendingHighSurrogate = c;
+        return 1;
+      }
+      if (Character.isLowSurrogate (cNext))
+      {
+        _writeSurrogatePair (c, cNext);
+        return 2;
+      }
+    }
+
+    // Lone surrogate - cannot be encoded anyway
+    _writeEscaped (c);
+    return 1;
+  }
+
+  /**
+   * Handle a pending high surrogate from the previous write call.
+   *
+   * @param bHasNext
+   *        <code>true</code> if the current write call has at least one char
+   * @param cNext
+   *        The first char of the current write call. Only valid if bHasNext is
+   *        <code>true</code>.
+   * @return The number of consumed chars of the current write call - 0 or 1.
+   */
+  private int _writePendingHighSurrogate (final boolean bHasNext, final char cNext) throws IOException
   {
-    if (requireEscaping (ch))
+    final char cHigh = m_cPendingHighSurrogate;
+    if (cHigh == 0 || !bHasNext)
+      return 0;
+
+    m_cPendingHighSurrogate = 0;
+    if (Character.isLowSurrogate (cNext))
     {
-      // need to escape
-      out.write ("\\u");
-      final String s = Integer.toHexString (ch);
-      for (int i = s.length (); i < 4; i++)
-        out.write ('0');
-      out.write (s);
+      _writeSurrogatePair (cHigh, cNext);
+      return 1;
     }
+    _writeEscaped (cHigh);
+    return 0;
+  }
+
+  @Override
+  public final void write (final int ch) throws IOException
+  {
+    final char c = (char) ch;
+    if (_writePendingHighSurrogate (true, c) > 0)
+      return;
+
+    if (Character.isSurrogate (c))
+      _writeSurrogate (c, false, c);
     else
-      out.write (ch);
+      if (requireEscaping (c))
+        _writeEscaped (c);
+      else
+        out.write (c);
   }
 
   /**
    * Can be overridden.
    *
    * @param ch
-   *        Character to check
+   *        Character to check. For surrogate pairs this is the Unicode code
+   *        point of the whole pair. Lone surrogates are always escaped and
+   *        never passed to this method.
    * @return true if the character needs to be escaped.
    */
   protected boolean requireEscaping (final int ch)
@@ -105,8 +215,35 @@ public class UnicodeEscapeWriter extends FilterWriter
                            @Nonnegative final int nOfs,
                            @Nonnegative final int nLen) throws IOException
   {
-    for (int i = 0; i < nLen; i++)
-      write (aBuf[nOfs + i]);
+    final int nEnd = nOfs + nLen;
+    int i = nOfs + _writePendingHighSurrogate (nLen > 0, nLen > 0 ? aBuf[nOfs] : 0);
+
+    // Forward all chars that need no escaping in one call
+    int nRunStart = i;
+    while (i < nEnd)
+    {
+      final char c = aBuf[i];
+      if (Character.isSurrogate (c))
+      {
+        if (i > nRunStart)
+          out.write (aBuf, nRunStart, i - nRunStart);
+        final boolean bHasNext = i + 1 < nEnd;
+        i += _writeSurrogate (c, bHasNext, bHasNext ? aBuf[i + 1] : 0);
+        nRunStart = i;
+      }
+      else
+        if (requireEscaping (c))
+        {
+          if (i > nRunStart)
+            out.write (aBuf, nRunStart, i - nRunStart);
+          _writeEscaped (c);
+          nRunStart = ++i;
+        }
+        else
+          ++i;
+    }
+    if (nEnd > nRunStart)
+      out.write (aBuf, nRunStart, nEnd - nRunStart);
   }
 
   @Override
@@ -120,12 +257,68 @@ public class UnicodeEscapeWriter extends FilterWriter
                            @Nonnegative final int nOfs,
                            @Nonnegative final int nLen) throws IOException
   {
-    write (sStr.toCharArray (), nOfs, nLen);
+    final int nEnd = nOfs + nLen;
+    int i = nOfs + _writePendingHighSurrogate (nLen > 0, nLen > 0 ? sStr.charAt (nOfs) : 0);
+
+    // Forward all chars that need no escaping in one call
+    int nRunStart = i;
+    while (i < nEnd)
+    {
+      final char c = sStr.charAt (i);
+      if (Character.isSurrogate (c))
+      {
+        if (i > nRunStart)
+          out.write (sStr, nRunStart, i - nRunStart);
+        final boolean bHasNext = i + 1 < nEnd;
+        i += _writeSurrogate (c, bHasNext, bHasNext ? sStr.charAt (i + 1) : 0);
+        nRunStart = i;
+      }
+      else
+        if (requireEscaping (c))
+        {
+          if (i > nRunStart)
+            out.write (sStr, nRunStart, i - nRunStart);
+          _writeEscaped (c);
+          nRunStart = ++i;
+        }
+        else
+          ++i;
+    }
+    if (nEnd > nRunStart)
+      out.write (sStr, nRunStart, nEnd - nRunStart);
   }
 
   @Override
   public final void write (@Nonnull final String sStr) throws IOException
   {
-    write (sStr.toCharArray (), 0, sStr.length ());
+    write (sStr, 0, sStr.length ());
+  }
+
+  private void _flushPendingHighSurrogate () throws IOException
+  {
+    if (m_cPendingHighSurrogate != 0)
+    {
+      // No low surrogate followed
+      _writeEscaped (m_cPendingHighSurrogate);
+      m_cPendingHighSurrogate = 0;
+    }
+  }
+
+  /**
+   * Flushes the underlying writer. A pending high surrogate is kept, as the
+   * matching low surrogate may still follow. It is only written on
+   * {@link #close()}.
+   */
+  @Override
+  public void flush () throws IOException
+  {
+    super.flush ();
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    _flushPendingHighSurrogate ();
+    super.close ();
   }
 }
@@ -40,14 +40,18 @@
  */
 package com.helger.jcodemodel.writer;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
-import java.util.HashSet;
+import java.nio.file.Files;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -63,6 +67,10 @@ public class FileCodeWriter extends AbstractCodeWriter
 {
   public static final boolean DEFAULT_MARK_READ_ONLY = false;
   public static final Charset DEFAULT_CHARSET = null;
+  /** @since 3.0.4 */
+  public static final boolean DEFAULT_INCREMENTAL = false;
+  /** @since 3.0.4 */
+  public static final boolean DEFAULT_DELETE_STALE_FILES = false;
 
   /** The target directory to put source code. */
   private final File m_aTargetDir;
@@ -70,8 +78,33 @@ public class FileCodeWriter extends AbstractCodeWriter
   /** specify whether or not to mark the generated files read-only */
   private final boolean m_bMarkReadOnly;
 
-  /** Files that shall be marked as read only. */
-  private final Set <File> m_aReadOnlyFiles = new HashSet <> ();
+  /**
+   * Files that shall be marked as read only. Concurrent because files may be
+   * opened from multiple threads in a parallel build.
+   */
+  private final Set <File> m_aReadOnlyFiles = ConcurrentHashMap.newKeySet ();
+
+  /** Only write files whose content changed */
+  private boolean m_bIncremental = DEFAULT_INCREMENTAL;
+
+  /**
+   * Delete all files in the target directory that were not produced but have
+   * an extension of a produced file
+   */
+  private boolean m_bDeleteStaleFiles = DEFAULT_DELETE_STALE_FILES;
+
+  /** All files produced by this writer - only filled in incremental mode */
+  private final Set <File> m_aProducedFiles = ConcurrentHashMap.newKeySet ();
+
+  /**
+   * The extensions (including the dot) of all files produced by this writer -
+   * only filled in incremental mode
+   */
+  private final Set <String> m_aProducedExtensions = ConcurrentHashMap.newKeySet ();
+
+  private final AtomicInteger m_aWrittenFiles = new AtomicInteger ();
+  private final AtomicInteger m_aSkippedFiles = new AtomicInteger ();
+  private final AtomicInteger m_aDeletedFiles = new AtomicInteger ();
 
   public FileCodeWriter (@Nonnull final File aTargetDir) throws IOException
   {
@@ -114,13 +147,190 @@ public class FileCodeWriter extends AbstractCodeWriter
       throw new IOException (aTargetDir + ": non-existent directory");
   }
 
+  /**
+   * @return <code>true</code> if only files with a changed content are
+   *         written, <code>false</code> if all files are always written.
+   *         Default is {@link #DEFAULT_INCREMENTAL}.
+   * @since 3.0.4
+   */
+  public boolean isIncremental ()
+  {
+    return m_bIncremental;
+  }
+
+  /**
+   * Enable or disable the incremental mode. In incremental mode each file is
+   * created in memory first and only written to disk, if the content differs
+   * from an already existing file. That keeps the modification time of
+   * unchanged files, so that downstream tools don't need to reprocess them.
+   *
+   * @param bIncremental
+   *        <code>true</code> to enable the incremental mode
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public FileCodeWriter setIncremental (final boolean bIncremental)
+  {
+    m_bIncremental = bIncremental;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if files in the target directory that were not
+   *         produced are deleted on {@link #close()}. Default is
+   *         {@link #DEFAULT_DELETE_STALE_FILES}.
+   * @since 3.0.4
+   */
+  public boolean isDeleteStaleFiles ()
+  {
+    return m_bDeleteStaleFiles;
+  }
+
+  /**
+   * Enable or disable the deletion of stale files. This is only evaluated in
+   * incremental mode. If enabled, all files in the target directory
+   * (recursively) that were not produced by this writer, but have the same
+   * extension as a file produced by this writer (e.g. <code>.java</code>), are
+   * deleted upon {@link #close()}. Files without an extension are never
+   * deleted. Directories that become empty by the deletion are deleted as well.
+   * So a source and a resource writer may share the same target directory, as
+   * long as they produce files with different extensions, but the target
+   * directory should not contain manually maintained files with the same
+   * extensions.
+   *
+   * @param bDeleteStaleFiles
+   *        <code>true</code> to delete stale files
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public FileCodeWriter setDeleteStaleFiles (final boolean bDeleteStaleFiles)
+  {
+    m_bDeleteStaleFiles = bDeleteStaleFiles;
+    return this;
+  }
+
+  /**
+   * @return The number of files that were written to disk.
+   * @since 3.0.4
+   */
+  @Nonnegative
+  public int getWrittenFileCount ()
+  {
+    return m_aWrittenFiles.get ();
+  }
+
+  /**
+   * @return The number of files that were not written because the content did
+   *         not change. Always 0 if not in incremental mode.
+   * @since 3.0.4
+   */
+  @Nonnegative
+  public int getSkippedFileCount ()
+  {
+    return m_aSkippedFiles.get ();
+  }
+
+  /**
+   * @return The number of stale files that were deleted. Always 0 if stale
+   *         files are not deleted.
+   * @since 3.0.4
+   */
+  @Nonnegative
+  public int getDeletedFileCount ()
+  {
+    return m_aDeletedFiles.get ();
+  }
+
   @Override
   @Nonnull
   public OutputStream openBinary (@Nonnull final JPackage pkg, @Nonnull final String fileName) throws IOException
   {
-    return new FileOutputStream (getFile (pkg, fileName));
+    final File fn = getFile (pkg, fileName);
+    if (!m_bIncremental)
+    {
+      _deletePreviousVersion (fn);
+      m_aWrittenFiles.incrementAndGet ();
+      return new FileOutputStream (fn);
+    }
+
+    m_aProducedFiles.add (fn);
+    final String sExt = _getExtension (fileName);
+    if (sExt != null)
+      m_aProducedExtensions.add (sExt);
+
+    // Collect everything in memory and compare upon close
+    return new ByteArrayOutputStream ()
+    {
+      @Override
+      public void close () throws IOException
+      {
+        super.close ();
+        _writeIfChanged (fn, buf, count);
+      }
+    };
+  }
+
+  private void _writeIfChanged (@Nonnull final File aFile,
+                                @Nonnull final byte [] aBytes,
+                                @Nonnegative final int nLength) throws IOException
+  {
+    if (aFile.isFile () && aFile.length () == nLength)
+    {
+      // Same length - compare content
+      final byte [] aExisting = Files.readAllBytes (aFile.toPath ());
+      if (_isSameContent (aBytes, nLength, aExisting))
+      {
+        m_aSkippedFiles.incrementAndGet ();
+        return;
+      }
+    }
+
+    _deletePreviousVersion (aFile);
+    try (final OutputStream aOS = new FileOutputStream (aFile))
+    {
+      aOS.write (aBytes, 0, nLength);
+    }
+    m_aWrittenFiles.incrementAndGet ();
+  }
+
+  private static boolean _isSameContent (@Nonnull final byte [] aBytes,
+                                        @Nonnegative final int nLength,
+                                        @Nonnull final byte [] aExisting)
+  {
+    if (aExisting.length != nLength)
+      return false;
+    for (int i = 0; i < nLength; ++i)
+      if (aBytes[i] != aExisting[i])
+        return false;
+    return true;
+  }
+
+  @Nonnull
+  private static void _deletePreviousVersion (@Nonnull final File aFile) throws IOException
+  {
+    if (aFile.exists ())
+    {
+      if (!aFile.delete ())
+        throw new IOException (aFile + ": Can't delete previous version");
+    }
   }
 
+  /**
+   * Get the target file for the passed package and file name. The parent
+   * directory is created if necessary. An existing previous version of the
+   * file is not deleted by this method. This method is used in incremental and
+   * non-incremental mode.
+   *
+   * @param pkg
+   *        The package of the file. May not be <code>null</code>.
+   * @param fileName
+   *        The local file name. May not be <code>null</code>.
+   * @return The file to write to. Never <code>null</code>.
+   * @throws IOException
+   *         In case of an error
+   */
   @Nonnull
   protected File getFile (@Nonnull final JPackage pkg, @Nonnull final String fileName) throws IOException
   {
@@ -134,20 +344,82 @@ public class FileCodeWriter extends AbstractCodeWriter
       dir.mkdirs ();
 
     final File fn = new File (dir, fileName);
-    if (fn.exists ())
-    {
-      if (!fn.delete ())
-        throw new IOException (fn + ": Can't delete previous version");
-    }
-
     if (m_bMarkReadOnly)
       m_aReadOnlyFiles.add (fn);
     return fn;
   }
 
+  /**
+   * @param sFilename
+   *        File name
+   * @return The extension including the dot or <code>null</code> if the file
+   *         name has no extension.
+   */
+  @Nullable
+  private static String _getExtension (@Nonnull final String sFilename)
+  {
+    final int nIdx = sFilename.lastIndexOf ('.');
+    return nIdx <= 0 ? null : sFilename.substring (nIdx);
+  }
+
+  /**
+   * Delete all stale files in the passed directory recursively.
+   *
+   * @param aDir
+   *        Directory to scan
+   * @return <code>true</code> if at least one file was deleted
+   */
+  private boolean _deleteStaleFiles (@Nonnull final File aDir)
+  {
+    boolean bDeleted = false;
+    final File [] aChildren = aDir.listFiles ();
+    if (aChildren != null)
+      for (final File aChild : aChildren)
+      {
+        if (aChild.isDirectory ())
+        {
+          if (_deleteStaleFiles (aChild))
+          {
+            bDeleted = true;
+            // Remove directories that were emptied by the deletion
+            final String [] aRest = aChild.list ();
+            if (aRest != null && aRest.length == 0)
+              aChild.delete ();
+          }
+        }
+        else
+        {
+          final String sExt = _getExtension (aChild.getName ());
+          if (sExt != null &&
+              m_aProducedExtensions.contains (sExt) &&
+              !m_aProducedFiles.contains (aChild) &&
+              aChild.delete ())
+          {
+            m_aDeletedFiles.incrementAndGet ();
+            bDeleted = true;
+          }
+        }
+      }
+    return bDeleted;
+  }
+
+  /**
+   * Each file is handled independently, so this class is thread-safe.
+   * Subclasses may use the protected hooks statefully and are therefore not
+   * thread-safe unless they opt in by overriding this method.
+   */
+  @Override
+  public boolean isThreadSafe ()
+  {
+    return getClass () == FileCodeWriter.class;
+  }
+
   @Override
   public void close () throws IOException
   {
+    if (m_bIncremental && m_bDeleteStaleFiles)
+      _deleteStaleFiles (m_aTargetDir);
+
     // mark files as read-only if necessary
     for (final File f : m_aReadOnlyFiles)
       f.setReadOnly ();
@@ -83,6 +83,17 @@ public class FilterCodeWriter extends AbstractCodeWriter
     return m_aCore.openSource (pkg, fileName);
   }
 
+  /**
+   * Always <code>false</code>, because a filter may not be stateless even if
+   * the core writer is thread-safe. Stateless subclasses need to opt in
+   * explicitly by overriding this method.
+   */
+  @Override
+  public boolean isThreadSafe ()
+  {
+    return false;
+  }
+
   @Override
   public void close () throws IOException
   {
@@ -0,0 +1,315 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.writer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+import com.helger.jcodemodel.AbstractCodeWriter;
+import com.helger.jcodemodel.JPackage;
+import com.helger.jcodemodel.util.JCValueEnforcer;
+
+/**
+ * Keeps all generated files in memory. Each file is stored as a byte array,
+ * keyed by its path relative to the output root (e.g.
+ * <code>com/example/Foo.java</code>). The stored files remain available after
+ * the build closed this writer and can e.g. be passed directly to a
+ * {@link javax.tools.JavaCompiler} using {@link #getAllJavaSourceFileObjects()}.
+ * This writer is thread-safe.
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+public class MemoryCodeWriter extends AbstractCodeWriter
+{
+  /** URI scheme used for the created {@link JavaFileObject}s */
+  public static final String URI_SCHEME = "memory";
+
+  /**
+   * A single file kept in memory, exposed for the Java compiler API.
+   */
+  private static final class MemoryJavaFileObject extends SimpleJavaFileObject
+  {
+    private final byte [] m_aBytes;
+    private final Charset m_aCharset;
+
+    MemoryJavaFileObject (@Nonnull final String sPath,
+                          @Nonnull final byte [] aBytes,
+                          @Nonnull final Charset aCharset)
+    {
+      super (_getURI (sPath), _getKind (sPath));
+      m_aBytes = aBytes;
+      m_aCharset = aCharset;
+    }
+
+    @Override
+    public InputStream openInputStream ()
+    {
+      return new ByteArrayInputStream (m_aBytes);
+    }
+
+    @Override
+    public CharSequence getCharContent (final boolean bIgnoreEncodingErrors)
+    {
+      return new String (m_aBytes, m_aCharset);
+    }
+  }
+
+  private final Map <String, byte []> m_aFiles = new ConcurrentSkipListMap <> ();
+
+  /**
+   * Constructor using the platform default encoding and new line string.
+   */
+  public MemoryCodeWriter ()
+  {
+    this (null, getDefaultNewLine ());
+  }
+
+  /**
+   * @param aEncoding
+   *        Encoding to be used. May be <code>null</code> to use the platform
+   *        default encoding.
+   * @param sNewLine
+   *        The new line string to be used for source files
+   */
+  public MemoryCodeWriter (@Nullable final Charset aEncoding, @Nonnull final String sNewLine)
+  {
+    super (aEncoding, sNewLine);
+  }
+
+  @Nonnull
+  private static URI _getURI (@Nonnull final String sPath)
+  {
+    try
+    {
+      // Quotes illegal characters
+      return new URI (URI_SCHEME, null, "/" + sPath, null);
+    }
+    catch (final URISyntaxException ex)
+    {
+      throw new IllegalArgumentException ("Invalid path '" + sPath + "'", ex);
+    }
+  }
+
+  @Nonnull
+  private static JavaFileObject.Kind _getKind (@Nonnull final String sPath)
+  {
+    for (final JavaFileObject.Kind eKind : JavaFileObject.Kind.values ())
+      if (eKind != JavaFileObject.Kind.OTHER && sPath.endsWith (eKind.extension))
+        return eKind;
+    return JavaFileObject.Kind.OTHER;
+  }
+
+  @Nonnull
+  private static String _getPath (@Nonnull final JPackage aPkg, @Nonnull final String sFilename)
+  {
+    if (aPkg.isUnnamed ())
+      return sFilename;
+    return aPkg.name ().replace ('.', '/') + '/' + sFilename;
+  }
+
+  @Nonnull
+  private Charset _getCharset ()
+  {
+    final Charset ret = encoding ();
+    return ret != null ? ret : Charset.defaultCharset ();
+  }
+
+  @Override
+  public OutputStream openBinary (@Nonnull final JPackage aPkg, @Nonnull final String sFilename)
+  {
+    final String sPath = _getPath (aPkg, sFilename);
+    return new ByteArrayOutputStream ()
+    {
+      private boolean m_bClosed = false;
+
+      @Override
+      public void close ()
+      {
+        if (!m_bClosed)
+        {
+          m_bClosed = true;
+          m_aFiles.put (sPath, toByteArray ());
+        }
+      }
+    };
+  }
+
+  /**
+   * This class is thread-safe. Subclasses are not thread-safe unless they opt
+   * in by overriding this method.
+   */
+  @Override
+  public boolean isThreadSafe ()
+  {
+    return getClass () == MemoryCodeWriter.class;
+  }
+
+  @Override
+  public void close ()
+  {
+    // Keep all files
+  }
+
+  /**
+   * @return All paths of the written files in alphabetical order. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public List <String> getAllPaths ()
+  {
+    return new ArrayList <> (m_aFiles.keySet ());
+  }
+
+  /**
+   * @return An unmodifiable view on all written files, keyed by their path in
+   *         alphabetical order. The returned byte arrays must not be modified.
+   */
+  @Nonnull
+  public Map <String, byte []> getAllFiles ()
+  {
+    return Collections.unmodifiableMap (m_aFiles);
+  }
+
+  /**
+   * Get the content of a single file.
+   *
+   * @param sPath
+   *        The path of the file relative to the output root, with '/' as the
+   *        separator. E.g. <code>com/example/Foo.java</code>.
+   * @return <code>null</code> if no such file was written. The returned byte
+   *         array must not be modified.
+   */
+  @Nullable
+  public byte [] getBytes (@Nullable final String sPath)
+  {
+    return sPath == null ? null : m_aFiles.get (sPath);
+  }
+
+  /**
+   * Get the content of a single file.
+   *
+   * @param aPkg
+   *        The package of the file. May not be <code>null</code>.
+   * @param sFilename
+   *        The file name without the path. May not be <code>null</code>.
+   * @return <code>null</code> if no such file was written. The returned byte
+   *         array must not be modified.
+   */
+  @Nullable
+  public byte [] getBytes (@Nonnull final JPackage aPkg, @Nonnull final String sFilename)
+  {
+    JCValueEnforcer.notNull (aPkg, "Package");
+    JCValueEnforcer.notNull (sFilename, "Filename");
+    return m_aFiles.get (_getPath (aPkg, sFilename));
+  }
+
+  /**
+   * Get the content of a single file as text, decoded with the encoding of
+   * this writer.
+   *
+   * @param sPath
+   *        The path of the file relative to the output root, with '/' as the
+   *        separator. E.g. <code>com/example/Foo.java</code>.
+   * @return <code>null</code> if no such file was written.
+   */
+  @Nullable
+  public String getString (@Nullable final String sPath)
+  {
+    final byte [] aBytes = getBytes (sPath);
+    return aBytes == null ? null : new String (aBytes, _getCharset ());
+  }
+
+  /**
+   * @return All written files as {@link JavaFileObject}s in alphabetical order
+   *         of their path. The kind of each object is determined by its file
+   *         extension. Never <code>null</code>.
+   */
+  @Nonnull
+  public List <JavaFileObject> getAllJavaFileObjects ()
+  {
+    final Charset aCharset = _getCharset ();
+    final List <JavaFileObject> ret = new ArrayList <> (m_aFiles.size ());
+    for (final Map.Entry <String, byte []> aEntry : m_aFiles.entrySet ())
+      ret.add (new MemoryJavaFileObject (aEntry.getKey (), aEntry.getValue (), aCharset));
+    return ret;
+  }
+
+  /**
+   * @return All written <code>.java</code> files as {@link JavaFileObject}s of
+   *         kind {@link JavaFileObject.Kind#SOURCE} in alphabetical order of
+   *         their path. The result can be passed as compilation units to
+   *         {@link javax.tools.JavaCompiler#getTask}. Never <code>null</code>.
+   */
+  @Nonnull
+  public List <JavaFileObject> getAllJavaSourceFileObjects ()
+  {
+    final Charset aCharset = _getCharset ();
+    final List <JavaFileObject> ret = new ArrayList <> ();
+    for (final Map.Entry <String, byte []> aEntry : m_aFiles.entrySet ())
+      if (aEntry.getKey ().endsWith (JavaFileObject.Kind.SOURCE.extension))
+        ret.add (new MemoryJavaFileObject (aEntry.getKey (), aEntry.getValue (), aCharset));
+    return ret;
+  }
+
+  /**
+   * Remove all files from this writer.
+   */
+  public void clear ()
+  {
+    m_aFiles.clear ();
+  }
+}
@@ -0,0 +1,358 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.jcodemodel.AbstractCodeWriter;
+import com.helger.jcodemodel.IJChannelOutputStream;
+import com.helger.jcodemodel.JPackage;
+import com.helger.jcodemodel.util.JCValueEnforcer;
+
+/**
+ * Writes all the source files under the specified directory, using NIO
+ * {@link FileChannel}s and pooled direct {@link ByteBuffer}s. Compared to
+ * {@link FileCodeWriter} this writer performs fewer file system operations:
+ * each package directory is created only once, and on POSIX file systems
+ * read-only files are created with read-only permissions right away instead of
+ * changing them afterwards.
+ *
+ * @author Philip Helger
+ * @since 3.0.4
+ */
+public class PathCodeWriter extends AbstractCodeWriter
+{
+  public static final boolean DEFAULT_MARK_READ_ONLY = false;
+  public static final Charset DEFAULT_CHARSET = null;
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private static final Set <PosixFilePermission> READ_ONLY_PERMISSIONS = EnumSet.of (PosixFilePermission.OWNER_READ,
+                                                                                    PosixFilePermission.GROUP_READ,
+                                                                                    PosixFilePermission.OTHERS_READ);
+
+  private final class ChannelOutputStream extends OutputStream implements IJChannelOutputStream
+  {
+    private final FileChannel m_aChannel;
+    private ByteBuffer m_aBuffer;
+
+    ChannelOutputStream (@Nonnull final FileChannel aChannel)
+    {
+      m_aChannel = aChannel;
+      m_aBuffer = _acquireBuffer ();
+    }
+
+    private void _flushBuffer () throws IOException
+    {
+      m_aBuffer.flip ();
+      while (m_aBuffer.hasRemaining ())
+        m_aChannel.write (m_aBuffer);
+      m_aBuffer.clear ();
+    }
+
+    private void _ensureOpen () throws IOException
+    {
+      if (m_aBuffer == null)
+        throw new IOException ("Stream closed");
+    }
+
+    @Override
+    public void write (final int b) throws IOException
+    {
+      _ensureOpen ();
+      if (!m_aBuffer.hasRemaining ())
+        _flushBuffer ();
+      m_aBuffer.put ((byte) b);
+    }
+
+    @Override
+    public void write (@Nonnull final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+    {
+      _ensureOpen ();
+      int nPos = nOfs;
+      final int nEnd = nOfs + nLen;
+      while (nPos < nEnd)
+      {
+        if (!m_aBuffer.hasRemaining ())
+          _flushBuffer ();
+        final int nCount = Math.min (m_aBuffer.remaining (), nEnd - nPos);
+        m_aBuffer.put (aBuf, nPos, nCount);
+        nPos += nCount;
+      }
+    }
+
+    @Override
+    @Nonnull
+    public WritableByteChannel getChannel () throws IOException
+    {
+      _ensureOpen ();
+      _flushBuffer ();
+      return m_aChannel;
+    }
+
+    @Override
+    public void close () throws IOException
+    {
+      if (m_aBuffer == null)
+        return;
+
+      try
+      {
+        _flushBuffer ();
+      }
+      finally
+      {
+        _releaseBuffer (m_aBuffer);
+        m_aBuffer = null;
+        m_aChannel.close ();
+      }
+    }
+  }
+
+  /** The target directory to put source code. */
+  private final Path m_aTargetDir;
+
+  /** specify whether or not to mark the generated files read-only */
+  private final boolean m_bMarkReadOnly;
+
+  /** <code>true</code> if POSIX file permissions are supported */
+  private final boolean m_bPosix;
+
+  /** The size of the direct write buffer per open file */
+  private int m_nBufferSize = DEFAULT_BUFFER_SIZE;
+
+  /** All package directories created so far, keyed by package name */
+  private final Map <String, Path> m_aPackageDirs = new ConcurrentHashMap <> ();
+
+  /** The write buffers not currently in use */
+  private final Queue <ByteBuffer> m_aBufferPool = new ConcurrentLinkedQueue <> ();
+
+  /**
+   * Files that shall be marked as read only on close. Only used if POSIX file
+   * permissions are not supported.
+   */
+  private final Set <Path> m_aReadOnlyFiles = ConcurrentHashMap.newKeySet ();
+
+  public PathCodeWriter (@Nonnull final Path aTargetDir) throws IOException
+  {
+    this (aTargetDir, DEFAULT_MARK_READ_ONLY, DEFAULT_CHARSET, getDefaultNewLine ());
+  }
+
+  public PathCodeWriter (@Nonnull final Path aTargetDir, @Nullable final Charset aEncoding) throws IOException
+  {
+    this (aTargetDir, DEFAULT_MARK_READ_ONLY, aEncoding, getDefaultNewLine ());
+  }
+
+  public PathCodeWriter (@Nonnull final Path aTargetDir,
+                         final boolean bMarkReadOnly,
+                         @Nullable final Charset aEncoding) throws IOException
+  {
+    this (aTargetDir, bMarkReadOnly, aEncoding, getDefaultNewLine ());
+  }
+
+  public PathCodeWriter (@Nonnull final Path aTargetDir,
+                         final boolean bMarkReadOnly,
+                         @Nullable final Charset aEncoding,
+                         @Nonnull final String sNewLine) throws IOException
+  {
+    super (aEncoding, sNewLine);
+    JCValueEnforcer.notNull (aTargetDir, "TargetDir");
+    if (!Files.isDirectory (aTargetDir))
+      throw new IOException (aTargetDir + ": non-existent directory");
+    m_aTargetDir = aTargetDir;
+    m_bMarkReadOnly = bMarkReadOnly;
+    m_bPosix = aTargetDir.getFileSystem ().supportedFileAttributeViews ().contains ("posix");
+  }
+
+  /**
+   * @return The size of the direct write buffer used for each open file in
+   *         bytes. Default is {@link #DEFAULT_BUFFER_SIZE}.
+   */
+  @Nonnegative
+  public int getBufferSize ()
+  {
+    return m_nBufferSize;
+  }
+
+  /**
+   * Set the size of the direct write buffer used for each open file. Files
+   * smaller than the buffer are written with a single system call. Must be set
+   * before the first file is opened.
+   *
+   * @param nBufferSize
+   *        The buffer size in bytes. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @Nonnull
+  public PathCodeWriter setBufferSize (@Nonnegative final int nBufferSize)
+  {
+    JCValueEnforcer.isGT0 (nBufferSize, "BufferSize");
+    m_nBufferSize = nBufferSize;
+    return this;
+  }
+
+  @Nonnull
+  private ByteBuffer _acquireBuffer ()
+  {
+    final ByteBuffer ret = m_aBufferPool.poll ();
+    if (ret != null && ret.capacity () == m_nBufferSize)
+      return ret;
+    return ByteBuffer.allocateDirect (m_nBufferSize);
+  }
+
+  private void _releaseBuffer (@Nonnull final ByteBuffer aBuffer)
+  {
+    aBuffer.clear ();
+    m_aBufferPool.offer (aBuffer);
+  }
+
+  @Nonnull
+  private Path _getPackageDir (@Nonnull final JPackage aPkg) throws IOException
+  {
+    if (aPkg.isUnnamed ())
+      return m_aTargetDir;
+
+    try
+    {
+      return m_aPackageDirs.computeIfAbsent (aPkg.name (), sName -> {
+        try
+        {
+          final String sSeparator = m_aTargetDir.getFileSystem ().getSeparator ();
+          return Files.createDirectories (m_aTargetDir.resolve (sName.replace (".", sSeparator)));
+        }
+        catch (final IOException ex)
+        {
+          throw new UncheckedIOException (ex);
+        }
+      });
+    }
+    catch (final UncheckedIOException ex)
+    {
+      throw ex.getCause ();
+    }
+  }
+
+  @Nonnull
+  private FileChannel _openReadOnlyFile (@Nonnull final Path aFile) throws IOException
+  {
+    final FileAttribute <Set <PosixFilePermission>> aAttr = PosixFilePermissions.asFileAttribute (READ_ONLY_PERMISSIONS);
+    try
+    {
+      // The permissions only apply to later opens - the returned channel is
+      // writable
+      return FileChannel.open (aFile, EnumSet.of (StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), aAttr);
+    }
+    catch (final FileAlreadyExistsException ex)
+    {
+      // Previous version - might be read-only as well
+      Files.delete (aFile);
+      return FileChannel.open (aFile, EnumSet.of (StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), aAttr);
+    }
+  }
+
+  @Override
+  @Nonnull
+  public OutputStream openBinary (@Nonnull final JPackage aPkg, @Nonnull final String sFilename) throws IOException
+  {
+    final Path aFile = _getPackageDir (aPkg).resolve (sFilename);
+
+    FileChannel aChannel;
+    if (m_bMarkReadOnly && m_bPosix)
+      aChannel = _openReadOnlyFile (aFile);
+    else
+    {
+      if (m_bMarkReadOnly)
+      {
+        // Previous version might be read-only
+        Files.deleteIfExists (aFile);
+        m_aReadOnlyFiles.add (aFile);
+      }
+      aChannel = FileChannel.open (aFile,
+                                   StandardOpenOption.CREATE,
+                                   StandardOpenOption.TRUNCATE_EXISTING,
+                                   StandardOpenOption.WRITE);
+    }
+    return new ChannelOutputStream (aChannel);
+  }
+
+  /**
+   * Each file is handled independently, so this class is thread-safe.
+   * Subclasses are not thread-safe unless they opt in by overriding this
+   * method.
+   */
+  @Override
+  public boolean isThreadSafe ()
+  {
+    return getClass () == PathCodeWriter.class;
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    // mark files as read-only if necessary
+    for (final Path aFile : m_aReadOnlyFiles)
+      aFile.toFile ().setReadOnly ();
+    m_aReadOnlyFiles.clear ();
+    m_aBufferPool.clear ();
+  }
+}
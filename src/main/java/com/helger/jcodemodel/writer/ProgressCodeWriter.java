@@ -83,6 +83,16 @@ public class ProgressCodeWriter extends FilterCodeWriter
     return super.openSource (pkg, fileName);
   }
 
+  /**
+   * Always <code>false</code>, so that the progress is reported in a
+   * deterministic order from a single thread.
+   */
+  @Override
+  public boolean isThreadSafe ()
+  {
+    return false;
+  }
+
   private void _report (@Nonnull final JPackage pkg, @Nonnull final String fileName)
   {
     if (pkg.isUnnamed ())
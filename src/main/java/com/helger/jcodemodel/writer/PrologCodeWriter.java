@@ -99,4 +99,14 @@ public class PrologCodeWriter extends FilterCodeWriter
 
     return w;
   }
+
+  /**
+   * Thread-safe if the core writer is thread-safe, because the prolog is
+   * immutable. Subclasses are not thread-safe unless they opt in.
+   */
+  @Override
+  public boolean isThreadSafe ()
+  {
+    return getClass () == PrologCodeWriter.class && core ().isThreadSafe ();
+  }
 }
@@ -40,26 +40,166 @@
  */
 package com.helger.jcodemodel.writer;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipOutputStream;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import com.helger.jcodemodel.AbstractCodeWriter;
 import com.helger.jcodemodel.JPackage;
+import com.helger.jcodemodel.util.JCValueEnforcer;
 
 /**
  * Writes all the files into a zip file.
+ * <p>
+ * By default all files are compressed on the calling thread and written in the
+ * order they are passed in. In parallel mode (see {@link #setParallel(boolean)})
+ * each file is compressed into memory by the thread that writes it, and all
+ * files are written to the archive sorted by name when the writer is closed.
+ * Together with a fixed entry time (see {@link #setEntryTime(long)}) this
+ * creates reproducible archives.
  *
  * @author Kohsuke Kawaguchi (kohsuke.kawaguchi@sun.com)
  */
 public class ZipCodeWriter extends AbstractCodeWriter
 {
-  private final ZipOutputStream m_aZOS;
-  private final OutputStream m_aFOS;
+  /** Default entry time: the time the file is opened */
+  public static final long DEFAULT_ENTRY_TIME = -1;
+  /** Default size up to which files are stored uncompressed in parallel mode */
+  public static final int DEFAULT_STORED_THRESHOLD = 0;
+
+  // Zip format constants
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_HEADER_SIGNATURE = 0x06054b50;
+  private static final int VERSION_STORED = 10;
+  private static final int VERSION_DEFLATED = 20;
+  private static final int FLAG_UTF8 = 0x800;
+  private static final long MAX_ZIP32_VALUE = 0xffffffffL;
+  private static final int MAX_ZIP32_ENTRIES = 0xffff;
+
+  /**
+   * A completely written and optionally compressed file in parallel mode.
+   */
+  private static final class PrecompressedEntry
+  {
+    private final byte [] m_aName;
+    private final long m_nTime;
+    private final int m_nMethod;
+    private final long m_nCRC;
+    private final long m_nSize;
+    private final byte [] m_aData;
+    private final int m_nDataLength;
+    private long m_nOffset;
+
+    PrecompressedEntry (@Nonnull final String sName,
+                        final long nTime,
+                        final int nMethod,
+                        final long nCRC,
+                        final long nSize,
+                        @Nonnull final byte [] aData,
+                        final int nDataLength)
+    {
+      m_aName = sName.getBytes (StandardCharsets.UTF_8);
+      m_nTime = nTime;
+      m_nMethod = nMethod;
+      m_nCRC = nCRC;
+      m_nSize = nSize;
+      m_aData = aData;
+      m_nDataLength = nDataLength;
+    }
+  }
+
+  /**
+   * In memory stream of a single file in parallel mode, that is compressed on
+   * close.
+   */
+  private final class PrecompressingOutputStream extends ByteArrayOutputStream
+  {
+    private final String m_sName;
+    private final long m_nTime;
+    private boolean m_bClosed = false;
+
+    PrecompressingOutputStream (@Nonnull final String sName, final long nTime)
+    {
+      super (8192);
+      m_sName = sName;
+      m_nTime = nTime;
+    }
+
+    @Override
+    public void close () throws IOException
+    {
+      if (m_bClosed)
+        return;
+      m_bClosed = true;
+
+      final CRC32 aCRC = new CRC32 ();
+      aCRC.update (buf, 0, count);
+
+      PrecompressedEntry aEntry = null;
+      if (count > m_nStoredThreshold)
+      {
+        final Deflater aDeflater = new Deflater (m_nCompressionLevel, true);
+        try
+        {
+          aDeflater.setInput (buf, 0, count);
+          aDeflater.finish ();
+          // Compressed data larger than the original is stored instead
+          final byte [] aCompressed = new byte [count];
+          int nCompressed = 0;
+          while (!aDeflater.finished () && nCompressed < aCompressed.length)
+            nCompressed += aDeflater.deflate (aCompressed, nCompressed, aCompressed.length - nCompressed);
+          if (aDeflater.finished ())
+            aEntry = new PrecompressedEntry (m_sName,
+                                             m_nTime,
+                                             ZipEntry.DEFLATED,
+                                             aCRC.getValue (),
+                                             count,
+                                             aCompressed,
+                                             nCompressed);
+        }
+        finally
+        {
+          aDeflater.end ();
+        }
+      }
+      if (aEntry == null)
+        aEntry = new PrecompressedEntry (m_sName, m_nTime, ZipEntry.STORED, aCRC.getValue (), count, buf, count);
+      m_aPrecompressedEntries.put (m_sName, aEntry);
+    }
+  }
+
+  private final OutputStream m_aTarget;
+  // Sequential mode only - created on demand
+  private ZipOutputStream m_aZOS;
+  private OutputStream m_aFOS;
+  private int m_nCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+  private long m_nEntryTime = DEFAULT_ENTRY_TIME;
+  private boolean m_bParallel = false;
+  private int m_nStoredThreshold = DEFAULT_STORED_THRESHOLD;
+  private volatile boolean m_bOpened = false;
+  private boolean m_bClosed = false;
+  // Parallel mode only
+  private final Set <String> m_aEntryNames = ConcurrentHashMap.newKeySet ();
+  private final Map <String, PrecompressedEntry> m_aPrecompressedEntries = new ConcurrentSkipListMap <> ();
 
   /**
    * @param target
@@ -79,26 +219,190 @@ public class ZipCodeWriter extends AbstractCodeWriter
   public ZipCodeWriter (@Nonnull final OutputStream target, @Nonnull final String sNewLine)
   {
     super (null, sNewLine);
-    m_aZOS = new ZipOutputStream (target);
-    // nullify the close method.
-    m_aFOS = new FilterOutputStream (m_aZOS)
+    m_aTarget = JCValueEnforcer.notNull (target, "Target");
+  }
+
+  @Nonnull
+  private ZipOutputStream _getZOS ()
+  {
+    if (m_aZOS == null)
     {
-      @Override
-      public void close ()
+      m_aZOS = new ZipOutputStream (m_aTarget);
+      m_aZOS.setLevel (m_nCompressionLevel);
+      // nullify the close method.
+      m_aFOS = new FilterOutputStream (m_aZOS)
       {
-        // Do not close
-      }
-    };
+        @Override
+        public void write (final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+        {
+          // FilterOutputStream writes byte by byte
+          out.write (aBuf, nOfs, nLen);
+        }
+
+        @Override
+        public void close ()
+        {
+          // Do not close
+        }
+      };
+    }
+    return m_aZOS;
+  }
+
+  private void _checkNotOpened ()
+  {
+    if (m_bOpened)
+      throw new IllegalStateException ("This setting must be changed before the first file is written");
+  }
+
+  /**
+   * @return The compression level used for all files. Default is
+   *         {@link Deflater#DEFAULT_COMPRESSION}.
+   * @since 3.0.4
+   */
+  public int getCompressionLevel ()
+  {
+    return m_nCompressionLevel;
+  }
+
+  /**
+   * Set the compression level used for all files.
+   *
+   * @param nCompressionLevel
+   *        The compression level from 0 to 9 or -1 for the default
+   *        compression level.
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public ZipCodeWriter setCompressionLevel (final int nCompressionLevel)
+  {
+    JCValueEnforcer.isBetweenInclusive (nCompressionLevel,
+                                        "CompressionLevel",
+                                        Deflater.DEFAULT_COMPRESSION,
+                                        Deflater.BEST_COMPRESSION);
+    m_nCompressionLevel = nCompressionLevel;
+    if (m_aZOS != null)
+      m_aZOS.setLevel (nCompressionLevel);
+    return this;
+  }
+
+  /**
+   * @return The modification time in milliseconds since the epoch used for
+   *         all entries, or {@link #DEFAULT_ENTRY_TIME} if the time each file
+   *         is opened is used.
+   * @since 3.0.4
+   */
+  public long getEntryTime ()
+  {
+    return m_nEntryTime;
+  }
+
+  /**
+   * Set a fixed modification time for all entries. Use this for reproducible
+   * archives.
+   *
+   * @param nEntryTime
+   *        The modification time in milliseconds since the epoch, or
+   *        {@link #DEFAULT_ENTRY_TIME} to use the time each file is opened.
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public ZipCodeWriter setEntryTime (final long nEntryTime)
+  {
+    m_nEntryTime = nEntryTime;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if parallel mode is enabled, <code>false</code>
+   *         if not. Default is <code>false</code>.
+   * @since 3.0.4
+   */
+  public boolean isParallel ()
+  {
+    return m_bParallel;
+  }
+
+  /**
+   * Enable or disable parallel mode. In parallel mode each file is compressed
+   * into memory by the thread writing it, so this writer may be used by the
+   * parallel build of the code model. All files are kept in memory and written
+   * to the archive sorted by name when this writer is closed. Archives of more
+   * than 65535 files or of more than 4 GB are not supported in parallel mode.
+   * Must be set before the first file is written.
+   *
+   * @param bParallel
+   *        <code>true</code> to enable parallel mode.
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public ZipCodeWriter setParallel (final boolean bParallel)
+  {
+    _checkNotOpened ();
+    m_bParallel = bParallel;
+    return this;
+  }
+
+  /**
+   * @return The size in bytes up to which files are stored without
+   *         compression in parallel mode. Default is
+   *         {@link #DEFAULT_STORED_THRESHOLD}.
+   * @since 3.0.4
+   */
+  @Nonnegative
+  public int getStoredThreshold ()
+  {
+    return m_nStoredThreshold;
+  }
+
+  /**
+   * Set the size up to which files are stored without compression in parallel
+   * mode. Independent of this setting, files that don't get smaller by
+   * compression are always stored in parallel mode. In sequential mode all
+   * files are compressed.
+   *
+   * @param nStoredThreshold
+   *        The size in bytes. Must be &ge; 0.
+   * @return this for chaining
+   * @since 3.0.4
+   */
+  @Nonnull
+  public ZipCodeWriter setStoredThreshold (@Nonnegative final int nStoredThreshold)
+  {
+    JCValueEnforcer.isGE0 (nStoredThreshold, "StoredThreshold");
+    m_nStoredThreshold = nStoredThreshold;
+    return this;
+  }
+
+  @Override
+  public boolean isThreadSafe ()
+  {
+    return m_bParallel;
   }
 
   @Override
   public OutputStream openBinary (@Nonnull final JPackage pkg, @Nonnull final String fileName) throws IOException
   {
+    m_bOpened = true;
+
     String name = fileName;
     if (!pkg.isUnnamed ())
       name = _toDirName (pkg) + name;
 
-    m_aZOS.putNextEntry (new ZipEntry (name));
+    final long nTime = m_nEntryTime != DEFAULT_ENTRY_TIME ? m_nEntryTime : System.currentTimeMillis ();
+    if (m_bParallel)
+    {
+      if (!m_aEntryNames.add (name))
+        throw new ZipException ("duplicate entry: " + name);
+      return new PrecompressingOutputStream (name, nTime);
+    }
+
+    final ZipEntry aEntry = new ZipEntry (name);
+    aEntry.setTime (nTime);
+    _getZOS ().putNextEntry (aEntry);
     return m_aFOS;
   }
 
@@ -108,9 +412,142 @@ public class ZipCodeWriter extends AbstractCodeWriter
     return pkg.name ().replace ('.', '/') + '/';
   }
 
+  /**
+   * @return The time in the MS-DOS format used by zip files, with the time in
+   *         the lower and the date in the upper 16 bits.
+   */
+  private static long _toDosTime (final long nTime)
+  {
+    final LocalDateTime aDT = LocalDateTime.ofInstant (Instant.ofEpochMilli (nTime), ZoneId.systemDefault ());
+    final int nYear = aDT.getYear ();
+    if (nYear < 1980)
+    {
+      // The earliest possible date: 1980-01-01
+      return (1 << 21) | (1 << 16);
+    }
+    return (nYear - 1980) << 25 |
+           aDT.getMonthValue () << 21 |
+           aDT.getDayOfMonth () << 16 |
+           aDT.getHour () << 11 |
+           aDT.getMinute () << 5 |
+           aDT.getSecond () >> 1;
+  }
+
+  private static void _writeShort (@Nonnull final OutputStream aOS, final int n) throws IOException
+  {
+    aOS.write (n & 0xff);
+    aOS.write ((n >>> 8) & 0xff);
+  }
+
+  private static void _writeInt (@Nonnull final OutputStream aOS, final long n) throws IOException
+  {
+    aOS.write ((int) (n & 0xff));
+    aOS.write ((int) ((n >>> 8) & 0xff));
+    aOS.write ((int) ((n >>> 16) & 0xff));
+    aOS.write ((int) ((n >>> 24) & 0xff));
+  }
+
+  /**
+   * Write the fields that are identical in the local and the central header,
+   * starting with "version needed to extract".
+   */
+  private static void _writeCommonHeader (@Nonnull final OutputStream aOS,
+                                         @Nonnull final PrecompressedEntry aEntry) throws IOException
+  {
+    final boolean bDeflated = aEntry.m_nMethod == ZipEntry.DEFLATED;
+    _writeShort (aOS, bDeflated ? VERSION_DEFLATED : VERSION_STORED);
+    _writeShort (aOS, _isAscii (aEntry.m_aName) ? 0 : FLAG_UTF8);
+    _writeShort (aOS, aEntry.m_nMethod);
+    _writeInt (aOS, _toDosTime (aEntry.m_nTime));
+    _writeInt (aOS, aEntry.m_nCRC);
+    _writeInt (aOS, aEntry.m_nDataLength);
+    _writeInt (aOS, aEntry.m_nSize);
+    _writeShort (aOS, aEntry.m_aName.length);
+    // Extra field length
+    _writeShort (aOS, 0);
+  }
+
+  private static boolean _isAscii (@Nonnull final byte [] aBytes)
+  {
+    for (final byte b : aBytes)
+      if (b < 0)
+        return false;
+    return true;
+  }
+
+  private void _writePrecompressedEntries () throws IOException
+  {
+    if (m_aPrecompressedEntries.size () > MAX_ZIP32_ENTRIES)
+      throw new ZipException ("Too many entries for parallel mode: " + m_aPrecompressedEntries.size ());
+
+    final OutputStream aOS = new BufferedOutputStream (m_aTarget, 64 * 1024);
+    long nOffset = 0;
+    for (final PrecompressedEntry aEntry : m_aPrecompressedEntries.values ())
+    {
+      if (nOffset > MAX_ZIP32_VALUE)
+        throw new ZipException ("Archive too large for parallel mode");
+      aEntry.m_nOffset = nOffset;
+      _writeInt (aOS, LOCAL_HEADER_SIGNATURE);
+      _writeCommonHeader (aOS, aEntry);
+      aOS.write (aEntry.m_aName);
+      aOS.write (aEntry.m_aData, 0, aEntry.m_nDataLength);
+      nOffset += 30 + aEntry.m_aName.length + aEntry.m_nDataLength;
+    }
+
+    final long nCentralOffset = nOffset;
+    for (final PrecompressedEntry aEntry : m_aPrecompressedEntries.values ())
+    {
+      _writeInt (aOS, CENTRAL_HEADER_SIGNATURE);
+      // Version made by
+      _writeShort (aOS, VERSION_DEFLATED);
+      _writeCommonHeader (aOS, aEntry);
+      // Comment length, disk number, internal and external attributes
+      _writeShort (aOS, 0);
+      _writeShort (aOS, 0);
+      _writeShort (aOS, 0);
+      _writeInt (aOS, 0);
+      _writeInt (aOS, aEntry.m_nOffset);
+      aOS.write (aEntry.m_aName);
+      nOffset += 46 + aEntry.m_aName.length;
+    }
+    if (nOffset > MAX_ZIP32_VALUE)
+      throw new ZipException ("Archive too large for parallel mode");
+
+    final int nEntries = m_aPrecompressedEntries.size ();
+    _writeInt (aOS, END_HEADER_SIGNATURE);
+    // Disk numbers
+    _writeShort (aOS, 0);
+    _writeShort (aOS, 0);
+    _writeShort (aOS, nEntries);
+    _writeShort (aOS, nEntries);
+    _writeInt (aOS, nOffset - nCentralOffset);
+    _writeInt (aOS, nCentralOffset);
+    // Comment length
+    _writeShort (aOS, 0);
+    aOS.close ();
+  }
+
   @Override
   public void close () throws IOException
   {
-    m_aZOS.close ();
+    // Source and resource writer may be identical
+    if (m_bClosed)
+      return;
+    m_bClosed = true;
+
+    if (m_bParallel)
+    {
+      try
+      {
+        _writePrecompressedEntries ();
+      }
+      finally
+      {
+        m_aPrecompressedEntries.clear ();
+        m_aEntryNames.clear ();
+      }
+    }
+    else
+      _getZOS ().close ();
   }
 }
@@ -0,0 +1,145 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link AbstractCodeWriter}.
+ */
+public final class AbstractCodeWriterTest
+{
+  private static final class ListCodeWriter extends AbstractCodeWriter
+  {
+    private final List <ByteArrayOutputStream> m_aFiles = new ArrayList <> ();
+
+    ListCodeWriter (@Nonnull final Charset aCharset)
+    {
+      super (aCharset, "\n");
+    }
+
+    @Override
+    public OutputStream openBinary (final JPackage aPackage, final String sFilename) throws IOException
+    {
+      final ByteArrayOutputStream ret = new ByteArrayOutputStream ();
+      m_aFiles.add (ret);
+      return ret;
+    }
+
+    @Override
+    public void close () throws IOException
+    {}
+  }
+
+  @Nonnull
+  private static String _createText (final int nLen)
+  {
+    final StringBuilder aSB = new StringBuilder (nLen);
+    while (aSB.length () < nLen)
+      aSB.append ("abcä€😀\n");
+    return aSB.toString ();
+  }
+
+  @Test
+  public void testOpenSourceReusesWriterChain () throws IOException
+  {
+    final JPackage aPkg = new JCodeModel ().rootPackage ();
+    // Larger than the internal buffer, so that surrogate pairs are split
+    final String [] aTexts = { _createText (20000), "short", "", _createText (8191) };
+
+    final ListCodeWriter aCW = new ListCodeWriter (StandardCharsets.UTF_8);
+    for (final String sText : aTexts)
+      try (final SourcePrintWriter aPW = aCW.openSource (aPkg, "Test.java"))
+      {
+        aPW.print (sText);
+      }
+    for (int i = 0; i < aTexts.length; ++i)
+      assertEquals (aTexts[i], new String (aCW.m_aFiles.get (i).toByteArray (), StandardCharsets.UTF_8));
+
+    final ListCodeWriter aAsciiCW = new ListCodeWriter (StandardCharsets.US_ASCII);
+    for (final String sText : aTexts)
+      try (final SourcePrintWriter aPW = aAsciiCW.openSource (aPkg, "Test.java"))
+      {
+        aPW.print (sText);
+      }
+    for (int i = 0; i < aTexts.length; ++i)
+      assertEquals (aTexts[i].replace ("ä", "\\u00e4")
+                             .replace ("€", "\\u20ac")
+                             .replace ("😀", "\\ud83d\\ude00"),
+                    new String (aAsciiCW.m_aFiles.get (i).toByteArray (), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testStaleWriterDoesNotAffectReusedChain () throws IOException
+  {
+    final JPackage aPkg = new JCodeModel ().rootPackage ();
+    final ListCodeWriter aCW = new ListCodeWriter (StandardCharsets.UTF_8);
+
+    final SourcePrintWriter aFirst = aCW.openSource (aPkg, "First.java");
+    aFirst.print ("first");
+    aFirst.close ();
+
+    // Reuses the writer chain of the first file
+    final SourcePrintWriter aSecond = aCW.openSource (aPkg, "Second.java");
+    aSecond.print ("second");
+
+    // Writing and closing the stale writer must not touch the second file
+    aFirst.print ("stale");
+    aFirst.close ();
+    aSecond.print ("!");
+    aSecond.close ();
+
+    assertEquals ("first", new String (aCW.m_aFiles.get (0).toByteArray (), StandardCharsets.UTF_8));
+    assertEquals ("second!", new String (aCW.m_aFiles.get (1).toByteArray (), StandardCharsets.UTF_8));
+  }
+}
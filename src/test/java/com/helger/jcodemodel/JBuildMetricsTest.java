@@ -0,0 +1,165 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.fmt.JTextFile;
+import com.helger.jcodemodel.writer.OutputStreamCodeWriter;
+
+/**
+ * Test class for class {@link JBuildMetrics} and {@link IJBuildListener}.
+ *
+ * @author Philip Helger
+ */
+public final class JBuildMetricsTest
+{
+  private static final class CollectingListener implements IJBuildListener
+  {
+    private final Map <String, JBuildMetrics> m_aFiles = new HashMap <> ();
+    private final Map <String, JBuildMetrics> m_aPackages = new HashMap <> ();
+    private JBuildMetrics m_aBuild;
+
+    @Override
+    public void onFileBuilt (@Nonnull final JBuildMetrics aMetrics)
+    {
+      m_aFiles.put (aMetrics.getFilename (), aMetrics);
+    }
+
+    @Override
+    public void onPackageBuilt (@Nonnull final JBuildMetrics aMetrics)
+    {
+      m_aPackages.put (aMetrics.getPackage ().name (), aMetrics);
+    }
+
+    @Override
+    public void onBuildFinished (@Nonnull final JBuildMetrics aMetrics)
+    {
+      m_aBuild = aMetrics;
+    }
+  }
+
+  @Nonnull
+  private static JCodeModel _createModel () throws JClassAlreadyExistsException
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aClass = cm._class ("com.helger.metrics.Foo");
+    aClass.field (JMod.PRIVATE, cm.ref (List.class).narrow (String.class), "m_aList");
+    aClass.field (JMod.PRIVATE, cm.ref (java.awt.List.class), "m_aAwtList");
+    aClass.field (JMod.PRIVATE, cm.ref (Map.class), "m_aMap");
+    aClass.javadoc ().add ("Umlaut ä");
+    cm._class ("com.helger.metrics.sub.Bar");
+    final JTextFile aRes = new JTextFile ("res.txt", StandardCharsets.UTF_8);
+    aRes.setContents ("abc");
+    cm._package ("com.helger.metrics").addResourceFile (aRes);
+    return cm;
+  }
+
+  @Nonnull
+  private static CollectingListener _build (final int nThreadCount) throws IOException, JClassAlreadyExistsException
+  {
+    final JCodeModel cm = _createModel ();
+    final CollectingListener aListener = new CollectingListener ();
+    cm.setBuildListener (aListener).setBuildingThreadCount (nThreadCount);
+    assertSame (aListener, cm.getBuildListener ());
+
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    cm.build (new OutputStreamCodeWriter (aBAOS, StandardCharsets.US_ASCII, "\n"));
+
+    // All written bytes are accounted
+    assertEquals (aBAOS.size (), aListener.m_aBuild.getBytesWritten ());
+    return aListener;
+  }
+
+  @Test
+  public void testMetrics () throws Exception
+  {
+    for (final int nThreadCount : new int [] { 1, 3 })
+    {
+      final CollectingListener aListener = _build (nThreadCount);
+
+      assertEquals (3, aListener.m_aFiles.size ());
+      final JBuildMetrics aFoo = aListener.m_aFiles.get ("Foo.java");
+      assertEquals ("Foo.java", aFoo.getFilename ());
+      assertEquals ("com.helger.metrics", aFoo.getPackage ().name ());
+      assertEquals (1, aFoo.getFileCount ());
+      // java.util.Map - java.util.List and java.awt.List are ambiguous
+      assertEquals (1, aFoo.getImportCount ());
+      assertEquals (1, aFoo.getCollisionCount ());
+      assertEquals (1, aFoo.getEscapedCharCount ());
+      assertTrue (aFoo.getBytesWritten () > 0);
+      assertTrue (aFoo.getCollectNanos () > 0);
+      assertTrue (aFoo.getPrintNanos () > 0);
+      assertEquals (aFoo.getCollectNanos () + aFoo.getPrintNanos () + aFoo.getIONanos (), aFoo.getTotalNanos ());
+
+      final JBuildMetrics aRes = aListener.m_aFiles.get ("res.txt");
+      assertEquals ("com.helger.metrics", aRes.getPackage ().name ());
+      assertEquals (3, aRes.getBytesWritten ());
+      assertEquals (0, aRes.getCollectNanos ());
+
+      assertEquals ("com.helger.metrics.sub", aListener.m_aFiles.get ("Bar.java").getPackage ().name ());
+
+      assertEquals (2, aListener.m_aPackages.size ());
+      final JBuildMetrics aPkg = aListener.m_aPackages.get ("com.helger.metrics");
+      assertNull (aPkg.getFilename ());
+      assertEquals (2, aPkg.getFileCount ());
+      assertEquals (aFoo.getBytesWritten () + aRes.getBytesWritten (), aPkg.getBytesWritten ());
+
+      assertNull (aListener.m_aBuild.getPackage ());
+      assertEquals (3, aListener.m_aBuild.getFileCount ());
+      assertEquals (1, aListener.m_aBuild.getCollisionCount ());
+    }
+  }
+}
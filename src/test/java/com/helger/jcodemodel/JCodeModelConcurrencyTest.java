@@ -0,0 +1,171 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+/**
+ * Stress tests for {@link JCodeModel#setConcurrentConstruction(boolean)}.
+ */
+public final class JCodeModelConcurrencyTest
+{
+  private static final int THREADS = 8;
+  private static final int PACKAGES = 10;
+  private static final int CLASSES = 200;
+
+  @Nonnull
+  private static String _className (final int nPackage, final int nClass)
+  {
+    return "com.helger.stress.p" + nPackage + ".Class" + nClass;
+  }
+
+  @Nonnull
+  private static List <JDefinedClass> _construct (@Nonnull final JCodeModel cm,
+                                                  @Nonnull final CountDownLatch aStart,
+                                                  final int nThread) throws Exception
+  {
+    aStart.await ();
+    final List <JDefinedClass> ret = new ArrayList <> ();
+    for (int i = 0; i < PACKAGES * CLASSES; ++i)
+    {
+      // Each thread starts at a different position
+      final int nIndex = (i + nThread * 97) % (PACKAGES * CLASSES);
+      final int nPackage = nIndex / CLASSES;
+      final int nClass = nIndex % CLASSES;
+      try
+      {
+        final JDefinedClass aClass = cm._class (_className (nPackage, nClass));
+        aClass.method (JMod.PUBLIC, cm.ref ("com.helger.stress.Unknown" + nClass), "get")
+              .body ()
+              ._return (JExpr._null ());
+        ret.add (aClass);
+      }
+      catch (final JClassAlreadyExistsException ex)
+      {
+        // Created by another thread
+      }
+      cm.addDontImportClass (cm.ref (nClass % 2 == 0 ? List.class : Set.class));
+    }
+    return ret;
+  }
+
+  @Test
+  public void testConcurrentConstruction () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ().setConcurrentConstruction (true);
+    assertTrue (cm.isConcurrentConstruction ());
+
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (THREADS);
+    final List <Future <List <JDefinedClass>>> aResults = new ArrayList <> ();
+    try
+    {
+      final CountDownLatch aStart = new CountDownLatch (1);
+      for (int t = 0; t < THREADS; ++t)
+      {
+        final int nThread = t;
+        aResults.add (aExecutor.submit ( () -> _construct (cm, aStart, nThread)));
+      }
+      aStart.countDown ();
+
+      // Each class must have been created by exactly one thread
+      final Set <JDefinedClass> aCreated = Collections.newSetFromMap (new IdentityHashMap <> ());
+      for (final Future <List <JDefinedClass>> aResult : aResults)
+        for (final JDefinedClass aClass : aResult.get ())
+          assertTrue (aClass.fullName (), aCreated.add (aClass));
+      assertEquals (PACKAGES * CLASSES, aCreated.size ());
+
+      // No lost classes
+      for (int p = 0; p < PACKAGES; ++p)
+      {
+        final JPackage aPkg = cm._package ("com.helger.stress.p" + p);
+        assertEquals (CLASSES, aPkg.classes ().size ());
+        for (int c = 0; c < CLASSES; ++c)
+        {
+          final JDefinedClass aClass = cm._getClass (_className (p, c));
+          assertTrue (aCreated.contains (aClass));
+          assertSame (aPkg, aClass._package ());
+          assertEquals (1, aClass.methods ().size ());
+          assertSame (cm.ref ("com.helger.stress.Unknown" + c), aClass.methods ().iterator ().next ().type ());
+        }
+      }
+      assertEquals (2, cm.getAllDontImportClasses ().size ());
+      assertEquals (PACKAGES * CLASSES, cm.countArtifacts ());
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+    }
+  }
+
+  @Test
+  public void testSwitchMode () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    assertFalse (cm.isConcurrentConstruction ());
+    final JDefinedClass aClass = cm._class ("com.helger.stress.Before");
+
+    cm.setConcurrentConstruction (true);
+    assertSame (aClass, cm._getClass ("com.helger.stress.Before"));
+    cm._class ("com.helger.stress.After");
+    assertEquals (2, cm._package ("com.helger.stress").classes ().size ());
+
+    cm.setConcurrentConstruction (false);
+    assertSame (aClass, cm._getClass ("com.helger.stress.Before"));
+    assertEquals (2, cm._package ("com.helger.stress").classes ().size ());
+  }
+}
@@ -0,0 +1,297 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.fmt.JTextFile;
+import com.helger.jcodemodel.util.CodeModelTestsHelper;
+
+/**
+ * Test class for class {@link JCodeModelSnapshot}.
+ *
+ * @author Philip Helger
+ */
+public final class JCodeModelSnapshotTest
+{
+  @Nonnull
+  private static byte [] _write (@Nonnull final JCodeModel cm) throws IOException
+  {
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    JCodeModelSnapshot.write (cm, aBAOS);
+    return aBAOS.toByteArray ();
+  }
+
+  @Nonnull
+  private static JCodeModel _read (@Nonnull final byte [] aBytes) throws IOException
+  {
+    return JCodeModelSnapshot.read (new ByteArrayInputStream (aBytes));
+  }
+
+  private static void _assertSameSource (@Nonnull final JCodeModel aExpected, @Nonnull final JCodeModel aActual)
+  {
+    assertEquals (new String (CodeModelTestsHelper.getAllBytes (aExpected), StandardCharsets.UTF_8),
+                  new String (CodeModelTestsHelper.getAllBytes (aActual), StandardCharsets.UTF_8));
+  }
+
+  @Nonnull
+  private static JCodeModel _createModel () throws JClassAlreadyExistsException
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JPackage pkg = cm._package ("org.example.snapshot");
+    pkg.javadoc ().add ("Package documentation");
+    pkg.annotate (Deprecated.class);
+    final JTextFile aTextFile = new JTextFile ("data.txt", StandardCharsets.ISO_8859_1);
+    aTextFile.setContents ("a=ä\nb=2\n");
+    pkg.addResourceFile (aTextFile);
+
+    // Interface and enum
+    final JDefinedClass aInterface = pkg._interface ("INamed");
+    final JMethod aGetName = aInterface.method (JMod.NONE, String.class, "getName");
+    aGetName.javadoc ().addReturn ().add ("The name");
+
+    final JDefinedClass aEnum = pkg._enum ("EColor");
+    final JFieldVar aEnumCode = aEnum.field (JMod.PRIVATE | JMod.FINAL, cm.INT, "m_nCode");
+    aEnum.enumConstant ("RED").arg (JExpr.lit (1)).javadoc ().append ("Red");
+    aEnum.enumConstant ("GREEN").arg (JExpr.lit (-2)).annotate (Deprecated.class);
+    final JMethod aEnumCtor = aEnum.constructor (JMod.PRIVATE);
+    aEnumCtor.body ().assign (JExpr.refthis (aEnumCode), aEnumCtor.param (JMod.FINAL, cm.INT, "nCode"));
+
+    // Generic class with everything
+    final JDefinedClass aClass = pkg._class (JMod.PUBLIC | JMod.ABSTRACT, "Sample");
+    aClass.headerComment ().add ("Header comment");
+    aClass.javadoc ().append ("Class with a reference to ").append (aInterface);
+    aClass.javadoc ().addTag (JDocComment.TAG_AUTHOR).add ("Snapshot");
+    aClass.javadoc ().addXdoclet ("xdoclet").put ("key", "value");
+    final JTypeVar aT = aClass.generify ("T", Serializable.class);
+    aClass._extends (cm.ref (Object.class));
+    aClass._implements (aInterface);
+    aClass._implements (cm.ref (Comparable.class).narrow (aClass));
+    final JAnnotationUse aRetention = aClass.annotate (Retention.class);
+    aRetention.param ("value", RetentionPolicy.RUNTIME);
+    final JAnnotationUse aTarget = aClass.annotate (Target.class);
+    aTarget.paramArray ("value", ElementType.TYPE, ElementType.METHOD);
+    aTarget.param ("type", Integer.class);
+    aTarget.param ("jtype", aEnum);
+    aTarget.param ("color", aEnum.enumConstant ("RED"));
+    aTarget.param ("b", true).param ("c", 'x').param ("d", 1.5d).param ("f", -2.5f).param ("l", Long.MIN_VALUE);
+    aTarget.param ("s", (short) 3).param ("y", (byte) -4).param ("str", "\"quoted\"");
+    aTarget.annotationParam ("nested", Retention.class).param ("value", 7);
+    aTarget.paramArray ("array").annotate (Deprecated.class);
+
+    final JFieldVar aList = aClass.field (JMod.PRIVATE | JMod.FINAL,
+                                          cm.ref (List.class).narrow (aT),
+                                          "m_aList",
+                                          cm.ref (Arrays.class).staticInvoke ("asList"));
+    aList.javadoc ().add ("The list");
+    final JFieldVar aCount = aClass.field (JMod.PRIVATE | JMod.STATIC, cm.LONG, "s_nCount", JExpr.lit (42L));
+    aCount.annotate (Deprecated.class);
+    final JFieldVar aArray = aClass.field (JMod.PROTECTED,
+                                           cm.INT.array (),
+                                           "m_aArray",
+                                           JExpr.newArray (cm.INT).add (JExpr.lit (1)).add (JExpr.lit (2)));
+    aClass.field (JMod.NONE, cm.ref (Map.class).narrow (cm.ref (String.class).wildcard (), aT), "m_aMap");
+
+    aClass.init ().assign (aCount, JExpr.lit (7L));
+    aClass.instanceInit ().add (JExpr.invoke ("toString"));
+
+    final JMethod aCtor = aClass.constructor (JMod.PUBLIC);
+    final JVar aCtorParam = aCtor.param (JMod.FINAL, aT, "aValue");
+    aCtorParam.annotate (Deprecated.class);
+    aCtor.body ().invoke ("super");
+    aCtor.body ().add (JExpr.refthis (aList).invoke ("add").arg (aCtorParam));
+
+    // Generic method
+    final JMethod aMethod = aClass.method (JMod.PUBLIC | JMod.FINAL, cm.VOID, "run");
+    final JTypeVar aU = aMethod.generify ("U");
+    aMethod.type (aU);
+    aMethod._throws (IOException.class);
+    aMethod.annotate (Deprecated.class);
+    final JVar aInput = aMethod.param (cm.INT, "nInput");
+    final JVar aRest = aMethod.varParam (String.class, "aRest");
+    aMethod.javadoc ().add ("Run it");
+    aMethod.javadoc ().addParam (aInput).add ("The input");
+    aMethod.javadoc ().addThrows (IOException.class).add ("Never");
+
+    final JBlock aBody = aMethod.body ();
+    aBody.addSingleLineComment ("Comment");
+    final JVar aSum = aBody.decl (cm.INT, "nSum", JExpr.lit (0));
+    final JForLoop aFor = aBody._for ();
+    final JVar aIdx = aFor.init (cm.INT, "i", JExpr.lit (0));
+    aFor.test (JOp.lt (aIdx, aInput));
+    aFor.update (JOp.incr (aIdx));
+    aFor.body ().assignPlus (aSum, JExpr.component (aArray, aIdx));
+    final JForEach aForEach = aBody.forEach (cm.ref (String.class), "s", aRest);
+    aForEach.body ()._if (aForEach.var ().invoke ("isEmpty"))._then ()._continue ();
+    final JConditional aIf = aBody._if (JOp.gt (aSum, JExpr.lit (10)));
+    aIf._then ()._return (JExpr.cast (aU, JExpr._null ()));
+    aIf._elseif (JOp.eq (aSum, JExpr.lit (0)))._then ()._throw (JExpr._new (cm.ref (IOException.class)).arg ("zero"));
+    final JLabel aLabel = aBody.label ("outer");
+    aBody._while (JExpr.TRUE).body ()._break (aLabel);
+    aBody._do (JOp.not (JExpr.FALSE)).body ().assign (aSum, JExpr.cond (JExpr.TRUE, JExpr.lit (1), JExpr.lit (2)));
+    final JSwitch aSwitch = aBody._switch (aInput);
+    aSwitch._case (JExpr.lit (1)).body ()._break ();
+    aSwitch._case (JExpr.lit (2));
+    aSwitch._default ().body ().directStatement ("// default");
+    final JTryBlock aTry = aBody._try ();
+    aTry.body ().synchronizedBlock (JExpr._this ()).body ().add (JExpr.invoke (aGetName));
+    aTry._catch (cm.ref (RuntimeException.class)).param ("ex");
+    aTry._catch (cm.ref (Error.class));
+    aTry._finally ().assign (aSum, JOp.minus (aSum, JExpr.lit (1.5d)));
+    aBody.decl (cm.ref (String.class), "sDirect", JExpr.direct ("\"a\" + \"b\""));
+    aBody.decl (cm.ref (Class.class), "aClass", JExpr.dotclass (aClass));
+    final JLambda aTypedLambda = new JLambda ();
+    aTypedLambda.addParam (cm.INT, "y");
+    aTypedLambda.body ()._return (JOp.complement (aTypedLambda.params ().get (0)));
+    aBody.decl (cm.ref (Object.class), "aTypedLambda", aTypedLambda);
+    final JLambda aLambda = new JLambda ();
+    final JLambdaParam aLambdaParam = aLambda.addParam ("x");
+    aLambda.body ().lambdaExpr (JOp.plus (aLambdaParam, JExpr.lit (1.5f)));
+    aBody.decl (cm.ref (Object.class), "aLambda", aLambda);
+    aBody.decl (cm.ref (Object.class), "aRef", new JLambdaMethodRef (aSum, "toString"));
+    aBody.decl (cm.ref (Object.class), "aCtorRef", new JLambdaMethodRef (cm.ref (String.class)));
+    aBody.decl (cm.ref (Object.class), "aEnum", JExpr.enumConstantRef (cm.ref (RetentionPolicy.class), "CLASS"));
+    aBody.block ().add (JExpr.invoke (JExpr._super (), "hashCode"));
+
+    // Anonymous class
+    final JDefinedClass aAnon = cm.anonymousClass (Runnable.class);
+    aAnon.method (JMod.PUBLIC, cm.VOID, "run").body ().add (JExpr.invoke (aMethod).arg (aSum));
+    aBody.decl (cm.ref (Runnable.class), "aAnon", JExpr._new (aAnon));
+    aBody._return (JExpr._null ());
+
+    // Inner class and annotation type
+    final JDefinedClass aInner = aClass._class (JMod.PUBLIC | JMod.STATIC, "Inner");
+    aInner.direct ("// direct");
+    aInner.method (JMod.PUBLIC, aClass.narrow (cm.ref (String.class)), "self")
+          .body ()
+          ._return (JExpr._new (aClass.narrow (cm.ref (String.class))).arg ("x"));
+    final JDefinedClass aAnnotationType = aClass._annotationTypeDeclaration ("Marker");
+    aAnnotationType.method (JMod.NONE, cm.INT, "value").declareDefaultValue (JExpr.lit (5));
+
+    // Classes not to be imported and hidden classes
+    cm.addDontImportClass (cm.ref (List.class));
+    pkg._class ("Hidden").hide ();
+    cm._package ("org.example.other")._class ("Other")._extends (aClass.narrow (cm.ref (Integer.class)));
+    return cm;
+  }
+
+  @Test
+  public void testRoundTrip () throws Exception
+  {
+    final JCodeModel cm = _createModel ();
+    final byte [] aBytes = _write (cm);
+    final JCodeModel cm2 = _read (aBytes);
+
+    // Java enum and Class annotation values are read back as expressions, so
+    // only the following snapshots are identical. Compare before building, as
+    // building adds the packages of referenced classes.
+    final byte [] aBytes2 = _write (cm2);
+    assertArrayEquals (aBytes2, _write (_read (aBytes2)));
+    _assertSameSource (cm, cm2);
+
+    // The read model can be modified further
+    cm2._getClass ("org.example.snapshot.Sample").method (JMod.PUBLIC, cm2.VOID, "added");
+    assertTrue (new String (CodeModelTestsHelper.getAllBytes (cm2), StandardCharsets.UTF_8).contains ("added"));
+  }
+
+  @Test
+  public void testEmpty () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JCodeModel cm2 = _read (_write (cm));
+    assertNotNull (cm2);
+    _assertSameSource (cm, cm2);
+  }
+
+  @Test
+  public void testCustomExpression () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aClass = cm._class ("Custom");
+    aClass.method (JMod.PUBLIC, cm.VOID, "foo").body ().add (JExpr.invoke ("bar").arg (f -> f.print ("custom")));
+    try
+    {
+      _write (cm);
+      fail ();
+    }
+    catch (final UnsupportedOperationException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testMalformed () throws Exception
+  {
+    final byte [] aBytes = _write (_createModel ());
+    for (final int nLen : new int [] { 0, 3, 4, aBytes.length / 2, aBytes.length - 1 })
+      try
+      {
+        _read (Arrays.copyOf (aBytes, nLen));
+        fail ("Length " + nLen);
+      }
+      catch (final IOException ex)
+      {
+        // expected
+      }
+  }
+}
@@ -40,15 +40,34 @@
  */
 package com.helger.jcodemodel;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
 
 import org.junit.Test;
 
 import com.helger.jcodemodel.util.CodeModelTestsHelper;
+import com.helger.jcodemodel.writer.OutputStreamCodeWriter;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -65,6 +84,31 @@ public final class JCodeModelTest
     assertNotNull (cm.parseType ("java.util.Comparator<? super java.lang.CharSequence[]>[]"));
   }
 
+  @Test
+  public void testParseTypeCached ()
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final String sName = "java.util.Map<java.lang.String,java.util.List<com.acme.Foo>>";
+    final AbstractJClass aMap = (AbstractJClass) cm.parseType (sName);
+    assertSame (aMap, cm.parseType (sName));
+    assertSame (cm.parseType ("java.util.List<com.acme.Foo>"), aMap.getTypeParameters ().get (1));
+    assertSame (cm.ref ("com.acme.Foo"), cm.parseType ("com.acme.Foo"));
+    assertSame (cm.INT, cm.parseType ("int"));
+    assertSame (cm.INT.array ().array (), cm.parseType ("int[][]"));
+
+    assertSame (cm.VOID, AbstractJType.parseOrNull (cm, "void"));
+    assertNull (AbstractJType.parseOrNull (cm, "java.lang.String"));
+    try
+    {
+      AbstractJType.parse (cm, "Integer");
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+
   @Test
   public void testIssue28 () throws Exception
   {
@@ -85,6 +129,42 @@ public final class JCodeModelTest
     assertSame (cm.INT, cm._ref (int.class));
   }
 
+  @Test
+  public void testRefByName () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    assertSame (cm.ref (String.class), cm.ref ("java.lang.String"));
+    assertSame (cm.ref ("java.lang.String"), cm.ref ("java.lang.String"));
+
+    final AbstractJClass aUnknown = cm.ref ("com.helger.unknown.Unknown");
+    assertTrue (aUnknown instanceof JDirectClass);
+    assertEquals ("com.helger.unknown.Unknown", aUnknown.fullName ());
+    assertSame (aUnknown, cm.ref ("com.helger.unknown.Unknown"));
+
+    // Concurrent lookups must all return the same instances
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (4);
+    try
+    {
+      final List <Future <AbstractJClass []>> aResults = new ArrayList <> ();
+      for (int i = 0; i < 8; ++i)
+        aResults.add (aExecutor.submit ( () -> {
+          final AbstractJClass [] ret = new AbstractJClass [100];
+          for (int j = 0; j < ret.length; ++j)
+            ret[j] = cm.ref ("com.helger.unknown.Class" + j);
+          return ret;
+        }));
+      final AbstractJClass [] aFirst = aResults.get (0).get ();
+      for (final Future <AbstractJClass []> aResult : aResults)
+        assertArrayEquals (aFirst, aResult.get ());
+      for (int j = 0; j < aFirst.length; ++j)
+        assertSame (aFirst[j], cm.ref ("com.helger.unknown.Class" + j));
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+    }
+  }
+
   @Test
   public void testCODEMODEL24 () throws JClassAlreadyExistsException
   {
@@ -103,4 +183,316 @@ public final class JCodeModelTest
     jClass.field (JMod.PRIVATE, cm.ref (Map.class).narrow (String.class), "strMap", JExpr._new (hashMap));
     CodeModelTestsHelper.parseCodeModel (cm);
   }
+
+  @Nonnull
+  private static JCodeModel _createMultiPackageModel () throws JClassAlreadyExistsException
+  {
+    final JCodeModel cm = new JCodeModel ();
+    JDefinedClass aPrev = null;
+    for (int p = 0; p < 5; ++p)
+    {
+      final JPackage aPkg = cm._package ("com.helger.parallel.p" + p);
+      aPkg.javadoc ().add ("Package " + p);
+      for (int c = 0; c < 20; ++c)
+      {
+        final JDefinedClass aClass = aPkg._class ("Class" + c);
+        final JDefinedClass aInner = aClass._class (JMod.PUBLIC | JMod.STATIC, "Inner");
+        aClass.field (JMod.PRIVATE, cm.ref (Map.class).narrow (String.class, Integer.class), "m_aMap");
+        final JMethod aMethod = aClass.method (JMod.PUBLIC, cm.ref (List.class).narrow (String.class), "get");
+        if (aPrev != null)
+        {
+          aMethod.param (aPrev, "aPrev");
+          aMethod.param (aPrev.classes ().iterator ().next (), "aPrevInner");
+        }
+        aMethod.param (aInner, "aInner");
+        aMethod.body ()._return (JExpr._null ());
+        aPrev = aClass;
+      }
+    }
+    return cm;
+  }
+
+  @Nonnull
+  private static byte [] _buildToBytes (@Nonnull final JCodeModel cm) throws IOException
+  {
+    try (final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ())
+    {
+      cm.build (new OutputStreamCodeWriter (aBAOS, CodeModelTestsHelper.DEFAULT_ENCODING));
+      return aBAOS.toByteArray ();
+    }
+  }
+
+  @Test
+  public void testParallelBuildSequentialWriter () throws Exception
+  {
+    final JCodeModel cm = _createMultiPackageModel ();
+    final byte [] aSequential = _buildToBytes (cm);
+
+    cm.setBuildingThreadCount (4);
+    assertEquals (4, cm.getBuildingThreadCount ());
+    final byte [] aParallel = _buildToBytes (cm);
+    assertArrayEquals (aSequential, aParallel);
+  }
+
+  @Nonnull
+  private static AbstractCodeWriter _createMapWriter (@Nonnull final Map <String, byte []> ret,
+                                                      final boolean bThreadSafe)
+  {
+    return new AbstractCodeWriter (CodeModelTestsHelper.DEFAULT_ENCODING, "\n")
+    {
+      @Override
+      public OutputStream openBinary (final JPackage aPackage, final String sFilename) throws IOException
+      {
+        return new ByteArrayOutputStream ()
+        {
+          @Override
+          public void close () throws IOException
+          {
+            super.close ();
+            assertNull (ret.put (aPackage.name () + "/" + sFilename, toByteArray ()));
+          }
+        };
+      }
+
+      @Override
+      public boolean isThreadSafe ()
+      {
+        return bThreadSafe;
+      }
+
+      @Override
+      public void close () throws IOException
+      {}
+    };
+  }
+
+  @Nonnull
+  private static Map <String, byte []> _buildToMap (@Nonnull final JCodeModel cm,
+                                                    final boolean bThreadSafe) throws IOException
+  {
+    final Map <String, byte []> ret = new ConcurrentHashMap <> ();
+    cm.build (_createMapWriter (ret, bThreadSafe));
+    return ret;
+  }
+
+  @Test
+  public void testParallelBuildThreadSafeWriter () throws Exception
+  {
+    final JCodeModel cm = _createMultiPackageModel ();
+    final Map <String, byte []> aSequential = _buildToMap (cm, false);
+    assertEquals (cm.countArtifacts (), aSequential.size ());
+
+    cm.setBuildingThreadCount (3);
+    final Map <String, byte []> aParallel = _buildToMap (cm, true);
+    assertEquals (aSequential.keySet (), aParallel.keySet ());
+    for (final Map.Entry <String, byte []> aEntry : aSequential.entrySet ())
+      assertArrayEquals (aEntry.getKey (), aEntry.getValue (), aParallel.get (aEntry.getKey ()));
+  }
+
+  @Test
+  public void testFlush () throws Exception
+  {
+    final Map <String, byte []> aExpected = _buildToMap (_createMultiPackageModel (), false);
+
+    final JCodeModel cm = _createMultiPackageModel ();
+    final Map <String, byte []> aActual = new ConcurrentHashMap <> ();
+    final AbstractCodeWriter aWriter = _createMapWriter (aActual, false);
+    final int nArtifacts = cm.countArtifacts ();
+    final JPackage aPkg = cm._package ("com.helger.parallel.p1");
+    for (final JDefinedClass aClass : aPkg.classes ())
+    {
+      cm.flush (aClass, aWriter);
+      assertTrue (aClass.isFlushed ());
+      assertTrue (aClass.methods ().isEmpty ());
+      assertTrue (aClass.classes ().iterator ().next ().isFlushed ());
+    }
+    assertEquals (nArtifacts - aPkg.classes ().size (), cm.countArtifacts ());
+    assertEquals (aPkg.classes ().size (), aActual.size ());
+
+    cm.build (aWriter);
+    assertEquals (aExpected.keySet (), aActual.keySet ());
+    for (final Map.Entry <String, byte []> aEntry : aExpected.entrySet ())
+      assertArrayEquals (aEntry.getKey (), aEntry.getValue (), aActual.get (aEntry.getKey ()));
+
+    // Flushed classes cannot be modified anymore
+    final JDefinedClass aFlushed = aPkg._getClass ("Class0");
+    try
+    {
+      aFlushed.method (JMod.PUBLIC, cm.VOID, "foo");
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    try
+    {
+      aFlushed.mods ().setFinal (true);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    // Reading the modifiers is still possible
+    assertFalse (aFlushed.mods ().isAbstract ());
+    assertEquals (JMod.PUBLIC, aFlushed.mods ().getValue ());
+    try
+    {
+      aFlushed.generify ("T");
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    // Released annotations can still be queried
+    assertNull (aFlushed.getAnnotation (Deprecated.class));
+  }
+
+  @Test
+  public void testDontImportClassBetweenFlushes () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aClassA = cm._class ("org.test.A");
+    aClassA.field (JMod.PRIVATE, cm.ref (List.class).narrow (String.class), "m_aList");
+    final JDefinedClass aClassB = cm._class ("org.test.B");
+    aClassB.field (JMod.PRIVATE, cm.ref (List.class).narrow (String.class), "m_aList");
+
+    final Map <String, byte []> aFiles = new ConcurrentHashMap <> ();
+    final AbstractCodeWriter aWriter = _createMapWriter (aFiles, false);
+    cm.flush (aClassA, aWriter);
+    // Must be used by the pooled formatter of the next flush
+    cm.addDontImportClass (cm.ref (List.class));
+    cm.flush (aClassB, aWriter);
+
+    final Charset aCS = CodeModelTestsHelper.DEFAULT_ENCODING;
+    assertTrue (new String (aFiles.get ("org.test/A.java"), aCS).contains ("import java.util.List;"));
+    final String sB = new String (aFiles.get ("org.test/B.java"), aCS);
+    assertFalse (sB.contains ("import java.util.List;"));
+    assertTrue (sB.contains ("java.util.List<String> m_aList"));
+  }
+
+  @Test
+  public void testFlushAnnotatedClass () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aClass = cm._class ("org.test.Annotated");
+    aClass.annotate (Deprecated.class);
+    assertNotNull (aClass.getAnnotation (Deprecated.class));
+    cm.flush (aClass, _createMapWriter (new ConcurrentHashMap <> (), false));
+    assertNull (aClass.getAnnotation (Deprecated.class));
+    assertTrue (aClass.annotations ().isEmpty ());
+  }
+
+  @Test
+  public void testInternedTypes ()
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final AbstractJClass aString = cm.ref (String.class);
+    final AbstractJClass aList = cm.ref (List.class);
+    final AbstractJClass aMap = cm.ref (Map.class);
+
+    final AbstractJClass aListOfString = aList.narrow (aString);
+    assertSame (aListOfString, aList.narrow (String.class));
+    assertSame (aListOfString, aList.narrow (new AbstractJClass [] { aString }));
+    assertSame (aMap.narrow (aString, aListOfString), aMap.narrow (aString).narrow (aListOfString));
+    assertSame (aListOfString.array (), aList.narrow (aString).array ());
+    assertSame (aString.wildcardExtends (), aString.wildcardExtends ());
+    assertNotSame (aString.wildcardExtends (), aString.wildcardSuper ());
+    assertSame (cm.INT.array (), cm.INT.array ());
+
+    // Explicitly constructed instances are still equal
+    assertEquals (aListOfString, new JNarrowedClass (aList, aString));
+  }
+
+  @Test
+  public void testCachedNames () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aOuter = cm._class ("org.test.Outer");
+    final JDefinedClass aInner = aOuter._class ("Inner");
+    final AbstractJClass aMapEntry = cm.ref (Map.Entry.class);
+    final AbstractJClass aNarrowed = cm.ref (Map.class).narrow (aInner, aMapEntry);
+    final AbstractJClass aDirect = cm.directClass ("org.direct.Foo");
+
+    assertEquals ("org.test.Outer.Inner", aInner.fullName ());
+    assertEquals ("java.util.Map.Entry", aMapEntry.fullName ());
+    assertEquals ("Map<Inner,Entry>", aNarrowed.name ());
+    assertEquals ("java.util.Map<org.test.Outer.Inner,java.util.Map.Entry>", aNarrowed.fullName ());
+    assertEquals ("Map<Inner,Entry>[]", aNarrowed.array ().name ());
+    assertEquals ("org.direct", aDirect._package ().name ());
+
+    // Computed only once
+    for (final AbstractJClass aClass : new AbstractJClass [] { aInner, aMapEntry, aNarrowed, aNarrowed.array (), aDirect })
+    {
+      assertSame (aClass.name (), aClass.name ());
+      assertSame (aClass.fullName (), aClass.fullName ());
+      assertSame (aClass._package (), aClass._package ());
+    }
+    assertSame (cm._package ("org.test"), aInner._package ());
+    assertSame (cm._package ("java.util"), cm.ref (List.class)._package ());
+  }
+
+  @Test
+  public void testLazyMembersRunBeforeParallelBuild () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final Map <String, Thread> aThreads = new ConcurrentHashMap <> ();
+    final JDefinedClass aOuter = cm._class ("org.test.Outer");
+    aOuter.setLazyMemberInitializer ( () -> {
+      aThreads.put ("Outer", Thread.currentThread ());
+      aOuter.method (JMod.PUBLIC, cm.VOID, "run");
+    });
+    final JDefinedClass aInner = aOuter._class (JMod.PUBLIC | JMod.STATIC, "Inner");
+    aInner.setLazyMemberInitializer ( () -> aThreads.put ("Inner", Thread.currentThread ()));
+
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (2);
+    try
+    {
+      final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+      final OutputStreamCodeWriter aWriter = new OutputStreamCodeWriter (aBAOS, CodeModelTestsHelper.DEFAULT_ENCODING);
+      cm.build (aWriter, aWriter, aExecutor);
+      assertTrue (aBAOS.toString (CodeModelTestsHelper.DEFAULT_ENCODING.name ()).contains ("public void run()"));
+    }
+    finally
+    {
+      aExecutor.shutdownNow ();
+    }
+    assertSame (Thread.currentThread (), aThreads.get ("Outer"));
+    assertSame (Thread.currentThread (), aThreads.get ("Inner"));
+  }
+
+  @Test
+  public void testLazyMembersRollbackOnFailure () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aClass = cm._class ("org.test.Lazy");
+    aClass.field (JMod.PRIVATE, cm.INT, "m_nExisting");
+    final boolean [] aFail = { true };
+    aClass.setLazyMemberInitializer ( () -> {
+      aClass.field (JMod.PRIVATE, cm.INT, "m_nLazy");
+      aClass.method (JMod.PUBLIC, cm.VOID, "run");
+      aClass.annotate (Deprecated.class);
+      if (aFail[0])
+        throw new IllegalStateException ("Conversion failed");
+    });
+
+    try
+    {
+      aClass.methods ();
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    // Nothing of the failed run is kept and the initializer is retried
+    assertTrue (aClass.hasLazyMemberInitializer ());
+    aFail[0] = false;
+    assertEquals (1, aClass.methods ().size ());
+    assertFalse (aClass.hasLazyMemberInitializer ());
+    assertEquals (2, aClass.fields ().size ());
+    assertEquals (1, aClass.annotations ().size ());
+  }
 }
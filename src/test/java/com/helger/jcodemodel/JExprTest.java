@@ -81,4 +81,26 @@ public final class JExprTest
     assertEquals ("5L", CodeModelTestsHelper.toString (JExpr.lit (5l)));
     assertEquals ("5L", CodeModelTestsHelper.toString (JExpr.lit ((long) 5)));
   }
+
+  @Test
+  public void testQuotify ()
+  {
+    assertEquals ("\"\"", JExpr.quotify ('"', ""));
+    assertEquals ("\"abc it's\"", JExpr.quotify ('"', "abc it's"));
+    assertEquals ("'a\"b\\''", JExpr.quotify ('\'', "a\"b'"));
+    assertEquals ("\"\\b\\t\\n\\f\\r\\\"\\\\\"", JExpr.quotify ('"', "\b\t\n\f\r\"\\"));
+    assertEquals ("\"\\u0000\\u001f~\\u007f\\u00e4\\u20ac\\ud83d\\ude00\"",
+                  JExpr.quotify ('"', "\u0000\u001f~\u007fä€😀"));
+    assertEquals ("'\\n'", CodeModelTestsHelper.toString (JExpr.lit ('\n')));
+  }
+
+  @Test
+  public void testStringLiteral ()
+  {
+    final JStringLiteral aLit = JExpr.lit ("Grüezi");
+    assertEquals ("\"Gr\\u00fcezi\"", CodeModelTestsHelper.toString (aLit));
+    assertEquals ("\"Gr\\u00fcezi\"", CodeModelTestsHelper.toString (aLit));
+    aLit.what ("Hello");
+    assertEquals ("\"Hello\"", CodeModelTestsHelper.toString (aLit));
+  }
 }
@@ -0,0 +1,261 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.util.CodeModelTestsHelper;
+import com.helger.jcodemodel.util.NullWriter;
+import com.helger.jcodemodel.writer.OutputStreamCodeWriter;
+
+/**
+ * Test class for class {@link JFormatter}.
+ *
+ * @author Philip Helger
+ */
+public final class JFormatterTest
+{
+  @Nonnull
+  private static String _build (@Nonnull final JCodeModel cm, final boolean bSinglePass) throws IOException
+  {
+    cm.setBuildingSinglePass (bSinglePass);
+    try (final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ())
+    {
+      cm.build (new OutputStreamCodeWriter (aBAOS, CodeModelTestsHelper.DEFAULT_ENCODING));
+      return aBAOS.toString (CodeModelTestsHelper.DEFAULT_ENCODING.name ());
+    }
+  }
+
+  private static void _assertSameOutput (@Nonnull final JCodeModel cm) throws IOException
+  {
+    final String sTwoPass = _build (cm, false);
+    final String sSinglePass = _build (cm, true);
+    assertEquals (sTwoPass, sSinglePass);
+  }
+
+  @Test
+  public void testSinglePassCollisions () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aOwnString = cm._class ("org.test.String");
+    final JDefinedClass aOtherList = cm._class ("org.test.other.List");
+    final JDefinedClass aClass = cm._class ("org.test.User");
+    aClass.headerComment ().add ("Header with {@link}");
+    aClass.field (JMod.PRIVATE, String.class, "m_sJava");
+    aClass.field (JMod.PRIVATE, aOwnString, "m_aOwn");
+    aClass.field (JMod.PRIVATE, cm.ref (List.class).narrow (aOtherList), "m_aList");
+    aClass.field (JMod.PRIVATE, aOtherList.array (), "m_aArray");
+    final JMethod aMethod = aClass.method (JMod.PUBLIC, cm.VOID, "List");
+    final JVar aVar = aMethod.param (cm.ref (Map.Entry.class).narrow (cm.wildcard (), cm.ref (Integer.class)), "Map");
+    aMethod.body ().decl (cm.ref (ArrayList.class).narrow (String.class), "x", JExpr._new (cm.ref (ArrayList.class).narrowEmpty ()));
+    aMethod.body ().invoke (aVar, "getKey");
+    aMethod.javadoc ().add ("See ");
+    aMethod.javadoc ().add (cm.ref (Map.class));
+    aMethod.javadoc ().add (" and ");
+    aMethod.javadoc ().add (aOtherList);
+    aMethod.javadoc ().addThrows (IllegalStateException.class).add ("never");
+    _assertSameOutput (cm);
+  }
+
+  @Test
+  public void testJavaLangCollision () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    cm._class ("org.test.String");
+    cm._class ("org.test.User").field (JMod.PRIVATE, String.class, "m_sJava");
+    cm._class ("org.test.other.User").field (JMod.PRIVATE, String.class, "m_sJava");
+
+    // java.lang.String is ambiguous only in the package with an own String
+    final Map <String, Integer> aCollisions = new HashMap <> ();
+    cm.setBuildListener (new IJBuildListener ()
+    {
+      @Override
+      public void onFileBuilt (@Nonnull final JBuildMetrics aMetrics)
+      {
+        aCollisions.put (aMetrics.getPackage ().name () + "." + aMetrics.getFilename (),
+                         Integer.valueOf (aMetrics.getCollisionCount ()));
+      }
+    });
+    _assertSameOutput (cm);
+    assertEquals (Integer.valueOf (1), aCollisions.get ("org.test.User.java"));
+    assertEquals (Integer.valueOf (0), aCollisions.get ("org.test.other.User.java"));
+  }
+
+  @Test
+  public void testSinglePassInnerAndAnonymous () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aClass = cm._class ("org.test.DaTestClass");
+    final JDefinedClass aInner = aClass._class ("Inner");
+    final JDefinedClass aInnerInner = aInner._class (JMod.PUBLIC | JMod.STATIC, "InnerInner");
+    final JDefinedClass aInner2 = aClass._class ("DaTestClassInner");
+    aClass.method (JMod.PUBLIC, aInnerInner, "getInnerInner");
+    aClass.method (JMod.PUBLIC, aInner2, "getInner2");
+    aInner.method (JMod.PUBLIC, cm.ref (Map.Entry.class), "getEntry");
+
+    final JDefinedClass aEnum = cm._package ("org.test.enums")._enum ("EEnum");
+    aEnum.enumConstant ("A");
+    aEnum.enumConstant ("B");
+
+    final JDefinedClass aOther = cm._class ("org.test.other.OtherClass");
+    aOther._implements (Serializable.class);
+    aOther.annotate (Deprecated.class);
+    aOther.method (JMod.PUBLIC, aInner, "getInner");
+    final JMethod aMethod = aOther.method (JMod.PUBLIC, cm.ref (Function.class).narrow (String.class, Integer.class), "f");
+    final JTypeVar aTV = aMethod.generify ("T", Number.class);
+    aMethod.param (aTV, "t");
+    final JAnonymousClass aAnon = cm.anonymousClass (cm.ref (Runnable.class));
+    aAnon.method (JMod.PUBLIC, cm.VOID, "run").body ().add (JExpr.enumConstantRef (aEnum, "A").invoke ("toString"));
+    aMethod.body ().decl (cm.ref (Runnable.class), "r", JExpr._new (aAnon));
+    aMethod.body ().add (cm.ref (RetentionPolicy.class).staticInvoke ("values"));
+    final JLambda aLambda = new JLambda ();
+    final JLambdaParam aParam = aLambda.addParam ("s");
+    aLambda.body ().lambdaExpr (cm.ref (Integer.class).staticInvoke ("valueOf").arg (aParam));
+    aMethod.body ()._return (aLambda);
+    _assertSameOutput (cm);
+  }
+
+  @Nonnull
+  private static String _write (@Nonnull final JFormatter f, @Nonnull final JDefinedClass aClass)
+  {
+    final StringWriter aSW = new StringWriter ();
+    f.reset (new SourcePrintWriter (aSW, "\n")).write (aClass);
+    return aSW.toString ();
+  }
+
+  @Test
+  public void testReset () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aClass1 = cm._class ("org.test.A");
+    aClass1.field (JMod.PRIVATE, cm.ref (List.class).narrow (String.class), "m_aList");
+    aClass1.method (JMod.PUBLIC, cm.ref (java.awt.List.class), "getList");
+    final JDefinedClass aClass2 = cm._class ("org.test.other.B");
+    aClass2.field (JMod.PRIVATE, cm.ref (java.awt.List.class), "m_aList");
+    aClass2.method (JMod.PUBLIC, aClass1, "getA").body ()._return (JExpr._null ());
+
+    for (final boolean bSinglePass : new boolean [] { false, true })
+    {
+      final JFormatter aReused = new JFormatter (NullWriter.getInstance ()).setSinglePass (bSinglePass);
+      for (int i = 0; i < 2; ++i)
+        for (final JDefinedClass aClass : new JDefinedClass [] { aClass1, aClass2 })
+        {
+          final String sExpected = _write (new JFormatter (NullWriter.getInstance ()).setSinglePass (bSinglePass),
+                                           aClass);
+          assertEquals (sExpected, _write (aReused, aClass));
+        }
+    }
+  }
+
+  @Test
+  public void testFragmentCache () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    // Shared expressions rendered in packages with different imports
+    final IJExpression aNewList = JExpr._new (cm.ref (ArrayList.class).narrow (String.class));
+    final IJExpression aSize = cm.ref (Integer.class).staticRef ("MAX_VALUE").minus (JExpr.lit (1));
+    final JLambda aLambda = new JLambda ();
+    final JLambdaParam aParam = aLambda.addParam ("s");
+    aLambda.body ().lambdaExpr (cm.ref (Integer.class).staticInvoke ("valueOf").arg (aParam));
+    final JAnonymousClass aAnon = cm.anonymousClass (cm.ref (Runnable.class));
+    aAnon.method (JMod.PUBLIC, cm.VOID, "run").body ().add (JExpr.lit ("x").invoke ("trim"));
+    final IJExpression aNewAnon = JExpr._new (aAnon);
+
+    cm._class ("org.test.ArrayList");
+    cm._class ("org.test.other.Integer");
+    for (final String sName : new String [] { "org.test.A", "org.test.other.B", "org.test.third.C" })
+    {
+      final JDefinedClass aClass = cm._class (sName);
+      aClass.field (JMod.PRIVATE, cm.ref (List.class).narrow (String.class), "m_aList", aNewList);
+      aClass.field (JMod.PRIVATE, cm.INT, "m_nSize", aSize.plus (aSize));
+      aClass.field (JMod.PRIVATE, cm.ref (Runnable.class), "m_aRunnable", aNewAnon);
+      final JMethod aMethod = aClass.method (JMod.PUBLIC,
+                                             cm.ref (Function.class).narrow (String.class, Integer.class),
+                                             "f");
+      aMethod.body ().add (cm.ref (List.class).staticInvoke ("of").arg (aSize).arg (aNewList));
+      aMethod.body ()._return (aLambda);
+    }
+
+    for (final boolean bSinglePass : new boolean [] { false, true })
+    {
+      final String sExpected = _build (cm.setBuildingFragmentCache (false), bSinglePass);
+      assertEquals (sExpected, _build (cm.setBuildingFragmentCache (true), bSinglePass));
+    }
+  }
+
+  @Test
+  public void testLargeAndDeeplyNestedFile () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aClass = cm._class ("org.test.Large");
+    // More than the output buffer flush threshold
+    for (int i = 0; i < 3000; ++i)
+      aClass.field (JMod.PRIVATE, cm.ref (List.class).narrow (String.class), "m_aList" + i);
+    JDefinedClass aInner = aClass;
+    for (int i = 0; i < 20; ++i)
+      aInner = aInner._class (JMod.PUBLIC | JMod.STATIC, "Inner" + i);
+    aInner.field (JMod.PRIVATE, cm.INT, "m_nDeepest");
+
+    _assertSameOutput (cm);
+    final String sOutput = _build (cm, false);
+    assertTrue (sOutput.contains ("    private List<String> m_aList2999;"));
+    final StringBuilder aIndent = new StringBuilder ();
+    for (int i = 0; i < 21; ++i)
+      aIndent.append ("    ");
+    assertTrue (sOutput.contains ("\n" + aIndent + "private int m_nDeepest;"));
+  }
+}
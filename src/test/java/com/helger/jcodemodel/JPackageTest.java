@@ -40,8 +40,10 @@
  */
 package com.helger.jcodemodel;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -67,4 +69,20 @@ public final class JPackageTest
     assertNotNull (wCurrentPackage);
     assertNull (wCurrentPackage.parent ());
   }
+
+  @Test
+  public void testIsDefined () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JPackage aPkg = cm._package ("org.test");
+    aPkg._class ("Foo")._class ("Inner");
+    assertTrue (aPkg.isDefined ("Foo"));
+    assertFalse (aPkg.isDefined ("Inner"));
+    assertFalse (aPkg.isDefined ("foo"));
+    assertFalse (aPkg.isDefined (null));
+
+    cm.setConcurrentConstruction (true);
+    assertTrue (aPkg.isDefined ("Foo"));
+    assertFalse (aPkg.isDefined (null));
+  }
 }
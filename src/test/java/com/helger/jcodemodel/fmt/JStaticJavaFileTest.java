@@ -0,0 +1,139 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.fmt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.AbstractCodeWriter;
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.JPackage;
+
+/**
+ * Test class for classes {@link JStaticJavaFile} and {@link JStaticFile}.
+ *
+ * @author Philip Helger
+ */
+public final class JStaticJavaFileTest
+{
+  private static final String RESOURCE = "com/helger/jcodemodel/fmt/StaticTemplate.txt";
+
+  @Nonnull
+  private static Map <String, byte []> _build (@Nonnull final JCodeModel cm) throws IOException
+  {
+    final Map <String, byte []> ret = new TreeMap <> ();
+    cm.build (new AbstractCodeWriter (null, "\n")
+    {
+      @Override
+      public OutputStream openBinary (@Nonnull final JPackage aPackage,
+                                      @Nonnull final String sFilename) throws IOException
+      {
+        return new ByteArrayOutputStream ()
+        {
+          @Override
+          public void close ()
+          {
+            ret.put (aPackage.name () + "/" + sFilename, toByteArray ());
+          }
+        };
+      }
+
+      @Override
+      public void close ()
+      {}
+    });
+    return ret;
+  }
+
+  @Test
+  public void testFastPathMatchesFilter () throws Exception
+  {
+    final URL aURL = JStaticJavaFileTest.class.getClassLoader ().getResource (RESOURCE);
+    for (final String sPackage : new String [] { "", "com.helger.target" })
+    {
+      final JCodeModel cm = new JCodeModel ();
+      final JPackage aPkg = cm._package (sPackage);
+      aPkg.addResourceFile (new JStaticJavaFile (aPkg, "Fast", aURL, null));
+      aPkg.addResourceFile (new JStaticJavaFile (aPkg, "Filtered", aURL, Function.identity ()));
+      // Twice to use the cached template
+      for (int i = 0; i < 2; ++i)
+      {
+        final Map <String, byte []> aFiles = _build (cm);
+        assertEquals (2, aFiles.size ());
+        assertArrayEquals (aFiles.get (sPackage + "/Filtered.java"), aFiles.get (sPackage + "/Fast.java"));
+
+        final String sExpectedPackage = sPackage.isEmpty () ? "" : "package " + sPackage + ";" + System.lineSeparator ();
+        final String sContent = new String (aFiles.get (sPackage + "/Fast.java"), Charset.defaultCharset ());
+        assertTrue (sContent.startsWith ("/* Header */" +
+                                         System.lineSeparator () +
+                                         sExpectedPackage +
+                                         System.lineSeparator () +
+                                         "import java.util.List;"));
+      }
+    }
+  }
+
+  @Test
+  public void testStaticFile () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    cm._package ("com.helger.res").addResourceFile (new JStaticFile (RESOURCE));
+    final byte [] aFirst = _build (cm).get ("com.helger.res/StaticTemplate.txt");
+    // From the cache
+    final byte [] aSecond = _build (cm).get ("com.helger.res/StaticTemplate.txt");
+    assertArrayEquals (aFirst, aSecond);
+    assertEquals ('/', aFirst[0]);
+  }
+}
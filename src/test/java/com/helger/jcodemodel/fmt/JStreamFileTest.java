@@ -0,0 +1,106 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.fmt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.writer.FileCodeWriter;
+import com.helger.jcodemodel.writer.PathCodeWriter;
+
+/**
+ * Test class for classes {@link JStreamFile} and {@link JPathFile}.
+ *
+ * @author Philip Helger
+ */
+public final class JStreamFileTest
+{
+  @Test
+  public void testBuild () throws Exception
+  {
+    final byte [] aData = new byte [1024 * 1024 + 17];
+    new Random (42).nextBytes (aData);
+
+    final Path aSourceFile = Files.createTempFile ("jcm", ".bin");
+    final Path aFileTarget = Files.createTempDirectory ("jcm-file");
+    final Path aPathTarget = Files.createTempDirectory ("jcm-path");
+    try
+    {
+      Files.write (aSourceFile, aData);
+
+      final AtomicInteger aOpenCount = new AtomicInteger ();
+      final JCodeModel cm = new JCodeModel ();
+      cm._package ("com.helger.res").addResourceFile (new JStreamFile ("stream.bin", () -> {
+        aOpenCount.incrementAndGet ();
+        return new ByteArrayInputStream (aData);
+      }));
+      cm._package ("com.helger.res").addResourceFile (new JPathFile ("path.bin", aSourceFile, true));
+      assertEquals (0, aOpenCount.get ());
+
+      // FileCodeWriter uses FileOutputStream and therefore transferTo
+      cm.build (new FileCodeWriter (aFileTarget.toFile ()));
+      assertEquals (1, aOpenCount.get ());
+      cm.build (new PathCodeWriter (aPathTarget));
+      assertEquals (2, aOpenCount.get ());
+
+      for (final Path aTarget : new Path [] { aFileTarget, aPathTarget })
+        for (final String sName : new String [] { "stream.bin", "path.bin" })
+          assertArrayEquals (aData, Files.readAllBytes (aTarget.resolve ("com/helger/res/" + sName)));
+    }
+    finally
+    {
+      Files.delete (aSourceFile);
+      for (final Path aTarget : new Path [] { aFileTarget, aPathTarget })
+        for (final String sName : new String [] { "stream.bin", "path.bin" })
+          new File (aTarget.toFile (), "com/helger/res/" + sName).delete ();
+    }
+  }
+}
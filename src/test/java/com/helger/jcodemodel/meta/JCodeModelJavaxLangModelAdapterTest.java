@@ -0,0 +1,336 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.meta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.AbstractJClass;
+import com.helger.jcodemodel.AbstractJType;
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.JDefinedClass;
+import com.helger.jcodemodel.JErrorClass;
+import com.helger.jcodemodel.JMethod;
+
+/**
+ * Test class for class {@link JCodeModelJavaxLangModelAdapter}.
+ *
+ * @author Philip Helger
+ */
+public final class JCodeModelJavaxLangModelAdapterTest
+{
+  private static final String SOURCE = "package test;\n" +
+                                       "@Deprecated\n" +
+                                       "public class A extends java.util.ArrayList<String> {\n" +
+                                       "  public Missing get () { return null; }\n" +
+                                       "}\n" +
+                                       "class B {\n" +
+                                       "  public java.util.List<A> list () { return null; }\n" +
+                                       "}\n" +
+                                       "class C {\n" +
+                                       "  public java.util.List<A> list () { return null; }\n" +
+                                       "}\n";
+
+  private static final class StringSource extends SimpleJavaFileObject
+  {
+    private final String m_sContent;
+
+    StringSource (final String sClassName, final String sContent)
+    {
+      super (URI.create ("string:///" + sClassName.replace ('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+      m_sContent = sContent;
+    }
+
+    @Override
+    public CharSequence getCharContent (final boolean bIgnoreEncodingErrors)
+    {
+      return m_sContent;
+    }
+  }
+
+  /**
+   * Runs the provided test once on the first processing round.
+   */
+  private abstract static class AbstractTestProcessor extends AbstractProcessor
+  {
+    private boolean m_bDone = false;
+
+    @Override
+    public Set <String> getSupportedAnnotationTypes ()
+    {
+      return Collections.singleton ("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion ()
+    {
+      return SourceVersion.latestSupported ();
+    }
+
+    @Override
+    public boolean process (final Set <? extends TypeElement> aAnnotations, final RoundEnvironment aRoundEnv)
+    {
+      if (!m_bDone)
+      {
+        m_bDone = true;
+        try
+        {
+          runTest (processingEnv.getElementUtils ());
+        }
+        catch (final Exception ex)
+        {
+          throw new IllegalStateException (ex);
+        }
+      }
+      return false;
+    }
+
+    protected abstract void runTest (Elements aElements) throws Exception;
+  }
+
+  private static void _process (final AbstractTestProcessor aProcessor)
+  {
+    final JavaCompiler aCompiler = ToolProvider.getSystemJavaCompiler ();
+    assertNotNull (aCompiler);
+    final JavaFileObject aSource = new StringSource ("test.A", SOURCE);
+    final JavaCompiler.CompilationTask aTask = aCompiler.getTask (null,
+                                                                  null,
+                                                                  x -> {},
+                                                                  Arrays.asList ("-proc:only"),
+                                                                  null,
+                                                                  Collections.singletonList (aSource));
+    aTask.setProcessors (Collections.singletonList (aProcessor));
+    // Fails because of the missing type
+    aTask.call ();
+    assertTrue (aProcessor.m_bDone);
+  }
+
+  @Nonnull
+  private static AbstractJType _getReturnType (final JDefinedClass aClass, final String sMethodName)
+  {
+    for (final JMethod aMethod : aClass.methods ())
+      if (aMethod.name ().equals (sMethodName))
+        return aMethod.type ();
+    throw new IllegalStateException ("No method " + sMethodName);
+  }
+
+  @Test
+  public void testCacheAndErrorTypeResolution ()
+  {
+    _process (new AbstractTestProcessor ()
+    {
+      @Override
+      protected void runTest (final Elements aElements) throws Exception
+      {
+        final JCodeModel cm = new JCodeModel ();
+        final TypeElement aElement = aElements.getTypeElement ("test.A");
+
+        final JDefinedClass aClass1 = cm.refWithErrorTypes (aElement, aElements);
+        assertTrue (aClass1.isHidden ());
+        assertTrue (_getReturnType (aClass1, "get") instanceof JErrorClass);
+
+        // Still unresolvable - the existing class is returned
+        assertSame (aClass1, cm.refWithErrorTypes (aElement, aElements));
+        assertSame (aClass1, cm.ref (aElement, aElements));
+
+        // The missing type becomes resolvable
+        final JDefinedClass aMissing = cm._class ("test.Missing");
+        final JDefinedClass aClass2 = cm.ref (aElement, aElements);
+        assertNotSame (aClass1, aClass2);
+        assertSame (aMissing, _getReturnType (aClass2, "get"));
+        assertSame (aClass2, cm._getClass ("test.A"));
+        assertSame (aClass2, cm.ref (aElement, aElements));
+
+        // The super class type mirror was converted only once
+        assertSame (aClass1._extends (), aClass2._extends ());
+        assertEquals ("java.util.ArrayList<java.lang.String>", aClass2._extends ().fullName ());
+      }
+    });
+  }
+
+  @Test
+  public void testLazyMembers ()
+  {
+    _process (new AbstractTestProcessor ()
+    {
+      @Override
+      protected void runTest (final Elements aElements) throws Exception
+      {
+        final JCodeModel cm = new JCodeModel ();
+        cm.getJavaxLangModelCache ().setLazyMembers (true);
+        final TypeElement aElement = aElements.getTypeElement ("test.A");
+
+        final JDefinedClass aClass1 = cm.refWithErrorTypes (aElement, aElements);
+        assertTrue (aClass1.hasLazyMemberInitializer ());
+        assertEquals ("java.util.ArrayList<java.lang.String>", aClass1._extends ().fullName ());
+        assertTrue (aClass1.hasLazyMemberInitializer ());
+
+        // First access converts annotations and methods
+        assertEquals (1, aClass1.annotations ().size ());
+        assertFalse (aClass1.hasLazyMemberInitializer ());
+        assertTrue (_getReturnType (aClass1, "get") instanceof JErrorClass);
+        assertSame (aClass1, cm.ref (aElement, aElements));
+
+        // The error-type in the lazily converted method is resolved later on
+        final JDefinedClass aMissing = cm._class ("test.Missing");
+        final JDefinedClass aClass2 = cm.ref (aElement, aElements);
+        assertNotSame (aClass1, aClass2);
+        assertSame (aMissing, _getReturnType (aClass2, "get"));
+      }
+    });
+  }
+
+  @Test
+  public void testLazyMembersEvictCachedTypes ()
+  {
+    _process (new AbstractTestProcessor ()
+    {
+      @Override
+      protected void runTest (final Elements aElements) throws Exception
+      {
+        final JCodeModel cm = new JCodeModel ();
+        cm.getJavaxLangModelCache ().setLazyMembers (true);
+        final TypeElement aElement = aElements.getTypeElement ("test.A");
+
+        // The type mirror "List<A>" is cached before the error-type of A is found
+        final JDefinedClass aClass1 = cm.refWithErrorTypes (aElement, aElements);
+        final JDefinedClass aClassB = cm.ref (aElements.getTypeElement ("test.B"), aElements);
+        final AbstractJClass aListB = (AbstractJClass) _getReturnType (aClassB, "list");
+        assertSame (aClass1, aListB.getTypeParameters ().get (0));
+        assertTrue (_getReturnType (aClass1, "get") instanceof JErrorClass);
+
+        // The cached type must not return the orphaned class
+        cm._class ("test.Missing");
+        final JDefinedClass aClass2 = cm.ref (aElement, aElements);
+        assertNotSame (aClass1, aClass2);
+        final JDefinedClass aClassC = cm.ref (aElements.getTypeElement ("test.C"), aElements);
+        final AbstractJClass aListC = (AbstractJClass) _getReturnType (aClassC, "list");
+        assertSame (aClass2, aListC.getTypeParameters ().get (0));
+      }
+    });
+  }
+
+  @Test
+  public void testLazyMembersFailureIsRetried ()
+  {
+    _process (new AbstractTestProcessor ()
+    {
+      @Override
+      protected void runTest (final Elements aElements) throws Exception
+      {
+        final JCodeModel cm = new JCodeModel ();
+        cm.getJavaxLangModelCache ().setLazyMembers (true);
+        final TypeElement aElement = aElements.getTypeElement ("test.A");
+
+        // The error-type is only found when the members are converted
+        final JDefinedClass aClass = cm.ref (aElement, aElements);
+        try
+        {
+          aClass.methods ();
+          fail ();
+        }
+        catch (final IllegalStateException ex)
+        {
+          // expected
+        }
+        assertTrue (aClass.hasLazyMemberInitializer ());
+
+        // The annotation of the failed run is not kept
+        cm._class ("test.Missing");
+        assertEquals (1, aClass.annotations ().size ());
+        assertEquals (1, aClass.methods ().size ());
+        assertFalse (aClass.hasLazyMemberInitializer ());
+      }
+    });
+  }
+
+  @Test
+  public void testLazyMembersAcrossCompilations ()
+  {
+    final JCodeModel cm = new JCodeModel ();
+    cm.getJavaxLangModelCache ().setLazyMembers (true);
+    final JDefinedClass [] aClass = new JDefinedClass [1];
+    _process (new AbstractTestProcessor ()
+    {
+      @Override
+      protected void runTest (final Elements aElements) throws Exception
+      {
+        aClass[0] = cm.refWithErrorTypes (aElements.getTypeElement ("test.A"), aElements);
+        assertTrue (aClass[0].hasLazyMemberInitializer ());
+      }
+    });
+    _process (new AbstractTestProcessor ()
+    {
+      @Override
+      protected void runTest (final Elements aElements) throws Exception
+      {
+        // The cached class is converted with the elements of this compilation
+        assertSame (aClass[0], cm.refWithErrorTypes (aElements.getTypeElement ("test.A"), aElements));
+        assertTrue (aClass[0].hasLazyMemberInitializer ());
+        assertTrue (_getReturnType (aClass[0], "get") instanceof JErrorClass);
+        assertEquals (1, aClass[0].annotations ().size ());
+      }
+    });
+  }
+}
@@ -42,13 +42,19 @@ package com.helger.jcodemodel.util;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import com.github.javaparser.JavaParser;
@@ -58,8 +64,11 @@ import com.helger.jcodemodel.IJDeclaration;
 import com.helger.jcodemodel.IJExpression;
 import com.helger.jcodemodel.IJGenerable;
 import com.helger.jcodemodel.IJStatement;
+import com.helger.jcodemodel.JClassAlreadyExistsException;
 import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.JDefinedClass;
 import com.helger.jcodemodel.JFormatter;
+import com.helger.jcodemodel.JMod;
 import com.helger.jcodemodel.JPackage;
 import com.helger.jcodemodel.writer.OutputStreamCodeWriter;
 import com.helger.jcodemodel.writer.SingleStreamCodeWriter;
@@ -78,6 +87,55 @@ public final class CodeModelTestsHelper
   private CodeModelTestsHelper ()
   {}
 
+  /**
+   * Create a simple model for writer tests. It contains the classes
+   * <code>sPackagePrefix.p<i>n</i>.Class<i>m</i></code>, each with a single
+   * field and a Javadoc containing non-ASCII chars, and the class
+   * <code>Root</code> in the root package.
+   *
+   * @param sPackagePrefix
+   *        The prefix of all package names
+   * @param nPackages
+   *        Number of packages
+   * @param nClassesPerPackage
+   *        Number of classes per package
+   * @return The new model. Never <code>null</code>.
+   * @throws JClassAlreadyExistsException
+   *         never
+   */
+  @Nonnull
+  public static JCodeModel createSimpleModel (@Nonnull final String sPackagePrefix,
+                                              @Nonnegative final int nPackages,
+                                              @Nonnegative final int nClassesPerPackage) throws JClassAlreadyExistsException
+  {
+    final JCodeModel cm = new JCodeModel ();
+    for (int p = 0; p < nPackages; ++p)
+      for (int i = 0; i < nClassesPerPackage; ++i)
+      {
+        final JDefinedClass aClass = cm._class (sPackagePrefix + ".p" + p + ".Class" + i);
+        aClass.field (JMod.PRIVATE | JMod.FINAL, cm.INT, "m_nValue");
+        aClass.javadoc ().add ("Umlauts äöü and €");
+      }
+    cm.rootPackage ()._class ("Root");
+    return cm;
+  }
+
+  /**
+   * Delete a directory with all its content.
+   *
+   * @param aDir
+   *        The directory to delete
+   * @throws IOException
+   *         on IO error
+   */
+  public static void deleteRecursive (@Nonnull final Path aDir) throws IOException
+  {
+    try (final Stream <Path> aPaths = Files.walk (aDir))
+    {
+      aPaths.sorted (Comparator.reverseOrder ()).map (Path::toFile).forEach (File::delete);
+    }
+  }
+
   /**
    * Prints an expression into a string.
    *
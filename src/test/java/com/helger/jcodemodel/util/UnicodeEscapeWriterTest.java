@@ -0,0 +1,144 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.SourcePrintWriter;
+import com.helger.jcodemodel.writer.OutputStreamCodeWriter;
+
+/**
+ * Test class for class {@link UnicodeEscapeWriter}.
+ */
+public final class UnicodeEscapeWriterTest
+{
+  // U+1F600 as surrogate pair
+  private static final String EMOJI = "😀";
+
+  @Nonnull
+  private static String _escape (@Nonnull final String... aParts) throws IOException
+  {
+    final StringWriter aSW = new StringWriter ();
+    try (final Writer aWriter = new UnicodeEscapeWriter (aSW))
+    {
+      for (final String sPart : aParts)
+        aWriter.write (sPart);
+    }
+    return aSW.toString ();
+  }
+
+  @Nonnull
+  private static String _writeSource (@Nonnull final Charset aCharset, @Nonnull final String sText) throws IOException
+  {
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    try (final OutputStreamCodeWriter aCW = new OutputStreamCodeWriter (aBAOS, aCharset))
+    {
+      try (final SourcePrintWriter aPW = aCW.openSource (new JCodeModel ().rootPackage (), "Test.java"))
+      {
+        aPW.print (sText);
+      }
+    }
+    return new String (aBAOS.toByteArray (), aCharset);
+  }
+
+  @Test
+  public void testBasic () throws IOException
+  {
+    assertEquals ("", _escape (""));
+    assertEquals ("abc\tdef\r\n", _escape ("abc\tdef\r\n"));
+    assertEquals ("a\\u0000b\\u001f", _escape ("a\u0000b\u001f"));
+    assertEquals ("\\u00e4x\\u20ac", _escape ("äx€"));
+    assertEquals ("\\u00e4x\\u20ac", _escape ("ä", "x", "€"));
+  }
+
+  @Test
+  public void testSurrogates () throws IOException
+  {
+    assertEquals ("a\\ud83d\\ude00b", _escape ("a" + EMOJI + "b"));
+    // Pair split across write calls
+    assertEquals ("a\\ud83d\\ude00b", _escape ("a\uD83D", "\uDE00b"));
+    // Lone surrogates
+    assertEquals ("\\ud83dx\\ude00", _escape ("\uD83Dx\uDE00"));
+    assertEquals ("x\\ud83d", _escape ("x\uD83D"));
+    assertEquals ("\\ud83dx", _escape ("\uD83D", "x"));
+  }
+
+  @Test
+  public void testCharsetDependentEscaping () throws IOException
+  {
+    final String sText = "aä€" + EMOJI + "\u0001";
+    assertEquals ("aä€" + EMOJI + "\\u0001", _writeSource (StandardCharsets.UTF_8, sText));
+    assertEquals ("aä\\u20ac\\ud83d\\ude00\\u0001", _writeSource (StandardCharsets.ISO_8859_1, sText));
+    assertEquals ("a\\u00e4\\u20ac\\ud83d\\ude00\\u0001", _writeSource (StandardCharsets.US_ASCII, sText));
+  }
+
+  @Test
+  public void testSurrogatePairSplitByFlush () throws IOException
+  {
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    try (final OutputStreamCodeWriter aCW = new OutputStreamCodeWriter (aBAOS, StandardCharsets.UTF_8))
+    {
+      try (final SourcePrintWriter aPW = aCW.openSource (new JCodeModel ().rootPackage (), "Test.java"))
+      {
+        aPW.print ("a\uD83D");
+        aPW.flush ();
+        aPW.print ("\uDE00b");
+        aPW.flush ();
+        // A lone high surrogate at the end is escaped on close
+        aPW.print ("\uD83D");
+        aPW.flush ();
+      }
+    }
+    assertEquals ("a" + EMOJI + "b\\ud83d", new String (aBAOS.toByteArray (), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,206 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.JMod;
+import com.helger.jcodemodel.JPackage;
+import com.helger.jcodemodel.util.CodeModelTestsHelper;
+
+/**
+ * Test class for class {@link FileCodeWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class FileCodeWriterTest
+{
+  @Nonnull
+  private static FileCodeWriter _build (@Nonnull final JCodeModel cm, @Nonnull final File aDir) throws IOException
+  {
+    final FileCodeWriter aWriter = new FileCodeWriter (aDir).setIncremental (true).setDeleteStaleFiles (true);
+    cm.build (aWriter);
+    return aWriter;
+  }
+
+  @Test
+  public void testIncremental () throws Exception
+  {
+    final Path aTempDir = Files.createTempDirectory ("jcm-incremental");
+    try
+    {
+      final File aDir = aTempDir.toFile ();
+
+      // Initial build
+      FileCodeWriter aWriter = _build (CodeModelTestsHelper.createSimpleModel ("com.helger.incremental", 1, 3), aDir);
+      assertEquals (4, aWriter.getWrittenFileCount ());
+      assertEquals (0, aWriter.getSkippedFileCount ());
+      assertEquals (0, aWriter.getDeletedFileCount ());
+
+      final File aFile0 = new File (aDir, "com/helger/incremental/p0/Class0.java");
+      assertTrue (aFile0.setLastModified (1000L));
+
+      // Nothing changed
+      aWriter = _build (CodeModelTestsHelper.createSimpleModel ("com.helger.incremental", 1, 3), aDir);
+      assertEquals (0, aWriter.getWrittenFileCount ());
+      assertEquals (4, aWriter.getSkippedFileCount ());
+      assertEquals (0, aWriter.getDeletedFileCount ());
+      assertEquals (1000L, aFile0.lastModified ());
+
+      // One class less and one class changed
+      final JCodeModel cm = CodeModelTestsHelper.createSimpleModel ("com.helger.incremental", 1, 2);
+      cm._getClass ("com.helger.incremental.p0.Class1").field (JMod.PUBLIC, cm.LONG, "m_nOther");
+      aWriter = _build (cm, aDir);
+      assertEquals (1, aWriter.getWrittenFileCount ());
+      assertEquals (2, aWriter.getSkippedFileCount ());
+      assertEquals (1, aWriter.getDeletedFileCount ());
+      assertEquals (1000L, aFile0.lastModified ());
+      assertFalse (new File (aDir, "com/helger/incremental/p0/Class2.java").exists ());
+    }
+    finally
+    {
+      CodeModelTestsHelper.deleteRecursive (aTempDir);
+    }
+  }
+
+  @Test
+  public void testDeleteStaleFilesKeepsOtherFiles () throws Exception
+  {
+    final Path aTempDir = Files.createTempDirectory ("jcm-incremental");
+    try
+    {
+      final File aDir = aTempDir.toFile ();
+      _build (CodeModelTestsHelper.createSimpleModel ("com.helger.incremental", 1, 2), aDir);
+
+      // A class in another package that is removed later on
+      final JCodeModel cm = CodeModelTestsHelper.createSimpleModel ("com.helger.incremental", 1, 2);
+      cm._class ("com.helger.incremental.p0.sub.Removed");
+      _build (cm, aDir);
+      final File aSubDir = new File (aDir, "com/helger/incremental/p0/sub");
+      assertTrue (new File (aSubDir, "Removed.java").exists ());
+
+      // Files with other extensions and without extension are kept
+      final File aResource = new File (aDir, "com/helger/incremental/p0/data.properties");
+      Files.write (aResource.toPath (), new byte [] { 'a' });
+      final File aReadme = new File (aDir, "README");
+      Files.write (aReadme.toPath (), new byte [] { 'b' });
+      final File aOtherDir = new File (aDir, "empty");
+      assertTrue (aOtherDir.mkdir ());
+
+      final FileCodeWriter aWriter = _build (CodeModelTestsHelper.createSimpleModel ("com.helger.incremental", 1, 2), aDir);
+      assertEquals (1, aWriter.getDeletedFileCount ());
+      assertFalse (aSubDir.exists ());
+      assertTrue (aResource.exists ());
+      assertTrue (aReadme.exists ());
+      assertTrue (aOtherDir.exists ());
+      assertTrue (new File (aDir, "com/helger/incremental/p0/Class1.java").exists ());
+    }
+    finally
+    {
+      CodeModelTestsHelper.deleteRecursive (aTempDir);
+    }
+  }
+
+  @Test
+  public void testGetFileIsUsedInAllModes () throws Exception
+  {
+    final Path aTempDir = Files.createTempDirectory ("jcm-incremental");
+    try
+    {
+      for (final boolean bIncremental : new boolean [] { false, true })
+      {
+        final File aDir = new File (aTempDir.toFile (), Boolean.toString (bIncremental));
+        assertTrue (aDir.mkdir ());
+        final FileCodeWriter aWriter = new FileCodeWriter (aDir)
+        {
+          @Override
+          @Nonnull
+          protected File getFile (@Nonnull final JPackage pkg, @Nonnull final String fileName) throws IOException
+          {
+            return super.getFile (pkg, "Gen" + fileName);
+          }
+        };
+        CodeModelTestsHelper.createSimpleModel ("com.helger.incremental", 1, 2).build (aWriter.setIncremental (bIncremental));
+        assertTrue (new File (aDir, "com/helger/incremental/p0/GenClass0.java").exists ());
+        assertFalse (new File (aDir, "com/helger/incremental/p0/Class0.java").exists ());
+      }
+    }
+    finally
+    {
+      CodeModelTestsHelper.deleteRecursive (aTempDir);
+    }
+  }
+
+  @Test
+  public void testThreadSafeOnlyIfOptedIn () throws Exception
+  {
+    final Path aTempDir = Files.createTempDirectory ("jcm-incremental");
+    try
+    {
+      final FileCodeWriter aWriter = new FileCodeWriter (aTempDir.toFile ());
+      assertTrue (aWriter.isThreadSafe ());
+      assertTrue (new PrologCodeWriter (aWriter, "prolog").isThreadSafe ());
+      assertFalse (new FilterCodeWriter (aWriter).isThreadSafe ());
+
+      // Subclasses need to opt in
+      assertFalse (new FileCodeWriter (aTempDir.toFile ())
+      {}.isThreadSafe ());
+      assertFalse (new PrologCodeWriter (aWriter, "prolog")
+      {}.isThreadSafe ());
+    }
+    finally
+    {
+      CodeModelTestsHelper.deleteRecursive (aTempDir);
+    }
+  }
+}
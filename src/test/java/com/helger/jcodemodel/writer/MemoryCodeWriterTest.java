@@ -0,0 +1,167 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.JDefinedClass;
+import com.helger.jcodemodel.JExpr;
+import com.helger.jcodemodel.JMod;
+import com.helger.jcodemodel.fmt.JTextFile;
+
+/**
+ * Test class for class {@link MemoryCodeWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class MemoryCodeWriterTest
+{
+  /**
+   * Keeps the compiled classes in memory.
+   */
+  private static final class MemoryClassFileManager extends ForwardingJavaFileManager <JavaFileManager>
+  {
+    private final Map <String, ByteArrayOutputStream> m_aClasses = new HashMap <> ();
+
+    MemoryClassFileManager (final JavaFileManager aFileManager)
+    {
+      super (aFileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput (final Location aLocation,
+                                               final String sClassName,
+                                               final JavaFileObject.Kind eKind,
+                                               final FileObject aSibling)
+    {
+      return new SimpleJavaFileObject (URI.create ("class:///" + sClassName.replace ('.', '/') + eKind.extension),
+                                       eKind)
+      {
+        @Override
+        public OutputStream openOutputStream ()
+        {
+          final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+          m_aClasses.put (sClassName, aBAOS);
+          return aBAOS;
+        }
+      };
+    }
+  }
+
+  @Test
+  public void testBuildAndCompile () throws Exception
+  {
+    final JCodeModel cm = new JCodeModel ();
+    final JDefinedClass aClass = cm._class ("org.example.Greeter");
+    aClass.method (JMod.PUBLIC, String.class, "greet").body ()._return (JExpr.lit ("Grüezi"));
+    cm.rootPackage ()._class ("Root");
+    final JTextFile aRes = new JTextFile ("my file.txt", StandardCharsets.UTF_8);
+    aRes.setContents ("abc");
+    cm._package ("org.example").addResourceFile (aRes);
+
+    final MemoryCodeWriter aWriter = new MemoryCodeWriter (StandardCharsets.UTF_8, "\n");
+    cm.build (aWriter);
+
+    // Still available after the build closed the writer
+    assertEquals (Arrays.asList ("Root.java", "org/example/Greeter.java", "org/example/my file.txt"),
+                  aWriter.getAllPaths ());
+    assertArrayEquals ("abc".getBytes (StandardCharsets.UTF_8), aWriter.getBytes (cm._package ("org.example"), "my file.txt"));
+    assertTrue (aWriter.getString ("org/example/Greeter.java").contains ("public String greet()"));
+    assertNull (aWriter.getBytes ("org/example/Missing.java"));
+    assertEquals (3, aWriter.getAllJavaFileObjects ().size ());
+
+    // Compile without touching the disk
+    final List <JavaFileObject> aSources = aWriter.getAllJavaSourceFileObjects ();
+    assertEquals (2, aSources.size ());
+    assertEquals (JavaFileObject.Kind.SOURCE, aSources.get (0).getKind ());
+
+    final JavaCompiler aCompiler = ToolProvider.getSystemJavaCompiler ();
+    assertNotNull (aCompiler);
+    final MemoryClassFileManager aFileManager = new MemoryClassFileManager (aCompiler.getStandardFileManager (null,
+                                                                                                               null,
+                                                                                                               StandardCharsets.UTF_8));
+    assertTrue (aCompiler.getTask (null, aFileManager, null, Arrays.asList ("-proc:none"), null, aSources).call ());
+    assertTrue (aFileManager.m_aClasses.containsKey ("org.example.Greeter"));
+    assertTrue (aFileManager.m_aClasses.containsKey ("Root"));
+
+    final ClassLoader aCL = new ClassLoader (getClass ().getClassLoader ())
+    {
+      @Override
+      protected Class <?> findClass (final String sName) throws ClassNotFoundException
+      {
+        final ByteArrayOutputStream aBAOS = aFileManager.m_aClasses.get (sName);
+        if (aBAOS == null)
+          throw new ClassNotFoundException (sName);
+        final byte [] aBytes = aBAOS.toByteArray ();
+        return defineClass (sName, aBytes, 0, aBytes.length);
+      }
+    };
+    final Class <?> aGreeter = aCL.loadClass ("org.example.Greeter");
+    assertEquals ("Grüezi", aGreeter.getMethod ("greet").invoke (aGreeter.newInstance ()));
+
+    aWriter.clear ();
+    assertTrue (aWriter.getAllFiles ().isEmpty ());
+  }
+}
@@ -0,0 +1,204 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.IJBuildListener;
+import com.helger.jcodemodel.IJChannelOutputStream;
+import com.helger.jcodemodel.JBuildMetrics;
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.JPackage;
+import com.helger.jcodemodel.fmt.JPathFile;
+import com.helger.jcodemodel.util.CodeModelTestsHelper;
+
+/**
+ * Test class for class {@link PathCodeWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class PathCodeWriterTest
+{
+  @Nonnull
+  private static List <Path> _listFiles (@Nonnull final Path aDir) throws IOException
+  {
+    try (final Stream <Path> aPaths = Files.walk (aDir))
+    {
+      return aPaths.filter (Files::isRegularFile).map (aDir::relativize).sorted ().collect (Collectors.toList ());
+    }
+  }
+
+  @Test
+  public void testSameOutputAsFileCodeWriter () throws Exception
+  {
+    final Path aExpectedDir = Files.createTempDirectory ("jcm-file");
+    final Path aActualDir = Files.createTempDirectory ("jcm-path");
+    try
+    {
+      CodeModelTestsHelper.createSimpleModel ("com.helger.path", 3, 5).build (new FileCodeWriter (aExpectedDir.toFile (), CodeModelTestsHelper.DEFAULT_ENCODING));
+
+      // Small buffer to force multiple writes per file
+      final PathCodeWriter aWriter = new PathCodeWriter (aActualDir, CodeModelTestsHelper.DEFAULT_ENCODING);
+      aWriter.setBufferSize (16);
+      CodeModelTestsHelper.createSimpleModel ("com.helger.path", 3, 5).build (aWriter);
+
+      final List <Path> aFiles = _listFiles (aExpectedDir);
+      assertEquals (16, aFiles.size ());
+      assertEquals (aFiles, _listFiles (aActualDir));
+      for (final Path aFile : aFiles)
+        assertArrayEquals (aFile.toString (),
+                           Files.readAllBytes (aExpectedDir.resolve (aFile)),
+                           Files.readAllBytes (aActualDir.resolve (aFile)));
+
+      // Overwrite existing files
+      CodeModelTestsHelper.createSimpleModel ("com.helger.path", 3, 5).build (new PathCodeWriter (aActualDir, CodeModelTestsHelper.DEFAULT_ENCODING));
+      for (final Path aFile : aFiles)
+        assertArrayEquals (aFile.toString (),
+                           Files.readAllBytes (aExpectedDir.resolve (aFile)),
+                           Files.readAllBytes (aActualDir.resolve (aFile)));
+    }
+    finally
+    {
+      CodeModelTestsHelper.deleteRecursive (aExpectedDir);
+      CodeModelTestsHelper.deleteRecursive (aActualDir);
+    }
+  }
+
+  @Test
+  public void testReadOnly () throws Exception
+  {
+    final Path aDir = Files.createTempDirectory ("jcm-path");
+    try
+    {
+      // Build twice to overwrite read-only files
+      for (int i = 0; i < 2; ++i)
+        CodeModelTestsHelper.createSimpleModel ("com.helger.path", 3, 5).build (new PathCodeWriter (aDir, true, CodeModelTestsHelper.DEFAULT_ENCODING));
+
+      for (final Path aFile : _listFiles (aDir))
+      {
+        final Path aAbsFile = aDir.resolve (aFile);
+        if (aDir.getFileSystem ().supportedFileAttributeViews ().contains ("posix"))
+        {
+          final Set <PosixFilePermission> aPerms = Files.getPosixFilePermissions (aAbsFile);
+          assertFalse (aPerms.contains (PosixFilePermission.OWNER_WRITE));
+          assertFalse (aPerms.contains (PosixFilePermission.GROUP_WRITE));
+          assertFalse (aPerms.contains (PosixFilePermission.OTHERS_WRITE));
+        }
+        else
+          assertFalse (aAbsFile.toFile ().canWrite ());
+        assertTrue (aFile.toString (), Files.size (aAbsFile) > 0);
+      }
+    }
+    finally
+    {
+      CodeModelTestsHelper.deleteRecursive (aDir);
+    }
+  }
+
+  @Test
+  public void testChannelResourceFile () throws Exception
+  {
+    final byte [] aData = new byte [100 * 1024 + 3];
+    new Random (42).nextBytes (aData);
+
+    final Path aSourceFile = Files.createTempFile ("jcm", ".bin");
+    final Path aDir = Files.createTempDirectory ("jcm-path");
+    try
+    {
+      Files.write (aSourceFile, aData);
+
+      // The stream flushes the buffered data before the channel is used
+      final PathCodeWriter aWriter = new PathCodeWriter (aDir, CodeModelTestsHelper.DEFAULT_ENCODING);
+      aWriter.setBufferSize (16);
+      final JPackage aPkg = new JCodeModel ()._package ("com.helger.res");
+      try (final OutputStream aOS = aWriter.openBinary (aPkg, "mixed.bin"))
+      {
+        assertTrue (aOS instanceof IJChannelOutputStream);
+        aOS.write (aData, 0, 10);
+        ((IJChannelOutputStream) aOS).getChannel ().write (ByteBuffer.wrap (aData, 10, 10));
+        aOS.write (aData, 20, 10);
+      }
+      assertArrayEquals (Arrays.copyOf (aData, 30), Files.readAllBytes (aDir.resolve ("com/helger/res/mixed.bin")));
+
+      // Transferred bytes are counted when a build listener is present
+      final AtomicLong aBytesWritten = new AtomicLong ();
+      final JCodeModel cm = new JCodeModel ();
+      cm._package ("com.helger.res").addResourceFile (new JPathFile ("path.bin", aSourceFile, true));
+      cm.setBuildListener (new IJBuildListener ()
+      {
+        @Override
+        public void onFileBuilt (@Nonnull final JBuildMetrics aMetrics)
+        {
+          aBytesWritten.addAndGet (aMetrics.getBytesWritten ());
+        }
+      });
+      cm.build (aWriter);
+      assertEquals (aData.length, aBytesWritten.get ());
+      assertArrayEquals (aData, Files.readAllBytes (aDir.resolve ("com/helger/res/path.bin")));
+    }
+    finally
+    {
+      Files.delete (aSourceFile);
+      CodeModelTestsHelper.deleteRecursive (aDir);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ * Portions Copyright 2013-2018 Philip Helger + contributors
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.helger.jcodemodel.writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.jcodemodel.JCodeModel;
+import com.helger.jcodemodel.util.CodeModelTestsHelper;
+
+/**
+ * Test class for class {@link ZipCodeWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class ZipCodeWriterTest
+{
+  // An even number of seconds, as the zip format has a 2 second resolution
+  private static final long ENTRY_TIME = 1_500_000_000_000L;
+
+  @Nonnull
+  private static byte [] _build (@Nonnull final JCodeModel cm,
+                                 final boolean bParallel,
+                                 final int nStoredThreshold) throws IOException
+  {
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    final ZipCodeWriter aWriter = new ZipCodeWriter (aBAOS, "\n");
+    aWriter.setEntryTime (ENTRY_TIME).setParallel (bParallel).setStoredThreshold (nStoredThreshold);
+    cm.build (aWriter);
+    return aBAOS.toByteArray ();
+  }
+
+  @Nonnull
+  private static Map <String, byte []> _readEntries (@Nonnull final byte [] aZip) throws IOException
+  {
+    final Map <String, byte []> ret = new LinkedHashMap <> ();
+    try (final ZipInputStream aZIS = new ZipInputStream (new ByteArrayInputStream (aZip)))
+    {
+      ZipEntry aEntry;
+      while ((aEntry = aZIS.getNextEntry ()) != null)
+      {
+        assertEquals (ENTRY_TIME, aEntry.getTime ());
+        final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+        final byte [] aBuf = new byte [4096];
+        int nRead;
+        while ((nRead = aZIS.read (aBuf)) > 0)
+          aBAOS.write (aBuf, 0, nRead);
+        ret.put (aEntry.getName (), aBAOS.toByteArray ());
+      }
+    }
+    return ret;
+  }
+
+  @Test
+  public void testParallelIsDeterministic () throws Exception
+  {
+    final Map <String, byte []> aExpected = _readEntries (_build (CodeModelTestsHelper.createSimpleModel ("com.helger.zip", 3, 10), false, 0));
+    assertEquals (31, aExpected.size ());
+
+    final byte [] aZip1 = _build (CodeModelTestsHelper.createSimpleModel ("com.helger.zip", 3, 10).setBuildingThreadCount (4), true, 0);
+    final byte [] aZip2 = _build (CodeModelTestsHelper.createSimpleModel ("com.helger.zip", 3, 10).setBuildingThreadCount (4), true, 0);
+    assertArrayEquals (aZip1, aZip2);
+
+    final Map <String, byte []> aActual = _readEntries (aZip1);
+    final List <String> aSortedNames = new ArrayList <> (aExpected.keySet ());
+    Collections.sort (aSortedNames);
+    assertEquals (aSortedNames, new ArrayList <> (aActual.keySet ()));
+    for (final Map.Entry <String, byte []> aEntry : aExpected.entrySet ())
+      assertArrayEquals (aEntry.getKey (), aEntry.getValue (), aActual.get (aEntry.getKey ()));
+  }
+
+  @Test
+  public void testParallelCentralDirectory () throws Exception
+  {
+    final File aFile = File.createTempFile ("jcm", ".zip");
+    try
+    {
+      // Store the root class only
+      Files.write (aFile.toPath (), _build (CodeModelTestsHelper.createSimpleModel ("com.helger.zip", 3, 10), true, 60));
+      final Map <String, byte []> aExpected = _readEntries (_build (CodeModelTestsHelper.createSimpleModel ("com.helger.zip", 3, 10), false, 0));
+      try (final ZipFile aZipFile = new ZipFile (aFile))
+      {
+        assertEquals (aExpected.size (), aZipFile.size ());
+        final Enumeration <? extends ZipEntry> aEntries = aZipFile.entries ();
+        while (aEntries.hasMoreElements ())
+        {
+          final ZipEntry aEntry = aEntries.nextElement ();
+          assertEquals (ENTRY_TIME, aEntry.getTime ());
+          assertEquals (aEntry.getName ().equals ("Root.java") ? ZipEntry.STORED : ZipEntry.DEFLATED,
+                        aEntry.getMethod ());
+          final byte [] aContent = new byte [(int) aEntry.getSize ()];
+          try (final DataInputStream aDIS = new DataInputStream (aZipFile.getInputStream (aEntry)))
+          {
+            aDIS.readFully (aContent);
+          }
+          assertArrayEquals (aExpected.get (aEntry.getName ()), aContent);
+        }
+      }
+    }
+    finally
+    {
+      aFile.delete ();
+    }
+  }
+}